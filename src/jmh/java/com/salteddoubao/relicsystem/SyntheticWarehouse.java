@@ -0,0 +1,71 @@
+package com.salteddoubao.relicsystem;
+
+import com.salteddoubao.relicsystem.relic.RelicData;
+import com.salteddoubao.relicsystem.relic.RelicMainStat;
+import com.salteddoubao.relicsystem.relic.RelicRarity;
+import com.salteddoubao.relicsystem.relic.RelicSlot;
+import com.salteddoubao.relicsystem.relic.RelicStatType;
+import com.salteddoubao.relicsystem.relic.RelicSubstat;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 基准测试用的合成档案：每个部位装备一件，仓库按固定种子随机生成
+ *
+ * 套装取自默认 sets.yml，稀有度集中在蓝/紫/金，副词条 0~4 条且互不重复、不与主词条相同，
+ * 数值保留一位小数，与属性池生成的圣遗物在字段分布上接近。不依赖服务器或插件实例。
+ */
+public final class SyntheticWarehouse {
+    private static final String[] SET_IDS = {
+            "gladiator", "wanderer", "noblesse", "blizzard", "thundering",
+            "viridescent", "heart_of_depth", "pale_flame", "emblem"
+    };
+
+    public final Map<RelicSlot, RelicData> equipped = new EnumMap<>(RelicSlot.class);
+    public final List<RelicData> warehouse;
+
+    public SyntheticWarehouse(int count) {
+        Random random = new Random(42);
+        RelicSlot[] slots = RelicSlot.values();
+        warehouse = new ArrayList<>(count);
+        for (int i = 0; i < count + slots.length; i++) {
+            RelicData relic = generate(random, slots[i % slots.length]);
+            if (i < slots.length) {
+                equipped.put(relic.getSlot(), relic);
+            } else {
+                warehouse.add(relic);
+            }
+        }
+    }
+
+    private static RelicData generate(Random random, RelicSlot slot) {
+        RelicRarity[] rarities = RelicRarity.values();
+        RelicStatType[] stats = RelicStatType.values();
+        RelicRarity rarity = rarities[Math.min(rarities.length - 1, 2 + random.nextInt(rarities.length - 1))];
+        int level = random.nextInt(rarity.getDefaultMaxLevel() + 1);
+        RelicStatType mainType = stats[random.nextInt(stats.length)];
+        RelicMainStat mainStat = new RelicMainStat(mainType, round(5 + random.nextDouble() * 40));
+        Set<RelicStatType> used = EnumSet.of(mainType);
+        List<RelicSubstat> substats = new ArrayList<>(4);
+        int subCount = random.nextInt(5);
+        while (substats.size() < subCount) {
+            RelicStatType type = stats[random.nextInt(stats.length)];
+            if (used.add(type)) {
+                substats.add(new RelicSubstat(type, round(1 + random.nextDouble() * 10)));
+            }
+        }
+        return new RelicData(UUID.randomUUID(), SET_IDS[random.nextInt(SET_IDS.length)], slot, rarity,
+                level, random.nextInt(1000), mainStat, substats, random.nextInt(10) == 0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
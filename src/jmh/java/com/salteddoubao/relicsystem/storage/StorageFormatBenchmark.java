@@ -0,0 +1,65 @@
+package com.salteddoubao.relicsystem.storage;
+
+import com.salteddoubao.relicsystem.SyntheticWarehouse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 存储格式基准：合成仓库在 DAT / DEFLATE / DICT 三种格式下的写入（编码）与读取（解码）耗时
+ *
+ * 文件大小在每组参数开始前打印。v3（ItemStack 对象流）的序列化依赖服务器的 ItemFactory，
+ * 脱离服务器无法运行，因此不在这里对比。
+ * 运行：mvn -Pjmh test-compile exec:exec -Djmh.include=StorageFormatBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StorageFormatBenchmark {
+    @Param({"2000"})
+    public int count;
+
+    @Param({"DAT", "DEFLATE", "DICT"})
+    public RelicFileFormat format;
+
+    private SyntheticWarehouse data;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        data = new SyntheticWarehouse(count);
+        encoded = RelicBinaryCodec.encode(data.equipped, data.warehouse, format);
+        RelicBinaryCodec.Decoded decoded = RelicBinaryCodec.decode(encoded);
+        if (decoded.warehouse.size() != data.warehouse.size()) {
+            throw new IOException(format + " 解码结果数量不一致: " + decoded.warehouse.size() + "/" + data.warehouse.size());
+        }
+        System.out.printf("%s：装备 %d 件 + 仓库 %d 件，文件大小 %.1fKB%n",
+                format, data.equipped.size(), data.warehouse.size(), encoded.length / 1024.0);
+    }
+
+    @Benchmark
+    public byte[] save() throws IOException {
+        return RelicBinaryCodec.encode(data.equipped, data.warehouse, format);
+    }
+
+    @Benchmark
+    public RelicBinaryCodec.Decoded load() throws IOException {
+        return RelicBinaryCodec.decode(encoded);
+    }
+}
@@ -0,0 +1,131 @@
+package com.salteddoubao.relicsystem.util;
+
+import com.salteddoubao.relicsystem.SyntheticWarehouse;
+import com.salteddoubao.relicsystem.relic.RelicData;
+import com.salteddoubao.relicsystem.relic.RelicMainStat;
+import com.salteddoubao.relicsystem.relic.RelicRarity;
+import com.salteddoubao.relicsystem.relic.RelicSlot;
+import com.salteddoubao.relicsystem.relic.RelicStatType;
+import com.salteddoubao.relicsystem.relic.RelicSubstat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 旧版字符串载荷解析基准：原 String.split 实现与 {@link LegacyRelicParser} 逐件解析同一批载荷
+ *
+ * 运行：mvn -Pjmh test-compile exec:exec -Djmh.include=LegacyRelicParserBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LegacyRelicParserBenchmark {
+    @Param({"2000"})
+    public int count;
+
+    private List<String> payloads;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<RelicData> relics = new SyntheticWarehouse(count).warehouse;
+        payloads = new ArrayList<>(relics.size());
+        for (RelicData relic : relics) {
+            payloads.add(formatLegacy(relic));
+        }
+        int split = split();
+        int cursor = cursor();
+        if (split != payloads.size() || cursor != payloads.size()) {
+            throw new IllegalStateException("旧版载荷解析结果数量不一致: split " + split + " / cursor " + cursor + " / " + payloads.size());
+        }
+    }
+
+    @Benchmark
+    public int split() {
+        int parsed = 0;
+        for (String payload : payloads) {
+            if (parseLegacyBySplit(payload) != null) parsed++;
+        }
+        return parsed;
+    }
+
+    @Benchmark
+    public int cursor() {
+        int parsed = 0;
+        for (String payload : payloads) {
+            if (LegacyRelicParser.parse(payload) != null) parsed++;
+        }
+        return parsed;
+    }
+
+    /**
+     * 旧版物品字符串载荷（id|setId|slot|rarity|level|exp|locked|主词条|副词条;...）
+     */
+    private static String formatLegacy(RelicData relic) {
+        StringBuilder sb = new StringBuilder(160);
+        sb.append(relic.getId()).append('|').append(relic.getSetId()).append('|')
+                .append(relic.getSlot().name()).append('|').append(relic.getRarity().name()).append('|')
+                .append(relic.getLevel()).append('|').append(relic.getExp()).append('|')
+                .append(relic.isLocked()).append('|')
+                .append(relic.getMainStat().getType().name()).append(':').append(relic.getMainStat().getValue()).append('|');
+        String separator = "";
+        for (RelicSubstat sub : relic.getSubstats()) {
+            sb.append(separator).append(sub.getType().name()).append(':').append(sub.getValue());
+            separator = ";";
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 原 RelicItemConverter 中基于 String.split 的解析实现，作为对照基线
+     */
+    private static RelicData parseLegacyBySplit(String data) {
+        try {
+            String[] parts = data.split("\\|");
+            if (parts.length < 8) return null;
+            UUID id = UUID.fromString(parts[0]);
+            String setId = parts[1];
+            RelicSlot slot = RelicSlot.valueOf(parts[2]);
+            RelicRarity rarity = RelicRarity.valueOf(parts[3]);
+            int level = Integer.parseInt(parts[4]);
+            int exp = Integer.parseInt(parts[5]);
+            boolean locked = Boolean.parseBoolean(parts[6]);
+            String[] mainParts = parts[7].split(":");
+            String mainTypeStr = LegacyRelicParser.migrateOldStatType(mainParts[0]);
+            if (mainTypeStr == null) return null;
+            RelicMainStat mainStat = new RelicMainStat(RelicStatType.valueOf(mainTypeStr), Double.parseDouble(mainParts[1]));
+            List<RelicSubstat> substats = new ArrayList<>();
+            if (parts.length > 8 && !parts[8].isEmpty()) {
+                for (String subPart : parts[8].split(";")) {
+                    if (subPart.isEmpty()) continue;
+                    String[] subData = subPart.split(":");
+                    if (subData.length != 2) continue;
+                    String subTypeStr = LegacyRelicParser.migrateOldStatType(subData[0]);
+                    if (subTypeStr != null) {
+                        substats.add(new RelicSubstat(RelicStatType.valueOf(subTypeStr), Double.parseDouble(subData[1])));
+                    }
+                }
+            }
+            return new RelicData(id, setId, slot, rarity, level, exp, mainStat, substats, locked);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
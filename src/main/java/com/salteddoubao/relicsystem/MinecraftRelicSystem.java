@@ -15,6 +15,12 @@ import com.salteddoubao.relicsystem.service.RelicGenerationService;
 import com.salteddoubao.relicsystem.service.StatAggregationService;
 import com.salteddoubao.relicsystem.service.AttributePlusBridge;
 import com.salteddoubao.relicsystem.storage.IRelicProfileManager;
+import com.salteddoubao.relicsystem.storage.ProfileSavePipeline;
+import com.salteddoubao.relicsystem.storage.RelicColdArchive;
+import com.salteddoubao.relicsystem.storage.RelicAuditLog;
+import com.salteddoubao.relicsystem.storage.RelicBackupService;
+import com.salteddoubao.relicsystem.storage.RelicRegistry;
+import com.salteddoubao.relicsystem.storage.ShardedLayout;
 import com.salteddoubao.relicsystem.storage.StorageFactory;
 import com.salteddoubao.relicsystem.util.RelicItemConverter;
 import com.salteddoubao.relicsystem.util.ExceptionHandler;
@@ -33,6 +39,13 @@ public class MinecraftRelicSystem extends JavaPlugin {
     private RelicManager relicManager;
     private IRelicProfileManager relicProfileManager;
     private StorageFactory storageFactory;
+    private ProfileSavePipeline profileSavePipeline;
+    private RelicColdArchive coldArchive;
+    private RelicRegistry relicRegistry;
+    private RelicAuditLog auditLog;
+    private RelicBackupService backupService;
+    private ShardedLayout relicStorageLayout;
+    private ShardedLayout playerFileLayout;
     private RelicEffectService relicEffectService;
     private StatAggregationService statAggregationService;
     private RelicItemConverter relicItemConverter;
@@ -80,12 +93,33 @@ public class MinecraftRelicSystem extends JavaPlugin {
     public void onDisable() {
         getLogger().info("RelicSystem 正在关闭...");
         
+        if (backupService != null) {
+            backupService.stop();
+        }
+
         // 1. 先保存所有在线玩家的数据
         if (relicProfileManager != null) {
             getLogger().info("正在保存所有玩家数据...");
             relicProfileManager.saveAll();
         }
 
+        // 1.1 等待保存管线写完所有排队中的快照
+        if (profileSavePipeline != null) {
+            profileSavePipeline.shutdown();
+        }
+        if (relicProfileManager != null) {
+            relicProfileManager.shutdown();
+        }
+        if (coldArchive != null) {
+            coldArchive.close();
+        }
+        if (relicRegistry != null) {
+            relicRegistry.close();
+        }
+        if (auditLog != null) {
+            auditLog.close();
+        }
+
         // 2. 再清理属性修饰（包含原版修饰与 AP 来源），避免残留
         try {
             if (relicEffectService != null) {
@@ -117,8 +151,8 @@ public class MinecraftRelicSystem extends JavaPlugin {
 
         // 检查存储模式
         String storageMode = getConfig().getString("relic.storage_mode");
-        if (!java.util.Arrays.asList("YAML", "INVENTORY").contains(storageMode)) {
-            errors.add("无效的存储模式: " + storageMode + "，有效值为: YAML, INVENTORY");
+        if (!java.util.Arrays.asList("YAML", "INVENTORY", "SEGMENT", "SQLITE").contains(storageMode)) {
+            errors.add("无效的存储模式: " + storageMode + "，有效值为: YAML, INVENTORY, SEGMENT, SQLITE");
         }
 
         // 检查最大等级
@@ -169,7 +203,21 @@ public class MinecraftRelicSystem extends JavaPlugin {
         relicItemConverter = new RelicItemConverter(this);
 
         // 初始化存储系统
+        profileSavePipeline = new ProfileSavePipeline(this,
+                getConfig().getInt("relic.save_pipeline.threads", 2),
+                getConfig().getLong("relic.save_pipeline.coalesce_ms", 1000));
+        coldArchive = new RelicColdArchive(this);
+        relicStorageLayout = ShardedLayout.fromConfig(this, "relic_storage");
+        playerFileLayout = ShardedLayout.fromConfig(this, "players");
         storageFactory = new StorageFactory(this);
+        relicRegistry = storageFactory.createRelicRegistry();
+        if (getConfig().getBoolean("relic.audit.enabled", true)) {
+            auditLog = new RelicAuditLog(this);
+        }
+        if (getConfig().getBoolean("relic.backup.enabled", true)) {
+            backupService = new RelicBackupService(this);
+            backupService.start(getConfig().getLong("relic.backup.interval_minutes", 60));
+        }
         getLogger().info("存储模式: " + storageFactory.getStorageModeDisplayName());
         getLogger().info("存储描述: " + storageFactory.getStorageModeDescription());
         
@@ -233,6 +281,13 @@ public class MinecraftRelicSystem extends JavaPlugin {
     public RelicManager getRelicManager() { return relicManager; }
     public IRelicProfileManager getRelicProfileManager() { return relicProfileManager; }
     public StorageFactory getStorageFactory() { return storageFactory; }
+    public ProfileSavePipeline getProfileSavePipeline() { return profileSavePipeline; }
+    public RelicColdArchive getColdArchive() { return coldArchive; }
+    public RelicRegistry getRelicRegistry() { return relicRegistry; }
+    public RelicAuditLog getAuditLog() { return auditLog; }
+    public RelicBackupService getBackupService() { return backupService; }
+    public ShardedLayout getRelicStorageLayout() { return relicStorageLayout; }
+    public ShardedLayout getPlayerFileLayout() { return playerFileLayout; }
     public RelicEffectService getRelicEffectService() { return relicEffectService; }
     public StatAggregationService getStatAggregationService() { return statAggregationService; }
     // 已移除 AP 依赖，使用内置属性引擎
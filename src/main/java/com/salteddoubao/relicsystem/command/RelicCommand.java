@@ -11,6 +11,12 @@ import com.salteddoubao.relicsystem.gui.*;
 import com.salteddoubao.relicsystem.manager.RelicManager;
 import com.salteddoubao.relicsystem.relic.*;
 import com.salteddoubao.relicsystem.storage.DataMigration;
+import com.salteddoubao.relicsystem.storage.InventoryProfileManager;
+import com.salteddoubao.relicsystem.storage.ProfileSummary;
+import com.salteddoubao.relicsystem.storage.RelicAuditLog;
+import com.salteddoubao.relicsystem.storage.RelicBackupService;
+import com.salteddoubao.relicsystem.storage.RelicNdjsonTransfer;
+import com.salteddoubao.relicsystem.storage.SegmentRelicStore;
 import com.salteddoubao.relicsystem.util.RelicItemConverter;
 import com.salteddoubao.relicsystem.service.RelicGenerationService;
 
@@ -42,6 +48,16 @@ public class RelicCommand implements CommandExecutor, TabCompleter {
                 sender.sendMessage("§6/relic box give <player> <boxId> [amount] §7- 发放宝箱");
                 sender.sendMessage("§6/relic migrate §7- 数据迁移到独立存储系统");
                 sender.sendMessage("§6/relic migration-status §7- 查看迁移状态");
+                sender.sendMessage("§6/relic migrate-all [stop] §7- 离线批量迁移全部YAML档案");
+                sender.sendMessage("§6/relic storage-status [player] §7- 查看存储状态/玩家存储计数");
+                sender.sendMessage("§6/relic migrate-store §7- 独立存储文件迁移到段文件/数据库存储");
+                sender.sendMessage("§6/relic segment-compact §7- 计划在下次启动时压缩段文件");
+                sender.sendMessage("§6/relic registry-rebuild §7- 扫描全部玩家重建圣遗物登记表");
+                sender.sendMessage("§6/relic audit <玩家|圣遗物UUID> [天数] §7- 查询圣遗物流转审计记录");
+                sender.sendMessage("§6/relic reshard §7- 按当前目录布局整理 relic_storage/ 与 players/");
+                sender.sendMessage("§6/relic backup <now|list [player]|restore <player> <快照>> §7- 增量备份与单玩家恢复");
+                sender.sendMessage("§6/relic export [文件名] §7- 把全部圣遗物数据导出为 NDJSON（exports/）");
+                sender.sendMessage("§6/relic import <文件名> [overwrite] §7- 从 exports/ 下的 NDJSON 导入");
             }
             return true;
         }
@@ -64,6 +80,16 @@ public class RelicCommand implements CommandExecutor, TabCompleter {
                     sender.sendMessage("§6/relic box give <player> <boxId> [amount] §7- 发放宝箱");
                     sender.sendMessage("§6/relic migrate §7- 迁移旧数据");
                     sender.sendMessage("§6/relic migration-status §7- 查看迁移状态");
+                    sender.sendMessage("§6/relic migrate-all [stop] §7- 离线批量迁移全部YAML档案");
+                    sender.sendMessage("§6/relic storage-status [player] §7- 查看存储状态/玩家存储计数");
+                    sender.sendMessage("§6/relic migrate-store §7- 独立存储文件迁移到段文件/数据库存储");
+                    sender.sendMessage("§6/relic segment-compact §7- 计划在下次启动时压缩段文件");
+                    sender.sendMessage("§6/relic registry-rebuild §7- 扫描全部玩家重建圣遗物登记表");
+                    sender.sendMessage("§6/relic audit <玩家|圣遗物UUID> [天数] §7- 查询圣遗物流转审计记录");
+                    sender.sendMessage("§6/relic reshard §7- 按当前目录布局整理 relic_storage/ 与 players/");
+                    sender.sendMessage("§6/relic backup <now|list [player]|restore <player> <快照>> §7- 增量备份与单玩家恢复");
+                    sender.sendMessage("§6/relic export [文件名] §7- 把全部圣遗物数据导出为 NDJSON（exports/）");
+                    sender.sendMessage("§6/relic import <文件名> [overwrite] §7- 从 exports/ 下的 NDJSON 导入");
                 }
                 return true;
             case "list":
@@ -193,6 +219,7 @@ public class RelicCommand implements CommandExecutor, TabCompleter {
                     for (RelicSlot s : RelicSlot.values()) {
                         RelicData d = genSvc.generate(genSet, s, genRarity, genLevel);
                         genPlayer.getInventory().addItem(genConv.toItemStack(d));
+                        auditGenerate(genPlayer, d, RelicAuditLog.Source.COMMAND_GEN);
                         generated++;
                     }
                 } else {
@@ -200,6 +227,7 @@ public class RelicCommand implements CommandExecutor, TabCompleter {
                     try { genSlot = RelicSlot.valueOf(genSlotArg); } catch (Exception ex) { sender.sendMessage("§c无效部位"); return true; }
                     RelicData genData = genSvc.generate(genSet, genSlot, genRarity, genLevel);
                     genPlayer.getInventory().addItem(genConv.toItemStack(genData));
+                    auditGenerate(genPlayer, genData, RelicAuditLog.Source.COMMAND_GEN);
                     generated = 1;
                 }
                 sender.sendMessage("§a已生成并发放: " + genSet + " x" + generated + " (Lv." + genLevel + ")");
@@ -231,6 +259,7 @@ public class RelicCommand implements CommandExecutor, TabCompleter {
                     for (RelicSlot s : RelicSlot.values()) {
                         RelicData d = plugin.getRelicGenerationService().generate(giveSetId, s, giveRarity, level);
                         target.getInventory().addItem(conv.toItemStack(d));
+                        auditGenerate(target, d, RelicAuditLog.Source.COMMAND_GIVE);
                         count++;
                     }
                 } else {
@@ -238,6 +267,7 @@ public class RelicCommand implements CommandExecutor, TabCompleter {
                     try { giveSlot = RelicSlot.valueOf(giveSlotArg); } catch (Exception ex) { sender.sendMessage("§c无效部位"); return true; }
                     RelicData grant = plugin.getRelicGenerationService().generate(giveSetId, giveSlot, giveRarity, level);
                     target.getInventory().addItem(conv.toItemStack(grant));
+                    auditGenerate(target, grant, RelicAuditLog.Source.COMMAND_GIVE);
                     count = 1;
                 }
                 sender.sendMessage("§a已发放圣遗物给 " + target.getName() + " x" + count);
@@ -302,6 +332,19 @@ public class RelicCommand implements CommandExecutor, TabCompleter {
                 }
                 return true;
                 
+            case "migrate-all":
+                if (!sender.hasPermission("mrs.admin")) {
+                    sender.sendMessage("§c无权限");
+                    return true;
+                }
+                
+                if (args.length >= 2 && args[1].equalsIgnoreCase("stop")) {
+                    sender.sendMessage(new DataMigration(plugin).stopBulkMigration());
+                } else {
+                    sender.sendMessage(new DataMigration(plugin).startBulkMigration(sender));
+                }
+                return true;
+                
             case "migration-status":
                 if (!sender.hasPermission("mrs.admin")) {
                     sender.sendMessage("§c无权限");
@@ -322,6 +365,233 @@ public class RelicCommand implements CommandExecutor, TabCompleter {
                 }
                 return true;
                 
+            case "storage-status":
+                if (!sender.hasPermission("mrs.admin")) {
+                    sender.sendMessage("§c无权限");
+                    return true;
+                }
+                
+                sender.sendMessage("§6=== 存储状态 ===");
+                sender.sendMessage("§7存储模式: §f" + plugin.getStorageFactory().getStorageModeDisplayName());
+                if (plugin.getProfileSavePipeline() != null) {
+                    for (String line : plugin.getProfileSavePipeline().getStatusLines()) {
+                        sender.sendMessage(line);
+                    }
+                }
+                if (plugin.getAuditLog() != null) {
+                    for (String line : plugin.getAuditLog().getStatusLines()) {
+                        sender.sendMessage(line);
+                    }
+                }
+                if (plugin.getBackupService() != null) {
+                    for (String line : plugin.getBackupService().getStatusLines()) {
+                        sender.sendMessage(line);
+                    }
+                }
+                if (plugin.getRelicProfileManager() instanceof InventoryProfileManager) {
+                    InventoryProfileManager ipm = (InventoryProfileManager) plugin.getRelicProfileManager();
+                    if (args.length >= 2) {
+                        // 指定玩家：只读计数摘要，离线玩家也不会解码整个仓库
+                        org.bukkit.OfflinePlayer op = plugin.getServer().getPlayerExact(args[1]);
+                        if (op == null) op = plugin.getServer().getOfflinePlayer(args[1]);
+                        if (!op.isOnline() && !ipm.getStorage().contains(op.getUniqueId())) {
+                            sender.sendMessage("§c没有该玩家的存储数据: " + args[1]);
+                            return true;
+                        }
+                        ProfileSummary summary = ipm.getSummary(op.getUniqueId());
+                        int capacity = ipm.getStorage().getWarehouseCapacity();
+                        sender.sendMessage(String.format("§7玩家 §f%s§7: 装备 §f%d/5§7, 仓库 §f%d/%d §7(可用 §f%d§7)",
+                                args[1], summary.getEquipped(), summary.getWarehouse(), capacity, summary.getAvailable(capacity)));
+                        StringBuilder slots = new StringBuilder("§7仓库部位:");
+                        for (RelicSlot slot : RelicSlot.values()) {
+                            slots.append(" §f").append(slot.name()).append("§7=").append(summary.getSlotCount(slot));
+                        }
+                        sender.sendMessage(slots.toString());
+                        StringBuilder rarities = new StringBuilder("§7仓库稀有度:");
+                        for (RelicRarity rarity : RelicRarity.values()) {
+                            rarities.append(" §f").append(rarity.name()).append("§7=").append(summary.getRarityCount(rarity));
+                        }
+                        sender.sendMessage(rarities.toString());
+                        return true;
+                    }
+                    for (String line : ipm.getStorage().getStatusLines()) {
+                        sender.sendMessage(line);
+                    }
+                    if (plugin.getRelicRegistry() != null) {
+                        for (String line : plugin.getRelicRegistry().getStatusLines()) {
+                            sender.sendMessage(line);
+                        }
+                    }
+                }
+                return true;
+                
+            case "migrate-store":
+            case "migrate-segments":
+                if (!sender.hasPermission("mrs.admin")) {
+                    sender.sendMessage("§c无权限");
+                    return true;
+                }
+                
+                sender.sendMessage("§e开始迁移独立存储文件到当前存储...");
+                sender.sendMessage(new DataMigration(plugin).migrateInventoryFilesToStore());
+                return true;
+                
+            case "segment-compact":
+                if (!sender.hasPermission("mrs.admin")) {
+                    sender.sendMessage("§c无权限");
+                    return true;
+                }
+                
+                if (!(plugin.getRelicProfileManager() instanceof InventoryProfileManager)
+                        || !(((InventoryProfileManager) plugin.getRelicProfileManager()).getStorage() instanceof SegmentRelicStore)) {
+                    sender.sendMessage("§c当前存储模式不是段文件存储(SEGMENT)");
+                    return true;
+                }
+                try {
+                    ((SegmentRelicStore) ((InventoryProfileManager) plugin.getRelicProfileManager()).getStorage()).requestOfflineCompaction();
+                    sender.sendMessage("§a已计划压缩：段文件将在下次服务器启动时整理");
+                } catch (java.io.IOException e) {
+                    sender.sendMessage("§c计划压缩失败: " + e.getMessage());
+                }
+                return true;
+                
+            case "registry-rebuild":
+                if (!sender.hasPermission("mrs.admin")) {
+                    sender.sendMessage("§c无权限");
+                    return true;
+                }
+                
+                if (plugin.getRelicRegistry() == null || !(plugin.getRelicProfileManager() instanceof InventoryProfileManager)) {
+                    sender.sendMessage("§c圣遗物登记表未启用（YAML 存储模式或 relic.registry.enabled 为 false）");
+                    return true;
+                }
+                {
+                    // 先写回在线玩家，等保存管线写完后在后台扫描存储
+                    InventoryProfileManager ipm = (InventoryProfileManager) plugin.getRelicProfileManager();
+                    ipm.saveAll();
+                    sender.sendMessage("§e正在后台扫描全部玩家重建圣遗物登记表...");
+                    plugin.getProfileSavePipeline().flushThen(() -> {
+                        String result = plugin.getRelicRegistry().rebuild(ipm.getStorage());
+                        plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(result));
+                    });
+                }
+                return true;
+                
+            case "audit":
+                if (!sender.hasPermission("mrs.admin")) {
+                    sender.sendMessage("§c无权限");
+                    return true;
+                }
+                
+                if (plugin.getAuditLog() == null) {
+                    sender.sendMessage("§c审计日志未启用（relic.audit.enabled 为 false）");
+                    return true;
+                }
+                if (args.length < 2) {
+                    sender.sendMessage("§c用法: /relic audit <玩家名|玩家UUID|圣遗物UUID> [天数]");
+                    return true;
+                }
+                {
+                    UUID auditKey;
+                    try {
+                        auditKey = UUID.fromString(args[1]);
+                    } catch (IllegalArgumentException ex) {
+                        org.bukkit.OfflinePlayer op = plugin.getServer().getPlayerExact(args[1]);
+                        if (op == null) op = plugin.getServer().getOfflinePlayer(args[1]);
+                        auditKey = op.getUniqueId();
+                    }
+                    int auditDays = 7;
+                    if (args.length >= 3) {
+                        try { auditDays = Integer.parseInt(args[2]); } catch (NumberFormatException ex) { sender.sendMessage("§c天数必须是数字"); return true; }
+                    }
+                    int days = Math.max(1, auditDays);
+                    UUID key = auditKey;
+                    RelicAuditLog auditLog = plugin.getAuditLog();
+                    sender.sendMessage("§e正在查询审计日志...");
+                    // 读文件在后台进行，结果回到主线程发送
+                    plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                        List<RelicAuditLog.Entry> entries = auditLog.query(key, days, 50);
+                        plugin.getServer().getScheduler().runTask(plugin, () -> sendAuditEntries(sender, args[1], days, entries));
+                    });
+                }
+                return true;
+                
+            case "reshard":
+                if (!sender.hasPermission("mrs.admin")) {
+                    sender.sendMessage("§c无权限");
+                    return true;
+                }
+                
+                sender.sendMessage("§e正在后台按 " + plugin.getRelicStorageLayout().describe() + " 布局整理玩家文件目录...");
+                // 移动与读写互斥（见 ShardedLayout），无需停服
+                plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                    int storageMoved = plugin.getRelicStorageLayout().reshard();
+                    int playersMoved = plugin.getPlayerFileLayout().reshard();
+                    plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(String.format(
+                            "§a目录整理完成: relic_storage/ 移动 %d 个, players/ 移动 %d 个", storageMoved, playersMoved)));
+                });
+                return true;
+                
+            case "backup":
+                if (!sender.hasPermission("mrs.admin")) {
+                    sender.sendMessage("§c无权限");
+                    return true;
+                }
+                
+                if (plugin.getBackupService() == null) {
+                    sender.sendMessage("§c备份未启用（relic.backup.enabled 为 false）");
+                    return true;
+                }
+                handleBackup(sender, args);
+                return true;
+                
+            case "export":
+                if (!sender.hasPermission("mrs.admin")) {
+                    sender.sendMessage("§c无权限");
+                    return true;
+                }
+                
+                if (RelicNdjsonTransfer.isRunning()) {
+                    sender.sendMessage("§c已有导出/导入任务正在进行");
+                    return true;
+                }
+                {
+                    RelicNdjsonTransfer transfer = new RelicNdjsonTransfer(plugin);
+                    String exportName = args.length >= 2 ? args[1]
+                            : "relics-" + java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".ndjson.gz";
+                    java.io.File exportFile = transfer.resolve(exportName);
+                    // 先写回在线玩家，等保存管线写完后在后台导出
+                    plugin.getRelicProfileManager().saveAll();
+                    sender.sendMessage("§e正在后台导出全部圣遗物数据到 exports/" + exportFile.getName() + " ...");
+                    plugin.getProfileSavePipeline().flushThen(() -> plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                        String result = transfer.exportAll(exportFile);
+                        plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(result));
+                    }));
+                }
+                return true;
+                
+            case "import":
+                if (!sender.hasPermission("mrs.admin")) {
+                    sender.sendMessage("§c无权限");
+                    return true;
+                }
+                
+                if (args.length < 2) {
+                    sender.sendMessage("§c用法: /relic import <文件名> [overwrite]");
+                    return true;
+                }
+                {
+                    RelicNdjsonTransfer transfer = new RelicNdjsonTransfer(plugin);
+                    java.io.File importFile = transfer.resolve(args[1]);
+                    boolean overwrite = args.length >= 3 && args[2].equalsIgnoreCase("overwrite");
+                    sender.sendMessage("§e正在后台导入 exports/" + importFile.getName() + (overwrite ? "（替换已有数据）" : "（跳过已有数据的玩家）") + " ...");
+                    plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                        String result = transfer.importAll(importFile, overwrite);
+                        plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(result));
+                    });
+                }
+                return true;
+                
             default:
                 sender.sendMessage("§c未知子命令");
                 return true;
@@ -335,7 +605,7 @@ public class RelicCommand implements CommandExecutor, TabCompleter {
         if (args.length == 1) {
             completions.addAll(List.of("help", "list", "gui", "stats", "refresh"));
             if (sender.hasPermission("mrs.admin")) {
-                completions.addAll(List.of("give", "gen", "box", "reload", "migrate", "migration-status"));
+                completions.addAll(List.of("give", "gen", "box", "reload", "migrate", "migrate-all", "migration-status", "storage-status", "migrate-store", "segment-compact", "registry-rebuild", "audit", "reshard", "backup", "export", "import"));
             }
             return filterCompletions(completions, args[0]);
         }
@@ -359,6 +629,23 @@ public class RelicCommand implements CommandExecutor, TabCompleter {
                 completions.add("give");
                 return filterCompletions(completions, args[1]);
             }
+            if (subCommand.equals("migrate-all") && sender.hasPermission("mrs.admin")) {
+                completions.add("stop");
+                return filterCompletions(completions, args[1]);
+            }
+            if ((subCommand.equals("storage-status") || subCommand.equals("audit")) && sender.hasPermission("mrs.admin")) {
+                for (org.bukkit.entity.Player pl : plugin.getServer().getOnlinePlayers()) completions.add(pl.getName());
+                return filterCompletions(completions, args[1]);
+            }
+            if (subCommand.equals("backup") && sender.hasPermission("mrs.admin")) {
+                completions.addAll(List.of("now", "list", "restore"));
+                return filterCompletions(completions, args[1]);
+            }
+            if (subCommand.equals("import") && sender.hasPermission("mrs.admin")) {
+                String[] exports = new java.io.File(plugin.getDataFolder(), "exports").list((dir, name) -> name.endsWith(".ndjson") || name.endsWith(".ndjson.gz"));
+                if (exports != null) completions.addAll(List.of(exports));
+                return filterCompletions(completions, args[1]);
+            }
         }
         
         if (args.length == 3) {
@@ -376,6 +663,16 @@ public class RelicCommand implements CommandExecutor, TabCompleter {
                 for (org.bukkit.entity.Player pl : plugin.getServer().getOnlinePlayers()) completions.add(pl.getName());
                 return filterCompletions(completions, args[2]);
             }
+            if (subCommand.equals("import") && sender.hasPermission("mrs.admin")) {
+                completions.add("overwrite");
+                return filterCompletions(completions, args[2]);
+            }
+        }
+        
+        if (args.length == 4 && args[0].equalsIgnoreCase("backup") && args[1].equalsIgnoreCase("restore")
+                && sender.hasPermission("mrs.admin") && plugin.getBackupService() != null) {
+            for (java.io.File snapshot : plugin.getBackupService().listSnapshots()) completions.add(snapshot.getName());
+            return filterCompletions(completions, args[3]);
         }
         
         if (args.length == 4) {
@@ -421,6 +718,88 @@ public class RelicCommand implements CommandExecutor, TabCompleter {
         return completions;
     }
     
+    /**
+     * /relic backup now | list [player] | restore <player> <快照>
+     * 备份与恢复都在后台线程执行，结果回到主线程发送
+     */
+    private void handleBackup(CommandSender sender, String[] args) {
+        RelicBackupService backup = plugin.getBackupService();
+        String action = args.length >= 2 ? args[1].toLowerCase() : "list";
+        switch (action) {
+            case "now":
+                sender.sendMessage("§e正在后台生成备份快照...");
+                plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                    String result = backup.backupNow();
+                    plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(result));
+                });
+                return;
+            case "list": {
+                UUID filter = args.length >= 3 ? plugin.getServer().getOfflinePlayer(args[2]).getUniqueId() : null;
+                plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                    List<String> lines = new ArrayList<>();
+                    for (java.io.File snapshot : backup.listSnapshots()) {
+                        if (filter == null || backup.containsPlayer(snapshot, filter)) {
+                            lines.add("§7- §f" + snapshot.getName());
+                        }
+                    }
+                    plugin.getServer().getScheduler().runTask(plugin, () -> {
+                        sender.sendMessage("§6=== 备份快照" + (filter != null ? "（含 " + args[2] + "）" : "") + "，由新到旧 ===");
+                        if (lines.isEmpty()) {
+                            sender.sendMessage("§7没有可用的快照");
+                        }
+                        lines.forEach(sender::sendMessage);
+                    });
+                });
+                return;
+            }
+            case "restore": {
+                if (args.length < 4) {
+                    sender.sendMessage("§c用法: /relic backup restore <玩家> <快照>");
+                    return;
+                }
+                org.bukkit.OfflinePlayer op = plugin.getServer().getPlayerExact(args[2]);
+                if (op == null) op = plugin.getServer().getOfflinePlayer(args[2]);
+                if (op.isOnline()) {
+                    sender.sendMessage("§c请先让该玩家下线再恢复");
+                    return;
+                }
+                UUID playerId = op.getUniqueId();
+                sender.sendMessage("§e正在从快照 " + args[3] + " 恢复 " + args[2] + " 的圣遗物数据...");
+                plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                    String result = backup.restore(playerId, args[3]);
+                    plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(result));
+                });
+                return;
+            }
+            default:
+                sender.sendMessage("§c用法: /relic backup <now|list [player]|restore <player> <快照>>");
+        }
+    }
+
+    private void auditGenerate(Player owner, RelicData relic, RelicAuditLog.Source source) {
+        if (plugin.getAuditLog() != null) {
+            plugin.getAuditLog().record(owner.getUniqueId(), relic.getId(), RelicAuditLog.Op.GENERATE, source);
+        }
+    }
+
+    private void sendAuditEntries(CommandSender sender, String query, int days, List<RelicAuditLog.Entry> entries) {
+        sender.sendMessage("§6=== 审计记录: " + query + " (最近 " + days + " 天，由新到旧) ===");
+        if (entries.isEmpty()) {
+            sender.sendMessage("§7没有找到相关记录");
+            return;
+        }
+        java.text.SimpleDateFormat fmt = new java.text.SimpleDateFormat("MM-dd HH:mm:ss");
+        for (RelicAuditLog.Entry e : entries) {
+            String name = plugin.getServer().getOfflinePlayer(e.getActor()).getName();
+            sender.sendMessage(String.format("§7[%s] §f%s §e%s §b%s §7(%s)",
+                    fmt.format(new Date(e.getTime())), name != null ? name : e.getActor().toString(),
+                    e.getOp().getDisplayName(), e.getRelic(), e.getSource().getDisplayName()));
+        }
+        if (entries.size() >= 50) {
+            sender.sendMessage("§7仅显示最近 50 条");
+        }
+    }
+
     private List<String> filterCompletions(List<String> completions, String input) {
         return completions.stream()
                 .filter(s -> s.toLowerCase().startsWith(input.toLowerCase()))
@@ -13,6 +13,7 @@ import org.bukkit.inventory.meta.ItemMeta;
 import com.salteddoubao.relicsystem.MinecraftRelicSystem;
 import com.salteddoubao.relicsystem.relic.*;
 import com.salteddoubao.relicsystem.util.RelicDisplayUtils;
+import com.salteddoubao.relicsystem.util.RelicLoreTemplates;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -33,6 +34,8 @@ public class RelicEquipmentGUI {
     private static final int CIRCLET_SLOT = 34;
     
     private static final int BACK_SLOT = 40;  // 返回主菜单按钮
+    private static final Component LOCKED_LINE = Component.text("§c🔒 已锁定");
+    private static final Component UNEQUIP_HINT_LINE = Component.text("§c点击卸下到仓库");
     
     public RelicEquipmentGUI(MinecraftRelicSystem plugin) {
         this.plugin = plugin;
@@ -156,9 +159,10 @@ public class RelicEquipmentGUI {
         // 追加：当前已装备圣遗物属性合计（关键信息）
         java.util.Map<com.salteddoubao.relicsystem.relic.RelicStatType, java.lang.Double> total = plugin.getStatAggregationService().aggregate(profile);
         if (total != null && !total.isEmpty()) {
-            lore.add(Component.text("§6属性合计:"));
+            RelicLoreTemplates templates = plugin.getRelicManager().getLoreTemplates();
+            lore.add(RelicLoreTemplates.STAT_TOTAL_HEADER);
             for (java.util.Map.Entry<com.salteddoubao.relicsystem.relic.RelicStatType, java.lang.Double> e : total.entrySet()) {
-                lore.add(Component.text("  §7- " + e.getKey().getDisplay() + ": §a" + String.format("%.1f", e.getValue()) + (e.getKey().isPercent() ? "%" : "")));
+                lore.add(templates.statTotal(e.getKey(), e.getValue()));
             }
         }
         
@@ -179,30 +183,18 @@ public class RelicEquipmentGUI {
             meta.displayName(Component.text("§a[已装备] " + RelicDisplayUtils.getRarityColor(relic.getRarity()) + setName)
                 .decoration(TextDecoration.ITALIC, false));
             
+            RelicLoreTemplates templates = plugin.getRelicManager().getLoreTemplates();
             List<Component> lore = new ArrayList<>();
-            lore.add(Component.text("§7部位: §f" + RelicDisplayUtils.getSlotDisplayName(relic.getSlot())));
-            lore.add(Component.text("§7等级: §f" + relic.getLevel()));
-            lore.add(Component.text("§7"));
-            lore.add(Component.text("§6主词条:"));
-            lore.add(Component.text("  " + relic.getMainStat().getType().getDisplay() + ": §a" + 
-                String.format("%.1f", relic.getMainStat().getValue()) + 
-                (relic.getMainStat().getType().isPercent() ? "%" : "")));
+            lore.add(templates.slot(relic.getSlot()));
+            lore.add(templates.level(relic.getLevel()));
+            lore.add(RelicLoreTemplates.BLANK);
+            templates.appendStats(lore, relic);
             
-            if (!relic.getSubstats().isEmpty()) {
-                lore.add(Component.text("§7"));
-                lore.add(Component.text("§6副词条:"));
-                for (RelicSubstat substat : relic.getSubstats()) {
-                    lore.add(Component.text("  " + substat.getType().getDisplay() + ": §a" + 
-                        String.format("%.1f", substat.getValue()) + 
-                        (substat.getType().isPercent() ? "%" : "")));
-                }
-            }
-            
-            lore.add(Component.text("§7"));
+            lore.add(RelicLoreTemplates.BLANK);
             if (relic.isLocked()) {
-                lore.add(Component.text("§c🔒 已锁定"));
+                lore.add(LOCKED_LINE);
             }
-            lore.add(Component.text("§c点击卸下到仓库"));
+            lore.add(UNEQUIP_HINT_LINE);
             
             meta.lore(lore);
             item.setItemMeta(meta);
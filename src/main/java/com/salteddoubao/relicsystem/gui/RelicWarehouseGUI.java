@@ -14,9 +14,9 @@ import org.bukkit.inventory.meta.ItemMeta;
 import com.salteddoubao.relicsystem.MinecraftRelicSystem;
 import com.salteddoubao.relicsystem.relic.*;
 import com.salteddoubao.relicsystem.util.RelicDisplayUtils;
+import com.salteddoubao.relicsystem.util.RelicLoreTemplates;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -36,6 +36,9 @@ public class RelicWarehouseGUI {
     private static final int SORT_SLOT = 43; // 排序方式切换按钮
     private static final int BACK_SLOT = 36;  // 返回主菜单
     private static final int PUT_IN_SLOT = 44;  // 从背包放入仓库按钮
+    private static final Component LOCKED_LINE = Component.text("§c🔒 已锁定");
+    private static final Component EQUIP_HINT_LINE = Component.text("§e左键：装备到对应部位");
+    private static final Component TAKE_OUT_HINT_LINE = Component.text("§e右键：取出到背包");
 
     public RelicWarehouseGUI(MinecraftRelicSystem plugin) {
         this.plugin = plugin;
@@ -75,11 +78,14 @@ public class RelicWarehouseGUI {
         // 设置边框
         setupBorder(inv);
         
+        // 按排序键筛选排序，只为当前页生成物品
+        WarehouseView view = WarehouseView.of(plugin, profile, filterSlot, sortMode);
+        
         // 设置仓库分页显示
-        setupWarehouseDisplay(inv, profile, filterSlot, page, sortMode);
+        setupWarehouseDisplay(inv, view, page);
         
         // 设置控制按钮
-        setupControls(inv, filterSlot, page, profile, sortMode);
+        setupControls(inv, filterSlot, page, view, sortMode);
         
         player.openInventory(inv);
     }
@@ -104,16 +110,9 @@ public class RelicWarehouseGUI {
         }
     }
 
-    private void setupWarehouseDisplay(Inventory inv, PlayerRelicProfile profile, RelicSlot filterSlot, int page, SortMode sortMode) {
-        List<RelicData> src = filterSlot != null ?
-            profile.getWarehouseBySlot(filterSlot) :
-            profile.getWarehouse();
-        // 复制并按当前排序模式排序
-        List<RelicData> items = new ArrayList<>(src);
-        items.sort(getComparator(sortMode));
-        
+    private void setupWarehouseDisplay(Inventory inv, WarehouseView view, int page) {
         // 如果仓库为空，显示提示物品
-        if (items.isEmpty() && page == 0) {
+        if (view.size() == 0 && page == 0) {
             ItemStack hint = createGuiItem(Material.BARRIER, Component.text("§c§l仓库为空"), 
                 List.of(Component.text("§7仓库中没有圣遗物"), Component.text("§7"), 
                        Component.text("§e获取圣遗物的方法:"), 
@@ -124,19 +123,13 @@ public class RelicWarehouseGUI {
             return;
         }
         
-        int startIndex = page * WAREHOUSE_SLOTS.length;
-        int endIndex = Math.min(startIndex + WAREHOUSE_SLOTS.length, items.size());
-        
-        for (int i = 0; i < WAREHOUSE_SLOTS.length; i++) {
-            int itemIndex = startIndex + i;
-            if (itemIndex < endIndex) {
-                RelicData relic = items.get(itemIndex);
-                inv.setItem(WAREHOUSE_SLOTS[i], createWarehouseItem(relic));
-            }
+        List<RelicData> items = view.page(page, WAREHOUSE_SLOTS.length);
+        for (int i = 0; i < items.size(); i++) {
+            inv.setItem(WAREHOUSE_SLOTS[i], createWarehouseItem(items.get(i)));
         }
     }
 
-    private void setupControls(Inventory inv, RelicSlot filterSlot, int page, PlayerRelicProfile profile, SortMode sortMode) {
+    private void setupControls(Inventory inv, RelicSlot filterSlot, int page, WarehouseView view, SortMode sortMode) {
         // 上一页按钮
         if (page > 0) {
             inv.setItem(PREV_PAGE_SLOT, createGuiItem(Material.ARROW, Component.text("§a上一页"), 
@@ -144,9 +137,7 @@ public class RelicWarehouseGUI {
         }
         
         // 下一页按钮
-        List<RelicData> items = filterSlot != null ? profile.getWarehouseBySlot(filterSlot) : profile.getWarehouse();
-        int maxPage = Math.max(0, (items.size() - 1) / WAREHOUSE_SLOTS.length);
-        if (page < maxPage) {
+        if (page < view.maxPage(WAREHOUSE_SLOTS.length)) {
             inv.setItem(NEXT_PAGE_SLOT, createGuiItem(Material.ARROW, Component.text("§a下一页"), 
                 List.of(Component.text("§7点击查看下一页"))));
         }
@@ -169,28 +160,6 @@ public class RelicWarehouseGUI {
             List.of(Component.text("§7将背包中的圣遗物放入仓库"), Component.text("§7右键点击此按钮执行操作"))));
     }
 
-    // 根据排序模式返回比较器
-    private Comparator<RelicData> getComparator(SortMode mode) {
-        Comparator<RelicData> byRarityDesc = Comparator.comparingInt((RelicData r) -> r.getRarity().getStars()).reversed();
-        Comparator<RelicData> byLevelDesc = Comparator.comparingInt(RelicData::getLevel).reversed();
-        Comparator<RelicData> bySetAsc = Comparator.comparing((RelicData r) -> {
-            RelicSet set = plugin.getRelicManager().getRelicSet(r.getSetId());
-            return set != null ? set.getName() : r.getSetId();
-        }, String.CASE_INSENSITIVE_ORDER);
-        Comparator<RelicData> bySlotAsc = Comparator.comparingInt(r -> r.getSlot().ordinal());
-        Comparator<RelicData> byLockedFirst = Comparator.comparing((RelicData r) -> !r.isLocked()); // locked=true 优先
-
-        Comparator<RelicData> tiebreakers = byRarityDesc.thenComparing(byLevelDesc).thenComparing(bySetAsc).thenComparing(bySlotAsc);
-
-        return switch (mode) {
-            case RARITY_DESC -> byRarityDesc.thenComparing(byLevelDesc).thenComparing(bySetAsc).thenComparing(bySlotAsc);
-            case LEVEL_DESC -> byLevelDesc.thenComparing(byRarityDesc).thenComparing(bySetAsc).thenComparing(bySlotAsc);
-            case SET_ASC -> bySetAsc.thenComparing(byRarityDesc).thenComparing(byLevelDesc).thenComparing(bySlotAsc);
-            case SLOT_ASC -> bySlotAsc.thenComparing(byRarityDesc).thenComparing(byLevelDesc).thenComparing(bySetAsc);
-            case LOCKED_FIRST -> byLockedFirst.thenComparing(tiebreakers);
-        };
-    }
-
     private ItemStack createWarehouseItem(RelicData relic) {
         // 优先按套装模板物品展示
         RelicSet setRef = plugin.getRelicManager().getRelicSet(relic.getSetId());
@@ -201,36 +170,22 @@ public class RelicWarehouseGUI {
         ItemMeta meta = item.getItemMeta();
         
         if (meta != null) {
-            String setName = setRef != null ? setRef.getName() : relic.getSetId();
-            meta.displayName(Component.text(RelicDisplayUtils.getRarityColor(relic.getRarity()) + setName + " - " + RelicDisplayUtils.getSlotDisplayName(relic.getSlot()))
-                .decoration(TextDecoration.ITALIC, false));
+            RelicLoreTemplates templates = plugin.getRelicManager().getLoreTemplates();
+            meta.displayName(templates.displayName(relic));
             
             List<Component> lore = new ArrayList<>();
-            lore.add(Component.text("§7等级: §f" + relic.getLevel()));
-            lore.add(Component.text("§7稀有度: " + RelicDisplayUtils.getRarityColor(relic.getRarity()) + relic.getRarity().getStars() + "★"));
-            lore.add(Component.text("§7"));
-            lore.add(Component.text("§6主词条:"));
-            lore.add(Component.text("  " + relic.getMainStat().getType().getDisplay() + ": §a" + 
-                String.format("%.1f", relic.getMainStat().getValue()) + 
-                (relic.getMainStat().getType().isPercent() ? "%" : "")));
-            
-            if (!relic.getSubstats().isEmpty()) {
-                lore.add(Component.text("§7"));
-                lore.add(Component.text("§6副词条:"));
-                for (RelicSubstat substat : relic.getSubstats()) {
-                    lore.add(Component.text("  " + substat.getType().getDisplay() + ": §a" + 
-                        String.format("%.1f", substat.getValue()) + 
-                        (substat.getType().isPercent() ? "%" : "")));
-                }
-            }
+            lore.add(templates.level(relic.getLevel()));
+            lore.add(templates.rarity(relic.getRarity()));
+            lore.add(RelicLoreTemplates.BLANK);
+            templates.appendStats(lore, relic);
             
-            lore.add(Component.text("§7"));
+            lore.add(RelicLoreTemplates.BLANK);
             if (relic.isLocked()) {
-                lore.add(Component.text("§c🔒 已锁定"));
+                lore.add(LOCKED_LINE);
             }
-            lore.add(Component.text("§7"));
-            lore.add(Component.text("§e左键：装备到对应部位"));
-            lore.add(Component.text("§e右键：取出到背包"));
+            lore.add(RelicLoreTemplates.BLANK);
+            lore.add(EQUIP_HINT_LINE);
+            lore.add(TAKE_OUT_HINT_LINE);
             
             meta.lore(lore);
             // 非0级展示发光效果
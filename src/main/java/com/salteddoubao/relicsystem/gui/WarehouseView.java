@@ -0,0 +1,126 @@
+package com.salteddoubao.relicsystem.gui;
+
+import com.salteddoubao.relicsystem.MinecraftRelicSystem;
+import com.salteddoubao.relicsystem.relic.PlayerRelicProfile;
+import com.salteddoubao.relicsystem.relic.RelicData;
+import com.salteddoubao.relicsystem.relic.RelicSet;
+import com.salteddoubao.relicsystem.relic.RelicSlot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 仓库的筛选 + 排序视图（仓库界面与点击处理共用，保证显示顺序与点击取到的圣遗物一致）
+ *
+ * 每件圣遗物的排序字段（稀有度、等级、套装名次、部位、锁定）按当前排序方式的优先级
+ * 打包成一个 long，低位放原始下标保证稳定，然后对 long[] 做原始类型排序；
+ * 排序过程不访问套装配置、不创建比较器对象，界面只为当前页生成物品。
+ */
+public final class WarehouseView {
+    private static final int INDEX_BITS = 20;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    private final List<RelicData> source;
+    private final long[] keys;
+
+    private WarehouseView(List<RelicData> source, long[] keys) {
+        this.source = source;
+        this.keys = keys;
+    }
+
+    /**
+     * 构建视图
+     *
+     * @param filter 只保留该部位，null 表示全部
+     */
+    public static WarehouseView of(MinecraftRelicSystem plugin, PlayerRelicProfile profile, RelicSlot filter,
+                                   RelicWarehouseGUI.SortMode mode) {
+        List<RelicData> warehouse = profile.getWarehouse();
+        Map<String, Integer> setRanks = rankSets(plugin, warehouse);
+        long[] keys = new long[warehouse.size()];
+        int n = 0;
+        for (int i = 0; i < warehouse.size() && i <= INDEX_MASK; i++) {
+            RelicData r = warehouse.get(i);
+            if (filter != null && r.getSlot() != filter) continue;
+            keys[n++] = (packFields(r, setRanks.getOrDefault(r.getSetId(), 0), mode) << INDEX_BITS) | i;
+        }
+        long[] filtered = n == keys.length ? keys : Arrays.copyOf(keys, n);
+        Arrays.sort(filtered);
+        return new WarehouseView(warehouse, filtered);
+    }
+
+    /**
+     * 按套装显示名（忽略大小写）给仓库中出现的套装编号，只对不同套装排序一次
+     */
+    private static Map<String, Integer> rankSets(MinecraftRelicSystem plugin, List<RelicData> warehouse) {
+        Map<String, String> names = new HashMap<>();
+        for (RelicData r : warehouse) {
+            names.computeIfAbsent(r.getSetId(), id -> {
+                RelicSet set = id != null ? plugin.getRelicManager().getRelicSet(id) : null;
+                return set != null ? set.getName() : (id != null ? id : "");
+            });
+        }
+        List<Map.Entry<String, String>> entries = new ArrayList<>(names.entrySet());
+        entries.sort(Map.Entry.comparingByValue(String.CASE_INSENSITIVE_ORDER));
+        Map<String, Integer> ranks = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            ranks.put(entries.get(i).getKey(), Math.min(i, 0xFFF));
+        }
+        return ranks;
+    }
+
+    /**
+     * 按排序方式的优先级拼接字段（降序字段取反），共 27 位
+     */
+    private static long packFields(RelicData r, int setRank, RelicWarehouseGUI.SortMode mode) {
+        long rarity = 7 - Math.max(0, Math.min(7, r.getRarity().getStars()));   // 3 位，降序
+        long level = 255 - Math.max(0, Math.min(255, r.getLevel()));            // 8 位，降序
+        long set = setRank & 0xFFF;                                             // 12 位，升序
+        long slot = r.getSlot().ordinal() & 0x7;                                // 3 位，升序
+        long locked = r.isLocked() ? 0 : 1;                                     // 1 位，锁定优先
+        return switch (mode) {
+            case RARITY_DESC -> (((rarity << 8 | level) << 12 | set) << 3 | slot) << 1;
+            case LEVEL_DESC -> (((level << 3 | rarity) << 12 | set) << 3 | slot) << 1;
+            case SET_ASC -> (((set << 3 | rarity) << 8 | level) << 3 | slot) << 1;
+            case SLOT_ASC -> (((slot << 3 | rarity) << 8 | level) << 12 | set) << 1;
+            case LOCKED_FIRST -> (((locked << 3 | rarity) << 8 | level) << 12 | set) << 3 | slot;
+        };
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * 排序后第 index 件；越界返回 null
+     */
+    public RelicData get(int index) {
+        if (index < 0 || index >= keys.length) return null;
+        return source.get((int) (keys[index] & INDEX_MASK));
+    }
+
+    /**
+     * 取一页（只返回该页的圣遗物）
+     */
+    public List<RelicData> page(int page, int pageSize) {
+        int start = page * pageSize;
+        if (page < 0 || start >= keys.length) return Collections.emptyList();
+        int end = Math.min(start + pageSize, keys.length);
+        List<RelicData> result = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            result.add(get(i));
+        }
+        return result;
+    }
+
+    /**
+     * 最大页码（从0开始）
+     */
+    public int maxPage(int pageSize) {
+        return Math.max(0, (keys.length - 1) / pageSize);
+    }
+}
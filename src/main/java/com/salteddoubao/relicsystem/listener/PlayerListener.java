@@ -1,7 +1,9 @@
 package com.salteddoubao.relicsystem.listener;
 
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
@@ -21,9 +23,26 @@ public class PlayerListener implements Listener {
         this.plugin = plugin;
     }
 
+    /**
+     * 玩家登录前（异步线程）
+     * 预先读取并解码圣遗物档案，进服时主线程直接取用
+     *
+     * @param event 异步预登录事件
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        IRelicProfileManager pm = plugin.getRelicProfileManager();
+        if (pm != null) {
+            pm.preload(event.getUniqueId());
+        }
+    }
+
     /**
      * 玩家加入服务器事件
-     * 用于初始化玩家数据、缓存等
+     * 用于初始化玩家数据、缓存等（档案通常已在预登录阶段读取完成）
      *
      * @param event 玩家加入事件
      */
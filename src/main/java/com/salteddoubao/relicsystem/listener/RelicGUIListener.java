@@ -12,11 +12,9 @@ import org.bukkit.inventory.ItemStack;
 import com.salteddoubao.relicsystem.MinecraftRelicSystem;
 import com.salteddoubao.relicsystem.gui.*;
 import com.salteddoubao.relicsystem.relic.*;
+import com.salteddoubao.relicsystem.storage.RelicAuditLog;
 import com.salteddoubao.relicsystem.util.RelicItemConverter;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -68,11 +66,13 @@ public class RelicGUIListener implements Listener {
                 // 若鼠标携带圣遗物并点击仓库区域，则放入仓库
                 if (isWarehouseSlot(e.getSlot())) {
                     ItemStack cursor = e.getCursor();
-                    if (plugin.getRelicItemConverter().isRelicItem(cursor)) {
-                        RelicData relic = plugin.getRelicItemConverter().fromItemStack(cursor);
-                        if (relic != null) {
-                            PlayerRelicProfile profile = plugin.getRelicProfileManager().get(player);
-                            profile.addToWarehouse(relic);
+                    RelicItemConverter.Probe probe = plugin.getRelicItemConverter().probe(cursor);
+                    if (probe.isRelic()) {
+                        RelicData relic = probe.getRelic();
+                        PlayerRelicProfile profile = plugin.getRelicProfileManager().get(player);
+                        // 只有真正放入仓库（未因仓库已满或疑似复制被拒绝）才消耗物品并记录审计
+                        if (relic != null && profile.addToWarehouse(relic)) {
+                            audit(player, relic, RelicAuditLog.Op.DEPOSIT);
                             player.setItemOnCursor(null);
                             plugin.getRelicProfileManager().save(player);
                             // 刷新当前页面
@@ -89,13 +89,15 @@ public class RelicGUIListener implements Listener {
             // 底部背包点击：支持Shift-点击快速存入仓库
             if (!(e.getClickedInventory().getHolder() instanceof RelicWarehouseGUI.Holder)) {
                 ItemStack clicked = e.getCurrentItem();
-                if (clicked != null && plugin.getRelicItemConverter().isRelicItem(clicked)
-                        && (e.getClick() == ClickType.SHIFT_LEFT || e.getClick() == ClickType.SHIFT_RIGHT)) {
+                // 只有 Shift-点击才读取物品数据
+                RelicItemConverter.Probe probe = (e.getClick() == ClickType.SHIFT_LEFT || e.getClick() == ClickType.SHIFT_RIGHT)
+                        ? plugin.getRelicItemConverter().probe(clicked) : null;
+                if (probe != null && probe.isRelic()) {
                     e.setCancelled(true);
-                    RelicData relic = plugin.getRelicItemConverter().fromItemStack(clicked);
-                    if (relic != null) {
-                        PlayerRelicProfile profile = plugin.getRelicProfileManager().get(player);
-                        profile.addToWarehouse(relic);
+                    RelicData relic = probe.getRelic();
+                    PlayerRelicProfile profile = plugin.getRelicProfileManager().get(player);
+                    if (relic != null && profile.addToWarehouse(relic)) {
+                        audit(player, relic, RelicAuditLog.Op.DEPOSIT);
                         // 清空该格物品
                         e.getClickedInventory().setItem(e.getSlot(), null);
                         plugin.getRelicProfileManager().save(player);
@@ -147,8 +149,8 @@ public class RelicGUIListener implements Listener {
         RelicSlot targetSlot = getEquipmentSlotType(slot);
         if (targetSlot != null) {
             RelicData equipped = profile.getEquipped().get(targetSlot);
-            if (equipped != null) {
-                profile.unequip(targetSlot);
+            if (equipped != null && profile.unequip(targetSlot)) {
+                audit(player, equipped, RelicAuditLog.Op.UNEQUIP);
                 plugin.getRelicEffectService().refresh(player, profile);
                 plugin.getRelicProfileManager().save(player);
                 player.sendMessage("§a已卸下 " + getSlotDisplayName(targetSlot) + " 部位的圣遗物到仓库");
@@ -194,26 +196,31 @@ public class RelicGUIListener implements Listener {
         // 点击仓库物品
         if (isWarehouseSlot(slot)) {
             RelicWarehouseGUI.SortMode sortMode = parseCurrentSortMode(title);
-            List<RelicData> items = getSortedWarehouse(profile, currentFilter, sortMode);
+            // 与界面使用同一视图，点击位置对应显示的那件圣遗物
+            WarehouseView view = WarehouseView.of(plugin, profile, currentFilter, sortMode);
             
             int itemIndex = getWarehouseIndex(slot) + currentPage * RelicWarehouseGUI.getWarehouseSlots().length;
-            if (itemIndex < items.size()) {
-                RelicData relic = items.get(itemIndex);
+            RelicData relic = view.get(itemIndex);
+            if (relic != null) {
                 
                 if (clickType == ClickType.LEFT) {
-                    // 左键：装备
-                    profile.equip(relic);
-                    plugin.getRelicEffectService().refresh(player, profile);
-                    plugin.getRelicProfileManager().save(player);
+                    // 左键：装备（被拒绝时不记录审计）
+                    if (profile.equip(relic)) {
+                        audit(player, relic, RelicAuditLog.Op.EQUIP);
+                        plugin.getRelicEffectService().refresh(player, profile);
+                        plugin.getRelicProfileManager().save(player);
+                    }
                     // player.sendMessage("§a已装备圣遗物到 " + getSlotDisplayName(relic.getSlot()) + ": " + plugin.getRelicManager().getRelicSet(relic.getSetId()).getName());
                 } else if (clickType == ClickType.RIGHT) {
                     // 右键：取出到背包
-                    ItemStack relicItem = converter.toItemStack(relic);
                     if (player.getInventory().firstEmpty() != -1) {
-                        profile.removeFromWarehouse(relic);
-                        player.getInventory().addItem(relicItem);
-                        plugin.getRelicProfileManager().save(player);
-                        player.sendMessage("§a已取出圣遗物到背包");
+                        // 只有确实从仓库移出后才给出物品
+                        if (profile.removeFromWarehouse(relic)) {
+                            player.getInventory().addItem(converter.toItemStack(relic));
+                            audit(player, relic, RelicAuditLog.Op.WITHDRAW);
+                            plugin.getRelicProfileManager().save(player);
+                            player.sendMessage("§a已取出圣遗物到背包");
+                        }
                     } else {
                         player.sendMessage("§c背包已满，无法取出");
                     }
@@ -249,17 +256,14 @@ public class RelicGUIListener implements Listener {
         RelicItemConverter converter = plugin.getRelicItemConverter();
         int putInCount = 0;
         
-        // 遍历背包查找圣遗物物品
+        // 遍历背包查找圣遗物物品（按材质预筛，普通物品不读取 ItemMeta）
         for (int i = 0; i < player.getInventory().getSize(); i++) {
-            ItemStack item = player.getInventory().getItem(i);
-            if (converter.isRelicItem(item)) {
-                RelicData relic = converter.fromItemStack(item);
-                if (relic != null) {
-                    // 移除背包中的物品并添加到仓库
-                    player.getInventory().setItem(i, null);
-                    profile.addToWarehouse(relic);
-                    putInCount++;
-                }
+            RelicData relic = converter.scan(player.getInventory().getItem(i)).getRelic();
+            // 放入仓库成功后才移除背包中的物品
+            if (relic != null && profile.addToWarehouse(relic)) {
+                player.getInventory().setItem(i, null);
+                audit(player, relic, RelicAuditLog.Op.DEPOSIT);
+                putInCount++;
             }
         }
         
@@ -275,6 +279,12 @@ public class RelicGUIListener implements Listener {
         }
     }
 
+    private void audit(Player player, RelicData relic, RelicAuditLog.Op op) {
+        if (plugin.getAuditLog() != null) {
+            plugin.getAuditLog().record(player.getUniqueId(), relic.getId(), op, RelicAuditLog.Source.GUI);
+        }
+    }
+
     private void handleRefreshWarehouse(Player player, String title) {
         RelicSlot currentFilter = parseCurrentFilter(title);
         int currentPage = parseCurrentPage(title);
@@ -348,28 +358,6 @@ public class RelicGUIListener implements Listener {
         return RelicWarehouseGUI.SortMode.RARITY_DESC;
     }
 
-    private List<RelicData> getSortedWarehouse(PlayerRelicProfile profile, RelicSlot filter, RelicWarehouseGUI.SortMode mode) {
-        List<RelicData> list = new ArrayList<>(filter != null ? profile.getWarehouseBySlot(filter) : profile.getWarehouse());
-        Comparator<RelicData> byRarityDesc = Comparator.comparingInt((RelicData r) -> r.getRarity().getStars()).reversed();
-        Comparator<RelicData> byLevelDesc = Comparator.comparingInt(RelicData::getLevel).reversed();
-        Comparator<RelicData> bySetAsc = Comparator.comparing((RelicData r) -> r.getSetId(), String.CASE_INSENSITIVE_ORDER);
-        Comparator<RelicData> bySlotAsc = Comparator.comparingInt(r -> r.getSlot().ordinal());
-        Comparator<RelicData> byLockedFirst = Comparator.comparing((RelicData r) -> !r.isLocked());
-
-        Comparator<RelicData> tiebreakers = byRarityDesc.thenComparing(byLevelDesc).thenComparing(bySetAsc).thenComparing(bySlotAsc);
-        Comparator<RelicData> cmp;
-        switch (mode) {
-            case RARITY_DESC -> cmp = byRarityDesc.thenComparing(byLevelDesc).thenComparing(bySetAsc).thenComparing(bySlotAsc);
-            case LEVEL_DESC -> cmp = byLevelDesc.thenComparing(byRarityDesc).thenComparing(bySetAsc).thenComparing(bySlotAsc);
-            case SET_ASC -> cmp = bySetAsc.thenComparing(byRarityDesc).thenComparing(byLevelDesc).thenComparing(bySlotAsc);
-            case SLOT_ASC -> cmp = bySlotAsc.thenComparing(byRarityDesc).thenComparing(byLevelDesc).thenComparing(bySetAsc);
-            case LOCKED_FIRST -> cmp = byLockedFirst.thenComparing(tiebreakers);
-            default -> cmp = tiebreakers;
-        }
-        list.sort(cmp);
-        return list;
-    }
-
     private String getSlotDisplayName(RelicSlot slot) {
         return switch (slot) {
             case FLOWER -> "生之花";
@@ -12,6 +12,7 @@ import org.bukkit.inventory.ItemStack;
 import com.salteddoubao.relicsystem.MinecraftRelicSystem;
 import com.salteddoubao.relicsystem.manager.TreasureBoxManager;
 import com.salteddoubao.relicsystem.relic.*;
+import com.salteddoubao.relicsystem.storage.RelicAuditLog;
 import com.salteddoubao.relicsystem.util.RelicItemConverter;
 import com.salteddoubao.relicsystem.util.TreasureBoxItemFactory;
 
@@ -44,6 +45,10 @@ public class TreasureBoxListener implements Listener {
         RelicData data = plugin.getRelicGenerationService().generate(setId, slot, rarity, 0);
         RelicItemConverter converter = plugin.getRelicItemConverter();
         e.getPlayer().getInventory().addItem(converter.toItemStack(data));
+        if (plugin.getAuditLog() != null) {
+            plugin.getAuditLog().record(e.getPlayer().getUniqueId(), data.getId(),
+                    RelicAuditLog.Op.GENERATE, RelicAuditLog.Source.TREASURE_BOX);
+        }
 
         // 消耗一个宝箱
         ItemStack hand = e.getPlayer().getInventory().getItemInMainHand();
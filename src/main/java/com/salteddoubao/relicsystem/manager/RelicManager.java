@@ -6,6 +6,8 @@ import org.bukkit.configuration.file.YamlConfiguration;
 
 import com.salteddoubao.relicsystem.MinecraftRelicSystem;
 import com.salteddoubao.relicsystem.relic.*;
+import com.salteddoubao.relicsystem.util.RelicDisplayUtils;
+import com.salteddoubao.relicsystem.util.RelicLoreTemplates;
 
 import java.io.File;
 import java.util.*;
@@ -17,12 +19,17 @@ public class RelicManager {
     private final MinecraftRelicSystem plugin;
 
     private final Map<String, RelicSet> setRegistry = new HashMap<>();
+    // 可能是圣遗物的材质（套装模板材质 + 稀有度材质），批量扫描背包时预筛用
+    private final Set<org.bukkit.Material> relicMaterials = EnumSet.noneOf(org.bukkit.Material.class);
+    // 物品名称/描述的预渲染模板（随套装一起加载）
+    private RelicLoreTemplates loreTemplates;
 
     public RelicManager(MinecraftRelicSystem plugin) {
         this.plugin = plugin;
         ensureDefaultFiles();
         loadSets();
         loadAttributePool();
+        loreTemplates = new RelicLoreTemplates(setRegistry);
     }
 
     private void ensureDefaultFiles() {
@@ -37,6 +44,10 @@ public class RelicManager {
 
     private void loadSets() {
         setRegistry.clear();
+        relicMaterials.clear();
+        for (RelicRarity rarity : RelicRarity.values()) {
+            relicMaterials.add(RelicDisplayUtils.getRarityMaterial(rarity));
+        }
         File sets = new File(plugin.getDataFolder(), "relics/sets.yml");
         FileConfiguration cfg = YamlConfiguration.loadConfiguration(sets);
         ConfigurationSection sec = cfg.getConfigurationSection("sets");
@@ -62,12 +73,15 @@ public class RelicManager {
             List<String> four = s.getStringList("bonuses.four_piece_desc");
             RelicSet rs = new RelicSet(id, name, two, four, template);
             setRegistry.put(id, rs);
+            relicMaterials.add(template);
         }
         plugin.getLogger().info("RelicManager: 已加载套装数量=" + setRegistry.size());
     }
 
     public RelicSet getRelicSet(String id) { return setRegistry.get(id); }
     public Set<String> getRelicSetIds() { return Collections.unmodifiableSet(setRegistry.keySet()); }
+    public RelicLoreTemplates getLoreTemplates() { return loreTemplates; }
+    public boolean isRelicMaterial(org.bukkit.Material material) { return relicMaterials.contains(material); }
 
     // === 属性池 ===
     public static class AttributePoolConfig {
@@ -88,6 +102,17 @@ public class RelicManager {
             public int maxInitial;
         }
         public final java.util.Map<String, RarityRule> rarityRules = new java.util.HashMap<>();
+
+        /**
+         * 圣遗物可能拥有的副词条数上限：升级补充上限与各稀有度 initial_substat_count 上限中的较大者
+         */
+        public int maxSubstats() {
+            int max = com.salteddoubao.relicsystem.service.RelicGenerationService.UPGRADE_SUBSTAT_CAP;
+            for (RarityRule r : rarityRules.values()) {
+                max = Math.max(max, r.maxInitial);
+            }
+            return max;
+        }
     }
 
     private AttributePoolConfig attributePool;
@@ -1,12 +1,17 @@
 package com.salteddoubao.relicsystem.manager;
 
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 
 import com.salteddoubao.relicsystem.MinecraftRelicSystem;
 import com.salteddoubao.relicsystem.relic.*;
+import com.salteddoubao.relicsystem.storage.DurableFileWriter;
 import com.salteddoubao.relicsystem.storage.IRelicProfileManager;
+import com.salteddoubao.relicsystem.storage.PreloadStaging;
+import com.salteddoubao.relicsystem.storage.ProfileSnapshot;
+import com.salteddoubao.relicsystem.storage.RelicQuarantine;
 import com.salteddoubao.relicsystem.util.RelicIO;
 
 import java.io.File;
@@ -15,44 +20,98 @@ import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 玩家圣遗物档案管理（M2：内存+YAML持久化）
+ * YAML 文件经 {@link DurableFileWriter} 原子替换，末尾带校验注释，损坏时回退到上一代备份。
+ * YAML 没有追加日志，每次保存都是整体重写，因此每次都会对临时文件和目录刷盘，不参与组提交。
  */
 public class RelicProfileManager implements IRelicProfileManager {
     private final MinecraftRelicSystem plugin;
     private final Map<UUID, PlayerRelicProfile> cache = new ConcurrentHashMap<>();
+    private final DurableFileWriter writer;
+    private final PreloadStaging<PlayerRelicProfile> staging;
+    private final RelicQuarantine quarantine;
 
     public RelicProfileManager(MinecraftRelicSystem plugin) {
         this.plugin = plugin;
+        this.writer = new DurableFileWriter(plugin.getLogger());
+        this.quarantine = new RelicQuarantine(plugin);
+        this.staging = new PreloadStaging<>(plugin.getLogger());
     }
 
     public PlayerRelicProfile get(Player player) {
-        return cache.computeIfAbsent(player.getUniqueId(), id -> {
-            PlayerRelicProfile p = new PlayerRelicProfile(id);
-            load(player, p);
-            return p;
-        });
+        UUID id = player.getUniqueId();
+        PlayerRelicProfile cached = cache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        // 等待预加载与读盘都在缓存表之外进行
+        PlayerRelicProfile staged = staging.take(id, plugin.getConfig().getLong("relic.inventory_storage.preload_wait_ms", 2000));
+        PlayerRelicProfile profile = staged != null ? staged : loadFresh(id);
+        PlayerRelicProfile existing = cache.putIfAbsent(id, profile);
+        return existing != null ? existing : profile;
+    }
+
+    /**
+     * 进服前在异步线程读取并解析 YAML 档案
+     */
+    @Override
+    public void preload(UUID playerId) {
+        if (cache.containsKey(playerId)) return;
+        staging.stage(playerId, () -> loadFresh(playerId));
+    }
+
+    private PlayerRelicProfile loadFresh(UUID id) {
+        // 先写完尚在保存队列中的快照，避免读到旧文件
+        plugin.getProfileSavePipeline().flush(id);
+        PlayerRelicProfile p = new PlayerRelicProfile(id);
+        load(id, p);
+        return p;
     }
 
     public void clear(Player player) {
+        staging.invalidate(player.getUniqueId());
         save(player);
         cache.remove(player.getUniqueId());
     }
 
     private File getFile(UUID id) {
-        File dir = new File(plugin.getDataFolder(), "players");
-        if (!dir.exists()) dir.mkdirs();
-        return new File(dir, id.toString() + ".yml");
+        return plugin.getPlayerFileLayout().file(id, ".yml");
     }
 
     public void load(Player player, PlayerRelicProfile profile) {
-        File f = getFile(player.getUniqueId());
-        if (!f.exists()) return;
-        FileConfiguration cfg = YamlConfiguration.loadConfiguration(f);
+        load(player.getUniqueId(), profile);
+    }
+
+    /**
+     * 按UUID读取YAML档案（不要求玩家在线，供离线批量迁移使用）
+     * 无法解析或未通过校验的条目写入隔离区，下次保存时从档案中移除
+     */
+    public void load(UUID playerId, PlayerRelicProfile profile) {
+        File f = getFile(playerId);
+        FileConfiguration cfg = null;
+        // 主文件 → 临时文件 → 备份，取第一份校验通过且能解析的
+        for (String text : DurableFileWriter.readTextCandidates(f, plugin.getLogger())) {
+            YamlConfiguration candidate = new YamlConfiguration();
+            try {
+                candidate.loadFromString(text);
+                cfg = candidate;
+                break;
+            } catch (InvalidConfigurationException e) {
+                plugin.getLogger().warning("玩家档案解析失败，尝试上一代数据: " + f.getName() + " - " + e.getMessage());
+            }
+        }
+        if (cfg == null) return;
         
+        List<Map<String, Object>> unreadable = new ArrayList<>();
+
         // 加载已装备的圣遗物
         for (RelicSlot slot : RelicSlot.values()) {
             if (cfg.isConfigurationSection("equipped." + slot.name())) {
                 RelicData data = RelicIO.deserializeRelic(cfg.getConfigurationSection("equipped." + slot.name()));
-                if (data != null) profile.equip(data);
+                if (data != null) {
+                    profile.equip(data);
+                } else {
+                    unreadable.add(cfg.getConfigurationSection("equipped." + slot.name()).getValues(true));
+                }
             }
         }
         
@@ -70,44 +129,75 @@ public class RelicProfileManager implements IRelicProfileManager {
                             temp.set(entry.getKey(), entry.getValue());
                         }
                         RelicData data = RelicIO.deserializeRelic(temp);
-                        if (data != null) profile.addToWarehouse(data);
+                        if (data != null) {
+                            profile.addToWarehouse(data);
+                        } else {
+                            unreadable.add(itemMap);
+                        }
                     }
                 }
             }
         }
+
+        quarantine.entries(playerId, "unreadable", unreadable);
+        quarantine.validate(playerId, profile.getEquipped(), profile.getWarehouse());
     }
 
+    @Override
+    public Set<UUID> storedPlayerIds() {
+        return plugin.getPlayerFileLayout().playerIds(".yml");
+    }
+
+    @Override
+    public boolean loadStored(UUID playerId, PlayerRelicProfile profile) {
+        plugin.getProfileSavePipeline().flush(playerId);
+        load(playerId, profile);
+        return true;
+    }
+
+    @Override
+    public boolean importProfile(UUID playerId, String playerName, PlayerRelicProfile profile) {
+        if (cache.containsKey(playerId)) return false;
+        staging.invalidate(playerId);
+        plugin.getProfileSavePipeline().submit(ProfileSnapshot.of(profile, playerName), this::write);
+        return true;
+    }
+
+    /**
+     * 保存玩家档案：主线程生成快照，YAML 写盘交给保存管线异步完成
+     */
     public void save(Player player) {
         PlayerRelicProfile profile = cache.get(player.getUniqueId());
         if (profile == null) {
             plugin.getLogger().warning("尝试保存不存在的玩家档案: " + player.getName());
             return;
         }
-        
-        File f = getFile(player.getUniqueId());
+        plugin.getProfileSavePipeline().submit(ProfileSnapshot.of(profile, player.getName()), this::write);
+    }
+
+    /**
+     * 将快照写入 YAML 文件（在保存线程中执行）
+     */
+    private void write(ProfileSnapshot snapshot) throws Exception {
+        File f = plugin.getPlayerFileLayout().fileForWrite(snapshot.getPlayerId(), ".yml");
         FileConfiguration cfg = new YamlConfiguration();
         
-        try {
-            // 保存已装备的圣遗物
-            for (Map.Entry<RelicSlot, RelicData> e : profile.getEquipped().entrySet()) {
-                cfg.createSection("equipped." + e.getKey().name(), RelicIO.serializeRelic(e.getValue()));
-            }
-            
-            // 保存仓库中的圣遗物
-            List<Map<String, Object>> warehouseList = new ArrayList<>();
-            for (RelicData relic : profile.getWarehouse()) {
-                warehouseList.add(RelicIO.serializeRelic(relic));
-            }
-            cfg.set("warehouse", warehouseList);
-            
-            // 保存文件
-            cfg.save(f);
-            plugin.getLogger().info("已保存玩家圣遗物档案: " + player.getName() + 
-                " (装备:" + profile.getEquipped().size() + "件, 仓库:" + profile.getWarehouse().size() + "件)");
-        } catch (Exception e) {
-            plugin.getLogger().severe("保存玩家圣遗物档案失败: " + player.getName());
-            e.printStackTrace();
+        // 保存已装备的圣遗物
+        for (Map.Entry<RelicSlot, RelicData> e : snapshot.getEquipped().entrySet()) {
+            cfg.createSection("equipped." + e.getKey().name(), RelicIO.serializeRelic(e.getValue()));
+        }
+        
+        // 保存仓库中的圣遗物
+        List<Map<String, Object>> warehouseList = new ArrayList<>();
+        for (RelicData relic : snapshot.getWarehouse()) {
+            warehouseList.add(RelicIO.serializeRelic(relic));
         }
+        cfg.set("warehouse", warehouseList);
+        
+        // 原子替换保存文件：改名前临时文件已刷盘，每次保存一次 fsync，不参与组提交
+        writer.writeText(f, cfg.saveToString());
+        plugin.getLogger().info("已保存玩家圣遗物档案: " + snapshot.getPlayerName() + 
+            " (装备:" + snapshot.getEquipped().size() + "件, 仓库:" + snapshot.getWarehouse().size() + "件)");
     }
     
     /**
@@ -123,6 +213,7 @@ public class RelicProfileManager implements IRelicProfileManager {
                 count++;
             }
         }
+        staging.evictOlderThan(60_000L);
         plugin.getLogger().info("已保存 " + count + " 个玩家的圣遗物档案");
     }
 }
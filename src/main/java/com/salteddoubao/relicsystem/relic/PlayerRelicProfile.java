@@ -18,8 +18,13 @@ public class PlayerRelicProfile {
     public Map<RelicSlot, RelicData> getEquipped() { return equipped; }
     public List<RelicData> getWarehouse() { return warehouse; }
 
-    public void equip(RelicData relic) {
-        if (relic == null) return;
+    /**
+     * 装备圣遗物（原装备放回仓库）
+     *
+     * @return 是否装备（仓库已满、疑似复制等被拒绝时返回 false，调用方据此决定是否记录审计）
+     */
+    public boolean equip(RelicData relic) {
+        if (relic == null) return false;
         // 如果原来有装备，放回仓库
         RelicData old = equipped.get(relic.getSlot());
         if (old != null) {
@@ -28,19 +33,30 @@ public class PlayerRelicProfile {
         equipped.put(relic.getSlot(), relic);
         // 从仓库移除（如果存在）
         warehouse.remove(relic);
+        return true;
     }
 
-    public void unequip(RelicSlot slot) {
+    /**
+     * 卸下装备到仓库
+     *
+     * @return 是否卸下（该部位没有装备、仓库已满等情况返回 false）
+     */
+    public boolean unequip(RelicSlot slot) {
         RelicData old = equipped.remove(slot);
-        if (old != null) {
-            warehouse.add(old);
-        }
+        if (old == null) return false;
+        warehouse.add(old);
+        return true;
     }
 
-    public void addToWarehouse(RelicData relic) {
-        if (relic != null) {
-            warehouse.add(relic);
-        }
+    /**
+     * 放入仓库
+     *
+     * @return 是否放入（仓库已满、疑似复制等被拒绝时返回 false，调用方据此决定是否消耗物品与记录审计）
+     */
+    public boolean addToWarehouse(RelicData relic) {
+        if (relic == null) return false;
+        warehouse.add(relic);
+        return true;
     }
 
     public boolean removeFromWarehouse(RelicData relic) {
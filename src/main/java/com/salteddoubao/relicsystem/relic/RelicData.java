@@ -54,6 +54,18 @@ public class RelicData {
     }
 
     public int substatCount() { return substats.size(); }
+
+    /**
+     * 深拷贝（主/副词条为可变对象，一并复制），用于异步保存快照
+     */
+    public RelicData copy() {
+        List<RelicSubstat> subs = new ArrayList<>(substats.size());
+        for (RelicSubstat s : substats) {
+            subs.add(new RelicSubstat(s.getType(), s.getValue()));
+        }
+        RelicMainStat main = mainStat != null ? new RelicMainStat(mainStat.getType(), mainStat.getValue()) : null;
+        return new RelicData(id, setId, slot, rarity, level, exp, main, subs, locked);
+    }
 }
 
 
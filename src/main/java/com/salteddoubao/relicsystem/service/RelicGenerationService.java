@@ -12,6 +12,9 @@ import com.salteddoubao.relicsystem.relic.*;
  * - 副词条：按品质生成1-4条；每5级新增或强化一条（不超过4条）
  */
 public class RelicGenerationService {
+    /** 升级时补充新副词条的上限，达到后只强化已有副词条 */
+    public static final int UPGRADE_SUBSTAT_CAP = 4;
+
     private final MinecraftRelicSystem plugin;
     private final Random random = new Random();
 
@@ -52,7 +55,7 @@ public class RelicGenerationService {
                 data.getMainStat().setValue(mainBase + lv * mainStep);
             }
             if (lv % 5 == 0) {
-                if (data.substatCount() < 4) {
+                if (data.substatCount() < UPGRADE_SUBSTAT_CAP) {
                     RelicStatType newType = rollWeightedSubTypeExcluding(data.getMainStat().getType(), data.getSubstats(), pool);
                     if (newType != null) {
                         double delta = rollSubValue(newType, pool);
@@ -0,0 +1,210 @@
+package com.salteddoubao.relicsystem.storage;
+
+import org.bukkit.command.CommandSender;
+
+import com.salteddoubao.relicsystem.MinecraftRelicSystem;
+import com.salteddoubao.relicsystem.manager.RelicProfileManager;
+import com.salteddoubao.relicsystem.relic.PlayerRelicProfile;
+import com.salteddoubao.relicsystem.relic.RelicData;
+import com.salteddoubao.relicsystem.relic.RelicSlot;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 离线批量迁移：把 players/*.yml 全部迁移到独立存储（不要求玩家在线）
+ *
+ * - 在独立的 ForkJoin 线程池中并行处理，不占用主线程
+ * - 每个玩家在保存管线的玩家锁内完成“读取目标存储 → 合并 → 写入”，与该玩家的写盘/读取互斥
+ * - 按圣遗物ID去重合并，重复执行结果不变；成功后把 YAML 移入 migration_backup/，
+ *   中断（停服、/relic migrate-all stop）后再次执行只会处理剩余文件
+ * - 在线玩家跳过，由进服时的自动迁移处理
+ */
+public class BulkMigration {
+    private static final int LOG_EVERY = 500;
+
+    private final MinecraftRelicSystem plugin;
+    private final RelicProfileManager oldManager;
+    private final RelicProfileStore store;
+    private final int parallelism;
+    /** 正在迁移的玩家（进服自动迁移遇到时跳过） */
+    private final Set<UUID> claimed = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean cancelled;
+    private volatile boolean finished;
+    private ForkJoinPool pool;
+
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger migrated = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong relics = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private volatile long startedAt;
+    private volatile long finishedAt;
+
+    public BulkMigration(MinecraftRelicSystem plugin, RelicProfileStore store) {
+        this.plugin = plugin;
+        this.oldManager = new RelicProfileManager(plugin);
+        this.store = store;
+        int configured = plugin.getConfig().getInt("relic.inventory_storage.migration_threads", 0);
+        this.parallelism = configured > 0 ? configured : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    /**
+     * 在后台开始迁移，完成后通知发起者
+     */
+    public void start(CommandSender sender) {
+        List<File> todo = plugin.getPlayerFileLayout().list(".yml");
+        total.set(todo.size());
+        startedAt = System.nanoTime();
+        plugin.getLogger().info("开始离线批量迁移: " + todo.size() + " 个YAML档案, 并行度 " + parallelism);
+        pool = new ForkJoinPool(parallelism);
+        pool.submit(() -> {
+            try {
+                todo.parallelStream().forEach(this::migrateFile);
+                int synced = store.sync();
+                plugin.getLogger().fine("批量迁移已刷盘 " + synced + " 个文件");
+            } finally {
+                finishedAt = System.nanoTime();
+                finished = true;
+                pool.shutdown();
+                plugin.getLogger().info("离线批量迁移" + (cancelled ? "已中止" : "完成") + ": " + summary());
+                plugin.getServer().getScheduler().runTask(plugin, () ->
+                        sender.sendMessage((cancelled ? "§e批量迁移已中止: " : "§a批量迁移完成: ") + summary()));
+            }
+        });
+    }
+
+    /**
+     * 请求中止；已迁移的玩家保持迁移状态，再次执行时从剩余文件继续
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isRunning() {
+        return startedAt != 0 && !finished;
+    }
+
+    public boolean isClaimed(UUID playerId) {
+        return claimed.contains(playerId);
+    }
+
+    private void migrateFile(File file) {
+        if (cancelled) return;
+        String name = file.getName();
+        UUID id;
+        try {
+            id = UUID.fromString(name.substring(0, name.length() - ".yml".length()));
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("跳过无法识别的档案文件: " + name);
+            skipped.incrementAndGet();
+            processed.incrementAndGet();
+            return;
+        }
+        claimed.add(id);
+        try {
+            plugin.getProfileSavePipeline().runExclusive(id, () -> {
+                // 在玩家锁内判断：此后该玩家的读取都会等待本次迁移写完
+                // 文件可能已被读取时移动到分片目录，以当前位置为准
+                File current = plugin.getPlayerFileLayout().file(id, ".yml");
+                if (plugin.getServer().getPlayer(id) != null || !current.exists()) {
+                    skipped.incrementAndGet();
+                    return;
+                }
+                migrateLocked(id, current);
+            });
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            plugin.getLogger().severe("批量迁移玩家 " + id + " 失败: " + e.getMessage());
+        } finally {
+            claimed.remove(id);
+            int n = processed.incrementAndGet();
+            if (n % LOG_EVERY == 0) {
+                plugin.getLogger().info("批量迁移进度: " + progressLine());
+            }
+        }
+    }
+
+    private void migrateLocked(UUID id, File file) throws Exception {
+        PlayerRelicProfile oldProfile = new PlayerRelicProfile(id);
+        oldManager.load(id, oldProfile);
+
+        // 目标存储中可能已有数据（上次中断前已写入、或玩家曾在新存储下游戏），按ID去重合并
+        PlayerRelicProfile target = new PlayerRelicProfile(id);
+        store.loadProfile(id, target);
+        Set<UUID> existing = new HashSet<>();
+        for (RelicData r : target.getEquipped().values()) existing.add(r.getId());
+        for (RelicData r : target.getWarehouse()) existing.add(r.getId());
+
+        int added = 0;
+        for (Map.Entry<RelicSlot, RelicData> e : oldProfile.getEquipped().entrySet()) {
+            RelicData relic = e.getValue();
+            if (relic == null) continue;
+            if (!existing.add(relic.getId())) { duplicates.incrementAndGet(); continue; }
+            if (target.getEquipped().containsKey(e.getKey())) {
+                target.getWarehouse().add(relic);
+            } else {
+                target.getEquipped().put(e.getKey(), relic);
+            }
+            added++;
+        }
+        for (RelicData relic : oldProfile.getWarehouse()) {
+            if (!existing.add(relic.getId())) { duplicates.incrementAndGet(); continue; }
+            target.getWarehouse().add(relic);
+            added++;
+        }
+        if (target.getWarehouse().size() > store.getWarehouseCapacity()) {
+            throw new IllegalStateException("仓库容量不足: " + target.getWarehouse().size() + "/" + store.getWarehouseCapacity());
+        }
+
+        store.saveProfile(ProfileSnapshot.of(target, id.toString()));
+
+        // 移入备份目录，作为“已完成”标记
+        File backupDir = new File(plugin.getDataFolder(), "migration_backup");
+        if (!backupDir.exists()) {
+            backupDir.mkdirs();
+        }
+        File backup = new File(backupDir, id + "_" + System.currentTimeMillis() + ".yml");
+        if (!file.renameTo(backup)) {
+            throw new IllegalStateException("无法移动已迁移的档案到备份目录（数据已写入，重试不会重复）");
+        }
+        migrated.incrementAndGet();
+        relics.addAndGet(added);
+    }
+
+    // ===== 统计 =====
+
+    private double elapsedSeconds() {
+        long end = finished ? finishedAt : System.nanoTime();
+        return Math.max(1e-3, (end - startedAt) / 1e9);
+    }
+
+    /**
+     * 当前进度与吞吐（用于 /relic migration-status）
+     */
+    public String progressLine() {
+        double secs = elapsedSeconds();
+        int done = processed.get();
+        double rate = done / secs;
+        int remaining = Math.max(0, total.get() - done);
+        String eta = finished || rate <= 0 ? "-" : String.format("%.0fs", remaining / rate);
+        return String.format("%d/%d 个档案, %.1f 档案/秒, %.0f 圣遗物/秒, 已用 %.0fs, 预计剩余 %s",
+                done, total.get(), rate, relics.get() / secs, secs, eta);
+    }
+
+    public String summary() {
+        return String.format("迁移 %d, 跳过 %d, 失败 %d, 圣遗物 %d 件（去重 %d）, 用时 %.1fs",
+                migrated.get(), skipped.get(), failed.get(), relics.get(), duplicates.get(), elapsedSeconds());
+    }
+}
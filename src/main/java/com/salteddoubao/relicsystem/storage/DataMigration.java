@@ -1,5 +1,6 @@
 package com.salteddoubao.relicsystem.storage;
 
+import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
 import com.salteddoubao.relicsystem.MinecraftRelicSystem;
@@ -18,11 +19,18 @@ public class DataMigration {
     private final MinecraftRelicSystem plugin;
     private final RelicProfileManager oldManager;
     private final InventoryProfileManager newManager;
+
+    // 当前（或最近一次）离线批量迁移
+    private static volatile BulkMigration bulkMigration;
     
     public DataMigration(MinecraftRelicSystem plugin) {
         this.plugin = plugin;
         this.oldManager = new RelicProfileManager(plugin);
-        this.newManager = new InventoryProfileManager(plugin);
+        // 独立存储模式下复用插件的档案管理器，避免与其写回缓存产生两份不一致的数据
+        IRelicProfileManager active = plugin.getRelicProfileManager();
+        this.newManager = active instanceof InventoryProfileManager
+                ? (InventoryProfileManager) active
+                : new InventoryProfileManager(plugin);
     }
     
     /**
@@ -33,7 +41,7 @@ public class DataMigration {
             plugin.getLogger().info("开始迁移玩家数据: " + player.getName());
             
             // 检查是否有旧数据文件
-            File oldDataFile = new File(plugin.getDataFolder(), "players/" + player.getUniqueId().toString() + ".yml");
+            File oldDataFile = plugin.getPlayerFileLayout().file(player.getUniqueId(), ".yml");
             if (!oldDataFile.exists()) {
                 plugin.getLogger().info("玩家 " + player.getName() + " 没有旧数据文件，跳过迁移");
                 return true;
@@ -41,25 +49,23 @@ public class DataMigration {
             
             // 加载旧数据
             PlayerRelicProfile oldProfile = oldManager.get(player);
-            
-            // 检查独立存储是否有足够空间
-            RelicInventoryStorage storage = newManager.getStorage();
+
+            // 检查独立存储是否有足够空间（只读计数摘要，空间不足时不必加载新档案）
+            RelicProfileStore storage = newManager.getStorage();
             int requiredSpace = oldProfile.getWarehouse().size();
-            int availableSpace = storage.getWarehouseAvailableSpace(player);
-            
+            int availableSpace = newManager.getSummary(player.getUniqueId()).getAvailable(storage.getWarehouseCapacity());
+
             if (requiredSpace > availableSpace) {
                 player.sendMessage("§c数据迁移失败：独立存储空间不足");
                 player.sendMessage("§c需要 " + requiredSpace + " 格空间，但只有 " + availableSpace + " 格可用");
                 plugin.getLogger().warning("玩家 " + player.getName() + " 独立存储空间不足，迁移失败");
                 return false;
             }
-            
-            // 获取新的档案管理器
+
             PlayerRelicProfile newProfile = newManager.get(player);
-            
             int migratedEquipped = 0;
             int migratedWarehouse = 0;
-            
+
             // 迁移已装备的圣遗物
             for (Map.Entry<RelicSlot, RelicData> entry : oldProfile.getEquipped().entrySet()) {
                 RelicData relic = entry.getValue();
@@ -74,7 +80,10 @@ public class DataMigration {
                 newProfile.addToWarehouse(relic);
                 migratedWarehouse++;
             }
-            
+
+            // 写回缓存，确保迁移结果立即落盘
+            newManager.flush(player);
+
             plugin.getLogger().info("玩家 " + player.getName() + " 数据迁移完成: " + 
                 "装备 " + migratedEquipped + " 件, 仓库 " + migratedWarehouse + " 件");
             
@@ -98,7 +107,7 @@ public class DataMigration {
      */
     public boolean backupOldData(Player player) {
         try {
-            File oldDataFile = new File(plugin.getDataFolder(), "players/" + player.getUniqueId().toString() + ".yml");
+            File oldDataFile = plugin.getPlayerFileLayout().file(player.getUniqueId(), ".yml");
             if (!oldDataFile.exists()) {
                 return true; // 没有旧文件，无需备份
             }
@@ -125,30 +134,100 @@ public class DataMigration {
         }
     }
     
+    /**
+     * 将独立存储的逐玩家文件（relic_storage/ 及冷归档 relic_archive/）批量迁移到当前存储（段文件或 SQLite）
+     * 已在目标存储中的玩家与在线玩家会被跳过（在线玩家在读取时已自动迁移），原文件保留作为备份
+     */
+    public String migrateInventoryFilesToStore() {
+        RelicProfileStore target = newManager.getStorage();
+        if (target instanceof RelicInventoryStorage) {
+            return "§c当前存储模式不是段文件存储(SEGMENT)或数据库存储(SQLITE)，无法迁移";
+        }
+        RelicInventoryStorage fileStorage = new RelicInventoryStorage(plugin);
+        // 分片目录下的基础文件与日志，加上冷归档中的玩家
+        java.util.Set<java.util.UUID> ids = fileStorage.playerIds();
+        if (ids.isEmpty()) {
+            return "§e没有发现需要迁移的独立存储文件";
+        }
+        int migrated = 0, skipped = 0, failed = 0;
+        for (java.util.UUID id : ids) {
+            if (target.contains(id) || plugin.getServer().getPlayer(id) != null) {
+                skipped++;
+                continue;
+            }
+            try {
+                PlayerRelicProfile profile = new PlayerRelicProfile(id);
+                fileStorage.loadProfile(id, profile);
+                target.saveProfile(ProfileSnapshot.of(profile, id.toString()));
+                migrated++;
+            } catch (Exception e) {
+                failed++;
+                plugin.getLogger().severe("迁移玩家 " + id + " 到新存储失败: " + e.getMessage());
+            }
+        }
+        plugin.getLogger().info("存储迁移完成: 迁移 " + migrated + ", 跳过 " + skipped + ", 失败 " + failed);
+        return String.format("§a存储迁移完成: 迁移 %d 位玩家, 跳过 %d 位, 失败 %d 位（原文件已保留）", migrated, skipped, failed);
+    }
+    
+    /**
+     * 开始离线批量迁移 players/*.yml（后台并行执行，完成后通知发起者）
+     */
+    public String startBulkMigration(CommandSender sender) {
+        synchronized (DataMigration.class) {
+            BulkMigration current = bulkMigration;
+            if (current != null && current.isRunning()) {
+                return "§e批量迁移正在进行中: " + current.progressLine();
+            }
+            bulkMigration = new BulkMigration(plugin, newManager.getStorage());
+            bulkMigration.start(sender);
+        }
+        return "§e已开始离线批量迁移，使用 §6/relic migration-status §e查看进度";
+    }
+
+    /**
+     * 中止正在进行的批量迁移（已迁移的玩家不受影响，再次执行时继续剩余部分）
+     */
+    public String stopBulkMigration() {
+        BulkMigration current = bulkMigration;
+        if (current == null || !current.isRunning()) {
+            return "§e当前没有正在进行的批量迁移";
+        }
+        current.cancel();
+        return "§e已请求中止批量迁移，正在处理中的玩家完成后停止";
+    }
+
+    /**
+     * 该玩家是否正由批量迁移处理（进服自动迁移时跳过）
+     */
+    public static boolean isBulkMigrating(java.util.UUID playerId) {
+        BulkMigration current = bulkMigration;
+        return current != null && current.isRunning() && current.isClaimed(playerId);
+    }
+    
     /**
      * 检查玩家是否需要迁移
      */
     public boolean needsMigration(Player player) {
-        File oldDataFile = new File(plugin.getDataFolder(), "players/" + player.getUniqueId().toString() + ".yml");
-        return oldDataFile.exists();
+        return plugin.getPlayerFileLayout().file(player.getUniqueId(), ".yml").exists();
     }
     
     /**
      * 获取迁移统计信息
      */
     public String getMigrationStats() {
-        File playersDir = new File(plugin.getDataFolder(), "players");
-        if (!playersDir.exists() || !playersDir.isDirectory()) {
-            return "没有发现需要迁移的数据文件";
-        }
-        
-        File[] files = playersDir.listFiles((dir, name) -> name.endsWith(".yml"));
-        int oldDataCount = files != null ? files.length : 0;
+        int oldDataCount = plugin.getPlayerFileLayout().count(".yml");
         
         File backupDir = new File(plugin.getDataFolder(), "migration_backup");
         File[] backupFiles = backupDir.exists() ? backupDir.listFiles() : null;
         int backupCount = backupFiles != null ? backupFiles.length : 0;
         
-        return String.format("迁移统计: 待迁移 %d 个文件, 已备份 %d 个文件", oldDataCount, backupCount);
+        String stats = String.format("迁移统计: 待迁移 %d 个文件, 已备份 %d 个文件", oldDataCount, backupCount);
+        BulkMigration current = bulkMigration;
+        if (current != null) {
+            stats += current.isRunning()
+                    ? "\n§7批量迁移进行中: §f" + current.progressLine()
+                    : "\n§7最近一次批量迁移: §f" + current.summary();
+        }
+        return stats;
     }
 }
@@ -0,0 +1,296 @@
+package com.salteddoubao.relicsystem.storage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * 崩溃安全的存储文件写入
+ *
+ * 写入流程：写 name.tmp 并刷盘 → 原文件改名为 name.bak → name.tmp 原子改名为 name → 目录刷盘
+ * 任一时刻崩溃（包括断电），磁盘上至少保留一份完整的旧版本或新版本。
+ * 临时文件必须在改名前刷盘：否则文件系统可能先持久化改名、后持久化内容，
+ * 断电后主文件变成空文件或全零，而上一代数据已被改名为 .bak。
+ *
+ * 文件末尾带校验尾，读取时可识别写到一半的文件：
+ * <pre>
+ * 二进制:  内容 | CRC32(int) | "MRCK"
+ * 文本:    内容 | "# crc32: xxxxxxxx\n"   （YAML 注释，不影响解析）
+ * </pre>
+ *
+ * 追加写入的文件（如变更日志）不在写入时刷盘，登记为未同步，由 {@link #sync()} 在定时保存/关服时
+ * 一次性刷盘（组提交），避免每次点击都付出一次 fsync 的代价。
+ *
+ * 读取时空文件视为损坏；旁边存在 .bak 的主文件/临时文件缺少校验尾也视为损坏
+ * （.bak 只由本类写出，主文件必然带校验尾，没有校验尾说明是写坏的文件而不是旧版文件）。
+ */
+public class DurableFileWriter {
+    private static final byte[] TRAILER_MAGIC = {'M', 'R', 'C', 'K'};
+    private static final int TRAILER_SIZE = 8;
+    private static final String TEXT_TRAILER_PREFIX = "# crc32: ";
+
+    private final Logger logger;
+    private final Set<Path> unsynced = new LinkedHashSet<>();
+
+    public DurableFileWriter(Logger logger) {
+        this.logger = logger;
+    }
+
+    // ===== 写入 =====
+
+    /**
+     * 原子替换二进制文件（附加校验尾）
+     */
+    public void write(File target, byte[] data) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        byte[] trailer = new byte[TRAILER_SIZE];
+        int value = (int) crc.getValue();
+        trailer[0] = (byte) (value >>> 24);
+        trailer[1] = (byte) (value >>> 16);
+        trailer[2] = (byte) (value >>> 8);
+        trailer[3] = (byte) value;
+        System.arraycopy(TRAILER_MAGIC, 0, trailer, 4, TRAILER_MAGIC.length);
+        replace(target, data, trailer);
+    }
+
+    /**
+     * 原子替换文本文件（附加注释形式的校验行）
+     */
+    public void writeText(File target, String text) throws IOException {
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        if (data.length > 0 && data[data.length - 1] != '\n') {
+            data = (text + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        byte[] trailer = String.format("%s%08x\n", TEXT_TRAILER_PREFIX, crc.getValue()).getBytes(StandardCharsets.UTF_8);
+        replace(target, data, trailer);
+    }
+
+    private void replace(File target, byte[] data, byte[] trailer) throws IOException {
+        Path path = target.toPath();
+        Path tmp = sibling(target, ".tmp").toPath();
+        Path bak = sibling(target, ".bak").toPath();
+        try (FileOutputStream out = new FileOutputStream(tmp.toFile())) {
+            out.write(data);
+            out.write(trailer);
+            out.getFD().sync();
+        }
+        if (Files.exists(path)) {
+            Files.move(path, bak, StandardCopyOption.REPLACE_EXISTING);
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(path.getParent());
+    }
+
+    /**
+     * 登记以其它方式写过的文件（如追加的日志），在下次 {@link #sync()} 时一并刷盘
+     */
+    public void markDirty(File file) {
+        markDirty(file.toPath());
+    }
+
+    private synchronized void markDirty(Path path) {
+        unsynced.add(path);
+    }
+
+    /**
+     * 将自上次同步以来写过的所有文件及其目录刷到磁盘
+     *
+     * @return 刷盘的文件数
+     */
+    public int sync() {
+        List<Path> files;
+        synchronized (this) {
+            if (unsynced.isEmpty()) return 0;
+            files = new ArrayList<>(unsynced);
+            unsynced.clear();
+        }
+        Set<Path> dirs = new LinkedHashSet<>();
+        int count = 0;
+        for (Path file : files) {
+            if (!Files.exists(file)) continue;
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ch.force(true);
+                count++;
+            } catch (IOException e) {
+                logger.warning("刷盘失败: " + file.getFileName() + " - " + e.getMessage());
+            }
+            if (file.getParent() != null) {
+                dirs.add(file.getParent());
+            }
+        }
+        for (Path dir : dirs) {
+            syncDirectory(dir);
+        }
+        return count;
+    }
+
+    /**
+     * 目录刷盘保证改名本身持久化；部分平台（如 Windows）不支持，忽略即可
+     */
+    private static void syncDirectory(Path dir) {
+        if (dir == null) return;
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    // ===== 读取 =====
+
+    /**
+     * 按 主文件 → 临时文件 → 备份 的顺序返回候选内容（已去掉校验尾）
+     * 校验失败、空文件以及有备份却没有校验尾的候选会被跳过；
+     * 没有校验尾的旧文件原样返回，由调用方依次解码，某一份解码失败时继续尝试下一份
+     */
+    public static List<byte[]> readCandidates(File target, Logger logger) {
+        List<byte[]> result = new ArrayList<>(1);
+        boolean hasBackup = sibling(target, ".bak").exists();
+        for (File file : candidates(target)) {
+            if (!file.exists()) continue;
+            try {
+                byte[] bytes = Files.readAllBytes(file.toPath());
+                if (bytes.length == 0) {
+                    logger.warning("存储文件为空（可能写入中途断电）: " + file.getName());
+                    continue;
+                }
+                if (hasBackup && !isBackup(file) && !hasTrailer(bytes)) {
+                    logger.warning("存储文件缺少校验尾（可能写入中途断电）: " + file.getName());
+                    continue;
+                }
+                byte[] payload = stripTrailer(bytes);
+                if (payload == null) {
+                    logger.warning("存储文件校验失败（可能写入中途崩溃）: " + file.getName());
+                    continue;
+                }
+                result.add(payload);
+            } catch (IOException e) {
+                logger.warning("读取存储文件失败: " + file.getName() + " - " + e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 文本版本的 {@link #readCandidates(File, Logger)}
+     */
+    public static List<String> readTextCandidates(File target, Logger logger) {
+        List<String> result = new ArrayList<>(1);
+        boolean hasBackup = sibling(target, ".bak").exists();
+        for (File file : candidates(target)) {
+            if (!file.exists()) continue;
+            try {
+                String text = Files.readString(file.toPath(), StandardCharsets.UTF_8);
+                if (text.isEmpty()) {
+                    logger.warning("存储文件为空（可能写入中途断电）: " + file.getName());
+                    continue;
+                }
+                if (hasBackup && !isBackup(file) && !hasTextTrailer(text)) {
+                    logger.warning("存储文件缺少校验尾（可能写入中途断电）: " + file.getName());
+                    continue;
+                }
+                String payload = stripTextTrailer(text);
+                if (payload == null) {
+                    logger.warning("存储文件校验失败（可能写入中途崩溃）: " + file.getName());
+                    continue;
+                }
+                result.add(payload);
+            } catch (IOException e) {
+                logger.warning("读取存储文件失败: " + file.getName() + " - " + e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 主文件、临时文件或备份任一存在
+     */
+    public static boolean exists(File target) {
+        for (File file : candidates(target)) {
+            if (file.exists()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 删除主文件、临时文件与备份
+     */
+    public static void delete(File target) throws IOException {
+        for (File file : candidates(target)) {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    private static File[] candidates(File target) {
+        return new File[]{target, sibling(target, ".tmp"), sibling(target, ".bak")};
+    }
+
+    private static File sibling(File target, String suffix) {
+        return new File(target.getParentFile(), target.getName() + suffix);
+    }
+
+    private static boolean isBackup(File file) {
+        return file.getName().endsWith(".bak");
+    }
+
+    static boolean hasTrailer(byte[] bytes) {
+        int n = bytes.length;
+        if (n < TRAILER_SIZE) return false;
+        for (int i = 0; i < TRAILER_MAGIC.length; i++) {
+            if (bytes[n - TRAILER_MAGIC.length + i] != TRAILER_MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    static boolean hasTextTrailer(String text) {
+        int end = text.endsWith("\n") ? text.length() - 1 : text.length();
+        int lineStart = text.lastIndexOf('\n', end - 1) + 1;
+        return text.startsWith(TEXT_TRAILER_PREFIX, lineStart);
+    }
+
+    /**
+     * @return 去掉校验尾后的内容；没有校验尾时原样返回；校验失败返回 null
+     */
+    static byte[] stripTrailer(byte[] bytes) {
+        if (!hasTrailer(bytes)) return bytes;
+        int len = bytes.length - TRAILER_SIZE;
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, len);
+        int stored = ((bytes[len] & 0xff) << 24) | ((bytes[len + 1] & 0xff) << 16)
+                | ((bytes[len + 2] & 0xff) << 8) | (bytes[len + 3] & 0xff);
+        if ((int) crc.getValue() != stored) return null;
+        byte[] payload = new byte[len];
+        System.arraycopy(bytes, 0, payload, 0, len);
+        return payload;
+    }
+
+    static String stripTextTrailer(String text) {
+        if (!hasTextTrailer(text)) return text;
+        int end = text.endsWith("\n") ? text.length() - 1 : text.length();
+        int lineStart = text.lastIndexOf('\n', end - 1) + 1;
+        String payload = text.substring(0, lineStart);
+        CRC32 crc = new CRC32();
+        crc.update(payload.getBytes(StandardCharsets.UTF_8));
+        String expected = String.format("%08x", crc.getValue());
+        return expected.equals(text.substring(lineStart + TEXT_TRAILER_PREFIX.length(), end).trim()) ? payload : null;
+    }
+}
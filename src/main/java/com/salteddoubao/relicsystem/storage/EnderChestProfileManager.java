@@ -10,7 +10,9 @@ import com.salteddoubao.relicsystem.relic.RelicSlot;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 基于末影箱的玩家圣遗物档案管理器
@@ -19,7 +21,9 @@ import java.util.UUID;
 public class EnderChestProfileManager implements IRelicProfileManager {
     private final MinecraftRelicSystem plugin;
     private final EnderChestStorage storage;
-    
+    /** 本次在线期间已校验过末影箱的玩家 */
+    private final Set<UUID> validated = ConcurrentHashMap.newKeySet();
+
     public EnderChestProfileManager(MinecraftRelicSystem plugin) {
         this.plugin = plugin;
         this.storage = new EnderChestStorage(plugin);
@@ -27,14 +31,16 @@ public class EnderChestProfileManager implements IRelicProfileManager {
     
     /**
      * 获取玩家圣遗物档案
-     * 直接从末影箱读取，无需内存缓存
+     * 直接从末影箱读取，无需内存缓存；每次在线期间只在首次获取时校验一次末影箱
      */
     public PlayerRelicProfile get(Player player) {
         UUID playerId = player.getUniqueId();
         PlayerRelicProfile profile = new EnderChestPlayerProfile(playerId, player, storage);
         
-        // 清理无效数据
-        storage.cleanupInvalidRelics(player);
+        // 无效数据移入隔离区
+        if (validated.add(playerId)) {
+            storage.cleanupInvalidRelics(player);
+        }
         
         return profile;
     }
@@ -43,6 +49,7 @@ public class EnderChestProfileManager implements IRelicProfileManager {
      * 清理玩家档案（末影箱存储无需清理，数据自动持久化）
      */
     public void clear(Player player) {
+        validated.remove(player.getUniqueId());
         // 末影箱存储不需要清理操作，数据已经实时持久化
         plugin.getLogger().info("玩家 " + player.getName() + " 的圣遗物数据已自动保存到末影箱");
     }
@@ -104,8 +111,8 @@ public class EnderChestProfileManager implements IRelicProfileManager {
         }
         
         @Override
-        public void equip(RelicData relic) {
-            if (relic == null) return;
+        public boolean equip(RelicData relic) {
+            if (relic == null) return false;
             
             boolean success = storage.equipRelic(player, relic);
             if (success) {
@@ -113,26 +120,29 @@ public class EnderChestProfileManager implements IRelicProfileManager {
             } else {
                 player.sendMessage("§c装备失败");
             }
+            return success;
         }
         
         @Override
-        public void unequip(RelicSlot slot) {
+        public boolean unequip(RelicSlot slot) {
             boolean success = storage.unequipRelic(player, slot);
             if (success) {
                 player.sendMessage("§a已卸下 " + getSlotDisplayName(slot) + " 部位的装备");
             } else {
                 player.sendMessage("§c卸下失败");
             }
+            return success;
         }
         
         @Override
-        public void addToWarehouse(RelicData relic) {
-            if (relic == null) return;
+        public boolean addToWarehouse(RelicData relic) {
+            if (relic == null) return false;
             
             boolean success = storage.addToWarehouse(player, relic);
             if (!success) {
                 player.sendMessage("§c仓库已满，无法添加圣遗物");
             }
+            return success;
         }
         
         @Override
@@ -3,12 +3,15 @@ package com.salteddoubao.relicsystem.storage;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectOutputStream;
 
 import com.salteddoubao.relicsystem.MinecraftRelicSystem;
 import com.salteddoubao.relicsystem.relic.RelicData;
 import com.salteddoubao.relicsystem.relic.RelicSlot;
 import com.salteddoubao.relicsystem.util.RelicItemConverter;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,6 +26,7 @@ import java.util.List;
 public class EnderChestStorage {
     private final MinecraftRelicSystem plugin;
     private final RelicItemConverter converter;
+    private final RelicQuarantine quarantine;
     
     // 末影箱槽位分配
     private static final int EQUIPPED_START = 0;  // 已装备：0-4
@@ -33,6 +37,7 @@ public class EnderChestStorage {
     public EnderChestStorage(MinecraftRelicSystem plugin) {
         this.plugin = plugin;
         this.converter = plugin.getRelicItemConverter();
+        this.quarantine = new RelicQuarantine(plugin);
     }
     
     /**
@@ -42,11 +47,7 @@ public class EnderChestStorage {
         Inventory enderChest = player.getEnderChest();
         int slotIndex = EQUIPPED_START + slot.ordinal();
         
-        ItemStack item = enderChest.getItem(slotIndex);
-        if (converter.isRelicItem(item)) {
-            return converter.fromItemStack(item);
-        }
-        return null;
+        return converter.fromItemStack(enderChest.getItem(slotIndex));
     }
     
     /**
@@ -59,9 +60,9 @@ public class EnderChestStorage {
         int slotIndex = EQUIPPED_START + relic.getSlot().ordinal();
         
         // 如果原位置有装备，移动到仓库
-        ItemStack oldEquipped = enderChest.getItem(slotIndex);
-        if (converter.isRelicItem(oldEquipped)) {
-            if (!addToWarehouse(player, converter.fromItemStack(oldEquipped))) {
+        RelicItemConverter.Probe oldEquipped = converter.probe(enderChest.getItem(slotIndex));
+        if (oldEquipped.isRelic()) {
+            if (!addToWarehouse(player, oldEquipped.getRelic())) {
                 player.sendMessage("§c装备失败：仓库已满，无法放入原装备");
                 return false;
             }
@@ -83,13 +84,8 @@ public class EnderChestStorage {
         Inventory enderChest = player.getEnderChest();
         int slotIndex = EQUIPPED_START + slot.ordinal();
         
-        ItemStack equipped = enderChest.getItem(slotIndex);
-        if (!converter.isRelicItem(equipped)) {
-            return false; // 该部位没有装备
-        }
-        
-        RelicData relic = converter.fromItemStack(equipped);
-        if (relic == null) return false;
+        RelicData relic = converter.fromItemStack(enderChest.getItem(slotIndex));
+        if (relic == null) return false; // 该部位没有装备
         
         // 尝试放入仓库
         if (addToWarehouse(player, relic)) {
@@ -109,12 +105,9 @@ public class EnderChestStorage {
         Inventory enderChest = player.getEnderChest();
         
         for (int i = WAREHOUSE_START; i <= WAREHOUSE_END; i++) {
-            ItemStack item = enderChest.getItem(i);
-            if (converter.isRelicItem(item)) {
-                RelicData relic = converter.fromItemStack(item);
-                if (relic != null) {
-                    warehouse.add(relic);
-                }
+            RelicData relic = converter.fromItemStack(enderChest.getItem(i));
+            if (relic != null) {
+                warehouse.add(relic);
             }
         }
         
@@ -160,13 +153,10 @@ public class EnderChestStorage {
         Inventory enderChest = player.getEnderChest();
         
         for (int i = WAREHOUSE_START; i <= WAREHOUSE_END; i++) {
-            ItemStack item = enderChest.getItem(i);
-            if (converter.isRelicItem(item)) {
-                RelicData existing = converter.fromItemStack(item);
-                if (existing != null && existing.getId().equals(relic.getId())) {
-                    enderChest.setItem(i, null);
-                    return true;
-                }
+            RelicData existing = converter.fromItemStack(enderChest.getItem(i));
+            if (existing != null && existing.getId().equals(relic.getId())) {
+                enderChest.setItem(i, null);
+                return true;
             }
         }
         
@@ -198,21 +188,36 @@ public class EnderChestStorage {
     }
     
     /**
-     * 清理末影箱中的无效圣遗物数据
+     * 把末影箱中的无效圣遗物移入隔离区（物品序列化后保存，不直接删除）
      */
     public void cleanupInvalidRelics(Player player) {
         Inventory enderChest = player.getEnderChest();
         
         for (int i = 0; i < enderChest.getSize(); i++) {
             ItemStack item = enderChest.getItem(i);
-            if (item != null && converter.isRelicItem(item)) {
-                RelicData relic = converter.fromItemStack(item);
-                if (relic == null) {
-                    // 无效的圣遗物数据，清理掉
+            RelicItemConverter.Probe probe = converter.probe(item);
+            if (probe.isRelic()) {
+                RelicData relic = probe.getRelic();
+                if (relic == null || !RelicValidator.isValid(relic, RelicValidator.substatLimit(plugin))) {
+                    try {
+                        quarantine.raw(player.getUniqueId(), "enderchest-slot" + i, serializeItem(item));
+                    } catch (IOException e) {
+                        // 无法保存到隔离区时保留原物品，下次再试
+                        plugin.getLogger().warning("隔离玩家 " + player.getName() + " 末影箱槽位" + i + " 的无效圣遗物失败: " + e.getMessage());
+                        continue;
+                    }
                     enderChest.setItem(i, null);
-                    plugin.getLogger().warning("清理了玩家 " + player.getName() + " 末影箱中的无效圣遗物数据 (槽位" + i + ")");
+                    plugin.getLogger().warning("玩家 " + player.getName() + " 末影箱中的无效圣遗物数据已隔离 (槽位" + i + ")");
                 }
             }
         }
     }
+
+    private static byte[] serializeItem(ItemStack item) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (BukkitObjectOutputStream oos = new BukkitObjectOutputStream(baos)) {
+            oos.writeObject(item);
+        }
+        return baos.toByteArray();
+    }
 }
@@ -2,6 +2,10 @@ package com.salteddoubao.relicsystem.storage;
 
 import org.bukkit.entity.Player;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+
 import com.salteddoubao.relicsystem.relic.PlayerRelicProfile;
 
 /**
@@ -29,4 +33,43 @@ public interface IRelicProfileManager {
      * 保存所有在线玩家数据
      */
     void saveAll();
+
+    /**
+     * 进服前预加载玩家档案（在 AsyncPlayerPreLoginEvent 的异步线程调用）
+     * 之后的 {@link #get(Player)} 会直接取用预加载结果
+     */
+    default void preload(UUID playerId) {
+    }
+
+    /**
+     * 存储中有数据的全部玩家（离线导出用）；不支持时返回空集合
+     */
+    default Set<UUID> storedPlayerIds() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * 读取存储中的玩家档案（离线导出用，在后台线程调用，不进入缓存）
+     * 先写完该玩家尚在保存队列中的快照；在线玩家读到的是最近一次写回的数据
+     *
+     * @return 是否支持
+     */
+    default boolean loadStored(UUID playerId, PlayerRelicProfile profile) {
+        return false;
+    }
+
+    /**
+     * 用完整数据替换离线玩家的档案（导入用，在后台线程调用），经保存管线异步写入
+     *
+     * @return 已提交写入；玩家在线或不支持时返回 false
+     */
+    default boolean importProfile(UUID playerId, String playerName, PlayerRelicProfile profile) {
+        return false;
+    }
+
+    /**
+     * 插件关闭时释放资源（在保存管线清空之后调用）
+     */
+    default void shutdown() {
+    }
 }
@@ -1,163 +1,602 @@
 package com.salteddoubao.relicsystem.storage;
 
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
 
 import com.salteddoubao.relicsystem.MinecraftRelicSystem;
 import com.salteddoubao.relicsystem.relic.PlayerRelicProfile;
 import com.salteddoubao.relicsystem.relic.RelicData;
 import com.salteddoubao.relicsystem.relic.RelicSlot;
 
-import java.util.EnumMap;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 基于独立存储的玩家圣遗物档案管理器
- * 
+ *
  * 使用类似末影箱的原理，但创建独立的存储空间：
  * - 不占用玩家末影箱
  * - 利用Minecraft原生ItemStack序列化机制
  * - 数据自动持久化，可靠性高
+ *
+ * 缓存策略（写回）：
+ * - 玩家首次访问时读取并解码一次存储文件，之后所有读写都在内存档案上进行
+ * - 档案变更时记录一条 {@link RelicJournal} 日志并标记为脏
+ * - save() 只把新增日志记录交给 {@link ProfileSavePipeline} 追加，代价与仓库大小无关
+ * - 日志超过阈值、玩家退出或需要升级旧格式时，提交完整快照压缩为新的基础文件
+ *
+ * 进服前在 AsyncPlayerPreLoginEvent 线程中 {@link #preload(UUID)} 读取档案，
+ * 进服时 get() 直接取用暂存结果，主线程不再读文件
+ *
+ * 启用冷归档时由 {@link #startColdArchive} 定时把长期未修改的玩家文件移入 {@link RelicColdArchive}
+ *
+ * 启用 {@link RelicRegistry} 时，在线玩家的圣遗物登记在内存表中，放入仓库前检查是否已存在于其他位置；
+ * 快照写入存储后再同步到登记表数据库
+ *
+ * 存储支持版本号时（{@link RelicProfileStore#getRevision}），档案记录读取/写入时的版本号：
+ * 写入时版本号已被其他服务器实例改变，存储会以最新数据为准重放本实例的变更后写回，
+ * 随后在主线程用合并结果替换内存档案；退出玩家的档案保留在一个小的 LRU 中，
+ * 重进时版本号未变即直接复用，不再重新解码
  */
 public class InventoryProfileManager implements IRelicProfileManager {
     private final MinecraftRelicSystem plugin;
-    private final RelicInventoryStorage storage;
-    
+    private final RelicProfileStore storage;
+    private final Map<UUID, InventoryPlayerProfile> cache = new ConcurrentHashMap<>();
+    // 写入失败的档案：日志已缺少那批变更，下次写回改为整体重写；离线玩家的档案留在这里等待重试
+    private final Map<UUID, InventoryPlayerProfile> failedWrites = new ConcurrentHashMap<>();
+    private final long journalCompactBytes;
+    private final PreloadStaging<InventoryPlayerProfile> staging;
+    private final long preloadWaitMillis;
+    private final RelicRegistry registry;
+    // 已退出玩家的档案（版本号未变时重进直接复用），主线程与预加载线程都会访问
+    private final Map<UUID, InventoryPlayerProfile> retained;
+    private BukkitTask autoSaveTask;
+    private BukkitTask coldArchiveTask;
+
     public InventoryProfileManager(MinecraftRelicSystem plugin) {
+        this(plugin, new RelicInventoryStorage(plugin));
+    }
+
+    public InventoryProfileManager(MinecraftRelicSystem plugin, RelicProfileStore storage) {
         this.plugin = plugin;
-        this.storage = new RelicInventoryStorage(plugin);
+        this.storage = storage;
+        this.journalCompactBytes = Math.max(1, plugin.getConfig().getLong("relic.inventory_storage.journal_compact_kb", 256)) * 1024L;
+        this.staging = new PreloadStaging<>(plugin.getLogger());
+        this.preloadWaitMillis = plugin.getConfig().getLong("relic.inventory_storage.preload_wait_ms", 2000);
+        this.registry = plugin.getRelicRegistry();
+        int retainLimit = Math.max(0, plugin.getConfig().getInt("relic.inventory_storage.retain_profiles", 200));
+        this.retained = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, InventoryPlayerProfile> eldest) {
+                return size() > retainLimit;
+            }
+        });
     }
-    
+
     /**
      * 获取玩家圣遗物档案
-     * 直接从独立存储读取，无需内存缓存
+     * 命中缓存时直接返回；未命中时优先取用进服前预加载的结果，否则从独立存储读取一次
+     * 等待预加载与读盘都在缓存表之外进行，不占用 ConcurrentHashMap 的桶锁
      */
     @Override
     public PlayerRelicProfile get(Player player) {
-        UUID playerId = player.getUniqueId();
-        PlayerRelicProfile profile = new InventoryPlayerProfile(playerId, player, storage);
-        
-        // 清理无效数据
-        storage.cleanupInvalidRelics(player);
-        
+        UUID id = player.getUniqueId();
+        InventoryPlayerProfile cached = cache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        InventoryPlayerProfile profile = staging.take(id, preloadWaitMillis);
+        if (profile == null) {
+            profile = load(id);
+        }
+        profile.player = player;
+        InventoryPlayerProfile existing = cache.putIfAbsent(id, profile);
+        if (existing != null) {
+            return existing;
+        }
+        if (registry != null) {
+            registry.track(id, profile);
+        }
         return profile;
     }
-    
+
     /**
-     * 清理玩家档案（独立存储无需清理，数据自动持久化）
+     * 进服前预加载（在 AsyncPlayerPreLoginEvent 的异步线程调用）
+     */
+    @Override
+    public void preload(UUID playerId) {
+        if (cache.containsKey(playerId)) {
+            // 仍在线（顶号）：沿用缓存中的档案
+            return;
+        }
+        staging.stage(playerId, () -> load(playerId));
+    }
+
+    /**
+     * 玩家档案的计数摘要（容量检查、状态查询用）
+     * 在线玩家直接统计缓存中的档案；离线玩家只读存储头部，不解码仓库
+     */
+    public ProfileSummary getSummary(UUID playerId) {
+        InventoryPlayerProfile cached = cache.get(playerId);
+        if (cached != null) {
+            return ProfileSummary.of(cached);
+        }
+        plugin.getProfileSavePipeline().flush(playerId);
+        return storage.readSummary(playerId);
+    }
+
+    private InventoryPlayerProfile load(UUID playerId) {
+        // 先写完该玩家尚在保存队列中的快照（如刚退出又重进），再读取文件
+        plugin.getProfileSavePipeline().flush(playerId);
+        // 上次写入失败的档案比存储中的数据新，直接沿用
+        InventoryPlayerProfile failed = failedWrites.remove(playerId);
+        if (failed != null) {
+            failed.requireRewrite();
+            return failed;
+        }
+        // 先取版本号再读数据：期间其他实例写入只会让版本号偏旧，下次保存时按冲突合并，不会丢数据
+        long revision = storage.getRevision(playerId);
+        InventoryPlayerProfile kept = retained.remove(playerId);
+        if (kept != null && revision >= 0 && kept.revision == revision) {
+            return kept;
+        }
+        InventoryPlayerProfile profile = new InventoryPlayerProfile(playerId, storage.getWarehouseCapacity(), registry);
+        // 旧格式文件、清理过无效数据或日志损坏时要求整体重写
+        if (storage.loadProfile(playerId, profile)) {
+            profile.requireRewrite();
+        }
+        profile.journalBytes = storage.getJournalSize(playerId);
+        profile.revision = revision;
+        return profile;
+    }
+
+    /**
+     * 玩家退出：压缩日志为新的基础文件并移出缓存
      */
     @Override
     public void clear(Player player) {
-        // 独立存储不需要清理操作，数据已经实时持久化
-        plugin.getLogger().info("玩家 " + player.getName() + " 的圣遗物数据已自动保存到独立存储");
+        // 顶号时新会话的预加载可能早于本次退出写入，作废后进服改为重新读取
+        staging.invalidate(player.getUniqueId());
+        InventoryPlayerProfile profile = cache.remove(player.getUniqueId());
+        if (profile != null) {
+            writeBack(profile, true);
+            untrack(profile);
+            if (profile.revision >= 0) {
+                retained.put(profile.getPlayerId(), profile);
+            }
+        }
     }
-    
+
     /**
-     * 保存玩家档案（独立存储无需手动保存）
+     * 保存玩家档案：只提交自上次保存以来的日志记录（追加写），必要时才压缩
      */
     @Override
     public void save(Player player) {
-        // 独立存储无需手动保存，数据实时同步
-        // feedback: 后台不再显示玩家圣遗物数据状态
-        // 保留方法但不输出日志
+        InventoryPlayerProfile profile = cache.get(player.getUniqueId());
+        if (profile != null) {
+            writeBack(profile, false);
+        }
+    }
+
+    /**
+     * 立即写回指定玩家的脏数据并等待落盘（用于数据迁移等需要确保落盘的场景）
+     */
+    public void flush(Player player) {
+        InventoryPlayerProfile profile = cache.get(player.getUniqueId());
+        if (profile != null) {
+            writeBack(profile, false);
+        }
+        plugin.getProfileSavePipeline().flush(player.getUniqueId());
+    }
+
+    @Override
+    public Set<UUID> storedPlayerIds() {
+        return storage.playerIds();
+    }
+
+    @Override
+    public boolean loadStored(UUID playerId, PlayerRelicProfile profile) {
+        plugin.getProfileSavePipeline().flush(playerId);
+        storage.loadProfile(playerId, profile);
+        return true;
+    }
+
+    /**
+     * 导入：在线玩家跳过；作废预加载与保留的旧档案，整体写入后同步到登记表
+     */
+    @Override
+    public boolean importProfile(UUID playerId, String playerName, PlayerRelicProfile profile) {
+        if (cache.containsKey(playerId)) {
+            return false;
+        }
+        staging.invalidate(playerId);
+        retained.remove(playerId);
+        plugin.getProfileSavePipeline().submit(ProfileSnapshot.of(profile, playerName), snapshot -> {
+            storage.saveProfile(snapshot);
+            if (registry != null) {
+                registry.recordSaved(snapshot);
+            }
+        });
+        return true;
     }
-    
+
     /**
-     * 保存所有在线玩家数据（独立存储无需此操作）
+     * 写回所有缓存中的脏档案，并移除已离线玩家的缓存
      */
     @Override
     public void saveAll() {
-        // 保留提示但简化
-        plugin.getLogger().fine("独立存储系统：所有玩家数据已自动持久化");
+        int written = 0;
+        Iterator<Map.Entry<UUID, InventoryPlayerProfile>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            InventoryPlayerProfile profile = it.next().getValue();
+            boolean offline = !profile.player.isOnline();
+            // 离线玩家移出缓存前顺带压缩日志
+            if (writeBack(profile, offline)) {
+                written++;
+            }
+            if (offline) {
+                it.remove();
+                untrack(profile);
+            }
+        }
+        // 已离线且上次写入失败的玩家：整体重写重试
+        for (InventoryPlayerProfile profile : new ArrayList<>(failedWrites.values())) {
+            if (cache.get(profile.getPlayerId()) != profile && writeBack(profile, true)) {
+                written++;
+            }
+        }
+        // 本批写入完成后统一刷盘一次，而不是每个玩家/每次点击都 fsync
+        plugin.getProfileSavePipeline().flushThen(() -> {
+            int synced = storage.sync();
+            plugin.getLogger().fine("独立存储系统：已刷盘 " + synced + " 个文件");
+        });
+        staging.evictOlderThan(60_000L);
+        plugin.getLogger().fine("独立存储系统：已提交 " + written + " 个玩家档案写回");
     }
-    
+
     /**
-     * 基于独立存储的玩家档案实现
+     * 启动定时写回任务
+     *
+     * @param intervalSeconds 间隔秒数，小于等于0表示不启用
      */
-    private static class InventoryPlayerProfile extends PlayerRelicProfile {
-        private final Player player;
-        private final RelicInventoryStorage storage;
-        
-        public InventoryPlayerProfile(UUID playerId, Player player, RelicInventoryStorage storage) {
-            super(playerId);
-            this.player = player;
-            this.storage = storage;
+    public void startAutoSave(long intervalSeconds) {
+        if (autoSaveTask != null) {
+            autoSaveTask.cancel();
+            autoSaveTask = null;
         }
-        
-        @Override
-        public Map<RelicSlot, RelicData> getEquipped() {
-            Map<RelicSlot, RelicData> equipped = new EnumMap<>(RelicSlot.class);
-            for (RelicSlot slot : RelicSlot.values()) {
-                RelicData relic = storage.getEquipped(player, slot);
-                if (relic != null) {
-                    equipped.put(slot, relic);
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        long ticks = intervalSeconds * 20L;
+        autoSaveTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::saveAll, ticks, ticks);
+    }
+
+    /**
+     * 启动冷归档任务（异步）：归档超过 inactiveDays 天未修改的玩家文件并压缩归档段
+     * 仅逐文件存储（INVENTORY 模式）有效
+     *
+     * @param intervalMinutes 间隔分钟数，小于等于0表示不启用
+     */
+    public void startColdArchive(long intervalMinutes, int inactiveDays) {
+        if (coldArchiveTask != null) {
+            coldArchiveTask.cancel();
+            coldArchiveTask = null;
+        }
+        if (intervalMinutes <= 0 || inactiveDays <= 0 || !(storage instanceof RelicInventoryStorage)) {
+            return;
+        }
+        RelicInventoryStorage fileStorage = (RelicInventoryStorage) storage;
+        long inactiveMillis = inactiveDays * 24L * 3600L * 1000L;
+        long ticks = intervalMinutes * 60L * 20L;
+        coldArchiveTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+            long start = System.currentTimeMillis();
+            int archived = fileStorage.archiveInactive(start - inactiveMillis, cache::containsKey);
+            int compacted = plugin.getColdArchive().compact();
+            if (archived > 0 || compacted > 0) {
+                plugin.getLogger().info("冷归档：归档 " + archived + " 位玩家, 压缩 " + compacted + " 个段文件, 耗时 "
+                        + (System.currentTimeMillis() - start) + "ms");
+            }
+        }, 20L * 60L, ticks);
+    }
+
+    /**
+     * 关闭：停止定时写回并释放底层存储（保存管线清空之后调用）
+     */
+    @Override
+    public void shutdown() {
+        if (autoSaveTask != null) {
+            autoSaveTask.cancel();
+            autoSaveTask = null;
+        }
+        if (coldArchiveTask != null) {
+            coldArchiveTask.cancel();
+            coldArchiveTask = null;
+        }
+        storage.close();
+    }
+
+    /**
+     * 在主线程生成快照并提交到保存管线，实际写盘在后台线程完成
+     *
+     * @param compact 是否强制压缩（玩家退出时为 true）
+     */
+    private boolean writeBack(InventoryPlayerProfile profile, boolean compact) {
+        if (failedWrites.remove(profile.getPlayerId(), profile)) {
+            profile.requireRewrite();
+        }
+        boolean requested = storage.takeCompactionRequest(profile.getPlayerId());
+        // 按行存储的实现直接应用每条操作，不需要因日志过长或退出而整体重写
+        boolean journalFull = storage.usesJournal() && (compact || profile.journalBytes >= journalCompactBytes);
+        boolean full = journalFull || requested || profile.rewriteRequired;
+        if (!profile.isDirty() && !(full && profile.journalBytes > 0) && !requested) {
+            return false;
+        }
+        // 完整快照附带尚未确认写入的变更，版本冲突时逐件重放
+        ProfileSnapshot snapshot = full
+                ? ProfileSnapshot.of(profile, profile.player.getName()).withDelta(new ArrayList<>(profile.unacked))
+                : ProfileSnapshot.ofJournal(profile.getPlayerId(), profile.player.getName(), profile.journalOps);
+        long opMark = profile.opCount;
+        profile.journalOps.clear();
+        profile.rewriteRequired = false;
+        profile.dirty = false;
+        if (full || !storage.usesJournal()) {
+            profile.journalBytes = 0;
+        }
+        plugin.getProfileSavePipeline().submit(snapshot, s -> {
+            try {
+                if (!s.hasFullData() && failedWrites.get(profile.getPlayerId()) == profile) {
+                    // 日志已缺少失败的那批变更，不能在其后继续追加
+                    throw new IOException("上次写入失败，等待整体重写");
                 }
+                persist(profile, s, opMark);
+            } catch (Exception e) {
+                // 本次快照的变更已从内存日志移出，记下档案以便下次整体重写（错误由保存管线记录）
+                failedWrites.put(profile.getPlayerId(), profile);
+                throw e;
             }
-            return equipped;
+        });
+        return true;
+    }
+
+    /**
+     * 写入存储（保存线程），成功后同步到圣遗物登记表
+     * 存储报告发生了合并时读取合并结果，交给主线程替换内存档案
+     *
+     * @param opMark 快照生成时档案已记录的变更数
+     */
+    private void persist(InventoryPlayerProfile profile, ProfileSnapshot snapshot, long opMark) throws Exception {
+        long expected = profile.revision;
+        long written = storage.saveProfile(snapshot, expected);
+        profile.ackedOps = opMark;
+        if (expected < 0 || written == expected + 1) {
+            profile.revision = written;
+            if (registry != null) {
+                registry.recordSaved(snapshot);
+            }
+            return;
         }
-        
-        @Override
-        public List<RelicData> getWarehouse() {
-            return storage.getWarehouse(player);
+        // 合并写回：版本号保持旧值直到主线程应用合并结果，期间的写入会继续按冲突处理
+        PlayerRelicProfile merged = new PlayerRelicProfile(profile.getPlayerId());
+        storage.loadProfile(profile.getPlayerId(), merged);
+        if (registry != null) {
+            registry.recordSaved(ProfileSnapshot.of(merged, snapshot.getPlayerName()));
         }
-        
-        @Override
-        public List<RelicData> getWarehouseBySlot(RelicSlot slot) {
-            return storage.getWarehouseBySlot(player, slot);
+        plugin.getServer().getScheduler().runTask(plugin, () -> applyMerged(profile, merged, written, opMark));
+    }
+
+    /**
+     * 用合并后的存储数据替换内存档案（主线程），并重放快照之后本实例新产生的变更
+     */
+    private void applyMerged(InventoryPlayerProfile profile, PlayerRelicProfile merged, long revision, long opMark) {
+        if (cache.get(profile.getPlayerId()) != profile) {
+            // 已退出：保留的旧档案版本号不匹配，重进时会重新读取
+            retained.remove(profile.getPlayerId(), profile);
+            return;
+        }
+        List<byte[]> later = new ArrayList<>();
+        long index = profile.opCount - profile.unacked.size();
+        for (byte[] op : profile.unacked) {
+            if (++index > opMark) {
+                later.add(op);
+            }
+        }
+        untrack(profile);
+        profile.getEquipped().clear();
+        profile.getEquipped().putAll(merged.getEquipped());
+        profile.getWarehouse().clear();
+        profile.getWarehouse().addAll(merged.getWarehouse());
+        try {
+            RelicJournal.applyAll(later, profile.getEquipped(), profile.getWarehouse());
+        } catch (IOException e) {
+            plugin.getLogger().warning("重放玩家 " + profile.getPlayerId() + " 合并后的变更失败: " + e.getMessage());
+            profile.requireRewrite();
+        }
+        profile.revision = revision;
+        if (registry != null) {
+            registry.track(profile.getPlayerId(), profile);
+        }
+        if (profile.player != null && profile.player.isOnline()) {
+            plugin.getRelicEffectService().refresh(profile.player, profile);
         }
-        
+        plugin.getLogger().info("玩家 " + profile.getPlayerId() + " 的圣遗物数据已与其他服务器实例的写入合并（版本 " + revision + "）");
+    }
+
+    private void untrack(InventoryPlayerProfile profile) {
+        if (registry != null) {
+            registry.untrack(profile.getPlayerId(), profile);
+        }
+    }
+
+    /**
+     * 基于独立存储的玩家档案实现（内存常驻，每次变更记录一条日志）
+     */
+    private static class InventoryPlayerProfile extends PlayerRelicProfile {
+        // 预加载时玩家尚未进服，进服取用时再绑定
+        private Player player;
+        private final int capacity;
+        private final RelicRegistry registry;
+        // 以下状态只在主线程读写
+        private final List<byte[]> journalOps = new ArrayList<>();
+        private long journalBytes;
+        private boolean rewriteRequired;
+        private boolean dirty;
+        // 已记录的变更总数，以及尚未确认写入存储的变更（版本冲突时重放）
+        private long opCount;
+        private final ArrayDeque<byte[]> unacked = new ArrayDeque<>();
+        // 以下由保存线程更新
+        private volatile long ackedOps;
+        private volatile long revision = -1;
+
+        public InventoryPlayerProfile(UUID playerId, int capacity, RelicRegistry registry) {
+            super(playerId);
+            this.capacity = capacity;
+            this.registry = registry;
+        }
+
+        /**
+         * 从外部（物品）放入的圣遗物是否已登记在其他位置；是则拒绝、隔离并提示
+         */
+        private boolean rejectDuplicate(RelicData relic) {
+            if (registry == null) return false;
+            RelicRegistry.Location existing = registry.findExisting(relic.getId());
+            if (existing == null) return false;
+            registry.reportDuplicate(getPlayerId(), relic, existing, "insert");
+            player.sendMessage("§c该圣遗物已存在于其他位置（疑似复制），已拒绝存入并交由管理员核查");
+            return true;
+        }
+
+        boolean isDirty() { return dirty; }
+
+        void requireRewrite() {
+            rewriteRequired = true;
+            dirty = true;
+        }
+
+        private void record(byte[] op) {
+            opCount++;
+            if (revision >= 0) {
+                long acked = ackedOps;
+                while (!unacked.isEmpty() && opCount - 1 - unacked.size() < acked) {
+                    unacked.pollFirst();
+                }
+                unacked.addLast(op);
+            }
+            journalOps.add(op);
+            journalBytes += op.length + RelicJournal.RECORD_OVERHEAD;
+            dirty = true;
+        }
+
         @Override
-        public void equip(RelicData relic) {
-            if (relic == null) return;
-            boolean success = storage.equipRelic(player, relic);
-            if (!success) {
-                player.sendMessage("§c装备失败");
+        public boolean equip(RelicData relic) {
+            if (relic == null) return false;
+            RelicData old = getEquipped().get(relic.getSlot());
+            if (old != null && old.getId().equals(relic.getId())) {
+                // 已装备在该部位：不能再把原装备放回仓库，否则同一件圣遗物会同时出现在装备与仓库中
+                return false;
+            }
+            boolean fromWarehouse = getWarehouse().stream().anyMatch(r -> r.getId().equals(relic.getId()));
+            if (old != null && !fromWarehouse && getWarehouse().size() >= capacity) {
+                player.sendMessage("§c装备失败：仓库已满，无法放入原装备");
+                return false;
+            }
+            if (!fromWarehouse && rejectDuplicate(relic)) {
+                return false;
             }
+            removeById(relic.getId());
+            if (old != null) {
+                getWarehouse().add(old);
+            }
+            getEquipped().put(relic.getSlot(), relic);
+            record(RelicJournal.equip(relic));
+            if (registry != null) {
+                registry.stored(getPlayerId(), relic.getId());
+            }
+            return true;
         }
-        
+
         @Override
-        public void unequip(RelicSlot slot) {
-            boolean success = storage.unequipRelic(player, slot);
-            if (success) {
-                player.sendMessage("§a已卸下 " + getSlotDisplayName(slot) + " 部位的装备");
-            } else {
+        public boolean unequip(RelicSlot slot) {
+            RelicData equipped = getEquipped().get(slot);
+            if (equipped == null) {
                 player.sendMessage("§c卸下失败");
+                return false;
             }
+            if (getWarehouse().size() >= capacity) {
+                player.sendMessage("§c卸下失败：仓库已满");
+                return false;
+            }
+            getEquipped().remove(slot);
+            getWarehouse().add(equipped);
+            record(RelicJournal.unequip(slot, equipped.getId()));
+            player.sendMessage("§a已卸下 " + getSlotDisplayName(slot) + " 部位的装备");
+            return true;
         }
-        
+
         @Override
-        public void addToWarehouse(RelicData relic) {
-            if (relic == null) return;
-            boolean success = storage.addToWarehouse(player, relic);
-            if (!success) {
+        public boolean addToWarehouse(RelicData relic) {
+            if (relic == null) return false;
+            if (getWarehouse().size() >= capacity) {
                 player.sendMessage("§c仓库已满，无法添加圣遗物");
+                return false;
             }
+            if (rejectDuplicate(relic)) {
+                return false;
+            }
+            getWarehouse().add(relic);
+            record(RelicJournal.add(relic));
+            if (registry != null) {
+                registry.stored(getPlayerId(), relic.getId());
+            }
+            return true;
         }
-        
+
         @Override
         public boolean removeFromWarehouse(RelicData relic) {
-            return storage.removeFromWarehouse(player, relic);
+            if (relic == null) return false;
+            boolean removed = removeById(relic.getId());
+            if (removed) {
+                record(RelicJournal.remove(relic.getId()));
+                if (registry != null) {
+                    registry.removed(getPlayerId(), relic.getId());
+                }
+            }
+            return removed;
+        }
+
+        private boolean removeById(UUID relicId) {
+            return getWarehouse().removeIf(r -> r.getId().equals(relicId));
         }
-        
+
         /**
          * 获取存储统计信息
          */
         public String getStorageStats() {
-            return storage.getStorageStats(player);
+            int equipped = getEquipped().size();
+            int warehouseUsed = getWarehouse().size();
+            int warehouseAvailable = Math.max(0, capacity - warehouseUsed);
+            return String.format("装备: %d/5, 仓库: %d/%d (可用: %d)",
+                    equipped, warehouseUsed, capacity, warehouseAvailable);
         }
-        
+
         /**
          * 获取仓库状态信息
          */
         public String getWarehouseStatus() {
             int used = getWarehouse().size();
-            int capacity = storage.getWarehouseCapacity();
-            int available = storage.getWarehouseAvailableSpace(player);
-            
+            int available = Math.max(0, capacity - used);
+
             return String.format("仓库状态: %d/%d (可用: %d)", used, capacity, available);
         }
-        
+
         private String getSlotDisplayName(RelicSlot slot) {
             return switch (slot) {
                 case FLOWER -> "生之花";
@@ -168,11 +607,11 @@ public class InventoryProfileManager implements IRelicProfileManager {
             };
         }
     }
-    
+
     /**
      * 获取存储实例（用于数据迁移等）
      */
-    public RelicInventoryStorage getStorage() {
+    public RelicProfileStore getStorage() {
         return storage;
     }
 }
@@ -0,0 +1,87 @@
+package com.salteddoubao.relicsystem.storage;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * 进服前预加载的档案暂存区
+ *
+ * AsyncPlayerPreLoginEvent 的异步线程中读取并解码档案放入暂存区，
+ * 进服时主线程直接取用；尚未完成时限时等待，超时或失败返回 null 由调用方同步读取。
+ * 暂存结果只使用一次，玩家在读取期间退出（同一账号顶号）时由调用方作废。
+ */
+public class PreloadStaging<T> {
+
+    private static final class Staged<T> {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final long createdAt = System.currentTimeMillis();
+    }
+
+    private final Logger logger;
+    private final Map<UUID, Staged<T>> staged = new ConcurrentHashMap<>();
+
+    public PreloadStaging(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * 在当前（异步）线程执行读取并暂存结果
+     */
+    public void stage(UUID playerId, Supplier<T> loader) {
+        Staged<T> entry = new Staged<>();
+        staged.put(playerId, entry);
+        try {
+            entry.future.complete(loader.get());
+        } catch (Throwable t) {
+            entry.future.completeExceptionally(t);
+        }
+    }
+
+    /**
+     * 取出暂存结果（主线程调用）
+     *
+     * @param waitMillis 预加载尚未完成时最多等待的毫秒数
+     * @return 预加载的结果；没有预加载、超时或失败时返回 null
+     */
+    public T take(UUID playerId, long waitMillis) {
+        Staged<T> entry = staged.remove(playerId);
+        if (entry == null) return null;
+        try {
+            return entry.future.get(Math.max(0, waitMillis), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warning("玩家 " + playerId + " 的档案预加载超时（" + waitMillis + "ms），改为同步读取");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warning("玩家 " + playerId + " 的档案预加载失败，改为同步读取: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 作废暂存结果（数据在预加载之后又发生了写入）
+     */
+    public void invalidate(UUID playerId) {
+        staged.remove(playerId);
+    }
+
+    /**
+     * 清理超时未被取用的暂存（登录被其他插件拒绝等情况）
+     */
+    public int evictOlderThan(long maxAgeMillis) {
+        long deadline = System.currentTimeMillis() - maxAgeMillis;
+        int before = staged.size();
+        staged.values().removeIf(e -> e.createdAt < deadline);
+        return before - staged.size();
+    }
+
+    public int size() {
+        return staged.size();
+    }
+}
@@ -0,0 +1,313 @@
+package com.salteddoubao.relicsystem.storage;
+
+import com.salteddoubao.relicsystem.MinecraftRelicSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+
+/**
+ * 异步合并保存管线
+ *
+ * - 主线程只负责生成 {@link ProfileSnapshot}，磁盘写入在有界后台线程池中完成
+ * - 同一玩家在合并窗口内的多次保存只会落盘一次（增量快照的日志记录按顺序拼接）
+ * - 按玩家加锁并比较快照序号，旧快照永远不会覆盖新快照
+ * - 插件关闭时 {@link #shutdown()} 会同步写完所有待保存数据后才返回
+ * - 追加的变更日志写入时不刷盘，定时保存时通过 {@link #flushThen(Runnable)} 统一刷盘一次；
+ *   整体重写（包括 YAML 存储的每次保存）在改名前自行刷盘
+ */
+public class ProfileSavePipeline {
+
+    /**
+     * 快照写入器，由具体存储实现提供
+     */
+    @FunctionalInterface
+    public interface SnapshotWriter {
+        void write(ProfileSnapshot snapshot) throws Exception;
+    }
+
+    /**
+     * 需要与某玩家的写盘互斥执行的任务
+     */
+    @FunctionalInterface
+    public interface ExclusiveTask {
+        void run() throws Exception;
+    }
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final MinecraftRelicSystem plugin;
+    private final ScheduledThreadPoolExecutor executor;
+    private final long coalesceMillis;
+    private final Map<UUID, PendingWrite> pending = new ConcurrentHashMap<>();
+    // 已从队列取出、正在写入的玩家：写入（含登记表更新）完成前仍视为有待写快照
+    private final Set<UUID> writing = ConcurrentHashMap.newKeySet();
+    // 只保留仍有快照排队的玩家，队列清空时移除
+    private final Map<UUID, Long> lastWrittenSequence = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private volatile boolean shutdown;
+
+    // 统计
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong skippedStale = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalWriteNanos = new AtomicLong();
+    private final AtomicLong maxWriteNanos = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private static final class PendingWrite {
+        final ProfileSnapshot snapshot;
+        final SnapshotWriter writer;
+
+        PendingWrite(ProfileSnapshot snapshot, SnapshotWriter writer) {
+            this.snapshot = snapshot;
+            this.writer = writer;
+        }
+    }
+
+    public ProfileSavePipeline(MinecraftRelicSystem plugin, int threads, long coalesceMillis) {
+        this.plugin = plugin;
+        this.coalesceMillis = Math.max(0, coalesceMillis);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "RelicSystem-Save-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // 关闭时不再执行延迟任务，剩余数据由 shutdown() 同步写出
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor.setRemoveOnCancelPolicy(true);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * 提交一次保存；窗口内同一玩家的后续提交会替换尚未写出的快照
+     */
+    public void submit(ProfileSnapshot snapshot, SnapshotWriter writer) {
+        submitted.incrementAndGet();
+        if (shutdown) {
+            // 关闭阶段直接同步写出
+            writeNow(new PendingWrite(snapshot, writer));
+            return;
+        }
+        boolean[] merged = new boolean[1];
+        pending.compute(snapshot.getPlayerId(), (id, previous) -> {
+            if (previous == null) {
+                return new PendingWrite(snapshot, writer);
+            }
+            merged[0] = true;
+            return new PendingWrite(snapshot.mergeAfter(previous.snapshot), writer);
+        });
+        if (merged[0]) {
+            // 已有任务排队，它执行时会取到合并后的快照
+            coalesced.incrementAndGet();
+            return;
+        }
+        try {
+            executor.schedule(() -> flush(snapshot.getPlayerId()), coalesceMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            flush(snapshot.getPlayerId());
+        }
+    }
+
+    /**
+     * 同步写出指定玩家尚未落盘的快照，并等待正在进行的写入结束
+     * 在重新读取该玩家数据之前调用，避免读到旧文件；后台任务也走这里，
+     * 取出与写盘都在玩家锁内完成
+     */
+    public void flush(UUID playerId) {
+        ReentrantLock lock = lockFor(playerId);
+        lock.lock();
+        try {
+            drain(playerId, null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 在玩家锁内执行任务（先写出该玩家排队中的快照）
+     * 用于离线批量迁移等直接读写存储的场景：期间该玩家的写盘与读取前的 flush 都会等待
+     */
+    public void runExclusive(UUID playerId, ExclusiveTask task) throws Exception {
+        ReentrantLock lock = lockFor(playerId);
+        lock.lock();
+        try {
+            drain(playerId, null);
+            task.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 在后台写完当前所有排队的快照后执行一次操作（用于定时保存后的统一刷盘）
+     * 同一批玩家的写入共用这一次操作，不必每次写入都刷盘
+     */
+    public void flushThen(Runnable action) {
+        List<UUID> ids = new ArrayList<>(pending.keySet());
+        Runnable task = () -> {
+            for (UUID id : ids) {
+                flush(id);
+            }
+            try {
+                action.run();
+            } catch (Exception e) {
+                plugin.getLogger().warning("保存后续操作失败: " + e.getMessage());
+            }
+        };
+        if (shutdown) {
+            task.run();
+            return;
+        }
+        try {
+            executor.schedule(task, coalesceMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * 是否存在尚未落盘的快照
+     */
+    public boolean hasPending(UUID playerId) {
+        return pending.containsKey(playerId) || writing.contains(playerId);
+    }
+
+    private void writeNow(PendingWrite p) {
+        ReentrantLock lock = lockFor(p.snapshot.getPlayerId());
+        lock.lock();
+        try {
+            drain(p.snapshot.getPlayerId(), p);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取出并写入该玩家排队中的快照（调用方必须持有该玩家的锁）
+     * 先标记为写入中再移出队列，写入结束后才清除标记，期间 {@link #hasPending} 始终为 true
+     *
+     * @param extra 需要追加在排队快照之后写入的快照，可为 null
+     */
+    private void drain(UUID playerId, PendingWrite extra) {
+        writing.add(playerId);
+        try {
+            PendingWrite p = pending.remove(playerId);
+            if (extra != null) {
+                // 先并入仍在排队的旧快照，保证写入顺序
+                p = p == null ? extra : new PendingWrite(extra.snapshot.mergeAfter(p.snapshot), extra.writer);
+            }
+            if (p != null) {
+                doWrite(p);
+            }
+        } finally {
+            if (!pending.containsKey(playerId)) {
+                // 之后提交的快照序号必然更大，不再需要记录
+                lastWrittenSequence.remove(playerId);
+            }
+            writing.remove(playerId);
+        }
+    }
+
+    /**
+     * 实际写盘（调用方必须持有该玩家的锁）
+     */
+    private void doWrite(PendingWrite p) {
+        ProfileSnapshot snapshot = p.snapshot;
+        Long last = lastWrittenSequence.get(snapshot.getPlayerId());
+        if (last != null && last >= snapshot.getSequence()) {
+            skippedStale.incrementAndGet();
+            return;
+        }
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            p.writer.write(snapshot);
+            lastWrittenSequence.put(snapshot.getPlayerId(), snapshot.getSequence());
+            long end = System.nanoTime();
+            written.incrementAndGet();
+            record(totalWriteNanos, maxWriteNanos, end - start);
+            record(totalLatencyNanos, maxLatencyNanos, end - snapshot.getCreatedAtNanos());
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            plugin.getLogger().log(Level.SEVERE, "异步保存玩家圣遗物档案失败: " + snapshot.getPlayerName(), e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static void record(AtomicLong total, AtomicLong max, long nanos) {
+        total.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    private ReentrantLock lockFor(UUID playerId) {
+        return locks[(playerId.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    /**
+     * 关闭管线：停止后台线程并同步写出所有待保存快照
+     */
+    public void shutdown() {
+        shutdown = true;
+        executor.shutdown();
+        int count = 0;
+        for (UUID id : new ArrayList<>(pending.keySet())) {
+            if (pending.containsKey(id)) {
+                flush(id);
+                count++;
+            }
+        }
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("保存线程未能在30秒内结束，强制关闭");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        plugin.getLogger().info("保存管线已关闭，关闭时同步写出 " + count + " 个档案");
+    }
+
+    // ===== 统计 =====
+
+    public int getQueueDepth() { return pending.size(); }
+    public int getInFlight() { return inFlight.get(); }
+    public long getWrittenCount() { return written.get(); }
+    public long getFailedCount() { return failed.get(); }
+
+    /**
+     * 获取管线状态（用于 /relic storage-status）
+     */
+    public List<String> getStatusLines() {
+        long w = written.get();
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("§7队列深度: §f%d §7写入中: §f%d §7线程: §f%d §7合并窗口: §f%dms",
+                pending.size(), inFlight.get(), executor.getCorePoolSize(), coalesceMillis));
+        lines.add(String.format("§7提交: §f%d §7已合并: §f%d §7已写入: §f%d §7跳过旧快照: §f%d §7失败: §f%d",
+                submitted.get(), coalesced.get(), w, skippedStale.get(), failed.get()));
+        lines.add(String.format("§7写盘耗时: 平均 §f%.2fms §7最大 §f%.2fms",
+                w == 0 ? 0.0 : totalWriteNanos.get() / 1_000_000.0 / w, maxWriteNanos.get() / 1_000_000.0));
+        lines.add(String.format("§7提交到落盘延迟: 平均 §f%.2fms §7最大 §f%.2fms",
+                w == 0 ? 0.0 : totalLatencyNanos.get() / 1_000_000.0 / w, maxLatencyNanos.get() / 1_000_000.0));
+        return lines;
+    }
+}
@@ -0,0 +1,136 @@
+package com.salteddoubao.relicsystem.storage;
+
+import com.salteddoubao.relicsystem.relic.PlayerRelicProfile;
+import com.salteddoubao.relicsystem.relic.RelicData;
+import com.salteddoubao.relicsystem.relic.RelicSlot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 玩家圣遗物档案的不可变快照
+ *
+ * 在主线程上对档案做深拷贝，交给后台保存线程写盘，
+ * 之后主线程对档案的修改不会影响已提交的快照。
+ * 序号全局递增，用于保证同一玩家的旧快照不会覆盖新快照。
+ *
+ * 快照分两种：
+ * - 完整快照：包含全部装备与仓库数据，写入时整体重写存储文件
+ * - 增量快照：只包含自上次写入以来的变更日志记录，写入时追加到日志文件
+ * 完整快照也可以附带日志记录，表示“先重写，再追加这些变更”（合并后产生）。
+ *
+ * 完整快照还可以携带自上次成功写入以来的变更记录（{@link #withDelta}），只用于版本冲突时
+ * 把本实例的变更逐件重放到其他实例写入的新数据上，不会写入日志。
+ */
+public final class ProfileSnapshot {
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final UUID playerId;
+    private final String playerName;
+    private final long sequence;
+    private final long createdAtNanos;
+    private final Map<RelicSlot, RelicData> equipped;
+    private final List<RelicData> warehouse;
+    private final List<byte[]> journalOps;
+    private final List<byte[]> deltaOps;
+
+    private ProfileSnapshot(UUID playerId, String playerName, long sequence, long createdAtNanos,
+                            Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse, List<byte[]> journalOps) {
+        this(playerId, playerName, sequence, createdAtNanos, equipped, warehouse, journalOps, Collections.emptyList());
+    }
+
+    private ProfileSnapshot(UUID playerId, String playerName, long sequence, long createdAtNanos,
+                            Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse, List<byte[]> journalOps,
+                            List<byte[]> deltaOps) {
+        this.playerId = playerId;
+        this.playerName = playerName;
+        this.sequence = sequence;
+        this.createdAtNanos = createdAtNanos;
+        this.equipped = equipped;
+        this.warehouse = warehouse;
+        this.journalOps = journalOps;
+        this.deltaOps = deltaOps;
+    }
+
+    /**
+     * 对档案做完整快照（必须在主线程调用）
+     */
+    public static ProfileSnapshot of(PlayerRelicProfile profile, String playerName) {
+        Map<RelicSlot, RelicData> equipped = new EnumMap<>(RelicSlot.class);
+        for (Map.Entry<RelicSlot, RelicData> e : profile.getEquipped().entrySet()) {
+            if (e.getValue() != null) {
+                equipped.put(e.getKey(), e.getValue().copy());
+            }
+        }
+        List<RelicData> source = profile.getWarehouse();
+        List<RelicData> warehouse = new ArrayList<>(source.size());
+        for (RelicData relic : source) {
+            warehouse.add(relic.copy());
+        }
+        return new ProfileSnapshot(profile.getPlayerId(), playerName, SEQUENCE.incrementAndGet(), System.nanoTime(),
+                Collections.unmodifiableMap(equipped), Collections.unmodifiableList(warehouse), Collections.emptyList());
+    }
+
+    /**
+     * 只包含变更日志记录的增量快照（记录已在主线程编码完成）
+     */
+    public static ProfileSnapshot ofJournal(UUID playerId, String playerName, List<byte[]> ops) {
+        return new ProfileSnapshot(playerId, playerName, SEQUENCE.incrementAndGet(), System.nanoTime(),
+                null, null, Collections.unmodifiableList(new ArrayList<>(ops)));
+    }
+
+    /**
+     * 附带完整数据中尚未写入存储的变更记录（版本冲突时重放用）
+     */
+    public ProfileSnapshot withDelta(List<byte[]> ops) {
+        return new ProfileSnapshot(playerId, playerName, sequence, createdAtNanos,
+                equipped, warehouse, journalOps, Collections.unmodifiableList(new ArrayList<>(ops)));
+    }
+
+    /**
+     * 合并同一玩家尚未写出的旧快照（当前快照更新）
+     * - 当前为完整快照：旧快照已无意义，直接使用当前快照（其变更记录已包含旧快照未写出的部分）
+     * - 当前为增量快照：沿用旧快照的完整数据（如有），并把两段日志按顺序拼接
+     */
+    public ProfileSnapshot mergeAfter(ProfileSnapshot previous) {
+        if (previous == null || hasFullData()) {
+            return this;
+        }
+        List<byte[]> ops = new ArrayList<>(previous.journalOps.size() + journalOps.size());
+        ops.addAll(previous.journalOps);
+        ops.addAll(journalOps);
+        return new ProfileSnapshot(playerId, playerName, sequence, previous.createdAtNanos,
+                previous.equipped, previous.warehouse, Collections.unmodifiableList(ops), previous.deltaOps);
+    }
+
+    public UUID getPlayerId() { return playerId; }
+    public String getPlayerName() { return playerName; }
+    public long getSequence() { return sequence; }
+    public long getCreatedAtNanos() { return createdAtNanos; }
+
+    /** 是否包含完整数据（否则只有日志记录） */
+    public boolean hasFullData() { return equipped != null; }
+
+    /** 完整数据：已装备（增量快照为 null） */
+    public Map<RelicSlot, RelicData> getEquipped() { return equipped; }
+    /** 完整数据：仓库（增量快照为 null） */
+    public List<RelicData> getWarehouse() { return warehouse; }
+    /** 完整数据之后需要追加的日志记录 */
+    public List<byte[]> getJournalOps() { return journalOps; }
+
+    /**
+     * 本快照包含、但存储中可能还没有的全部变更（完整数据附带的变更 + 日志记录），按发生顺序
+     */
+    public List<byte[]> getPendingOps() {
+        if (deltaOps.isEmpty()) return journalOps;
+        List<byte[]> ops = new ArrayList<>(deltaOps.size() + journalOps.size());
+        ops.addAll(deltaOps);
+        ops.addAll(journalOps);
+        return ops;
+    }
+}
@@ -0,0 +1,114 @@
+package com.salteddoubao.relicsystem.storage;
+
+import com.salteddoubao.relicsystem.relic.PlayerRelicProfile;
+import com.salteddoubao.relicsystem.relic.RelicData;
+import com.salteddoubao.relicsystem.relic.RelicRarity;
+import com.salteddoubao.relicsystem.relic.RelicSlot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 玩家档案的计数摘要：装备件数、仓库件数、仓库按部位/稀有度的分布
+ *
+ * 写入二进制存储头部（{@link RelicBinaryCodec#TAG_SUMMARY}），容量检查与状态查询
+ * 只需读取文件开头的几十个字节，不必解码整个仓库。
+ * <pre>
+ * 装备件数(short) 仓库件数(int) 部位数(byte) [数量(int)]... 稀有度数(byte) [数量(int)]...
+ * </pre>
+ * 部位/稀有度按写入时的枚举顺序保存，读取时多出的项忽略、缺少的项按 0 处理。
+ */
+public final class ProfileSummary {
+    private final int equipped;
+    private final int warehouse;
+    private final int[] slotCounts;
+    private final int[] rarityCounts;
+
+    private ProfileSummary(int equipped, int warehouse, int[] slotCounts, int[] rarityCounts) {
+        this.equipped = equipped;
+        this.warehouse = warehouse;
+        this.slotCounts = slotCounts;
+        this.rarityCounts = rarityCounts;
+    }
+
+    public static ProfileSummary of(PlayerRelicProfile profile) {
+        return of(profile.getEquipped(), profile.getWarehouse());
+    }
+
+    public static ProfileSummary of(Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse) {
+        int equippedCount = 0;
+        for (RelicData r : equipped.values()) {
+            if (r != null) equippedCount++;
+        }
+        int[] slots = new int[RelicSlot.values().length];
+        int[] rarities = new int[RelicRarity.values().length];
+        for (RelicData r : warehouse) {
+            slots[r.getSlot().ordinal()]++;
+            rarities[r.getRarity().ordinal()]++;
+        }
+        return new ProfileSummary(equippedCount, warehouse.size(), slots, rarities);
+    }
+
+    /**
+     * 由各项计数直接构建（如数据库按列统计的结果）
+     */
+    public static ProfileSummary of(int equipped, int[] slotCounts, int[] rarityCounts) {
+        int warehouse = 0;
+        for (int n : slotCounts) warehouse += n;
+        return new ProfileSummary(equipped, warehouse, slotCounts.clone(), rarityCounts.clone());
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(16 + 4 * (slotCounts.length + rarityCounts.length));
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeShort(equipped);
+            out.writeInt(warehouse);
+            out.writeByte(slotCounts.length);
+            for (int n : slotCounts) out.writeInt(n);
+            out.writeByte(rarityCounts.length);
+            for (int n : rarityCounts) out.writeInt(n);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    public static ProfileSummary decode(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        int equipped = in.readUnsignedShort();
+        int warehouse = in.readInt();
+        int[] slots = readCounts(in, RelicSlot.values().length);
+        int[] rarities = readCounts(in, RelicRarity.values().length);
+        return new ProfileSummary(equipped, warehouse, slots, rarities);
+    }
+
+    private static int[] readCounts(DataInputStream in, int expected) throws IOException {
+        int stored = in.readUnsignedByte();
+        int[] counts = new int[expected];
+        for (int i = 0; i < stored; i++) {
+            int n = in.readInt();
+            if (i < expected) counts[i] = n;
+        }
+        return counts;
+    }
+
+    public int getEquipped() { return equipped; }
+
+    public int getWarehouse() { return warehouse; }
+
+    public int getSlotCount(RelicSlot slot) { return slotCounts[slot.ordinal()]; }
+
+    public int getRarityCount(RelicRarity rarity) { return rarityCounts[rarity.ordinal()]; }
+
+    /**
+     * 仓库剩余空间
+     */
+    public int getAvailable(int capacity) {
+        return Math.max(0, capacity - warehouse);
+    }
+}
@@ -0,0 +1,497 @@
+package com.salteddoubao.relicsystem.storage;
+
+import com.salteddoubao.relicsystem.MinecraftRelicSystem;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 圣遗物流转审计日志（audit/）
+ *
+ * 记录圣遗物的产生（宝箱、gen/give 命令）与在玩家之间、仓库与背包之间的流转。
+ * 主线程只把记录放入队列，由后台线程批量追加到按天滚动的文件中：
+ * <pre>
+ * audit-yyyyMMdd.log  定长记录（48 字节）:
+ *   时间戳(long) | 玩家UUID(16) | 圣遗物UUID(16) | 操作(byte) | 来源(byte) | 保留(6)
+ * audit-yyyyMMdd.idx  稀疏索引: "MRAI" | 版本(int) | 每 256 条记录一个 512 字节的布隆过滤器
+ * </pre>
+ * 查询时先用每个数据块的布隆过滤器排除不含目标 UUID 的块，只读取可能命中的块，
+ * 最后一个未写满的块没有索引，直接扫描。索引缺失或落后于数据文件时在下次打开时补齐。
+ */
+public class RelicAuditLog {
+
+    /**
+     * 操作类型（序号写入文件，只能在末尾追加）
+     */
+    public enum Op {
+        GENERATE("生成"),
+        EQUIP("装备"),
+        UNEQUIP("卸下"),
+        DEPOSIT("存入仓库"),
+        WITHDRAW("取出仓库");
+
+        private final String displayName;
+
+        Op(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() { return displayName; }
+    }
+
+    /**
+     * 记录来源（序号写入文件，只能在末尾追加）
+     */
+    public enum Source {
+        TREASURE_BOX("宝箱"),
+        COMMAND_GEN("gen命令"),
+        COMMAND_GIVE("give命令"),
+        GUI("界面");
+
+        private final String displayName;
+
+        Source(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() { return displayName; }
+    }
+
+    /**
+     * 一条审计记录；actor 为持有状态发生变化的玩家
+     */
+    public static final class Entry {
+        private final long time;
+        private final UUID actor;
+        private final UUID relic;
+        private final Op op;
+        private final Source source;
+
+        Entry(long time, UUID actor, UUID relic, Op op, Source source) {
+            this.time = time;
+            this.actor = actor;
+            this.relic = relic;
+            this.op = op;
+            this.source = source;
+        }
+
+        public long getTime() { return time; }
+        public UUID getActor() { return actor; }
+        public UUID getRelic() { return relic; }
+        public Op getOp() { return op; }
+        public Source getSource() { return source; }
+    }
+
+    static final int RECORD_SIZE = 48;
+    static final int BLOCK_RECORDS = 256;
+    static final int BLOOM_BYTES = 512;
+    private static final int BLOOM_HASHES = 4;
+    private static final byte[] INDEX_MAGIC = {'M', 'R', 'A', 'I'};
+    private static final int INDEX_VERSION = 1;
+    private static final int INDEX_HEADER = 8;
+    private static final int MAX_BATCH = 4096;
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final Entry STOP = new Entry(0, null, null, null, null);
+
+    private final MinecraftRelicSystem plugin;
+    private final File dir;
+    private final int retentionDays;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final BlockingQueue<Entry> queue;
+    private final Thread writer;
+
+    // 以下字段只由写入线程访问
+    private LocalDate currentDay;
+    private LocalDate purgedDay;
+    private FileOutputStream dataOut;
+    private FileOutputStream indexOut;
+    private long recordsInFile;
+    private final byte[] blockBloom = new byte[BLOOM_BYTES];
+
+    // 统计
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public RelicAuditLog(MinecraftRelicSystem plugin) {
+        this.plugin = plugin;
+        this.dir = new File(plugin.getDataFolder(), "audit");
+        this.retentionDays = plugin.getConfig().getInt("relic.audit.retention_days", 90);
+        this.queue = new LinkedBlockingQueue<>(Math.max(1024, plugin.getConfig().getInt("relic.audit.queue_capacity", 65536)));
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        this.writer = new Thread(this::runWriter, "RelicSystem-Audit");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // ===== 记录 =====
+
+    /**
+     * 记录一次操作（任意线程，不阻塞；队列已满时丢弃并计数）
+     */
+    public void record(UUID actor, UUID relic, Op op, Source source) {
+        if (actor == null || relic == null) return;
+        if (!queue.offer(new Entry(System.currentTimeMillis(), actor, relic, op, source))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void runWriter() {
+        List<Entry> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, MAX_BATCH);
+            int stop = batch.indexOf(STOP);
+            if (stop >= 0) {
+                running = false;
+                batch.subList(stop, batch.size()).clear();
+            }
+            try {
+                append(batch);
+            } catch (IOException e) {
+                failed.addAndGet(batch.size());
+                plugin.getLogger().warning("写入审计日志失败: " + e.getMessage());
+                closeFiles();
+            }
+            batch.clear();
+        }
+        closeFiles();
+    }
+
+    private void append(List<Entry> batch) throws IOException {
+        if (batch.isEmpty()) return;
+        ByteBuffer buf = ByteBuffer.allocate(batch.size() * RECORD_SIZE);
+        for (Entry e : batch) {
+            LocalDate day = Instant.ofEpochMilli(e.time).atZone(zone).toLocalDate();
+            if (!day.equals(currentDay)) {
+                // 跨天：先写完前一天的部分，再切换文件
+                flushBuffer(buf);
+                rotate(day);
+            }
+            buf.putLong(e.time);
+            buf.putLong(e.actor.getMostSignificantBits());
+            buf.putLong(e.actor.getLeastSignificantBits());
+            buf.putLong(e.relic.getMostSignificantBits());
+            buf.putLong(e.relic.getLeastSignificantBits());
+            buf.put((byte) e.op.ordinal());
+            buf.put((byte) e.source.ordinal());
+            buf.position(buf.position() + 6);
+            bloomAdd(blockBloom, e.actor);
+            bloomAdd(blockBloom, e.relic);
+            recordsInFile++;
+            if (recordsInFile % BLOCK_RECORDS == 0) {
+                // 块写满后索引项才落盘，数据必须先于索引写出
+                flushBuffer(buf);
+                indexOut.write(blockBloom);
+                Arrays.fill(blockBloom, (byte) 0);
+            }
+        }
+        flushBuffer(buf);
+        appended.addAndGet(batch.size());
+    }
+
+    private void flushBuffer(ByteBuffer buf) throws IOException {
+        if (buf.position() == 0) return;
+        dataOut.write(buf.array(), 0, buf.position());
+        buf.clear();
+    }
+
+    /**
+     * 打开某天的文件用于追加：截掉写到一半的记录，补齐落后的索引
+     */
+    private void rotate(LocalDate day) throws IOException {
+        closeFiles();
+        File data = dataFile(day);
+        File index = indexFile(day);
+        long records;
+        try (RandomAccessFile raf = new RandomAccessFile(data, "rw")) {
+            records = raf.length() / RECORD_SIZE;
+            if (raf.length() != records * RECORD_SIZE) {
+                raf.setLength(records * RECORD_SIZE);
+            }
+        }
+        long fullBlocks = records / BLOCK_RECORDS;
+        long indexed = indexedBlocks(index);
+        if (indexed < 0 || indexed > fullBlocks) {
+            // 索引损坏或多于数据（不应出现），重建
+            try (FileOutputStream out = new FileOutputStream(index)) {
+                out.write(indexHeader());
+            }
+            indexed = 0;
+        } else {
+            try (RandomAccessFile raf = new RandomAccessFile(index, "rw")) {
+                raf.setLength(INDEX_HEADER + indexed * BLOOM_BYTES);
+            }
+        }
+        Arrays.fill(blockBloom, (byte) 0);
+        try (RandomAccessFile raf = new RandomAccessFile(data, "r");
+             FileOutputStream out = new FileOutputStream(index, true)) {
+            byte[] block = new byte[BLOCK_RECORDS * RECORD_SIZE];
+            for (long b = indexed; b < fullBlocks; b++) {
+                raf.seek(b * block.length);
+                raf.readFully(block);
+                byte[] bloom = new byte[BLOOM_BYTES];
+                addBlock(bloom, block, BLOCK_RECORDS);
+                out.write(bloom);
+            }
+            int tail = (int) (records - fullBlocks * BLOCK_RECORDS);
+            if (tail > 0) {
+                raf.seek(fullBlocks * block.length);
+                raf.readFully(block, 0, tail * RECORD_SIZE);
+                addBlock(blockBloom, block, tail);
+            }
+        }
+        dataOut = new FileOutputStream(data, true);
+        indexOut = new FileOutputStream(index, true);
+        recordsInFile = records;
+        currentDay = day;
+        if (!day.equals(purgedDay)) {
+            purgedDay = day;
+            purgeExpired(day);
+        }
+    }
+
+    private void closeFiles() {
+        for (FileOutputStream out : new FileOutputStream[]{dataOut, indexOut}) {
+            if (out == null) continue;
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+        }
+        dataOut = null;
+        indexOut = null;
+        currentDay = null;
+    }
+
+    private void purgeExpired(LocalDate today) {
+        if (retentionDays <= 0) return;
+        LocalDate oldest = today.minusDays(retentionDays);
+        for (LocalDate day : listDays()) {
+            if (!day.isBefore(oldest)) break;
+            if (dataFile(day).delete()) {
+                indexFile(day).delete();
+                plugin.getLogger().info("已删除过期审计日志: " + dataFile(day).getName());
+            }
+        }
+    }
+
+    // ===== 查询 =====
+
+    /**
+     * 按玩家或圣遗物UUID查询最近的记录（由新到旧）；在后台线程调用
+     *
+     * @param days 最多回溯的天数（含今天）
+     */
+    public List<Entry> query(UUID key, int days, int limit) {
+        List<Entry> result = new ArrayList<>();
+        List<LocalDate> all = listDays();
+        LocalDate oldest = LocalDate.now(zone).minusDays(Math.max(1, days) - 1L);
+        for (int i = all.size() - 1; i >= 0 && result.size() < limit; i--) {
+            LocalDate day = all.get(i);
+            if (day.isBefore(oldest)) break;
+            try {
+                List<Entry> matches = queryFile(day, key);
+                Collections.reverse(matches);
+                for (Entry e : matches) {
+                    if (result.size() >= limit) break;
+                    result.add(e);
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("读取审计日志失败: " + dataFile(day).getName() + " - " + e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    private List<Entry> queryFile(LocalDate day, UUID key) throws IOException {
+        List<Entry> matches = new ArrayList<>();
+        File data = dataFile(day);
+        byte[] blooms = readIndex(indexFile(day));
+        try (RandomAccessFile raf = new RandomAccessFile(data, "r")) {
+            // 写入线程可能正在追加，只读取完整的记录
+            long records = raf.length() / RECORD_SIZE;
+            long blocks = (records + BLOCK_RECORDS - 1) / BLOCK_RECORDS;
+            int indexed = blooms.length / BLOOM_BYTES;
+            byte[] block = new byte[BLOCK_RECORDS * RECORD_SIZE];
+            for (long b = 0; b < blocks; b++) {
+                if (b < indexed && !bloomMightContain(blooms, (int) b * BLOOM_BYTES, key)) continue;
+                int count = (int) Math.min(BLOCK_RECORDS, records - b * BLOCK_RECORDS);
+                raf.seek(b * block.length);
+                raf.readFully(block, 0, count * RECORD_SIZE);
+                ByteBuffer buf = ByteBuffer.wrap(block, 0, count * RECORD_SIZE);
+                for (int r = 0; r < count; r++) {
+                    Entry e = decode(buf);
+                    if (e != null && (key.equals(e.actor) || key.equals(e.relic))) {
+                        matches.add(e);
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static Entry decode(ByteBuffer buf) {
+        long time = buf.getLong();
+        UUID actor = new UUID(buf.getLong(), buf.getLong());
+        UUID relic = new UUID(buf.getLong(), buf.getLong());
+        int op = buf.get();
+        int source = buf.get();
+        buf.position(buf.position() + 6);
+        if (op < 0 || op >= Op.values().length || source < 0 || source >= Source.values().length) {
+            return null;
+        }
+        return new Entry(time, actor, relic, Op.values()[op], Source.values()[source]);
+    }
+
+    /**
+     * @return 索引中所有完整的布隆过滤器；索引缺失或损坏时返回空数组（全部块直接扫描）
+     */
+    private static byte[] readIndex(File index) {
+        if (!index.exists()) return new byte[0];
+        try (RandomAccessFile raf = new RandomAccessFile(index, "r")) {
+            long blocks = (raf.length() - INDEX_HEADER) / BLOOM_BYTES;
+            if (blocks <= 0 || !validHeader(raf)) return new byte[0];
+            byte[] blooms = new byte[(int) (blocks * BLOOM_BYTES)];
+            raf.readFully(blooms);
+            return blooms;
+        } catch (IOException e) {
+            return new byte[0];
+        }
+    }
+
+    /**
+     * @return 索引中完整的块数；文件头无效返回 -1
+     */
+    private static long indexedBlocks(File index) throws IOException {
+        if (!index.exists()) return -1;
+        try (RandomAccessFile raf = new RandomAccessFile(index, "r")) {
+            if (raf.length() < INDEX_HEADER || !validHeader(raf)) return -1;
+            return (raf.length() - INDEX_HEADER) / BLOOM_BYTES;
+        }
+    }
+
+    private static boolean validHeader(RandomAccessFile raf) throws IOException {
+        byte[] header = new byte[INDEX_HEADER];
+        raf.seek(0);
+        raf.readFully(header);
+        return Arrays.equals(Arrays.copyOf(header, INDEX_MAGIC.length), INDEX_MAGIC)
+                && ByteBuffer.wrap(header, 4, 4).getInt() == INDEX_VERSION;
+    }
+
+    private static byte[] indexHeader() {
+        return ByteBuffer.allocate(INDEX_HEADER).put(INDEX_MAGIC).putInt(INDEX_VERSION).array();
+    }
+
+    // ===== 布隆过滤器 =====
+
+    private static void addBlock(byte[] bloom, byte[] block, int count) {
+        ByteBuffer buf = ByteBuffer.wrap(block, 0, count * RECORD_SIZE);
+        for (int r = 0; r < count; r++) {
+            buf.position(r * RECORD_SIZE + 8);
+            bloomAdd(bloom, new UUID(buf.getLong(), buf.getLong()));
+            bloomAdd(bloom, new UUID(buf.getLong(), buf.getLong()));
+        }
+    }
+
+    private static void bloomAdd(byte[] bloom, UUID key) {
+        long h1 = mix(key.getMostSignificantBits());
+        long h2 = mix(key.getLeastSignificantBits()) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (int) Long.remainderUnsigned(h1 + i * h2, BLOOM_BYTES * 8L);
+            bloom[bit >>> 3] |= (byte) (1 << (bit & 7));
+        }
+    }
+
+    private static boolean bloomMightContain(byte[] blooms, int offset, UUID key) {
+        long h1 = mix(key.getMostSignificantBits());
+        long h2 = mix(key.getLeastSignificantBits()) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (int) Long.remainderUnsigned(h1 + i * h2, BLOOM_BYTES * 8L);
+            if ((blooms[offset + (bit >>> 3)] & (1 << (bit & 7))) == 0) return false;
+        }
+        return true;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    // ===== 文件 =====
+
+    private File dataFile(LocalDate day) {
+        return new File(dir, "audit-" + DAY.format(day) + ".log");
+    }
+
+    private File indexFile(LocalDate day) {
+        return new File(dir, "audit-" + DAY.format(day) + ".idx");
+    }
+
+    /**
+     * @return 已有日志的日期（升序）
+     */
+    private List<LocalDate> listDays() {
+        List<LocalDate> days = new ArrayList<>();
+        File[] files = dir.listFiles((d, name) -> name.startsWith("audit-") && name.endsWith(".log"));
+        if (files == null) return days;
+        for (File f : files) {
+            String name = f.getName();
+            try {
+                days.add(LocalDate.parse(name.substring(6, name.length() - 4), DAY));
+            } catch (RuntimeException ignored) {
+                // 非本插件生成的文件
+            }
+        }
+        Collections.sort(days);
+        return days;
+    }
+
+    // ===== 状态 =====
+
+    public List<String> getStatusLines() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("§7审计日志: 已写入 §f%d §7条, 排队 §f%d§7, 丢弃 §f%d§7, 失败 §f%d",
+                appended.get(), queue.size(), dropped.get(), failed.get()));
+        return lines;
+    }
+
+    /**
+     * 写完队列中的记录后停止写入线程
+     */
+    public void close() {
+        try {
+            queue.put(STOP);
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            plugin.getLogger().warning("审计日志写入线程未能在 10 秒内结束，剩余 " + queue.size() + " 条记录未写入");
+        }
+    }
+}
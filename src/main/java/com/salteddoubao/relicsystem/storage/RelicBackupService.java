@@ -0,0 +1,425 @@
+package com.salteddoubao.relicsystem.storage;
+
+import org.bukkit.scheduler.BukkitTask;
+
+import com.salteddoubao.relicsystem.MinecraftRelicSystem;
+import com.salteddoubao.relicsystem.relic.PlayerRelicProfile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * 增量滚动备份
+ *
+ * 每次备份在 backups/ 下生成一个以时间命名的快照目录，内容是 relic_storage/、relic_archive/、players/ 的完整镜像：
+ * 与上一个快照相比大小和修改时间都没变的文件直接建立硬链接（不占空间、不产生 I/O），只有变化过的文件才复制，
+ * 复制按 max_mb_per_sec 限速。每个快照都是完整的，删除任意快照不影响其他快照。
+ * <pre>
+ * backups/20260101-120000/relic_storage/1f/3a/1f3a....dat
+ * backups/20260101-130000.partial/...      （进行中，完成后改名；启动时清理残留）
+ * </pre>
+ *
+ * 保留策略：最近 hourly 个快照 + 最近 daily 天每天最新的一个 + 最近 weekly 周每周最新的一个
+ *
+ * 单玩家恢复（{@link #restore}）把某个快照中该玩家的文件写回当前存储，仅支持 INVENTORY 与 YAML 模式；
+ * SEGMENT/SQLITE 模式的数据不在逐玩家文件中，不在备份范围内
+ */
+public class RelicBackupService {
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final String PARTIAL = ".partial";
+    private static final String[] SOURCES = {"relic_storage", "relic_archive", "players"};
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final MinecraftRelicSystem plugin;
+    private final File backupDir;
+    private final int keepHourly;
+    private final int keepDaily;
+    private final int keepWeekly;
+    private final long bytesPerSecond;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private BukkitTask task;
+
+    private volatile String lastResult = "尚未执行";
+
+    public RelicBackupService(MinecraftRelicSystem plugin) {
+        this.plugin = plugin;
+        this.backupDir = new File(plugin.getDataFolder(), plugin.getConfig().getString("relic.backup.dir", "backups"));
+        this.keepHourly = Math.max(1, plugin.getConfig().getInt("relic.backup.keep_hourly", 24));
+        this.keepDaily = Math.max(0, plugin.getConfig().getInt("relic.backup.keep_daily", 7));
+        this.keepWeekly = Math.max(0, plugin.getConfig().getInt("relic.backup.keep_weekly", 4));
+        this.bytesPerSecond = Math.max(0, plugin.getConfig().getLong("relic.backup.max_mb_per_sec", 20)) * 1024L * 1024L;
+        if (!backupDir.exists()) {
+            backupDir.mkdirs();
+        }
+        cleanupPartial();
+    }
+
+    /**
+     * 启动定时备份（异步线程）
+     *
+     * @param intervalMinutes 间隔分钟数，小于等于0表示不启用
+     */
+    public void start(long intervalMinutes) {
+        stop();
+        if (intervalMinutes <= 0) {
+            return;
+        }
+        long ticks = intervalMinutes * 60L * 20L;
+        task = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::backupNow, ticks, ticks);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    // ===== 备份 =====
+
+    /**
+     * 立即生成一个快照并执行保留策略（在异步线程调用；已有备份在进行时直接返回）
+     *
+     * @return 结果描述
+     */
+    public String backupNow() {
+        if (!running.compareAndSet(false, true)) {
+            return "§e已有备份正在进行";
+        }
+        long start = System.currentTimeMillis();
+        try {
+            String name = LocalDateTime.now().format(NAME_FORMAT);
+            File previous = latestSnapshot();
+            if (previous != null && previous.getName().equals(name)) {
+                return "§e同一秒内已生成过快照";
+            }
+            File partial = new File(backupDir, name + PARTIAL);
+            CopyStats stats = new CopyStats();
+            for (String source : SOURCES) {
+                File dir = new File(plugin.getDataFolder(), source);
+                if (dir.isDirectory()) {
+                    mirror(dir.toPath(), new File(partial, source).toPath(),
+                            previous != null ? new File(previous, source).toPath() : null, stats);
+                }
+            }
+            File target = new File(backupDir, name);
+            Files.createDirectories(partial.toPath());
+            Files.move(partial.toPath(), target.toPath());
+            int removed = applyRetention();
+            lastResult = String.format("%s: 复制 %d 个文件 (%.1f MB), 链接 %d 个, 清理旧快照 %d 个, 耗时 %dms",
+                    name, stats.copied, stats.copiedBytes / 1048576.0, stats.linked, removed, System.currentTimeMillis() - start);
+            plugin.getLogger().info("圣遗物备份完成 " + lastResult);
+            return "§a备份完成 " + lastResult;
+        } catch (IOException | RuntimeException e) {
+            lastResult = "失败: " + e.getMessage();
+            plugin.getLogger().warning("圣遗物备份失败: " + e.getMessage());
+            return "§c备份失败: " + e.getMessage();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private static class CopyStats {
+        int copied;
+        int linked;
+        long copiedBytes;
+        // 限速：本次备份开始时间与已复制字节
+        final long startNanos = System.nanoTime();
+    }
+
+    /**
+     * 镜像一个数据目录：未变化的文件硬链接到上一个快照中的同一文件，其余复制
+     */
+    private void mirror(Path source, Path target, Path previous, CopyStats stats) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(source)) {
+            files = stream.filter(Files::isRegularFile)
+                    .filter(p -> !p.getFileName().toString().endsWith(".tmp"))
+                    .toList();
+        }
+        for (Path file : files) {
+            Path relative = source.relativize(file);
+            Path dest = target.resolve(relative);
+            Files.createDirectories(dest.getParent());
+            try {
+                if (previous != null && linkUnchanged(file, previous.resolve(relative), dest)) {
+                    stats.linked++;
+                    continue;
+                }
+                copyThrottled(file, dest, stats);
+                stats.copied++;
+            } catch (java.nio.file.NoSuchFileException ignored) {
+                // 备份过程中被删除、改名（写入替换、冷归档、目录整理）
+            }
+        }
+    }
+
+    private boolean linkUnchanged(Path file, Path old, Path dest) throws IOException {
+        if (!Files.isRegularFile(old)
+                || Files.size(old) != Files.size(file)
+                || !Files.getLastModifiedTime(old).equals(Files.getLastModifiedTime(file))) {
+            return false;
+        }
+        try {
+            Files.createLink(dest, old);
+            return true;
+        } catch (UnsupportedOperationException | IOException e) {
+            // 文件系统不支持硬链接（或跨设备），退回复制
+            return false;
+        }
+    }
+
+    /**
+     * 按限速复制文件，并保留源文件的修改时间（下次备份据此判断是否变化）
+     */
+    private void copyThrottled(Path file, Path dest, CopyStats stats) throws IOException {
+        FileTime modified = Files.getLastModifiedTime(file);
+        byte[] buf = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file); OutputStream out = Files.newOutputStream(dest)) {
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+                stats.copiedBytes += n;
+                throttle(stats);
+            }
+        }
+        Files.setLastModifiedTime(dest, modified);
+    }
+
+    private void throttle(CopyStats stats) {
+        if (bytesPerSecond <= 0) return;
+        long expectedNanos = stats.copiedBytes * 1_000_000_000L / bytesPerSecond;
+        long aheadMillis = (expectedNanos - (System.nanoTime() - stats.startNanos)) / 1_000_000L;
+        if (aheadMillis > 0) {
+            try {
+                Thread.sleep(aheadMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ===== 保留策略 =====
+
+    /**
+     * 删除不在保留范围内的快照
+     *
+     * @return 删除的快照数
+     */
+    int applyRetention() {
+        List<File> snapshots = listSnapshots();
+        Set<File> keep = new HashSet<>();
+        Set<String> days = new HashSet<>();
+        Set<String> weeks = new HashSet<>();
+        for (int i = 0; i < snapshots.size(); i++) {
+            File snapshot = snapshots.get(i);
+            LocalDateTime time = timeOf(snapshot);
+            if (i < keepHourly) {
+                keep.add(snapshot);
+            }
+            // 由新到旧遍历，每天/每周第一次出现的即为当天/当周最新的快照
+            String day = time.toLocalDate().toString();
+            if (!days.contains(day) && days.size() < keepDaily) {
+                days.add(day);
+                keep.add(snapshot);
+            }
+            String week = time.get(IsoFields.WEEK_BASED_YEAR) + "-" + time.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+            if (!weeks.contains(week) && weeks.size() < keepWeekly) {
+                weeks.add(week);
+                keep.add(snapshot);
+            }
+        }
+        int removed = 0;
+        for (File snapshot : snapshots) {
+            if (!keep.contains(snapshot)) {
+                deleteTree(snapshot.toPath());
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private void cleanupPartial() {
+        File[] files = backupDir.listFiles((dir, name) -> name.endsWith(PARTIAL));
+        if (files == null) return;
+        for (File f : files) {
+            plugin.getLogger().warning("清理未完成的备份快照: " + f.getName());
+            deleteTree(f.toPath());
+        }
+    }
+
+    private void deleteTree(Path root) {
+        try (Stream<Path> stream = Files.walk(root)) {
+            stream.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                } catch (IOException e) {
+                    plugin.getLogger().warning("删除备份文件失败: " + p + " - " + e.getMessage());
+                }
+            });
+        } catch (IOException | java.io.UncheckedIOException e) {
+            plugin.getLogger().warning("删除备份快照失败: " + root.getFileName() + " - " + e.getMessage());
+        }
+    }
+
+    // ===== 查询 =====
+
+    /**
+     * 已完成的快照，由新到旧
+     */
+    public List<File> listSnapshots() {
+        File[] files = backupDir.listFiles(f -> f.isDirectory() && timeOf(f) != null);
+        List<File> result = new ArrayList<>();
+        if (files != null) {
+            result.addAll(List.of(files));
+        }
+        result.sort(Comparator.comparing(File::getName).reversed());
+        return result;
+    }
+
+    private File latestSnapshot() {
+        List<File> snapshots = listSnapshots();
+        return snapshots.isEmpty() ? null : snapshots.get(0);
+    }
+
+    private static LocalDateTime timeOf(File snapshot) {
+        try {
+            return LocalDateTime.parse(snapshot.getName(), NAME_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 快照中该玩家的文件（按文件名查找，与快照生成时的目录布局无关）
+     */
+    public File findPlayerFile(File snapshot, String source, UUID playerId, String suffix) {
+        Path dir = new File(snapshot, source).toPath();
+        if (!Files.isDirectory(dir)) return null;
+        String name = playerId + suffix;
+        try (Stream<Path> stream = Files.walk(dir)) {
+            return stream.filter(p -> p.getFileName().toString().equals(name))
+                    .findFirst().map(Path::toFile).orElse(null);
+        } catch (IOException | java.io.UncheckedIOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 快照中是否有该玩家的逐玩家文件
+     */
+    public boolean containsPlayer(File snapshot, UUID playerId) {
+        return findPlayerFile(snapshot, "relic_storage", playerId, ".dat") != null
+                || findPlayerFile(snapshot, "players", playerId, ".yml") != null;
+    }
+
+    public File getSnapshot(String name) {
+        File snapshot = new File(backupDir, name);
+        return snapshot.isDirectory() && timeOf(snapshot) != null ? snapshot : null;
+    }
+
+    // ===== 恢复 =====
+
+    /**
+     * 把快照中单个玩家的数据写回当前存储（在异步线程调用，玩家须离线）
+     * 期间该玩家的保存与读取等待（保存管线的玩家锁）；INVENTORY 模式写回后版本号加一，
+     * 其他实例与已退出玩家的保留档案会因此重新读取
+     *
+     * @return 结果描述
+     */
+    public String restore(UUID playerId, String snapshotName) {
+        File snapshot = getSnapshot(snapshotName);
+        if (snapshot == null) {
+            return "§c快照不存在: " + snapshotName;
+        }
+        StorageFactory.StorageMode mode = plugin.getStorageFactory().getStorageMode();
+        try {
+            if (mode == StorageFactory.StorageMode.YAML) {
+                File yml = findPlayerFile(snapshot, "players", playerId, ".yml");
+                if (yml == null) {
+                    return "§c快照 " + snapshotName + " 中没有该玩家的 YAML 档案";
+                }
+                plugin.getProfileSavePipeline().runExclusive(playerId, () -> {
+                    Path target = plugin.getPlayerFileLayout().fileForWrite(playerId, ".yml").toPath();
+                    copyReplace(yml.toPath(), target);
+                    // 旧的 .bak 不再代表恢复前的上一版本；快照中的旧版文件没有校验尾，留着 .bak 会被判为写坏的文件
+                    Files.deleteIfExists(target.resolveSibling(target.getFileName() + ".bak"));
+                });
+            } else if (plugin.getRelicProfileManager() instanceof InventoryProfileManager ipm
+                    && ipm.getStorage() instanceof RelicInventoryStorage storage) {
+                File dat = findPlayerFile(snapshot, "relic_storage", playerId, ".dat");
+                if (dat == null) {
+                    return "§c快照 " + snapshotName + " 中没有该玩家的独立存储文件（可能当时已冷归档）";
+                }
+                File journal = findPlayerFile(snapshot, "relic_storage", playerId, ".journal");
+                plugin.getProfileSavePipeline().runExclusive(playerId, () -> storage.restoreFiles(playerId, dat, journal));
+                syncRegistry(storage, playerId);
+            } else {
+                return "§c当前存储模式（" + plugin.getStorageFactory().getStorageModeDisplayName() + "）不支持从备份恢复单个玩家";
+            }
+        } catch (Exception e) {
+            plugin.getLogger().warning("从快照 " + snapshotName + " 恢复玩家 " + playerId + " 失败: " + e.getMessage());
+            return "§c恢复失败: " + e.getMessage();
+        }
+        plugin.getLogger().info("已从快照 " + snapshotName + " 恢复玩家 " + playerId + " 的圣遗物数据");
+        return "§a已从快照 " + snapshotName + " 恢复该玩家的圣遗物数据";
+    }
+
+    /**
+     * 恢复后按恢复的内容更新圣遗物登记表
+     */
+    private void syncRegistry(RelicProfileStore storage, UUID playerId) {
+        RelicRegistry registry = plugin.getRelicRegistry();
+        if (registry == null) return;
+        PlayerRelicProfile profile = new PlayerRelicProfile(playerId);
+        storage.loadProfile(playerId, profile);
+        registry.recordSaved(ProfileSnapshot.of(profile, playerId.toString()));
+    }
+
+    /**
+     * 先复制为临时文件并刷盘，再原子替换，中途失败或断电不会留下半个文件
+     */
+    static void copyReplace(Path source, Path target) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.copy(source, tmp, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (java.nio.file.AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // ===== 状态 =====
+
+    public List<String> getStatusLines() {
+        List<String> lines = new ArrayList<>();
+        List<File> snapshots = listSnapshots();
+        lines.add("§7备份快照: §f" + snapshots.size() + " §7个"
+                + (snapshots.isEmpty() ? "" : "，最新 §f" + snapshots.get(0).getName()));
+        lines.add("§7上次备份: §f" + lastResult);
+        return lines;
+    }
+}
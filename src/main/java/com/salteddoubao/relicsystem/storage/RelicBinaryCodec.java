@@ -0,0 +1,484 @@
+package com.salteddoubao.relicsystem.storage;
+
+import com.salteddoubao.relicsystem.relic.RelicData;
+import com.salteddoubao.relicsystem.relic.RelicMainStat;
+import com.salteddoubao.relicsystem.relic.RelicRarity;
+import com.salteddoubao.relicsystem.relic.RelicSlot;
+import com.salteddoubao.relicsystem.relic.RelicStatType;
+import com.salteddoubao.relicsystem.relic.RelicSubstat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 圣遗物存储 v4 二进制格式
+ *
+ * 直接存储 RelicData 字段，不再经过 ItemStack 与 Java 序列化：
+ * <pre>
+ * 文件:  "MRS1" | 版本(byte) | 头部TLV... | 0 | 正文
+ * 头部:  标签(byte) 长度(int) 值(bytes)，未知标签直接跳过，新增字段无需升级版本
+ *        写入时间、计数摘要（{@link ProfileSummary}）、校验版本都放在头部，位于文件开头的固定范围内
+ *        头部带正文格式标签时，正文整体经 Deflate 压缩（可带预置字典，见 {@link RelicFileFormat}）
+ * 正文:  套装表 | 属性表 | 装备掩码(byte) + 记录... | 仓库数量(int) + 记录...
+ * 记录:  UUID(2×long) 套装索引(short) 部位(byte) 稀有度(byte) 等级(short) 经验(int) 锁定(bool)
+ *        主词条类型(byte) 主词条数值(double) 副词条数(byte) [类型(byte) 数值(double)]...
+ * </pre>
+ * v5 文件在仓库数量之后多一张每件 11 字节的键表，读取时跳过，并要求调用方整体重写为 v4
+ * （{@link Decoded#needsRewrite()}），玩家下次加载档案时即转换。v5 只由开发中的构建写出过，
+ * 这条兼容路径保留到下一个发布版本为止。
+ * 计数摘要让容量检查与状态查询只读文件开头（见 {@link #readSummary(byte[])}）。
+ * 属性表保存写入时的枚举名称，读取时按名称映射，枚举调整顺序不会破坏旧文件。
+ * 魔数与 Java 序列化头(0xACED)不同，可与 v1~v3 文件区分。
+ */
+public final class RelicBinaryCodec {
+    public static final byte[] MAGIC = {'M', 'R', 'S', '1'};
+    public static final byte VERSION = 4;
+    /** 带仓库键表的版本，仍可读取（键表跳过） */
+    private static final byte VERSION_V5 = 5;
+    /** v5 键表每项字节数 */
+    private static final int V5_KEY_ENTRY_SIZE = 11;
+
+    /** 头部标签：写入时间（long，毫秒） */
+    public static final byte TAG_WRITTEN_AT = 1;
+    /** 头部标签：计数摘要（{@link ProfileSummary}） */
+    public static final byte TAG_SUMMARY = 2;
+    /** 头部标签：正文格式（byte，{@link RelicFileFormat#getId()}），缺省为未压缩 */
+    public static final byte TAG_BODY_FORMAT = 3;
+    /** 头部标签：写入时档案已通过的校验版本（int，{@link RelicValidator#STAMP}） */
+    public static final byte TAG_VALIDATED = 4;
+
+    /** 读取摘要时需要的文件开头字节数（头部实际约 70 字节） */
+    public static final int SUMMARY_PREFIX_BYTES = 256;
+
+    private static final byte TAG_END = 0;
+
+    private RelicBinaryCodec() {}
+
+    /**
+     * 解码结果
+     */
+    public static final class Decoded {
+        public final Map<Byte, byte[]> header = new LinkedHashMap<>();
+        public final Map<RelicSlot, RelicData> equipped = new EnumMap<>(RelicSlot.class);
+        public final List<RelicData> warehouse = new ArrayList<>();
+        /** 无法解码而被丢弃的记录数 */
+        public int dropped;
+        /** 文件的格式版本 */
+        public int version;
+
+        /**
+         * 文件不是当前写出的版本（v5），应整体重写
+         */
+        public boolean needsRewrite() {
+            return version != VERSION;
+        }
+
+        /**
+         * 文件是否由通过同一校验规则（{@link RelicValidator#stamp(int)}）的档案写出，是则读取后无需再次校验
+         */
+        public boolean isValidated(int stamp) {
+            byte[] value = header.get(TAG_VALIDATED);
+            return value != null && value.length == 4 && readInt(value) == stamp;
+        }
+    }
+
+    /**
+     * 是否为 v4 及以后的二进制格式
+     */
+    public static boolean isBinaryFormat(byte[] bytes) {
+        if (bytes == null || bytes.length < MAGIC.length + 1) return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    public static byte[] encode(Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse) throws IOException {
+        return encode(equipped, warehouse, RelicFileFormat.DAT);
+    }
+
+    public static byte[] encode(Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse, RelicFileFormat format) throws IOException {
+        return encode(newHeader(equipped, warehouse), equipped, warehouse, format);
+    }
+
+    /**
+     * 编码档案；内容整体通过校验时在头部记录校验标记，读取时据此跳过重复校验
+     *
+     * @param maxSubstats 当前副词条上限（{@link RelicValidator#substatLimit}）
+     */
+    public static byte[] encode(Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse, RelicFileFormat format,
+                                int maxSubstats) throws IOException {
+        Map<Byte, byte[]> header = newHeader(equipped, warehouse);
+        if (RelicValidator.allValid(equipped, warehouse, maxSubstats)) {
+            header.put(TAG_VALIDATED, intBytes(RelicValidator.stamp(maxSubstats)));
+        }
+        return encode(header, equipped, warehouse, format);
+    }
+
+    private static Map<Byte, byte[]> newHeader(Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse) {
+        Map<Byte, byte[]> header = new LinkedHashMap<>();
+        header.put(TAG_WRITTEN_AT, longBytes(System.currentTimeMillis()));
+        header.put(TAG_SUMMARY, ProfileSummary.of(equipped, warehouse).encode());
+        return header;
+    }
+
+    public static byte[] encode(Map<Byte, byte[]> header, Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse,
+                                RelicFileFormat format) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(64 + warehouse.size() * 96);
+        DataOutputStream head = new DataOutputStream(baos);
+        head.write(MAGIC);
+        head.writeByte(VERSION);
+        for (Map.Entry<Byte, byte[]> e : header.entrySet()) {
+            if (e.getKey() == TAG_BODY_FORMAT) continue;
+            head.writeByte(e.getKey());
+            head.writeInt(e.getValue().length);
+            head.write(e.getValue());
+        }
+        if (format != RelicFileFormat.DAT) {
+            head.writeByte(TAG_BODY_FORMAT);
+            head.writeInt(1);
+            head.writeByte(format.getId());
+        }
+        head.writeByte(TAG_END);
+        head.flush();
+
+        // 头部保持明文（摘要可直接读取），正文按格式压缩
+        ByteArrayOutputStream bodyBytes = format == RelicFileFormat.DAT ? baos : new ByteArrayOutputStream(64 + warehouse.size() * 96);
+        DataOutputStream out = new DataOutputStream(bodyBytes);
+
+        // 套装表
+        Map<String, Integer> setIndex = new HashMap<>();
+        List<String> sets = new ArrayList<>();
+        for (RelicData r : equipped.values()) internSet(r, setIndex, sets);
+        for (RelicData r : warehouse) internSet(r, setIndex, sets);
+        out.writeShort(sets.size());
+        for (String s : sets) out.writeUTF(s);
+
+        // 属性表
+        RelicStatType[] stats = RelicStatType.values();
+        out.writeShort(stats.length);
+        for (RelicStatType t : stats) out.writeUTF(t.name());
+
+        // 装备位
+        int mask = 0;
+        for (RelicSlot slot : RelicSlot.values()) {
+            if (equipped.get(slot) != null) mask |= 1 << slot.ordinal();
+        }
+        out.writeByte(mask);
+        for (RelicSlot slot : RelicSlot.values()) {
+            RelicData r = equipped.get(slot);
+            if (r != null) writeRecord(out, r, setIndex);
+        }
+
+        // 仓库
+        out.writeInt(warehouse.size());
+        for (RelicData r : warehouse) {
+            writeRecord(out, r, setIndex);
+        }
+        out.flush();
+        if (format != RelicFileFormat.DAT) {
+            format.compress(bodyBytes.toByteArray(), baos);
+        }
+        return baos.toByteArray();
+    }
+
+    public static Decoded decode(byte[] bytes) throws IOException {
+        Decoded result = new Decoded();
+        Body body = readPrefix(bytes, result);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body.bytes, body.recordsStart, body.bytes.length - body.recordsStart));
+        for (int i = 0; i < body.count; i++) {
+            RelicData r = readRecord(in, body.sets, body.stats);
+            if (r == null) {
+                result.dropped++;
+            } else {
+                result.warehouse.add(r);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 只解析头部，读取计数摘要
+     *
+     * @param prefix 文件开头的若干字节（{@link #SUMMARY_PREFIX_BYTES} 即可，也可以是整个文件）
+     * @return 摘要；不是二进制格式、头部没有摘要（旧文件）或给出的字节不足时返回 null
+     */
+    public static ProfileSummary readSummary(byte[] prefix) {
+        if (!isBinaryFormat(prefix)) return null;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(prefix));
+            in.skipBytes(MAGIC.length);
+            int version = in.readUnsignedByte();
+            if (version != VERSION && version != VERSION_V5) return null;
+            while (true) {
+                byte tag = in.readByte();
+                if (tag == TAG_END) return null;
+                int len = in.readInt();
+                if (len < 0) return null;
+                if (tag != TAG_SUMMARY) {
+                    in.skipNBytes(len);
+                    continue;
+                }
+                byte[] value = new byte[len];
+                in.readFully(value);
+                return ProfileSummary.decode(value);
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 读取仓库记录之前的部分（头部、套装表、属性表、装备，跳过 v5 键表），装备与头部写入 result
+     */
+    private static Body readPrefix(byte[] bytes, Decoded result) throws IOException {
+        if (!isBinaryFormat(bytes)) {
+            throw new IOException("不是圣遗物二进制存储格式");
+        }
+        ByteArrayInputStream raw = new ByteArrayInputStream(bytes);
+        DataInputStream in = new DataInputStream(raw);
+        in.skipBytes(MAGIC.length);
+        int version = in.readUnsignedByte();
+        if (version != VERSION && version != VERSION_V5) {
+            throw new IOException("不支持的二进制存储版本: " + version);
+        }
+        result.version = version;
+        while (true) {
+            byte tag = in.readByte();
+            if (tag == TAG_END) break;
+            int len = in.readInt();
+            byte[] value = new byte[len];
+            in.readFully(value);
+            result.header.put(tag, value);
+        }
+
+        // 压缩的正文先整体解压，之后的偏移都相对于解压后的正文
+        byte[] bodyFormat = result.header.get(TAG_BODY_FORMAT);
+        if (bodyFormat != null && bodyFormat.length > 0) {
+            RelicFileFormat format = RelicFileFormat.byId(bodyFormat[0]);
+            if (format == null) {
+                throw new IOException("不支持的正文格式: " + bodyFormat[0]);
+            }
+            int bodyStart = bytes.length - raw.available();
+            bytes = format.decompress(bytes, bodyStart, bytes.length - bodyStart);
+            raw = new ByteArrayInputStream(bytes);
+            in = new DataInputStream(raw);
+        }
+
+        int setCount = in.readUnsignedShort();
+        String[] sets = new String[setCount];
+        for (int i = 0; i < setCount; i++) sets[i] = in.readUTF();
+
+        int statCount = in.readUnsignedShort();
+        RelicStatType[] stats = new RelicStatType[statCount];
+        for (int i = 0; i < statCount; i++) stats[i] = statByName(in.readUTF());
+
+        RelicSlot[] slots = RelicSlot.values();
+        int mask = in.readUnsignedByte();
+        for (int i = 0; i < 8; i++) {
+            if ((mask & (1 << i)) == 0) continue;
+            RelicData r = readRecord(in, sets, stats);
+            if (r == null || i >= slots.length || r.getSlot() != slots[i]) {
+                result.dropped++;
+                continue;
+            }
+            result.equipped.put(slots[i], r);
+        }
+
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("仓库数量无效: " + count);
+        }
+        int recordsStart = bytes.length - raw.available();
+        if (version == VERSION_V5) {
+            recordsStart += count * V5_KEY_ENTRY_SIZE;
+            if (recordsStart > bytes.length) {
+                throw new IOException("仓库键表被截断");
+            }
+        }
+        return new Body(bytes, recordsStart, count, sets, stats);
+    }
+
+    /**
+     * 仓库记录的读取位置（压缩正文为解压后的字节）
+     */
+    private static final class Body {
+        final byte[] bytes;
+        final int recordsStart;
+        final int count;
+        final String[] sets;
+        final RelicStatType[] stats;
+
+        Body(byte[] bytes, int recordsStart, int count, String[] sets, RelicStatType[] stats) {
+            this.bytes = bytes;
+            this.recordsStart = recordsStart;
+            this.count = count;
+            this.sets = sets;
+            this.stats = stats;
+        }
+    }
+
+    private static void internSet(RelicData r, Map<String, Integer> index, List<String> sets) {
+        if (r == null || r.getSetId() == null) return;
+        index.computeIfAbsent(r.getSetId(), k -> {
+            sets.add(k);
+            return sets.size() - 1;
+        });
+    }
+
+    private static void writeRecord(DataOutputStream out, RelicData r, Map<String, Integer> setIndex) throws IOException {
+        out.writeLong(r.getId().getMostSignificantBits());
+        out.writeLong(r.getId().getLeastSignificantBits());
+        out.writeShort(r.getSetId() == null ? -1 : setIndex.get(r.getSetId()));
+        out.writeByte(r.getSlot().ordinal());
+        out.writeByte(r.getRarity().ordinal());
+        out.writeShort(r.getLevel());
+        out.writeInt(r.getExp());
+        out.writeBoolean(r.isLocked());
+        RelicMainStat main = r.getMainStat();
+        out.writeByte(main == null ? -1 : main.getType().ordinal());
+        out.writeDouble(main == null ? 0 : main.getValue());
+        List<RelicSubstat> subs = r.getSubstats();
+        out.writeByte(subs.size());
+        for (RelicSubstat s : subs) {
+            out.writeByte(s.getType().ordinal());
+            out.writeDouble(s.getValue());
+        }
+    }
+
+    /**
+     * 读取一条记录；部位、稀有度、主词条或套装无法映射时返回 null（字节已完整消费）。
+     * 无法映射的副词条只丢弃该条副词条，圣遗物本身保留（与旧版字符串载荷的解析一致）
+     */
+    private static RelicData readRecord(DataInputStream in, String[] sets, RelicStatType[] stats) throws IOException {
+        UUID id = new UUID(in.readLong(), in.readLong());
+        int setIdx = in.readShort();
+        int slotOrd = in.readUnsignedByte();
+        int rarityOrd = in.readUnsignedByte();
+        int level = in.readShort();
+        int exp = in.readInt();
+        boolean locked = in.readBoolean();
+        int mainOrd = in.readByte();
+        double mainValue = in.readDouble();
+        int subCount = in.readUnsignedByte();
+        List<RelicSubstat> subs = new ArrayList<>(subCount);
+        for (int i = 0; i < subCount; i++) {
+            int ord = in.readUnsignedByte();
+            double value = in.readDouble();
+            RelicStatType type = ord < stats.length ? stats[ord] : null;
+            if (type != null) {
+                subs.add(new RelicSubstat(type, value));
+            }
+        }
+
+        RelicSlot[] slots = RelicSlot.values();
+        RelicRarity[] rarities = RelicRarity.values();
+        if (slotOrd >= slots.length || rarityOrd >= rarities.length
+                || mainOrd < 0 || mainOrd >= stats.length || stats[mainOrd] == null
+                || setIdx < -1 || setIdx >= sets.length) {
+            return null;
+        }
+        String setId = setIdx < 0 ? null : sets[setIdx];
+        RelicMainStat main = new RelicMainStat(stats[mainOrd], mainValue);
+        return new RelicData(id, setId, slots[slotOrd], rarities[rarityOrd], level, exp, main, subs, locked);
+    }
+
+    /**
+     * 写入自描述记录（套装/属性用名称而非表索引），用于日志等脱离文件表的场景
+     */
+    public static void writeStandaloneRecord(DataOutput out, RelicData r) throws IOException {
+        out.writeLong(r.getId().getMostSignificantBits());
+        out.writeLong(r.getId().getLeastSignificantBits());
+        out.writeUTF(r.getSetId() == null ? "" : r.getSetId());
+        out.writeByte(r.getSlot().ordinal());
+        out.writeByte(r.getRarity().ordinal());
+        out.writeShort(r.getLevel());
+        out.writeInt(r.getExp());
+        out.writeBoolean(r.isLocked());
+        RelicMainStat main = r.getMainStat();
+        out.writeUTF(main == null ? "" : main.getType().name());
+        out.writeDouble(main == null ? 0 : main.getValue());
+        List<RelicSubstat> subs = r.getSubstats();
+        out.writeByte(subs.size());
+        for (RelicSubstat s : subs) {
+            out.writeUTF(s.getType().name());
+            out.writeDouble(s.getValue());
+        }
+    }
+
+    /**
+     * 读取自描述记录；部位、稀有度或主词条无法映射时返回 null，无法映射的副词条单独丢弃
+     */
+    public static RelicData readStandaloneRecord(DataInput in) throws IOException {
+        UUID id = new UUID(in.readLong(), in.readLong());
+        String setId = in.readUTF();
+        int slotOrd = in.readUnsignedByte();
+        int rarityOrd = in.readUnsignedByte();
+        int level = in.readShort();
+        int exp = in.readInt();
+        boolean locked = in.readBoolean();
+        RelicStatType mainType = statByName(in.readUTF());
+        double mainValue = in.readDouble();
+        int subCount = in.readUnsignedByte();
+        List<RelicSubstat> subs = new ArrayList<>(subCount);
+        for (int i = 0; i < subCount; i++) {
+            RelicStatType type = statByName(in.readUTF());
+            double value = in.readDouble();
+            if (type != null) {
+                subs.add(new RelicSubstat(type, value));
+            }
+        }
+        RelicSlot[] slots = RelicSlot.values();
+        RelicRarity[] rarities = RelicRarity.values();
+        if (mainType == null || slotOrd >= slots.length || rarityOrd >= rarities.length) {
+            return null;
+        }
+        return new RelicData(id, setId.isEmpty() ? null : setId, slots[slotOrd], rarities[rarityOrd],
+                level, exp, new RelicMainStat(mainType, mainValue), subs, locked);
+    }
+
+    private static RelicStatType statByName(String name) {
+        try {
+            return RelicStatType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    static byte[] longBytes(long v) {
+        byte[] b = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            b[i] = (byte) v;
+            v >>>= 8;
+        }
+        return b;
+    }
+
+    static byte[] intBytes(int v) {
+        return new byte[]{(byte) (v >>> 24), (byte) (v >>> 16), (byte) (v >>> 8), (byte) v};
+    }
+
+    static int readInt(byte[] b) {
+        return ((b[0] & 0xff) << 24) | ((b[1] & 0xff) << 16) | ((b[2] & 0xff) << 8) | (b[3] & 0xff);
+    }
+
+    static long readLong(byte[] b) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) {
+            v = (v << 8) | (b[i] & 0xff);
+        }
+        return v;
+    }
+}
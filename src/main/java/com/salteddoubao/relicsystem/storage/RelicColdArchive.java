@@ -0,0 +1,566 @@
+package com.salteddoubao.relicsystem.storage;
+
+import com.salteddoubao.relicsystem.MinecraftRelicSystem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * 冷数据归档（relic_archive/）
+ *
+ * 长期未登录玩家的独立存储基础文件（relic_storage/&lt;uuid&gt;.dat）被打包进少量追加写的压缩段文件，
+ * 热目录只保留活跃玩家；玩家再次读取档案时由 {@link RelicInventoryStorage} 直接从归档解码，
+ * 下次整体写回时重新生成热文件并丢弃归档记录。
+ *
+ * 段文件布局：
+ * <pre>
+ * "MRAR" | 版本(int)
+ * 记录:  玩家UUID(16) | 归档时间(long) | 压缩长度(int，-1 为删除标记) | 原始长度(int) | CRC32(int) | Deflate 数据
+ * </pre>
+ * 段文件只追加，玩家被还原时追加一条删除标记。索引（玩家 → 段/偏移）常驻内存，
+ * 每轮归档/压缩后写入 index.bin 检查点；启动时读取检查点，只扫描各段检查点之后追加的部分，
+ * 检查点缺失或损坏时扫描全部段。段尾写到一半的记录在扫描时截掉。
+ *
+ * 有效数据占比低于阈值的旧段会被压缩：有效记录原样复制到当前段，刷盘并写检查点后再删除旧段。
+ *
+ * 同一玩家的热文件与归档读写通过 {@link #lockFor(UUID)} 串行；热文件与归档同时存在时以热文件为准。
+ * 归档为插件级单例，所有 RelicInventoryStorage 实例共用。
+ */
+public class RelicColdArchive {
+    private static final byte[] MAGIC = {'M', 'R', 'A', 'R'};
+    private static final byte[] INDEX_MAGIC = {'M', 'R', 'A', 'I'};
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 36;
+    private static final int TOMBSTONE = -1;
+    private static final String SEGMENT_PREFIX = "archive-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int LOCK_STRIPES = 64;
+
+    private static final class Segment {
+        final int id;
+        final File file;
+        long length = FILE_HEADER_SIZE;
+        long liveBytes;
+
+        Segment(int id, File file) {
+            this.id = id;
+            this.file = file;
+        }
+    }
+
+    private static final class Entry {
+        final int segment;
+        final long offset;
+        final int compressedLength;
+        final int rawLength;
+        final long archivedAt;
+
+        Entry(int segment, long offset, int compressedLength, int rawLength, long archivedAt) {
+            this.segment = segment;
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.rawLength = rawLength;
+            this.archivedAt = archivedAt;
+        }
+
+        long size() {
+            return RECORD_HEADER_SIZE + (long) compressedLength;
+        }
+    }
+
+    private final MinecraftRelicSystem plugin;
+    private final File dir;
+    private final File indexFile;
+    private final DurableFileWriter writer;
+    private final long segmentSizeBytes;
+    private final double compactRatio;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    // 以下状态由 this 保护
+    private final Map<UUID, Entry> index = new HashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private Segment current;
+    private RandomAccessFile currentFile;
+    private boolean opened;
+
+    public RelicColdArchive(MinecraftRelicSystem plugin) {
+        this.plugin = plugin;
+        this.dir = new File(plugin.getDataFolder(), "relic_archive");
+        this.indexFile = new File(dir, "index.bin");
+        this.writer = new DurableFileWriter(plugin.getLogger());
+        this.segmentSizeBytes = Math.max(1, plugin.getConfig().getLong("relic.inventory_storage.cold_archive.segment_size_mb", 64)) * 1024L * 1024L;
+        this.compactRatio = plugin.getConfig().getDouble("relic.inventory_storage.cold_archive.compact_ratio", 0.5);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * 该玩家热文件/归档读写使用的锁（按 UUID 分段）
+     */
+    public Object lockFor(UUID playerId) {
+        return locks[(playerId.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    public synchronized boolean contains(UUID playerId) {
+        ensureOpen();
+        return index.containsKey(playerId);
+    }
+
+    public synchronized Set<UUID> playerIds() {
+        ensureOpen();
+        return new HashSet<>(index.keySet());
+    }
+
+    /**
+     * 读取并解压归档的基础文件内容
+     *
+     * @return 归档时的文件内容（不含校验尾）；没有归档时返回 null
+     * @throws IOException 记录损坏或读取失败
+     */
+    public synchronized byte[] read(UUID playerId) throws IOException {
+        ensureOpen();
+        Entry e = index.get(playerId);
+        if (e == null) return null;
+        byte[] data = readData(e);
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        if ((int) crc.getValue() != readStoredCrc(e)) {
+            throw new IOException("冷归档记录校验失败: " + playerId);
+        }
+        byte[] raw = RelicFileFormat.DEFLATE.decompress(data, 0, data.length);
+        if (raw.length != e.rawLength) {
+            throw new IOException("冷归档记录长度不一致: " + raw.length + "/" + e.rawLength);
+        }
+        return raw;
+    }
+
+    /**
+     * 读取记录中原样保存的压缩数据（记录损坏时交给隔离区）
+     */
+    public synchronized byte[] readStored(UUID playerId) {
+        ensureOpen();
+        Entry e = index.get(playerId);
+        if (e == null) return null;
+        try {
+            return readData(e);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * 追加一条归档记录（不刷盘，调用方在删除热文件前调用 {@link #sync()}）
+     */
+    public synchronized void add(UUID playerId, byte[] payload) throws IOException {
+        ensureOpen();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, payload.length / 2));
+        RelicFileFormat.DEFLATE.compress(payload, out);
+        byte[] data = out.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        append(playerId, System.currentTimeMillis(), data, payload.length, (int) crc.getValue());
+    }
+
+    /**
+     * 丢弃该玩家的归档记录（追加删除标记）
+     */
+    public synchronized void remove(UUID playerId) throws IOException {
+        ensureOpen();
+        Entry old = index.remove(playerId);
+        if (old == null) return;
+        Segment seg = segments.get(old.segment);
+        if (seg != null) {
+            seg.liveBytes -= old.size();
+        }
+        writeRecord(playerId, System.currentTimeMillis(), null, TOMBSTONE, 0, 0);
+    }
+
+    /**
+     * 将当前段刷盘（删除已归档的热文件前调用）
+     */
+    public synchronized void sync() throws IOException {
+        if (currentFile != null) {
+            currentFile.getFD().sync();
+        }
+    }
+
+    /**
+     * 压缩有效数据占比低于阈值的旧段（归档任务的异步线程调用）
+     *
+     * @return 删除的段数
+     */
+    public synchronized int compact() {
+        ensureOpen();
+        List<Segment> candidates = new ArrayList<>();
+        for (Segment seg : segments.values()) {
+            if (seg == current) continue;
+            long used = seg.length - FILE_HEADER_SIZE;
+            if (seg.liveBytes <= 0 || seg.liveBytes < used * compactRatio) {
+                candidates.add(seg);
+            }
+        }
+        if (candidates.isEmpty()) return 0;
+        int removed = 0;
+        for (Segment seg : candidates) {
+            try {
+                moveLiveRecords(seg);
+                sync();
+                writeCheckpoint();
+                Files.deleteIfExists(seg.file.toPath());
+                segments.remove(seg.id);
+                removed++;
+            } catch (IOException e) {
+                plugin.getLogger().warning("压缩冷归档段失败: " + seg.file.getName() + " - " + e.getMessage());
+            }
+        }
+        writeCheckpointQuietly();
+        return removed;
+    }
+
+    /**
+     * 写入索引检查点（每轮归档后调用）
+     */
+    public synchronized void checkpoint() {
+        if (!opened || segments.isEmpty()) return;
+        try {
+            sync();
+        } catch (IOException e) {
+            plugin.getLogger().warning("冷归档刷盘失败: " + e.getMessage());
+            return;
+        }
+        writeCheckpointQuietly();
+    }
+
+    public synchronized List<String> getStatusLines() {
+        ensureOpen();
+        if (segments.isEmpty()) {
+            return List.of("§7冷归档: §f无");
+        }
+        long total = 0;
+        long live = 0;
+        for (Segment s : segments.values()) {
+            total += s.length;
+            live += s.liveBytes;
+        }
+        return List.of(String.format("§7冷归档: 玩家 §f%d §7段文件 §f%d §7(共 §f%.1fMB§7, 有效 §f%.1fMB§7)",
+                index.size(), segments.size(), total / 1024.0 / 1024.0, live / 1024.0 / 1024.0));
+    }
+
+    /**
+     * 关闭：刷盘、写检查点并释放当前段（保存管线清空之后调用）
+     */
+    public synchronized void close() {
+        if (!opened) return;
+        checkpoint();
+        closeCurrentFile();
+    }
+
+    // ===== 段文件 =====
+
+    private void append(UUID playerId, long archivedAt, byte[] data, int rawLength, int crc) throws IOException {
+        long offset = writeRecord(playerId, archivedAt, data, data.length, rawLength, crc);
+        Entry entry = new Entry(current.id, offset, data.length, rawLength, archivedAt);
+        Entry old = index.put(playerId, entry);
+        if (old != null) {
+            Segment seg = segments.get(old.segment);
+            if (seg != null) {
+                seg.liveBytes -= old.size();
+            }
+        }
+        current.liveBytes += entry.size();
+    }
+
+    /**
+     * 在当前段末尾写入一条记录，写满时滚动到新段
+     *
+     * @return 记录在段内的偏移
+     */
+    private long writeRecord(UUID playerId, long archivedAt, byte[] data, int length, int rawLength, int crc) throws IOException {
+        int size = RECORD_HEADER_SIZE + Math.max(0, length);
+        RandomAccessFile file = currentFor(size);
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putLong(playerId.getMostSignificantBits());
+        buf.putLong(playerId.getLeastSignificantBits());
+        buf.putLong(archivedAt);
+        buf.putInt(length);
+        buf.putInt(rawLength);
+        buf.putInt(crc);
+        if (data != null) {
+            buf.put(data);
+        }
+        long offset = current.length;
+        file.seek(offset);
+        file.write(buf.array());
+        current.length += size;
+        return offset;
+    }
+
+    private RandomAccessFile currentFor(int recordSize) throws IOException {
+        if (current != null && current.length > FILE_HEADER_SIZE && current.length + recordSize > segmentSizeBytes) {
+            closeCurrentFile();
+            current = null;
+        }
+        if (current == null) {
+            if (!dir.exists()) {
+                dir.mkdirs();
+            }
+            int id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+            Segment seg = new Segment(id, new File(dir, String.format("%s%06d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX)));
+            RandomAccessFile file = new RandomAccessFile(seg.file, "rw");
+            file.setLength(0);
+            file.write(MAGIC);
+            file.writeInt(VERSION);
+            segments.put(id, seg);
+            current = seg;
+            currentFile = file;
+        }
+        if (currentFile == null) {
+            currentFile = new RandomAccessFile(current.file, "rw");
+        }
+        return currentFile;
+    }
+
+    private void closeCurrentFile() {
+        if (currentFile == null) return;
+        try {
+            currentFile.getFD().sync();
+            currentFile.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("关闭冷归档段失败: " + e.getMessage());
+        }
+        currentFile = null;
+    }
+
+    private byte[] readData(Entry e) throws IOException {
+        Segment seg = segments.get(e.segment);
+        if (seg == null) {
+            throw new IOException("冷归档段不存在: " + e.segment);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(seg.file, "r")) {
+            byte[] data = new byte[e.compressedLength];
+            raf.seek(e.offset + RECORD_HEADER_SIZE);
+            raf.readFully(data);
+            return data;
+        }
+    }
+
+    private int readStoredCrc(Entry e) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(segments.get(e.segment).file, "r")) {
+            raf.seek(e.offset + RECORD_HEADER_SIZE - 4);
+            return raf.readInt();
+        }
+    }
+
+    /**
+     * 把旧段中仍有效的记录原样复制到当前段；删除标记在更早的段仍存在时一并保留，
+     * 避免丢失检查点后重新扫描时把已还原的旧记录当作有效记录
+     */
+    private void moveLiveRecords(Segment seg) throws IOException {
+        boolean olderExists = segments.firstKey() < seg.id;
+        try (RandomAccessFile raf = new RandomAccessFile(seg.file, "r")) {
+            long pos = FILE_HEADER_SIZE;
+            while (pos + RECORD_HEADER_SIZE <= seg.length) {
+                raf.seek(pos);
+                UUID playerId = new UUID(raf.readLong(), raf.readLong());
+                long archivedAt = raf.readLong();
+                int length = raf.readInt();
+                int rawLength = raf.readInt();
+                int crc = raf.readInt();
+                if (length == TOMBSTONE) {
+                    if (olderExists && !index.containsKey(playerId)) {
+                        writeRecord(playerId, archivedAt, null, TOMBSTONE, 0, 0);
+                    }
+                    pos += RECORD_HEADER_SIZE;
+                    continue;
+                }
+                Entry e = index.get(playerId);
+                if (e != null && e.segment == seg.id && e.offset == pos) {
+                    byte[] data = new byte[length];
+                    raf.readFully(data);
+                    append(playerId, archivedAt, data, rawLength, crc);
+                }
+                pos += RECORD_HEADER_SIZE + (long) length;
+            }
+        }
+    }
+
+    // ===== 启动加载 =====
+
+    private void ensureOpen() {
+        if (opened) return;
+        opened = true;
+        File[] files = dir.listFiles((d, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null || files.length == 0) return;
+        for (File f : files) {
+            String name = f.getName();
+            try {
+                int id = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                segments.put(id, new Segment(id, f));
+            } catch (NumberFormatException e) {
+                plugin.getLogger().warning("跳过无法识别的冷归档文件: " + name);
+            }
+        }
+        Map<Integer, Long> scanned = readCheckpoint();
+        for (Segment seg : new ArrayList<>(segments.values())) {
+            Long from = scanned.get(seg.id);
+            if (!scan(seg, from != null ? from : FILE_HEADER_SIZE)) {
+                segments.remove(seg.id);
+            }
+        }
+        index.values().removeIf(e -> !segments.containsKey(e.segment));
+        for (Entry e : index.values()) {
+            segments.get(e.segment).liveBytes += e.size();
+        }
+        if (!segments.isEmpty()) {
+            current = segments.lastEntry().getValue();
+        }
+        plugin.getLogger().info("冷归档已加载: " + index.size() + " 位玩家, " + segments.size() + " 个段文件");
+    }
+
+    /**
+     * 从 from 开始扫描段中的记录并应用到索引，截掉末尾不完整的记录
+     *
+     * @return 段文件是否可用
+     */
+    private boolean scan(Segment seg, long from) {
+        try (RandomAccessFile raf = new RandomAccessFile(seg.file, "rw")) {
+            byte[] magic = new byte[MAGIC.length];
+            if (raf.length() < FILE_HEADER_SIZE) {
+                plugin.getLogger().warning("冷归档段文件不完整，已忽略: " + seg.file.getName());
+                return false;
+            }
+            raf.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || raf.readInt() != VERSION) {
+                plugin.getLogger().warning("无法识别的冷归档段文件，已忽略: " + seg.file.getName());
+                return false;
+            }
+            long end = raf.length();
+            long pos = from;
+            while (pos + RECORD_HEADER_SIZE <= end) {
+                raf.seek(pos);
+                UUID playerId = new UUID(raf.readLong(), raf.readLong());
+                long archivedAt = raf.readLong();
+                int length = raf.readInt();
+                int rawLength = raf.readInt();
+                int crc = raf.readInt();
+                if (length == TOMBSTONE) {
+                    index.remove(playerId);
+                    pos += RECORD_HEADER_SIZE;
+                    continue;
+                }
+                if (length < 0 || rawLength < 0 || pos + RECORD_HEADER_SIZE + length > end) break;
+                byte[] data = new byte[length];
+                raf.readFully(data);
+                CRC32 check = new CRC32();
+                check.update(data, 0, length);
+                if ((int) check.getValue() != crc) break;
+                index.put(playerId, new Entry(seg.id, pos, length, rawLength, archivedAt));
+                pos += RECORD_HEADER_SIZE + (long) length;
+            }
+            if (pos < end) {
+                plugin.getLogger().warning("冷归档段 " + seg.file.getName() + " 末尾有 " + (end - pos) + " 字节不完整数据，已截断");
+                raf.setLength(pos);
+            }
+            seg.length = pos;
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().warning("读取冷归档段失败: " + seg.file.getName() + " - " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 读取检查点填充索引
+     *
+     * @return 各段在检查点时已扫描到的长度；没有可用检查点时为空（全部重新扫描）
+     */
+    private Map<Integer, Long> readCheckpoint() {
+        Map<Integer, Long> scanned = new HashMap<>();
+        for (byte[] bytes : DurableFileWriter.readCandidates(indexFile, plugin.getLogger())) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                byte[] magic = new byte[INDEX_MAGIC.length];
+                in.readFully(magic);
+                if (!Arrays.equals(magic, INDEX_MAGIC) || in.readInt() != VERSION) continue;
+                Map<Integer, Long> lengths = new HashMap<>();
+                int segmentCount = in.readInt();
+                for (int i = 0; i < segmentCount; i++) {
+                    lengths.put(in.readInt(), in.readLong());
+                }
+                boolean usable = true;
+                for (Map.Entry<Integer, Long> e : lengths.entrySet()) {
+                    Segment seg = segments.get(e.getKey());
+                    // 段文件比检查点记录的还短：检查点不可信，整体重新扫描
+                    if (seg != null && seg.file.length() < e.getValue()) {
+                        usable = false;
+                    }
+                }
+                if (!usable) continue;
+                Map<UUID, Entry> entries = new HashMap<>();
+                int entryCount = in.readInt();
+                for (int i = 0; i < entryCount; i++) {
+                    UUID playerId = new UUID(in.readLong(), in.readLong());
+                    entries.put(playerId, new Entry(in.readInt(), in.readLong(), in.readInt(), in.readInt(), in.readLong()));
+                }
+                index.putAll(entries);
+                scanned.putAll(lengths);
+                return scanned;
+            } catch (IOException e) {
+                plugin.getLogger().warning("冷归档索引检查点损坏，将重新扫描段文件: " + e.getMessage());
+            }
+        }
+        return scanned;
+    }
+
+    private void writeCheckpoint() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(64 + index.size() * 48);
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.write(INDEX_MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(segments.size());
+            for (Segment seg : segments.values()) {
+                out.writeInt(seg.id);
+                out.writeLong(seg.length);
+            }
+            out.writeInt(index.size());
+            for (Map.Entry<UUID, Entry> e : index.entrySet()) {
+                Entry entry = e.getValue();
+                out.writeLong(e.getKey().getMostSignificantBits());
+                out.writeLong(e.getKey().getLeastSignificantBits());
+                out.writeInt(entry.segment);
+                out.writeLong(entry.offset);
+                out.writeInt(entry.compressedLength);
+                out.writeInt(entry.rawLength);
+                out.writeLong(entry.archivedAt);
+            }
+        }
+        writer.write(indexFile, baos.toByteArray());
+        writer.sync();
+    }
+
+    private void writeCheckpointQuietly() {
+        try {
+            writeCheckpoint();
+        } catch (IOException e) {
+            plugin.getLogger().warning("写入冷归档索引检查点失败: " + e.getMessage());
+        }
+    }
+}
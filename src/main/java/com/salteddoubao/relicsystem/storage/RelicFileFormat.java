@@ -0,0 +1,171 @@
+package com.salteddoubao.relicsystem.storage;
+
+import com.salteddoubao.relicsystem.MinecraftRelicSystem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 存储文件正文格式（relic.inventory_storage.file_format）
+ *
+ * - DAT：未压缩的二进制正文
+ * - DEFLATE：正文经 Deflate 压缩
+ * - DICT：Deflate + 预置字典（套装表/属性表/记录的常见字节序列），小仓库也能压缩得动
+ *
+ * 头部始终为明文，格式记录在头部标签中：读取时按文件自身的格式解码，
+ * 修改配置后旧文件照常读取，并在下次整体重写时转换为新格式。
+ */
+public enum RelicFileFormat {
+    DAT(0),
+    DEFLATE(1),
+    DICT(2);
+
+    private final byte id;
+
+    RelicFileFormat(int id) {
+        this.id = (byte) id;
+    }
+
+    public byte getId() {
+        return id;
+    }
+
+    public static RelicFileFormat byId(byte id) {
+        for (RelicFileFormat f : values()) {
+            if (f.id == id) return f;
+        }
+        return null;
+    }
+
+    /**
+     * 读取配置的文件格式，无法识别时回退为 DAT
+     * 旧配置中的 YAML 照常接受：该选项从未生效过（存储文件一直是二进制），按 DAT 处理
+     */
+    public static RelicFileFormat fromConfig(MinecraftRelicSystem plugin) {
+        String value = plugin.getConfig().getString("relic.inventory_storage.file_format", "DAT");
+        if ("YAML".equalsIgnoreCase(value.trim())) {
+            plugin.getLogger().info("存储文件格式 YAML 按 DAT 处理（需要 YAML 文件请使用 relic.storage_mode: YAML）");
+            return DAT;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("未知的存储文件格式: " + value + "，使用 DAT");
+            return DAT;
+        }
+    }
+
+    void compress(byte[] body, ByteArrayOutputStream out) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            if (this == DICT) {
+                deflater.setDictionary(Dictionary.BYTES);
+            }
+            deflater.setInput(body);
+            deflater.finish();
+            byte[] buf = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buf);
+                out.write(buf, 0, n);
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    byte[] decompress(byte[] bytes, int offset, int length) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length * 3));
+            byte[] buf = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buf);
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        if (inflater.getAdler() != Dictionary.ADLER) {
+                            throw new IOException("压缩字典不匹配: " + Integer.toHexString(inflater.getAdler()));
+                        }
+                        inflater.setDictionary(Dictionary.BYTES);
+                    } else if (!inflater.finished()) {
+                        throw new IOException("压缩正文被截断");
+                    }
+                }
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("压缩正文损坏: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 预置字典（第 1 版）
+     *
+     * 内容固定，写入后不可再修改：已写入的 DICT 文件依赖完全相同的字典字节才能解压
+     * （字典的 Adler-32 记录在压缩流中，读取时校验）。需要新字典时应新增格式编号。
+     * 按 Deflate 的习惯，越常出现的序列越靠近字典末尾。
+     */
+    static final class Dictionary {
+        /** 写入字典时的属性表（冻结，不随 RelicStatType 变化） */
+        private static final String[] STAT_NAMES = {
+                "HP_FLAT", "ATK_FLAT", "DEF_FLAT", "HP_PCT", "ATK_PCT", "DEF_PCT", "PVP_ATK", "PVE_ATK",
+                "REAL_ATK", "CRIT_CHANCE", "CRIT_RATE", "VAMPIRE_CHANCE", "VAMPIRE_RATE", "FIRE_CHANCE",
+                "FIRE_DAMAGE", "HIT", "FROZEN_CHANCE", "FROZEN_INTENSITY", "LIGHTNING_CHANCE", "LIGHTNING_DAMAGE",
+                "SUNDER_ARMOR", "SEE_THROUGH", "BREAK_SHIELD", "PVP_DEF", "PVE_DEF", "ARMOR", "CRIT_RESIST",
+                "VAMPIRE_RESIST", "REFLECTION_CHANCE", "REFLECTION_RATE", "DODGE_CHANCE", "SHIELD_BLOCK",
+                "REMOTE_IMMUNE", "RESTORE", "RESTORE_RATIO", "MOVE_SPEED"
+        };
+
+        static final byte[] BYTES = build();
+        static final int ADLER = adler(BYTES);
+
+        private Dictionary() {}
+
+        private static byte[] build() {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+            try (DataOutputStream out = new DataOutputStream(baos)) {
+                // 常见的记录尾部：0~4 条副词条、整数数值的 double
+                for (int subs = 4; subs >= 0; subs--) {
+                    out.writeByte(subs);
+                    for (int i = 0; i < subs; i++) {
+                        out.writeByte(i);
+                        out.writeDouble(i + 1);
+                    }
+                }
+                // 常见的记录中段：套装索引、部位、稀有度、等级 0、经验 0、未锁定
+                for (int rarity = 0; rarity < 5; rarity++) {
+                    for (int slot = 0; slot < 5; slot++) {
+                        out.writeShort(0);
+                        out.writeByte(slot);
+                        out.writeByte(rarity);
+                        out.writeShort(0);
+                        out.writeInt(0);
+                        out.writeBoolean(false);
+                    }
+                }
+                // 属性表（每个文件都完整写一份，出现在正文开头）
+                out.writeShort(STAT_NAMES.length);
+                for (String name : STAT_NAMES) {
+                    out.writeUTF(name);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return baos.toByteArray();
+        }
+
+        private static int adler(byte[] bytes) {
+            Adler32 adler = new Adler32();
+            adler.update(bytes, 0, bytes.length);
+            return (int) adler.getValue();
+        }
+    }
+}
@@ -10,13 +10,26 @@ import org.bukkit.util.io.BukkitObjectInputStream;
 import org.bukkit.util.io.BukkitObjectOutputStream;
 
 import com.salteddoubao.relicsystem.MinecraftRelicSystem;
+import com.salteddoubao.relicsystem.relic.PlayerRelicProfile;
 import com.salteddoubao.relicsystem.relic.RelicData;
 import com.salteddoubao.relicsystem.relic.RelicSlot;
 import com.salteddoubao.relicsystem.util.RelicItemConverter;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 /**
  * 基于独立Inventory的圣遗物存储系统
@@ -26,11 +39,27 @@ import java.util.UUID;
  * - 利用Minecraft原生ItemStack序列化机制
  * - 数据自动持久化，可靠性高
  * 
- * 存储布局：
- * - 0-4:   已装备圣遗物 (FLOWER, PLUME, SANDS, GOBLET, CIRCLET)
- * - 5-26:  圣遗物仓库 (22格存储空间)
+ * 存储格式：
+ * - v4：{@link RelicBinaryCodec} 二进制记录，直接保存 RelicData 字段（当前写入格式；带键表的 v5 文件也可读取）
+ * - v3：装备位 + 动态仓库的 ItemStack 序列化（仅读取）
+ * - v1/v2：27格虚拟 Inventory，0-4 为装备位，5-26 为仓库（仅读取）
+ * 旧格式文件读取后会在下次保存时自动升级为 v4
+ *
+ * 每次变更只向 {@link RelicJournal} 变更日志追加一条小记录，
+ * 日志超过阈值或玩家退出时再压缩为新的基础文件
+ *
+ * 基础文件经 {@link DurableFileWriter} 原子替换并带校验尾，
+ * 读取时主文件损坏会回退到临时文件或上一代备份（.bak）
+ *
+ * 长期未修改的基础文件可由 {@link #archiveInactive} 打包进 {@link RelicColdArchive}，
+ * 读取时热文件不存在则从归档解码，下次整体写回时重新生成热文件
+ *
+ * 每位玩家另有一个 .ver 版本文件（8 字节版本号），多个服务器实例共享数据目录时：
+ * 读取持有其共享锁，写入持有其排他锁（操作系统文件锁），写入后版本号加一；
+ * {@link #saveProfile(ProfileSnapshot, long)} 发现版本号已被其他实例改变时，
+ * 读取最新数据、重放本实例的变更后整体写回，而不是覆盖对方的写入
  */
-public class RelicInventoryStorage {
+public class RelicInventoryStorage implements RelicProfileStore {
     private final MinecraftRelicSystem plugin;
     private final RelicItemConverter converter;
     
@@ -42,11 +71,31 @@ public class RelicInventoryStorage {
     private static final int WAREHOUSE_START = 5; // 仓库：5-26
     private static final int WAREHOUSE_END = 26;
 
-    // 新版（v3）仓库最大容量
+    // 仓库最大容量
     private static final int MAX_WAREHOUSE_CAPACITY = 2000;
+
+    // 冷归档每批刷盘后再删除热文件的玩家数
+    private static final int ARCHIVE_BATCH = 64;
+
+    // 日志写入失败、需要下次整体重写的玩家
+    private final Set<UUID> compactionRequests = ConcurrentHashMap.newKeySet();
+
+    // 版本冲突后合并写回的次数
+    private final AtomicLong mergedWrites = new AtomicLong();
+
+    private final DurableFileWriter writer;
+    private final RelicFileFormat format;
+    private final RelicQuarantine quarantine;
+    private final RelicColdArchive archive;
+    private final ShardedLayout layout;
     
     public RelicInventoryStorage(MinecraftRelicSystem plugin) {
         this.plugin = plugin;
+        this.quarantine = new RelicQuarantine(plugin);
+        this.writer = new DurableFileWriter(plugin.getLogger());
+        this.format = RelicFileFormat.fromConfig(plugin);
+        this.archive = plugin.getColdArchive();
+        this.layout = plugin.getRelicStorageLayout();
         RelicItemConverter providedConverter = plugin.getRelicItemConverter();
         if (providedConverter == null) {
             throw new IllegalStateException("RelicItemConverter 未初始化，请确保在插件初始化流程中首先创建");
@@ -54,30 +103,24 @@ public class RelicInventoryStorage {
         this.converter = providedConverter;
     }
     
-    // ===== 新版(v3) 存取逻辑：装备位 + 动态仓库（最大2000） =====
+    // ===== v3 读取逻辑（仅兼容旧文件）：装备位 + 动态仓库（最大2000） =====
     private static class StorageData {
         ItemStack[] equipped = new ItemStack[RelicSlot.values().length]; // 仅使用前5个
         List<ItemStack> warehouse = new ArrayList<>();
     }
 
-    private StorageData loadStorageData(Player player) {
+    private StorageData loadStorageData(byte[] bytes) throws IOException {
         StorageData data = new StorageData();
         try {
-            File file = getStorageFile(player.getUniqueId());
-            if (!file.exists()) {
-                return data; // 空数据
-            }
-            byte[] bytes;
-            try (FileInputStream fis = new FileInputStream(file); BufferedInputStream bis = new BufferedInputStream(fis)) {
-                bytes = bis.readAllBytes();
-            }
-
             // 读取版本号（使用Bukkit对象流以正确跳过序列化头）
             int version;
             try (BukkitObjectInputStream ois = new BukkitObjectInputStream(new ByteArrayInputStream(bytes))) {
                 version = ois.readInt();
             }
 
+            if (version < 1 || version > 3) {
+                throw new IOException("未知的存储数据版本: " + version);
+            }
             if (version == 3) {
                 try (BukkitObjectInputStream ois = new BukkitObjectInputStream(new ByteArrayInputStream(bytes))) {
                     ois.readInt(); // consume version
@@ -111,57 +154,26 @@ public class RelicInventoryStorage {
                 }
             }
             return data;
+        } catch (IOException e) {
+            throw e;
         } catch (Exception e) {
-            plugin.getLogger().warning("读取圣遗物存储失败: " + e.getMessage());
-            return data;
+            // 旧格式解码失败（如写坏的文件）必须上报，由调用方换用下一份候选
+            throw new IOException("旧格式存储解码失败: " + e, e);
         }
     }
 
-    private void saveStorageData(Player player, StorageData data) {
-        try {
-            File dataFile = getStorageFile(player.getUniqueId());
-            try (FileOutputStream fos = new FileOutputStream(dataFile);
-                 BufferedOutputStream bos = new BufferedOutputStream(fos);
-                 BukkitObjectOutputStream oos = new BukkitObjectOutputStream(bos)) {
-                // 写入版本
-                oos.writeInt(3);
-                // 写入装备位
-                for (int i = 0; i < RelicSlot.values().length; i++) {
-                    ItemStack it = data.equipped[i];
-                    boolean present = (it != null && !it.getType().isAir());
-                    oos.writeBoolean(present);
-                    if (present) {
-                        oos.writeObject(it);
-                    }
-                }
-                // 写入仓库
-                oos.writeInt(data.warehouse.size());
-                for (ItemStack it : data.warehouse) {
-                    oos.writeObject(it);
-                }
-                oos.flush();
-            }
-        } catch (Exception e) {
-            plugin.getLogger().severe("保存圣遗物存储失败: " + e.getMessage());
-        }
-    }
-    
     /**
      * 保存圣遗物存储到文件
      */
     public void saveRelicInventory(Player player, Inventory inventory) {
         try {
-            File dataFile = getStorageFile(player.getUniqueId());
+            File dataFile = layout.fileForWrite(player.getUniqueId(), ".dat");
             
             // 将Inventory序列化为字节数组（类似末影箱存储机制）
             byte[] inventoryData = serializeInventory(inventory);
             
-            // 写入文件
-            try (FileOutputStream fos = new FileOutputStream(dataFile);
-                 BufferedOutputStream bos = new BufferedOutputStream(fos)) {
-                bos.write(inventoryData);
-                bos.flush();
-            }
+            // 原子替换写入文件
+            writer.write(dataFile, inventoryData);
             
             plugin.getLogger().fine("已保存玩家 " + player.getName() + " 的圣遗物存储数据");
             
@@ -178,17 +190,14 @@ public class RelicInventoryStorage {
         try {
             File dataFile = getStorageFile(player.getUniqueId());
             
-            if (!dataFile.exists()) {
+            List<byte[]> candidates = DurableFileWriter.readCandidates(dataFile, plugin.getLogger());
+            if (candidates.isEmpty()) {
                 // 首次使用，初始化空存储
                 return;
             }
             
             // 读取并反序列化数据
-            byte[] inventoryData;
-            try (FileInputStream fis = new FileInputStream(dataFile);
-                 BufferedInputStream bis = new BufferedInputStream(fis)) {
-                inventoryData = bis.readAllBytes();
-            }
+            byte[] inventoryData = candidates.get(0);
             
             // 反序列化到Inventory
             deserializeInventory(inventoryData, inventory);
@@ -202,14 +211,10 @@ public class RelicInventoryStorage {
     }
     
     /**
-     * 获取存储文件路径
+     * 获取存储文件路径（按 UUID 前缀分片，见 {@link ShardedLayout}）
      */
     private File getStorageFile(UUID playerId) {
-        File storageDir = new File(plugin.getDataFolder(), "relic_storage");
-        if (!storageDir.exists()) {
-            storageDir.mkdirs();
-        }
-        return new File(storageDir, playerId.toString() + ".dat");
+        return layout.file(playerId, ".dat");
     }
     
     /**
@@ -292,192 +297,524 @@ public class RelicInventoryStorage {
     }
     
     /**
-     * 获取已装备的圣遗物
+     * 读取并解码玩家的整份存储（基础文件 + 变更日志），填充到给定档案中
+     *
+     * @return 是否需要整体回写（旧格式、存在被清理的无效条目或日志损坏）
      */
-    public RelicData getEquipped(Player player, RelicSlot slot) {
-        StorageData data = loadStorageData(player);
-        ItemStack item = data.equipped[slot.ordinal()];
-        if (converter.isRelicItem(item)) {
-            return converter.fromItemStack(item);
+    @Override
+    public boolean loadProfile(UUID playerId, PlayerRelicProfile profile) {
+        synchronized (archive.lockFor(playerId)) {
+            // 共享锁：其他实例写到一半的日志不会被当作损坏
+            try (FileChannel ch = openRevision(playerId); FileLock lock = ch.lock(0, Long.MAX_VALUE, true)) {
+                return loadLocked(playerId, profile);
+            } catch (IOException e) {
+                plugin.getLogger().warning("锁定玩家 " + playerId + " 的版本文件失败，直接读取: " + e.getMessage());
+                return loadLocked(playerId, profile);
+            }
         }
-        return null;
     }
-    
+
+    private boolean loadLocked(UUID playerId, PlayerRelicProfile profile) {
+        Boolean base = loadBase(playerId, profile);
+        File journal = getJournalFile(playerId);
+        if (!journal.exists()) {
+            return base != null && base;
+        }
+        if (base == null) {
+            // 基础数据无法解码：日志照常回放用于展示，但不回写
+            try {
+                RelicJournal.replay(journal, profile.getEquipped(), profile.getWarehouse());
+            } catch (IOException e) {
+                plugin.getLogger().warning("读取变更日志失败: " + e.getMessage());
+            }
+            return false;
+        }
+        boolean rewrite = base;
+        try {
+            RelicJournal.ReplayResult result = RelicJournal.replay(journal, profile.getEquipped(), profile.getWarehouse());
+            plugin.getLogger().fine("玩家 " + playerId + " 回放变更日志: 应用 " + result.applied + " 条, 跳过 " + result.skipped + " 条");
+            if (result.corrupted) {
+                plugin.getLogger().warning("玩家 " + playerId + " 的变更日志尾部损坏，已丢弃损坏部分并将重写存储");
+                return true;
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("读取变更日志失败: " + e.getMessage());
+            return true;
+        }
+        return rewrite;
+    }
+
     /**
-     * 装备圣遗物
+     * 读取基础存储文件
+     *
+     * v4 二进制文件直接解码为 RelicData；v1~v3 旧文件经 ItemStack 转换读取，
+     * 并要求调用方回写，使旧文件在下次保存时升级为 v4。
+     * 未带当前校验版本的数据在这里校验一次；无法解码或未通过校验的条目写入隔离区后再重写
+     * 热文件不存在时读取冷归档，并要求回写以重新生成热文件
+     *
+     * @return 是否需要整体回写；基础数据存在但全部无法解码时返回 null（此时绝不回写）
      */
-    public boolean equipRelic(Player player, RelicData relic) {
-        if (relic == null) return false;
-        StorageData data = loadStorageData(player);
-        int idx = relic.getSlot().ordinal();
-
-        // 如果原位置有装备，尝试放入仓库
-        ItemStack oldEquipped = data.equipped[idx];
-        if (converter.isRelicItem(oldEquipped)) {
-            if (data.warehouse.size() >= MAX_WAREHOUSE_CAPACITY) {
-                player.sendMessage("§c装备失败：仓库已满，无法放入原装备");
+    private Boolean loadBase(UUID playerId, PlayerRelicProfile profile) {
+        List<byte[]> candidates = DurableFileWriter.readCandidates(getStorageFile(playerId), plugin.getLogger());
+        if (candidates.isEmpty()) {
+            byte[] archived = readArchived(playerId);
+            if (archived == null) {
                 return false;
             }
-            data.warehouse.add(oldEquipped);
+            // 归档无法解码时不回写：回写会生成空的热文件并丢弃归档记录
+            return loadCandidates(playerId, profile, List.of(archived)) == null ? null : true;
         }
-
-        // 装备新圣遗物
-        data.equipped[idx] = converter.toItemStack(relic);
-
-        // 从仓库中移除同ID（如果存在）
-        data.warehouse.removeIf(it -> {
-            if (!converter.isRelicItem(it)) return false;
-            RelicData rd = converter.fromItemStack(it);
-            return rd != null && rd.getId().equals(relic.getId());
-        });
-
-        saveStorageData(player, data);
-        return true;
+        Boolean rewrite = loadCandidates(playerId, profile, candidates);
+        if (rewrite != null) {
+            dropStaleArchive(playerId);
+        }
+        return rewrite;
     }
-    
+
     /**
-     * 卸下装备
+     * 依次尝试主文件/临时文件/备份，使用第一份能完整解码的数据
+     *
+     * @return 是否需要整体回写；所有候选都无法解码时返回 null（档案保持为空，原始数据已隔离，
+     *         不回写，避免用空档案把仍可能完好的 .bak 轮换掉）
      */
-    public boolean unequipRelic(Player player, RelicSlot slot) {
-        StorageData data = loadStorageData(player);
-        int idx = slot.ordinal();
-        ItemStack equipped = data.equipped[idx];
-        if (!converter.isRelicItem(equipped)) {
-            return false;
+    private Boolean loadCandidates(UUID playerId, PlayerRelicProfile profile, List<byte[]> candidates) {
+        for (int i = 0; i < candidates.size(); i++) {
+            byte[] bytes = candidates.get(i);
+            Boolean rewrite;
+            try {
+                rewrite = RelicBinaryCodec.isBinaryFormat(bytes)
+                        ? loadBinary(playerId, profile, bytes)
+                        : loadLegacy(playerId, profile, bytes);
+            } catch (IOException e) {
+                plugin.getLogger().warning("读取玩家 " + playerId + " 的圣遗物存储失败（候选 " + (i + 1) + "/" + candidates.size() + "）: " + e.getMessage());
+                profile.getEquipped().clear();
+                profile.getWarehouse().clear();
+                continue;
+            }
+            if (i > 0) {
+                plugin.getLogger().warning("玩家 " + playerId + " 的圣遗物存储主文件损坏，已回退到上一代数据");
+                rewrite = true;
+            }
+            return rewrite;
         }
-        if (data.warehouse.size() >= MAX_WAREHOUSE_CAPACITY) {
-            player.sendMessage("§c卸下失败：仓库已满");
-            return false;
+        plugin.getLogger().severe("玩家 " + playerId + " 的圣遗物存储全部无法解码，原始数据已隔离，本次以空档案加载且不回写");
+        for (byte[] bytes : candidates) {
+            quarantine.raw(playerId, "unreadable", bytes);
         }
-        data.warehouse.add(equipped);
-        data.equipped[idx] = null;
-        saveStorageData(player, data);
-        return true;
+        return null;
     }
-    
+
+    private boolean loadBinary(UUID playerId, PlayerRelicProfile profile, byte[] bytes) throws IOException {
+        RelicBinaryCodec.Decoded decoded = RelicBinaryCodec.decode(bytes);
+        profile.getEquipped().putAll(decoded.equipped);
+        profile.getWarehouse().addAll(decoded.warehouse);
+        boolean rewrite = false;
+        if (decoded.dropped > 0) {
+            plugin.getLogger().warning("玩家 " + playerId + " 的圣遗物存储中有 " + decoded.dropped + " 条无法解码的数据，已隔离");
+            quarantine.raw(playerId, "undecodable", bytes);
+            rewrite = true;
+        }
+        if (decoded.needsRewrite()) {
+            rewrite = true;
+        }
+        if (!decoded.isValidated(RelicValidator.stamp(RelicValidator.substatLimit(plugin)))
+                && quarantine.validate(playerId, profile.getEquipped(), profile.getWarehouse())) {
+            rewrite = true;
+        }
+        return rewrite;
+    }
+
     /**
-     * 获取仓库中的所有圣遗物
+     * 旧格式：经 ItemStack 解码，回写时升级为 v4
      */
-    public List<RelicData> getWarehouse(Player player) {
-        StorageData data = loadStorageData(player);
-        List<RelicData> list = new ArrayList<>();
+    private boolean loadLegacy(UUID playerId, PlayerRelicProfile profile, byte[] bytes) throws IOException {
+        StorageData data = loadStorageData(bytes);
+        int dropped = 0;
+        RelicSlot[] slots = RelicSlot.values();
+        for (int i = 0; i < slots.length; i++) {
+            ItemStack it = data.equipped[i];
+            if (it == null || it.getType().isAir()) continue;
+            RelicData rd = converter.fromItemStack(it);
+            if (rd == null) {
+                dropped++;
+                plugin.getLogger().warning("玩家 " + playerId + " 圣遗物装备中有无效数据 (槽位" + i + ")");
+                continue;
+            }
+            profile.getEquipped().put(slots[i], rd);
+        }
         int idx = 0;
         for (ItemStack it : data.warehouse) {
             if (it == null || it.getType().isAir()) { idx++; continue; }
-            if (!converter.isRelicItem(it)) { idx++; continue; }
             RelicData rd = converter.fromItemStack(it);
             if (rd != null) {
-                list.add(rd);
+                profile.getWarehouse().add(rd);
             } else {
-                plugin.getLogger().fine("忽略无效仓库条目 index=" + idx + " player=" + player.getName());
+                dropped++;
+                plugin.getLogger().fine("忽略无效仓库条目 index=" + idx + " player=" + playerId);
             }
             idx++;
         }
-        return list;
+        if (dropped > 0) {
+            plugin.getLogger().warning("玩家 " + playerId + " 的圣遗物存储中有 " + dropped + " 条无效数据，已隔离");
+            quarantine.raw(playerId, "undecodable-v3", bytes);
+        }
+        quarantine.validate(playerId, profile.getEquipped(), profile.getWarehouse());
+        plugin.getLogger().fine("玩家 " + playerId + " 的圣遗物存储为旧格式，将在下次保存时升级为 v4");
+        return true;
     }
-    
+
     /**
-     * 获取指定部位的仓库圣遗物
+     * 读取冷归档中的基础文件内容，归档记录损坏时整体隔离并丢弃该记录
      */
-    public List<RelicData> getWarehouseBySlot(Player player, RelicSlot slot) {
-        return getWarehouse(player).stream()
-                .filter(r -> r.getSlot() == slot)
-                .sorted((a, b) -> Integer.compare(b.getLevel(), a.getLevel()))
-                .toList();
+    private byte[] readArchived(UUID playerId) {
+        if (!archive.contains(playerId)) {
+            return null;
+        }
+        try {
+            byte[] bytes = archive.read(playerId);
+            plugin.getLogger().info("玩家 " + playerId + " 的圣遗物数据从冷归档读取，将在下次保存时还原到 relic_storage/");
+            return bytes;
+        } catch (IOException e) {
+            plugin.getLogger().severe("读取玩家 " + playerId + " 的冷归档失败: " + e.getMessage() + "，原始数据已隔离");
+            quarantine.raw(playerId, "archive-corrupt", archive.readStored(playerId));
+            removeArchived(playerId);
+            return null;
+        }
     }
-    
+
     /**
-     * 添加圣遗物到仓库
+     * 热文件存在时归档记录已过期（归档后又写入过，或还原后尚未丢弃），以热文件为准
      */
-    public boolean addToWarehouse(Player player, RelicData relic) {
-        StorageData data = loadStorageData(player);
-        if (relic == null) return false;
-        if (data.warehouse.size() >= MAX_WAREHOUSE_CAPACITY) return false;
-        data.warehouse.add(converter.toItemStack(relic));
-        saveStorageData(player, data);
-        return true;
+    private void dropStaleArchive(UUID playerId) {
+        if (archive.contains(playerId)) {
+            removeArchived(playerId);
+        }
     }
-    
-    private boolean addToWarehouse(Player player, RelicData relic, Inventory relicInv) {
-        // 仅用于旧逻辑兼容（不再使用）。
-        return false;
+
+    private void removeArchived(UUID playerId) {
+        try {
+            archive.remove(playerId);
+        } catch (IOException e) {
+            plugin.getLogger().warning("丢弃玩家 " + playerId + " 的冷归档记录失败: " + e.getMessage());
+        }
     }
-    
+
     /**
-     * 从仓库移除圣遗物
+     * 把超过 cutoffMillis 未修改、且没有变更日志的基础文件打包进冷归档，热目录只保留活跃玩家
+     * 在归档任务的异步线程调用；每批记录刷盘后才删除对应的热文件
+     *
+     * @param active 仍在使用中的玩家（在线、缓存中），跳过
+     * @return 归档的玩家数
      */
-    public boolean removeFromWarehouse(Player player, RelicData relic) {
-        StorageData data = loadStorageData(player);
-        if (relic == null) return false;
-        boolean removed = data.warehouse.removeIf(it -> {
-            if (!converter.isRelicItem(it)) return false;
-            RelicData rd = converter.fromItemStack(it);
-            return rd != null && rd.getId().equals(relic.getId());
-        });
-        if (removed) saveStorageData(player, data);
-        return removed;
+    public int archiveInactive(long cutoffMillis, Predicate<UUID> active) {
+        List<File> files = layout.list(".dat");
+        Map<UUID, Long> pending = new LinkedHashMap<>();
+        int archived = 0;
+        for (File file : files) {
+            long modified = file.lastModified();
+            if (modified >= cutoffMillis) continue;
+            UUID playerId = ShardedLayout.playerIdOf(file);
+            if (playerId == null || !file.equals(getStorageFile(playerId))) continue;
+            if (active.test(playerId)) continue;
+            synchronized (archive.lockFor(playerId)) {
+                if (getJournalFile(playerId).exists() || file.lastModified() != modified) continue;
+                List<byte[]> candidates = DurableFileWriter.readCandidates(file, plugin.getLogger());
+                if (candidates.isEmpty()) continue;
+                try {
+                    archive.add(playerId, candidates.get(0));
+                    pending.put(playerId, modified);
+                } catch (IOException e) {
+                    plugin.getLogger().warning("归档玩家 " + playerId + " 的圣遗物存储失败: " + e.getMessage());
+                    break;
+                }
+            }
+            if (pending.size() >= ARCHIVE_BATCH) {
+                archived += commitArchived(pending);
+            }
+        }
+        archived += commitArchived(pending);
+        archive.checkpoint();
+        return archived;
     }
-    
-    private boolean removeFromWarehouse(Player player, RelicData relic, Inventory relicInv) {
-        // 仅用于旧逻辑兼容（不再使用）。
-        return false;
+
+    /**
+     * 归档记录刷盘后删除热文件；期间又被写入的玩家以热文件为准，丢弃刚写入的归档记录
+     */
+    private int commitArchived(Map<UUID, Long> pending) {
+        if (pending.isEmpty()) return 0;
+        try {
+            archive.sync();
+        } catch (IOException e) {
+            // 热文件保留，归档记录在下次读取时按过期丢弃
+            plugin.getLogger().warning("冷归档刷盘失败，本批热文件保留: " + e.getMessage());
+            pending.clear();
+            return 0;
+        }
+        int committed = 0;
+        for (Map.Entry<UUID, Long> e : pending.entrySet()) {
+            UUID playerId = e.getKey();
+            synchronized (archive.lockFor(playerId)) {
+                File base = getStorageFile(playerId);
+                if (base.lastModified() != e.getValue() || getJournalFile(playerId).exists()) {
+                    dropStaleArchive(playerId);
+                    continue;
+                }
+                try {
+                    DurableFileWriter.delete(base);
+                    committed++;
+                } catch (IOException ex) {
+                    plugin.getLogger().warning("删除已归档的存储文件失败: " + base.getName() + " - " + ex.getMessage());
+                }
+            }
+        }
+        pending.clear();
+        return committed;
     }
-    
+
     /**
-     * 获取仓库可用空间
+     * 读取计数摘要：日志为空时只读基础文件开头的头部；
+     * 有未压缩日志（计数可能已变化）或旧格式文件时完整读取；只在冷归档中的玩家读取归档记录的头部
      */
-    public int getWarehouseAvailableSpace(Player player) {
-        StorageData data = loadStorageData(player);
-        return Math.max(0, MAX_WAREHOUSE_CAPACITY - data.warehouse.size());
+    @Override
+    public ProfileSummary readSummary(UUID playerId) {
+        File base = getStorageFile(playerId);
+        if (!getJournalFile(playerId).exists()) {
+            byte[] prefix = base.exists() ? readPrefix(base) : null;
+            if (prefix == null && archive.contains(playerId)) {
+                try {
+                    prefix = archive.read(playerId);
+                } catch (IOException e) {
+                    prefix = null;
+                }
+            }
+            ProfileSummary summary = RelicBinaryCodec.readSummary(prefix);
+            if (summary != null) {
+                return summary;
+            }
+        }
+        return RelicProfileStore.super.readSummary(playerId);
     }
-    
+
+    private byte[] readPrefix(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            byte[] prefix = new byte[(int) Math.min(raf.length(), RelicBinaryCodec.SUMMARY_PREFIX_BYTES)];
+            raf.readFully(prefix);
+            return prefix;
+        } catch (IOException e) {
+            plugin.getLogger().warning("读取存储文件头部失败: " + file.getName() + " - " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
-     * 获取仓库总容量
+     * 写入档案快照，由保存管线在后台线程调用
+     * - 完整快照：重写基础文件（v4 二进制格式）并删除日志，即压缩
+     * - 日志记录：追加到变更日志
+     * 写入失败时登记压缩请求，下次保存改为完整重写
      */
-    public int getWarehouseCapacity() {
-        return MAX_WAREHOUSE_CAPACITY;
+    @Override
+    public void saveProfile(ProfileSnapshot snapshot) throws IOException {
+        saveProfile(snapshot, -1);
     }
-    
+
     /**
-     * 清理无效的圣遗物数据
+     * 在版本文件的排他锁内写入：版本号与预期不同时改为合并写回，写入后版本号加一
      */
-    public void cleanupInvalidRelics(Player player) {
-        StorageData data = loadStorageData(player);
-        boolean changed = false;
-        // 校验装备位
-        for (int i = 0; i < RelicSlot.values().length; i++) {
-            ItemStack it = data.equipped[i];
-            if (it != null && converter.isRelicItem(it)) {
-                RelicData rd = converter.fromItemStack(it);
-                if (rd == null) {
-                    data.equipped[i] = null;
-                    changed = true;
-                    plugin.getLogger().warning("清理了玩家 " + player.getName() + " 圣遗物装备中的无效数据 (槽位" + i + ")");
+    @Override
+    public long saveProfile(ProfileSnapshot snapshot, long expectedRevision) throws IOException {
+        UUID playerId = snapshot.getPlayerId();
+        synchronized (archive.lockFor(playerId)) {
+            try (FileChannel ch = openRevision(playerId); FileLock lock = ch.lock()) {
+                long revision = readRevision(ch);
+                try {
+                    if (expectedRevision >= 0 && revision != expectedRevision) {
+                        writeMerged(playerId, snapshot, expectedRevision, revision);
+                    } else {
+                        writeSnapshot(playerId, snapshot);
+                    }
+                } catch (IOException e) {
+                    compactionRequests.add(playerId);
+                    throw e;
                 }
+                writeRevision(ch, revision + 1);
+                return revision + 1;
             }
         }
-        // 校验仓库
-        int before = data.warehouse.size();
-        data.warehouse.removeIf(it -> converter.isRelicItem(it) && converter.fromItemStack(it) == null);
-        if (before != data.warehouse.size()) changed = true;
-        if (changed) saveStorageData(player, data);
     }
-    
+
+    private void writeSnapshot(UUID playerId, ProfileSnapshot snapshot) throws IOException {
+        File journal = layout.fileForWrite(playerId, ".journal");
+        if (snapshot.hasFullData()) {
+            writeBase(playerId, snapshot.getEquipped(), snapshot.getWarehouse());
+        }
+        if (!snapshot.getJournalOps().isEmpty()) {
+            RelicJournal.append(journal, snapshot.getJournalOps());
+            writer.markDirty(journal);
+        }
+    }
+
     /**
-     * 获取存储统计信息
+     * 版本冲突：以存储中的最新数据为准，逐件重放本快照中尚未写入的变更后整体写回
      */
-    public String getStorageStats(Player player) {
-        StorageData data = loadStorageData(player);
-        int equipped = 0;
-        for (int i = 0; i < RelicSlot.values().length; i++) {
-            ItemStack it = data.equipped[i];
-            if (it != null && !it.getType().isAir()) equipped++;
+    private void writeMerged(UUID playerId, ProfileSnapshot snapshot, long expected, long actual) throws IOException {
+        PlayerRelicProfile merged = new PlayerRelicProfile(playerId);
+        loadLocked(playerId, merged);
+        int applied = RelicJournal.applyAll(snapshot.getPendingOps(), merged.getEquipped(), merged.getWarehouse());
+        writeBase(playerId, merged.getEquipped(), merged.getWarehouse());
+        mergedWrites.incrementAndGet();
+        plugin.getLogger().info("玩家 " + playerId + " 的存储已被其他实例更新（版本 " + expected + " → " + actual
+                + "），已合并本实例的 " + applied + " 项变更后写回");
+    }
+
+    private void writeBase(UUID playerId, Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse) throws IOException {
+        byte[] bytes = RelicBinaryCodec.encode(equipped, warehouse, format, RelicValidator.substatLimit(plugin));
+        writer.write(layout.fileForWrite(playerId, ".dat"), bytes);
+        // 基础文件已包含全部变更，日志可以丢弃（日志记录可重复回放，中途崩溃也安全）
+        Files.deleteIfExists(layout.file(playerId, ".journal").toPath());
+        // 从冷归档读取的玩家已还原为热文件
+        dropStaleArchive(playerId);
+    }
+
+    /**
+     * 用备份快照中的文件替换该玩家的基础文件与日志（调用方持有保存管线的玩家锁），版本号加一
+     *
+     * @param journal 快照中的日志文件，为 null 时删除当前日志
+     */
+    public void restoreFiles(UUID playerId, File dat, File journal) throws IOException {
+        synchronized (archive.lockFor(playerId)) {
+            try (FileChannel ch = openRevision(playerId); FileLock lock = ch.lock()) {
+                File target = layout.fileForWrite(playerId, ".dat");
+                RelicBackupService.copyReplace(dat.toPath(), target.toPath());
+                // 旧的 .bak 不再代表恢复前的上一版本，避免基础文件损坏时回退到恢复前的数据
+                Files.deleteIfExists(new File(target.getPath() + ".bak").toPath());
+                writer.markDirty(target);
+                File journalTarget = layout.fileForWrite(playerId, ".journal");
+                if (journal != null) {
+                    RelicBackupService.copyReplace(journal.toPath(), journalTarget.toPath());
+                    writer.markDirty(journalTarget);
+                } else {
+                    Files.deleteIfExists(journalTarget.toPath());
+                }
+                compactionRequests.remove(playerId);
+                dropStaleArchive(playerId);
+                writeRevision(ch, readRevision(ch) + 1);
+            }
         }
-        int warehouseUsed = data.warehouse.size();
-        int warehouseCapacity = MAX_WAREHOUSE_CAPACITY;
-        int warehouseAvailable = Math.max(0, warehouseCapacity - warehouseUsed);
-        return String.format("装备: %d/5, 仓库: %d/%d (可用: %d)", 
-                equipped, warehouseUsed, warehouseCapacity, warehouseAvailable);
+    }
+
+    /**
+     * 版本文件中的当前版本号（共享锁内读取）
+     */
+    @Override
+    public long getRevision(UUID playerId) {
+        synchronized (archive.lockFor(playerId)) {
+            if (!layout.file(playerId, ".ver").exists()) {
+                return 0;
+            }
+            try (FileChannel ch = openRevision(playerId); FileLock lock = ch.lock(0, Long.MAX_VALUE, true)) {
+                return readRevision(ch);
+            } catch (IOException e) {
+                plugin.getLogger().warning("读取玩家 " + playerId + " 的版本号失败: " + e.getMessage());
+                return -1;
+            }
+        }
+    }
+
+    private FileChannel openRevision(UUID playerId) throws IOException {
+        return FileChannel.open(layout.fileForWrite(playerId, ".ver").toPath(),
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+    }
+
+    private static long readRevision(FileChannel ch) throws IOException {
+        if (ch.size() < Long.BYTES) return 0;
+        ByteBuffer buf = ByteBuffer.allocate(Long.BYTES);
+        while (buf.hasRemaining() && ch.read(buf, buf.position()) >= 0) {
+            // 读满 8 字节
+        }
+        return buf.getLong(0);
+    }
+
+    private void writeRevision(FileChannel ch, long revision) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(Long.BYTES).putLong(0, revision);
+        while (buf.hasRemaining()) {
+            ch.write(buf, buf.position());
+        }
+    }
+
+    /**
+     * 取出并清除该玩家的压缩请求（日志写入失败后需要整体重写）
+     */
+    @Override
+    public boolean takeCompactionRequest(UUID playerId) {
+        return compactionRequests.remove(playerId);
+    }
+
+    /**
+     * 变更日志当前大小（字节）
+     */
+    @Override
+    public long getJournalSize(UUID playerId) {
+        File journal = getJournalFile(playerId);
+        return journal.exists() ? journal.length() : 0;
+    }
+
+    /**
+     * 该玩家是否存在逐文件存储数据（基础文件或日志）
+     */
+    public boolean hasData(UUID playerId) {
+        return DurableFileWriter.exists(getStorageFile(playerId)) || getJournalFile(playerId).exists()
+                || archive.contains(playerId);
+    }
+
+    @Override
+    public boolean contains(UUID playerId) {
+        return hasData(playerId);
+    }
+
+    /**
+     * relic_storage/ 下的基础文件与日志，加上冷归档中的玩家
+     */
+    @Override
+    public Set<UUID> playerIds() {
+        Set<UUID> ids = new HashSet<>(archive.playerIds());
+        ids.addAll(layout.playerIds(".dat", ".journal"));
+        return ids;
+    }
+
+    private File getJournalFile(UUID playerId) {
+        return layout.file(playerId, ".journal");
+    }
+
+    public ShardedLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * 将自上次同步以来写过的基础文件与日志一次性刷盘
+     */
+    @Override
+    public int sync() {
+        return writer.sync();
+    }
+
+    @Override
+    public void close() {
+        sync();
+    }
+
+    @Override
+    public List<String> getStatusLines() {
+        List<String> lines = new ArrayList<>(archive.getStatusLines());
+        lines.add("§7版本冲突合并写回: §f" + mergedWrites.get() + " §7次");
+        return lines;
+    }
+
+    /**
+     * 获取仓库总容量
+     */
+    @Override
+    public int getWarehouseCapacity() {
+        return MAX_WAREHOUSE_CAPACITY;
     }
 }
 
@@ -0,0 +1,306 @@
+package com.salteddoubao.relicsystem.storage;
+
+import com.salteddoubao.relicsystem.relic.RelicData;
+import com.salteddoubao.relicsystem.relic.RelicSlot;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * 圣遗物仓库变更日志（每位玩家一个 .journal 文件，只追加）
+ *
+ * <pre>
+ * 文件:  "MRJ1" | 记录...
+ * 记录:  长度(int) | 操作(byte) + 参数 | CRC32(int)
+ * </pre>
+ * 每条操作都按圣遗物ID描述“目标状态”，对已包含该变更的基础文件重复回放结果不变，
+ * 因此压缩时先写基础文件、后删日志，中途崩溃也不会重复或丢失数据。
+ * 读取时遇到截断或校验失败的记录即停止（通常为写入中途断电的尾部）。
+ */
+public final class RelicJournal {
+    public static final byte[] MAGIC = {'M', 'R', 'J', '1'};
+
+    public static final byte OP_ADD = 1;      // 放入仓库（完整记录）
+    public static final byte OP_REMOVE = 2;   // 从仓库移除（ID）
+    public static final byte OP_EQUIP = 3;    // 装备（完整记录），原装备回到仓库
+    public static final byte OP_UNEQUIP = 4;  // 卸下（部位 + ID）到仓库
+    // 5、6 预留给锁定与升级（插件目前没有修改已有圣遗物的操作），回放时遇到未知操作按跳过处理
+
+    /** 每条记录除操作内容外的固定开销：长度 + CRC */
+    public static final int RECORD_OVERHEAD = 8;
+
+    private RelicJournal() {}
+
+    /**
+     * 回放结果
+     */
+    public static final class ReplayResult {
+        public int applied;
+        public int skipped;
+        /** 是否遇到截断或损坏的记录 */
+        public boolean corrupted;
+    }
+
+    /**
+     * 解码后的单条操作（供按行存储的实现直接应用，不经过内存档案）
+     */
+    public static final class Op {
+        public final byte type;
+        /** ADD / EQUIP 的完整记录 */
+        public final RelicData relic;
+        /** 目标圣遗物ID（所有操作都有） */
+        public final UUID relicId;
+        /** UNEQUIP 的部位 */
+        public final RelicSlot slot;
+
+        private Op(byte type, RelicData relic, UUID relicId, RelicSlot slot) {
+            this.type = type;
+            this.relic = relic;
+            this.relicId = relicId;
+            this.slot = slot;
+        }
+    }
+
+    // ===== 编码（主线程，变更发生时调用） =====
+
+    public static byte[] add(RelicData relic) { return recordOp(OP_ADD, relic); }
+    public static byte[] equip(RelicData relic) { return recordOp(OP_EQUIP, relic); }
+
+    public static byte[] remove(UUID relicId) {
+        return encode(out -> {
+            out.writeByte(OP_REMOVE);
+            writeId(out, relicId);
+        });
+    }
+
+    public static byte[] unequip(RelicSlot slot, UUID relicId) {
+        return encode(out -> {
+            out.writeByte(OP_UNEQUIP);
+            out.writeByte(slot.ordinal());
+            writeId(out, relicId);
+        });
+    }
+
+    private static byte[] recordOp(byte op, RelicData relic) {
+        return encode(out -> {
+            out.writeByte(op);
+            RelicBinaryCodec.writeStandaloneRecord(out, relic);
+        });
+    }
+
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] encode(Body body) {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(baos);
+            body.write(out);
+            out.flush();
+            return baos.toByteArray();
+        } catch (IOException e) {
+            // 写入内存流不会失败
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeId(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    // ===== 文件读写（保存线程） =====
+
+    /**
+     * 把操作编码为带长度与校验的日志记录（不含文件魔数）
+     */
+    public static byte[] frame(List<byte[]> ops) {
+        int size = 0;
+        for (byte[] op : ops) size += op.length + RECORD_OVERHEAD;
+        byte[] out = new byte[size];
+        CRC32 crc = new CRC32();
+        int pos = 0;
+        for (byte[] op : ops) {
+            crc.reset();
+            crc.update(op, 0, op.length);
+            writeInt(out, pos, op.length);
+            System.arraycopy(op, 0, out, pos + 4, op.length);
+            writeInt(out, pos + 4 + op.length, (int) crc.getValue());
+            pos += op.length + RECORD_OVERHEAD;
+        }
+        return out;
+    }
+
+    /**
+     * 追加记录到日志文件
+     */
+    public static void append(File file, List<byte[]> ops) throws IOException {
+        if (ops.isEmpty()) return;
+        boolean fresh = !file.exists() || file.length() == 0;
+        try (FileOutputStream fos = new FileOutputStream(file, true);
+             BufferedOutputStream out = new BufferedOutputStream(fos)) {
+            if (fresh) {
+                out.write(MAGIC);
+            }
+            out.write(frame(ops));
+            out.flush();
+        }
+    }
+
+    /**
+     * 将日志文件回放到给定的装备/仓库数据上
+     */
+    public static ReplayResult replay(File file, Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse) throws IOException {
+        if (!file.exists()) return new ReplayResult();
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        if (bytes.length == 0) return new ReplayResult();
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes.length <= i || bytes[i] != MAGIC[i]) {
+                ReplayResult result = new ReplayResult();
+                result.corrupted = true;
+                return result;
+            }
+        }
+        return replay(bytes, MAGIC.length, bytes.length, equipped, warehouse);
+    }
+
+    /**
+     * 回放 [from, to) 区间内的日志记录（不含文件魔数）
+     */
+    public static ReplayResult replay(byte[] bytes, int from, int to, Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse) throws IOException {
+        ReplayResult result = new ReplayResult();
+        CRC32 crc = new CRC32();
+        int pos = from;
+        while (pos < to) {
+            if (to - pos < 4) { result.corrupted = true; break; }
+            int len = readInt(bytes, pos);
+            if (len <= 0 || to - pos - 4 < len + 4) { result.corrupted = true; break; }
+            crc.reset();
+            crc.update(bytes, pos + 4, len);
+            if ((int) crc.getValue() != readInt(bytes, pos + 4 + len)) { result.corrupted = true; break; }
+            if (apply(new DataInputStream(new ByteArrayInputStream(bytes, pos + 4, len)), equipped, warehouse)) {
+                result.applied++;
+            } else {
+                result.skipped++;
+            }
+            pos += len + RECORD_OVERHEAD;
+        }
+        return result;
+    }
+
+    /**
+     * 把内存中的操作记录按顺序应用到给定的装备/仓库数据上（版本冲突合并时重放本实例的变更）
+     *
+     * @return 实际生效的记录数
+     */
+    public static int applyAll(List<byte[]> ops, Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse) throws IOException {
+        if (ops.isEmpty()) return 0;
+        byte[] framed = frame(ops);
+        return replay(framed, 0, framed.length, equipped, warehouse).applied;
+    }
+
+    /**
+     * 解码单条操作（不含长度与校验），无法识别时返回 null
+     */
+    public static Op decode(byte[] op) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(op));
+        byte type = in.readByte();
+        switch (type) {
+            case OP_ADD:
+            case OP_EQUIP: {
+                RelicData relic = RelicBinaryCodec.readStandaloneRecord(in);
+                return relic == null ? null : new Op(type, relic, relic.getId(), relic.getSlot());
+            }
+            case OP_REMOVE:
+                return new Op(type, null, readId(in), null);
+            case OP_UNEQUIP: {
+                int slotOrd = in.readUnsignedByte();
+                UUID id = readId(in);
+                if (slotOrd >= RelicSlot.values().length) return null;
+                return new Op(type, null, id, RelicSlot.values()[slotOrd]);
+            }
+            default:
+                return null;
+        }
+    }
+
+    private static boolean apply(DataInputStream in, Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse) throws IOException {
+        byte op = in.readByte();
+        switch (op) {
+            case OP_ADD: {
+                RelicData relic = RelicBinaryCodec.readStandaloneRecord(in);
+                if (relic == null || contains(equipped, warehouse, relic.getId())) return false;
+                warehouse.add(relic);
+                return true;
+            }
+            case OP_REMOVE: {
+                UUID id = readId(in);
+                return warehouse.removeIf(r -> r.getId().equals(id));
+            }
+            case OP_EQUIP: {
+                RelicData relic = RelicBinaryCodec.readStandaloneRecord(in);
+                if (relic == null) return false;
+                warehouse.removeIf(r -> r.getId().equals(relic.getId()));
+                RelicData old = equipped.put(relic.getSlot(), relic);
+                if (old != null && !old.getId().equals(relic.getId())) {
+                    warehouse.add(old);
+                }
+                return true;
+            }
+            case OP_UNEQUIP: {
+                int slotOrd = in.readUnsignedByte();
+                UUID id = readId(in);
+                if (slotOrd >= RelicSlot.values().length) return false;
+                RelicSlot slot = RelicSlot.values()[slotOrd];
+                RelicData current = equipped.get(slot);
+                if (current == null || !current.getId().equals(id)) return false;
+                equipped.remove(slot);
+                warehouse.add(current);
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+
+    private static boolean contains(Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse, UUID id) {
+        return find(equipped, warehouse, id) != null;
+    }
+
+    private static RelicData find(Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse, UUID id) {
+        for (RelicData r : equipped.values()) {
+            if (r.getId().equals(id)) return r;
+        }
+        for (RelicData r : warehouse) {
+            if (r.getId().equals(id)) return r;
+        }
+        return null;
+    }
+
+    private static UUID readId(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writeInt(byte[] b, int pos, int v) {
+        b[pos] = (byte) (v >>> 24);
+        b[pos + 1] = (byte) (v >>> 16);
+        b[pos + 2] = (byte) (v >>> 8);
+        b[pos + 3] = (byte) v;
+    }
+
+    private static int readInt(byte[] b, int pos) {
+        return ((b[pos] & 0xff) << 24) | ((b[pos + 1] & 0xff) << 16) | ((b[pos + 2] & 0xff) << 8) | (b[pos + 3] & 0xff);
+    }
+}
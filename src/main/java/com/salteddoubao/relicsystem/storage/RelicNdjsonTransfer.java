@@ -0,0 +1,392 @@
+package com.salteddoubao.relicsystem.storage;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import com.salteddoubao.relicsystem.MinecraftRelicSystem;
+import com.salteddoubao.relicsystem.relic.PlayerRelicProfile;
+import com.salteddoubao.relicsystem.relic.RelicData;
+import com.salteddoubao.relicsystem.relic.RelicSlot;
+import com.salteddoubao.relicsystem.util.RelicIO;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 全量圣遗物数据的 NDJSON 导出/导入（exports/ 目录，文件名以 .gz 结尾时使用 gzip）
+ *
+ * 每行一位玩家，圣遗物字段与 {@link RelicIO#serializeRelic} 相同：
+ * <pre>
+ * {"player":"uuid","equipped":[{"id":...,"setId":...,"slot":"FLOWER",...}],"warehouse":[...]}
+ * </pre>
+ *
+ * - 导出：多个工作线程并行读取、解码并编码玩家档案，经有界队列交给单个写线程顺序写出，
+ *   同时在内存中的只有队列里的若干行，与玩家/圣遗物总数无关
+ * - 导入：逐行读取，每位玩家经 {@link IRelicProfileManager#importProfile} 交给保存管线写入；
+ *   每 batch_size 位玩家等待保存管线写完一次，内存中最多一批档案
+ * - 在线玩家在导入时跳过；已有数据的玩家默认跳过，指定 overwrite 时整体替换
+ */
+public class RelicNdjsonTransfer {
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+    private static final int QUEUE_LINES = 1024;
+    private static final int LOG_EVERY = 5000;
+
+    private final MinecraftRelicSystem plugin;
+    private final IRelicProfileManager manager;
+    private final File exportDir;
+    private final int threads;
+    private final int batchSize;
+
+    public RelicNdjsonTransfer(MinecraftRelicSystem plugin) {
+        this.plugin = plugin;
+        this.manager = plugin.getRelicProfileManager();
+        this.exportDir = new File(plugin.getDataFolder(), "exports");
+        int configured = plugin.getConfig().getInt("relic.transfer.threads", 0);
+        this.threads = configured > 0 ? configured : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("relic.transfer.batch_size", 200));
+    }
+
+    public static boolean isRunning() {
+        return RUNNING.get();
+    }
+
+    /**
+     * exports/ 下的文件（只取文件名部分，不允许跳出该目录）
+     */
+    public File resolve(String name) {
+        return new File(exportDir, new File(name).getName());
+    }
+
+    // ===== 导出 =====
+
+    /**
+     * 导出全部玩家（在异步线程调用）
+     *
+     * @return 结果描述
+     */
+    public String exportAll(File target) {
+        if (!RUNNING.compareAndSet(false, true)) {
+            return "§c已有导出/导入任务正在进行";
+        }
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            Set<UUID> ids = manager.storedPlayerIds();
+            if (ids.isEmpty()) {
+                return "§c当前存储模式没有可导出的玩家数据";
+            }
+            exportDir.mkdirs();
+            File tmp = new File(target.getPath() + ".tmp");
+            Iterator<UUID> source = ids.iterator();
+            BlockingQueue<String> lines = new ArrayBlockingQueue<>(QUEUE_LINES);
+            CountDownLatch done = new CountDownLatch(threads);
+            AtomicLong relics = new AtomicLong();
+            AtomicInteger failed = new AtomicInteger();
+            for (int i = 0; i < threads; i++) {
+                workers.execute(() -> {
+                    try {
+                        UUID id;
+                        while ((id = next(source)) != null) {
+                            try {
+                                PlayerRelicProfile profile = new PlayerRelicProfile(id);
+                                manager.loadStored(id, profile);
+                                relics.addAndGet(profile.getEquipped().size() + profile.getWarehouse().size());
+                                lines.put(encode(profile));
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                return;
+                            } catch (Exception e) {
+                                failed.incrementAndGet();
+                                plugin.getLogger().warning("导出玩家 " + id + " 失败: " + e.getMessage());
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            int written = 0;
+            try (Writer out = openWriter(tmp)) {
+                while (done.getCount() > 0 || !lines.isEmpty()) {
+                    String line = lines.poll(100, TimeUnit.MILLISECONDS);
+                    if (line == null) continue;
+                    out.write(line);
+                    out.write('\n');
+                    if (++written % LOG_EVERY == 0) {
+                        plugin.getLogger().info("导出进度: " + written + "/" + ids.size() + " 位玩家");
+                    }
+                }
+            }
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            String result = String.format("§a导出完成: %d 位玩家, %d 件圣遗物, 失败 %d, 耗时 %.1fs → exports/%s",
+                    written, relics.get(), failed.get(), (System.nanoTime() - start) / 1e9, target.getName());
+            plugin.getLogger().info(result.substring(2));
+            return result;
+        } catch (IOException e) {
+            plugin.getLogger().warning("导出失败: " + e.getMessage());
+            return "§c导出失败: " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "§c导出被中断";
+        } finally {
+            workers.shutdownNow();
+            RUNNING.set(false);
+        }
+    }
+
+    private static UUID next(Iterator<UUID> source) {
+        synchronized (source) {
+            return source.hasNext() ? source.next() : null;
+        }
+    }
+
+    /**
+     * 一位玩家编码为一行 JSON（工作线程调用）
+     */
+    static String encode(PlayerRelicProfile profile) throws IOException {
+        StringWriter buf = new StringWriter();
+        try (JsonWriter json = new JsonWriter(buf)) {
+            json.beginObject();
+            json.name("player").value(profile.getPlayerId().toString());
+            json.name("equipped").beginArray();
+            for (RelicData relic : profile.getEquipped().values()) {
+                if (relic != null) writeValue(json, RelicIO.serializeRelic(relic));
+            }
+            json.endArray();
+            json.name("warehouse").beginArray();
+            for (RelicData relic : profile.getWarehouse()) {
+                writeValue(json, RelicIO.serializeRelic(relic));
+            }
+            json.endArray();
+            json.endObject();
+        }
+        return buf.toString();
+    }
+
+    private static void writeValue(JsonWriter json, Object value) throws IOException {
+        if (value instanceof Map<?, ?> map) {
+            json.beginObject();
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                json.name(String.valueOf(e.getKey()));
+                writeValue(json, e.getValue());
+            }
+            json.endObject();
+        } else if (value instanceof List<?> list) {
+            json.beginArray();
+            for (Object o : list) {
+                writeValue(json, o);
+            }
+            json.endArray();
+        } else if (value instanceof Number n) {
+            json.value(n);
+        } else if (value instanceof Boolean b) {
+            json.value(b);
+        } else if (value == null) {
+            json.nullValue();
+        } else {
+            json.value(value.toString());
+        }
+    }
+
+    // ===== 导入 =====
+
+    /**
+     * 逐行导入（在异步线程调用）
+     *
+     * @param overwrite 是否替换已有数据的玩家
+     * @return 结果描述
+     */
+    public String importAll(File file, boolean overwrite) {
+        if (!file.isFile()) {
+            return "§c文件不存在: exports/" + file.getName();
+        }
+        if (!RUNNING.compareAndSet(false, true)) {
+            return "§c已有导出/导入任务正在进行";
+        }
+        long start = System.nanoTime();
+        int imported = 0;
+        int skipped = 0;
+        int failed = 0;
+        long relics = 0;
+        long invalid = 0;
+        try (BufferedReader in = openReader(file)) {
+            Set<UUID> existing = overwrite ? Set.of() : manager.storedPlayerIds();
+            int inBatch = 0;
+            int lineNo = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                PlayerRelicProfile profile;
+                int[] dropped = new int[1];
+                try {
+                    profile = decode(line, dropped, RelicValidator.substatLimit(plugin));
+                } catch (IOException | RuntimeException e) {
+                    failed++;
+                    plugin.getLogger().warning("导入第 " + lineNo + " 行解析失败: " + e.getMessage());
+                    continue;
+                }
+                invalid += dropped[0];
+                UUID id = profile.getPlayerId();
+                if (existing.contains(id) || !manager.importProfile(id, id.toString(), profile)) {
+                    skipped++;
+                    continue;
+                }
+                imported++;
+                relics += profile.getEquipped().size() + profile.getWarehouse().size();
+                if (++inBatch >= batchSize) {
+                    awaitPipeline();
+                    inBatch = 0;
+                }
+                if (imported % LOG_EVERY == 0) {
+                    plugin.getLogger().info("导入进度: " + imported + " 位玩家, " + relics + " 件圣遗物");
+                }
+            }
+            awaitPipeline();
+        } catch (IOException e) {
+            plugin.getLogger().warning("导入失败: " + e.getMessage());
+            return "§c导入失败（已导入 " + imported + " 位玩家）: " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "§c导入被中断（已导入 " + imported + " 位玩家）";
+        } finally {
+            RUNNING.set(false);
+        }
+        String result = String.format("§a导入完成: %d 位玩家, %d 件圣遗物, 跳过 %d 位（在线或已有数据）, 解析失败 %d 行, 无效圣遗物 %d 件, 耗时 %.1fs",
+                imported, relics, skipped, failed, invalid, (System.nanoTime() - start) / 1e9);
+        plugin.getLogger().info(result.substring(2));
+        return result;
+    }
+
+    /**
+     * 等待保存管线写完当前排队的快照，限制内存中待写入的档案数量
+     */
+    private void awaitPipeline() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        plugin.getProfileSavePipeline().flushThen(latch::countDown);
+        latch.await();
+    }
+
+    /**
+     * 解析一行；无法解码或未通过校验的圣遗物跳过并计入 dropped[0]
+     */
+    static PlayerRelicProfile decode(String line, int[] dropped, int maxSubstats) throws IOException {
+        Object root;
+        try (JsonReader json = new JsonReader(new StringReader(line))) {
+            root = readValue(json);
+        }
+        if (!(root instanceof Map<?, ?> map)) {
+            throw new IOException("不是 JSON 对象");
+        }
+        PlayerRelicProfile profile = new PlayerRelicProfile(UUID.fromString(String.valueOf(map.get("player"))));
+        for (Object o : list(map.get("equipped"))) {
+            RelicData relic = toRelic(o, maxSubstats);
+            if (relic == null || profile.getEquipped().containsKey(relic.getSlot())) {
+                dropped[0]++;
+                continue;
+            }
+            profile.getEquipped().put(relic.getSlot(), relic);
+        }
+        for (Object o : list(map.get("warehouse"))) {
+            RelicData relic = toRelic(o, maxSubstats);
+            if (relic == null) {
+                dropped[0]++;
+                continue;
+            }
+            profile.getWarehouse().add(relic);
+        }
+        return profile;
+    }
+
+    private static List<?> list(Object value) {
+        return value instanceof List<?> l ? l : List.of();
+    }
+
+    private static RelicData toRelic(Object value, int maxSubstats) {
+        if (!(value instanceof Map<?, ?> map)) return null;
+        RelicData relic = RelicIO.deserializeRelic(map);
+        return relic != null && RelicValidator.isValid(relic, maxSubstats) ? relic : null;
+    }
+
+    private static Object readValue(JsonReader json) throws IOException {
+        JsonToken token = json.peek();
+        switch (token) {
+            case BEGIN_OBJECT: {
+                Map<String, Object> map = new LinkedHashMap<>();
+                json.beginObject();
+                while (json.hasNext()) {
+                    map.put(json.nextName(), readValue(json));
+                }
+                json.endObject();
+                return map;
+            }
+            case BEGIN_ARRAY: {
+                List<Object> list = new ArrayList<>();
+                json.beginArray();
+                while (json.hasNext()) {
+                    list.add(readValue(json));
+                }
+                json.endArray();
+                return list;
+            }
+            case NUMBER:
+                return json.nextDouble();
+            case BOOLEAN:
+                return json.nextBoolean();
+            case NULL:
+                json.nextNull();
+                return null;
+            default:
+                return json.nextString();
+        }
+    }
+
+    // ===== 文件 =====
+
+    private static Writer openWriter(File file) throws IOException {
+        OutputStream out = Files.newOutputStream(file.toPath());
+        if (file.getName().endsWith(".gz.tmp") || file.getName().endsWith(".gz")) {
+            out = new GZIPOutputStream(out, 64 * 1024);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private static BufferedReader openReader(File file) throws IOException {
+        InputStream in = Files.newInputStream(file.toPath());
+        if (file.getName().endsWith(".gz")) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+    }
+}
@@ -0,0 +1,118 @@
+package com.salteddoubao.relicsystem.storage;
+
+import com.salteddoubao.relicsystem.relic.PlayerRelicProfile;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 圣遗物档案底层存储接口
+ * 由 {@link InventoryProfileManager} 的内存缓存使用，不同实现决定数据落在哪里：
+ * - {@link RelicInventoryStorage}：每位玩家一个 .dat 基础文件 + .journal 日志
+ * - {@link SegmentRelicStore}：少量内存映射的大段文件
+ * - {@link SqliteRelicStore}：嵌入式 SQLite 数据库，每件圣遗物一行
+ */
+public interface RelicProfileStore {
+
+    /**
+     * 读取玩家数据（基础数据 + 日志）填充到档案中
+     *
+     * @return 是否需要整体回写
+     */
+    boolean loadProfile(UUID playerId, PlayerRelicProfile profile);
+
+    /**
+     * 读取玩家的计数摘要（容量检查、状态查询用），尽量不解码仓库
+     * 默认实现完整读取一次档案；调用方需先写完该玩家尚在保存队列中的快照
+     */
+    default ProfileSummary readSummary(UUID playerId) {
+        PlayerRelicProfile profile = new PlayerRelicProfile(playerId);
+        loadProfile(playerId, profile);
+        return ProfileSummary.of(profile);
+    }
+
+    /**
+     * 写入快照（保存线程调用）：完整快照重写基础数据，日志记录追加
+     */
+    void saveProfile(ProfileSnapshot snapshot) throws IOException;
+
+    /**
+     * 带版本检查的写入：存储中的版本号与 expectedRevision 不同（其他服务器实例写入过）时，
+     * 以存储中的数据为准重放快照中的变更（{@link ProfileSnapshot#getPendingOps()}）后整体写回
+     * 默认实现不支持版本号，直接写入
+     *
+     * @param expectedRevision 调用方最后一次读取/写入时的版本号，小于 0 表示不检查
+     * @return 写入后的版本号；不等于 expectedRevision + 1 说明发生了合并；不支持版本号时返回 -1
+     */
+    default long saveProfile(ProfileSnapshot snapshot, long expectedRevision) throws IOException {
+        saveProfile(snapshot);
+        return -1;
+    }
+
+    /**
+     * 存储中该玩家数据的当前版本号（每次写入递增，多个服务器实例共享数据目录时用于乐观并发控制）
+     *
+     * @return 版本号；没有数据时为 0；不支持版本号时返回 -1
+     */
+    default long getRevision(UUID playerId) {
+        return -1;
+    }
+
+    /**
+     * 存储中是否已有该玩家的数据
+     */
+    boolean contains(UUID playerId);
+
+    /**
+     * 存储中所有玩家的ID（离线全量扫描用，如重建圣遗物登记表）
+     */
+    Set<UUID> playerIds();
+
+    /**
+     * 增量写入是否以日志形式累积（需要定期压缩为完整数据）
+     * 返回 false 时只在存储主动请求或需要整体重写时才提交完整快照
+     */
+    default boolean usesJournal() {
+        return true;
+    }
+
+    /**
+     * 取出并清除该玩家的压缩请求
+     */
+    boolean takeCompactionRequest(UUID playerId);
+
+    /**
+     * 该玩家当前未压缩的日志大小（字节）
+     */
+    long getJournalSize(UUID playerId);
+
+    /**
+     * 仓库总容量
+     */
+    int getWarehouseCapacity();
+
+    /**
+     * 存储状态（用于 /relic storage-status）
+     */
+    default List<String> getStatusLines() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * 把已写入但尚未刷盘的数据刷到磁盘（定时保存后由保存线程统一调用一次）
+     *
+     * @return 刷盘的文件数
+     */
+    default int sync() {
+        return 0;
+    }
+
+    /**
+     * 关闭存储，释放文件句柄（插件关闭、保存管线清空之后调用）
+     */
+    default void close() {
+    }
+}
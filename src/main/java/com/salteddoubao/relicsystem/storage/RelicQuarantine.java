@@ -0,0 +1,114 @@
+package com.salteddoubao.relicsystem.storage;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import com.salteddoubao.relicsystem.MinecraftRelicSystem;
+import com.salteddoubao.relicsystem.relic.RelicData;
+import com.salteddoubao.relicsystem.relic.RelicSlot;
+import com.salteddoubao.relicsystem.util.RelicIO;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 无效圣遗物隔离区
+ *
+ * 读取或校验时被剔除的数据不再直接丢弃，而是写入 quarantine/&lt;玩家UUID&gt;/ 下：
+ * - 能解码但未通过校验的圣遗物：YAML（与 players/*.yml 的条目格式相同，可手动修复后还原）
+ * - 无法解码的原始数据：整份原始字节（.bin），保留被重写前的文件内容
+ * 隔离只追加新文件，不会覆盖已有文件；写入失败只记录日志，不影响档案读取。
+ */
+public class RelicQuarantine {
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final MinecraftRelicSystem plugin;
+    private final File root;
+
+    public RelicQuarantine(MinecraftRelicSystem plugin) {
+        this.plugin = plugin;
+        this.root = new File(plugin.getDataFolder(), "quarantine");
+    }
+
+    /**
+     * 校验档案并隔离未通过的圣遗物（{@link RelicValidator#removeInvalid}）
+     *
+     * @return 是否移除了圣遗物（调用方应整体回写）
+     */
+    public boolean validate(UUID playerId, Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse) {
+        List<RelicData> removed = RelicValidator.removeInvalid(equipped, warehouse, RelicValidator.substatLimit(plugin));
+        relics(playerId, "invalid", removed);
+        return !removed.isEmpty();
+    }
+
+    /**
+     * 隔离未通过校验的圣遗物
+     */
+    public void relics(UUID playerId, String reason, Collection<RelicData> relics) {
+        if (relics.isEmpty()) return;
+        List<Map<String, Object>> entries = new ArrayList<>(relics.size());
+        for (RelicData r : relics) {
+            try {
+                entries.add(RelicIO.serializeRelic(r));
+            } catch (RuntimeException e) {
+                // 字段缺失到无法序列化时至少保留ID
+                entries.add(Map.of("id", String.valueOf(r.getId())));
+            }
+        }
+        entries(playerId, reason, entries);
+    }
+
+    /**
+     * 隔离无法解析的 YAML 条目（原样保存）
+     */
+    public void entries(UUID playerId, String reason, List<Map<String, Object>> entries) {
+        if (entries.isEmpty()) return;
+        YamlConfiguration cfg = new YamlConfiguration();
+        cfg.set("player", playerId.toString());
+        cfg.set("reason", reason);
+        cfg.set("time", System.currentTimeMillis());
+        cfg.set("relics", entries);
+        File file = newFile(playerId, reason, ".yml");
+        try {
+            cfg.save(file);
+            plugin.getLogger().warning("玩家 " + playerId + " 的 " + entries.size() + " 件无效圣遗物已隔离到 " + relativePath(file));
+        } catch (IOException e) {
+            plugin.getLogger().severe("写入隔离文件失败: " + file.getName() + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * 隔离无法解码的原始数据
+     */
+    public void raw(UUID playerId, String reason, byte[] bytes) {
+        if (bytes == null || bytes.length == 0) return;
+        File file = newFile(playerId, reason, ".bin");
+        try {
+            Files.write(file.toPath(), bytes);
+            plugin.getLogger().warning("玩家 " + playerId + " 含无法解码条目的原始数据已隔离到 " + relativePath(file));
+        } catch (IOException e) {
+            plugin.getLogger().severe("写入隔离文件失败: " + file.getName() + " - " + e.getMessage());
+        }
+    }
+
+    private File newFile(UUID playerId, String reason, String suffix) {
+        File dir = new File(root, playerId.toString());
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        String time = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        return new File(dir, time + "-" + SEQUENCE.incrementAndGet() + "-" + reason + suffix);
+    }
+
+    private String relativePath(File file) {
+        return "quarantine/" + file.getParentFile().getName() + "/" + file.getName();
+    }
+}
@@ -0,0 +1,732 @@
+package com.salteddoubao.relicsystem.storage;
+
+import com.salteddoubao.relicsystem.MinecraftRelicSystem;
+import com.salteddoubao.relicsystem.relic.PlayerRelicProfile;
+import com.salteddoubao.relicsystem.relic.RelicData;
+import com.salteddoubao.relicsystem.relic.RelicSlot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 全服圣遗物ID登记表（relic_registry.db）
+ *
+ * 记录每件已入库圣遗物所在的玩家，在圣遗物放入仓库时即可发现“同一件圣遗物存在两份”，
+ * 不需要扫描所有玩家：
+ * - 在线玩家：内存中的 圣遗物ID → 拥有者 表，随档案变更即时更新，是在线玩家的权威位置
+ * - 离线玩家：SQLite 表 relic_locations(relic_id PK, owner_id, equipped_slot)，由保存管线在写入存储后按快照更新
+ *   （完整快照整体替换该玩家的行，日志操作逐条应用）
+ * - 布隆过滤器挡在 SQLite 查询之前：新生成的圣遗物几乎都不需要访问数据库
+ * - 在线玩家从仓库取出的圣遗物记在内存中，再次存入时不需要访问数据库（布隆过滤器无法删除）
+ * - 主线程查询使用单独的只读连接（WAL 模式下读不等待写），不与保存线程的批量写入、重建争用同一把锁
+ *
+ * 发现的重复记入 relic_duplicates 表，被拒绝存入的那一份写入隔离区（quarantine/）。
+ * 布隆过滤器在正常关闭时保存到 relic_registry.bloom，启动读取后即删除；
+ * 异常关闭后文件不存在，启动时从数据库分批重建（重建完成前查询直接访问数据库）。
+ * /relic registry-rebuild 离线扫描存储中的全部玩家重建登记表。
+ */
+public class RelicRegistry {
+    private static final byte[] BLOOM_MAGIC = {'M', 'R', 'B', 'F'};
+    private static final int BLOOM_VERSION = 1;
+    private static final double BLOOM_FPP = 0.01;
+    private static final int BLOOM_LOAD_BATCH = 10_000;
+
+    /**
+     * 已登记的位置
+     */
+    public static final class Location {
+        private final UUID owner;
+        private final boolean online;
+
+        Location(UUID owner, boolean online) {
+            this.owner = owner;
+            this.online = online;
+        }
+
+        public UUID getOwner() { return owner; }
+
+        /** 是否来自在线玩家的内存档案（否则来自已保存的数据） */
+        public boolean isOnline() { return online; }
+    }
+
+    private final MinecraftRelicSystem plugin;
+    private final File file;
+    private final File bloomFile;
+    private final DurableFileWriter writer;
+    private final RelicQuarantine quarantine;
+    private final long expectedRelics;
+
+    // 在线玩家：主线程随档案变更更新
+    private final Map<UUID, UUID> online = new ConcurrentHashMap<>();
+    private final Set<UUID> trackedOwners = ConcurrentHashMap.newKeySet();
+    // 在线玩家从仓库取出的圣遗物 → 取出者
+    private final Map<UUID, UUID> released = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter bloom;
+    private volatile boolean bloomReady;
+    private final AtomicLong duplicates = new AtomicLong();
+
+    // 以下状态只在持有 this 锁时使用（SQLite 同一时间只允许一个写事务）
+    private Connection connection;
+    private PreparedStatement selectOwner;
+    private PreparedStatement upsertLocation;
+    private PreparedStatement deleteOwner;
+    private PreparedStatement deleteRelic;
+    private PreparedStatement unequip;
+    private PreparedStatement insertDuplicate;
+    private boolean rebuilding;
+    private Set<UUID> touchedDuringRebuild;
+
+    // 主线程查询专用的只读连接，只在持有 readLock 时使用
+    private final Object readLock = new Object();
+    private Connection readConnection;
+    private PreparedStatement readOwner;
+
+    public RelicRegistry(MinecraftRelicSystem plugin) throws IOException {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), plugin.getConfig().getString("relic.registry.file", "relic_registry.db"));
+        this.bloomFile = new File(plugin.getDataFolder(), "relic_registry.bloom");
+        this.writer = new DurableFileWriter(plugin.getLogger());
+        this.quarantine = new RelicQuarantine(plugin);
+        this.expectedRelics = Math.max(10_000, plugin.getConfig().getLong("relic.registry.expected_relics", 1_000_000));
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new IOException("未找到 SQLite JDBC 驱动", e);
+        }
+        try {
+            open();
+        } catch (SQLException e) {
+            close();
+            throw new IOException("打开圣遗物登记表失败: " + e.getMessage(), e);
+        }
+        if (!loadBloom()) {
+            bloom = new BloomFilter(expectedRelics);
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, this::fillBloom);
+        }
+    }
+
+    private void open() throws SQLException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        try (Statement st = connection.createStatement()) {
+            st.execute("PRAGMA journal_mode=WAL");
+            st.execute("PRAGMA synchronous=NORMAL");
+            st.execute("CREATE TABLE IF NOT EXISTS relic_locations ("
+                    + "relic_id TEXT PRIMARY KEY, "
+                    + "owner_id TEXT NOT NULL, "
+                    + "equipped_slot INTEGER)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_locations_owner ON relic_locations(owner_id)");
+            st.execute("CREATE TABLE IF NOT EXISTS relic_duplicates ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "relic_id TEXT NOT NULL, "
+                    + "owner_id TEXT NOT NULL, "
+                    + "other_owner_id TEXT NOT NULL, "
+                    + "source TEXT NOT NULL, "
+                    + "detected_at INTEGER NOT NULL)");
+        }
+        connection.setAutoCommit(false);
+        prepare();
+        connection.commit();
+        synchronized (readLock) {
+            readConnection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+            readOwner = readConnection.prepareStatement("SELECT owner_id FROM relic_locations WHERE relic_id = ?");
+        }
+    }
+
+    private void prepare() throws SQLException {
+        selectOwner = connection.prepareStatement("SELECT owner_id FROM relic_locations WHERE relic_id = ?");
+        upsertLocation = connection.prepareStatement(
+                "INSERT OR REPLACE INTO relic_locations(relic_id, owner_id, equipped_slot) VALUES (?, ?, ?)");
+        deleteOwner = connection.prepareStatement("DELETE FROM relic_locations WHERE owner_id = ?");
+        deleteRelic = connection.prepareStatement("DELETE FROM relic_locations WHERE relic_id = ? AND owner_id = ?");
+        unequip = connection.prepareStatement(
+                "UPDATE relic_locations SET equipped_slot = NULL WHERE owner_id = ? AND equipped_slot = ? AND relic_id <> ?");
+        insertDuplicate = connection.prepareStatement("INSERT INTO relic_duplicates"
+                + "(relic_id, owner_id, other_owner_id, source, detected_at) VALUES (?, ?, ?, ?, ?)");
+    }
+
+    // ===== 在线玩家（主线程） =====
+
+    /**
+     * 登记在线玩家的档案（进服取用档案时调用）
+     */
+    public void track(UUID owner, PlayerRelicProfile profile) {
+        trackedOwners.add(owner);
+        for (RelicData r : profile.getEquipped().values()) {
+            if (r != null) online.put(r.getId(), owner);
+        }
+        for (RelicData r : profile.getWarehouse()) {
+            online.put(r.getId(), owner);
+        }
+    }
+
+    /**
+     * 玩家退出：之后以保存到数据库的位置为准
+     */
+    public void untrack(UUID owner, PlayerRelicProfile profile) {
+        for (RelicData r : profile.getEquipped().values()) {
+            if (r != null) online.remove(r.getId(), owner);
+        }
+        for (RelicData r : profile.getWarehouse()) {
+            online.remove(r.getId(), owner);
+        }
+        trackedOwners.remove(owner);
+        released.values().removeIf(owner::equals);
+    }
+
+    public void stored(UUID owner, UUID relicId) {
+        online.put(relicId, owner);
+        released.remove(relicId);
+    }
+
+    public void removed(UUID owner, UUID relicId) {
+        if (online.remove(relicId, owner)) {
+            released.put(relicId, owner);
+        }
+    }
+
+    /**
+     * 查找该圣遗物已登记的位置（放入仓库前调用）
+     * 在线玩家以内存档案为准；数据库中登记在在线玩家名下但内存中已不存在的记录视为已移出
+     * 由在线玩家取出的圣遗物直接放行；其余依次经过布隆过滤器与只读连接（主线程上最多一次主键查询）
+     *
+     * @return 已存在的位置；没有登记时返回 null
+     */
+    public Location findExisting(UUID relicId) {
+        UUID owner = online.get(relicId);
+        if (owner != null) {
+            return new Location(owner, true);
+        }
+        UUID releasedBy = released.get(relicId);
+        if (releasedBy != null && trackedOwners.contains(releasedBy)) {
+            // 数据库中即使有记录也只会登记在取出者名下
+            return null;
+        }
+        if (bloomReady && !bloom.mightContain(relicId)) {
+            return null;
+        }
+        UUID saved = readOwner(relicId);
+        // 刚退出的玩家还有快照未写入时，数据库中的位置可能已过期
+        if (saved != null && !trackedOwners.contains(saved) && !plugin.getProfileSavePipeline().hasPending(saved)) {
+            return new Location(saved, false);
+        }
+        return null;
+    }
+
+    /**
+     * 记录一次被拒绝的重复存入：圣遗物写入隔离区，重复记入 relic_duplicates（均在异步线程完成）
+     */
+    public void reportDuplicate(UUID owner, RelicData relic, Location existing, String source) {
+        duplicates.incrementAndGet();
+        plugin.getLogger().warning("发现重复圣遗物 " + relic.getId() + "：玩家 " + owner + " 存入时已登记在玩家 "
+                + existing.getOwner() + (existing.isOnline() ? "（在线）" : "（已保存）") + " 名下，已拒绝并隔离");
+        RelicData copy = relic.copy();
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            quarantine.relics(owner, "duplicate", List.of(copy));
+            synchronized (this) {
+                if (connection == null) return;
+                try {
+                    recordDuplicate(relic.getId(), owner, existing.getOwner(), source);
+                    connection.commit();
+                } catch (SQLException e) {
+                    rollbackQuietly();
+                }
+            }
+        });
+    }
+
+    // ===== 存储写入后更新（保存线程） =====
+
+    /**
+     * 按已写入存储的快照更新数据库中的位置
+     * 写入时发现ID登记在其他离线、且没有待写快照的玩家名下，记为重复（写入不受影响）
+     */
+    public void recordSaved(ProfileSnapshot snapshot) {
+        UUID owner = snapshot.getPlayerId();
+        List<RelicJournal.Op> ops = new ArrayList<>(snapshot.getJournalOps().size());
+        for (byte[] op : snapshot.getJournalOps()) {
+            try {
+                RelicJournal.Op decoded = RelicJournal.decode(op);
+                if (decoded != null) ops.add(decoded);
+            } catch (IOException e) {
+                // 与存储一致：无法解码的操作跳过
+            }
+        }
+        synchronized (this) {
+            if (connection == null) return;
+            try {
+                if (rebuilding) {
+                    touchedDuringRebuild.add(owner);
+                }
+                if (snapshot.hasFullData()) {
+                    deleteOwner.setString(1, owner.toString());
+                    deleteOwner.executeUpdate();
+                    for (Map.Entry<RelicSlot, RelicData> e : snapshot.getEquipped().entrySet()) {
+                        if (e.getValue() != null) insert(owner, e.getValue().getId(), e.getKey());
+                    }
+                    for (RelicData r : snapshot.getWarehouse()) {
+                        insert(owner, r.getId(), null);
+                    }
+                }
+                for (RelicJournal.Op op : ops) {
+                    switch (op.type) {
+                        case RelicJournal.OP_ADD -> insert(owner, op.relicId, null);
+                        case RelicJournal.OP_EQUIP -> {
+                            // 同部位的原装备回到仓库
+                            setUnequipped(owner, op.slot, op.relicId);
+                            insert(owner, op.relicId, op.slot);
+                        }
+                        case RelicJournal.OP_UNEQUIP -> setUnequipped(owner, op.slot, null);
+                        case RelicJournal.OP_REMOVE -> {
+                            deleteRelic.setString(1, op.relicId.toString());
+                            deleteRelic.setString(2, owner.toString());
+                            deleteRelic.executeUpdate();
+                        }
+                        default -> { }
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                plugin.getLogger().warning("更新圣遗物登记表失败: " + owner + " - " + e.getMessage());
+                rollbackQuietly();
+            }
+        }
+    }
+
+    /**
+     * 该部位的装备移回仓库（keep 为本次装备上的圣遗物，不受影响）
+     */
+    private void setUnequipped(UUID owner, RelicSlot slot, UUID keep) throws SQLException {
+        unequip.setString(1, owner.toString());
+        unequip.setInt(2, slot.ordinal());
+        unequip.setString(3, keep != null ? keep.toString() : "");
+        unequip.executeUpdate();
+    }
+
+    private void insert(UUID owner, UUID relicId, RelicSlot equippedSlot) throws SQLException {
+        if (!bloomReady || bloom.mightContain(relicId)) {
+            UUID existing = selectOwnerLocked(relicId);
+            if (existing != null && !existing.equals(owner) && !trackedOwners.contains(existing)
+                    && !plugin.getProfileSavePipeline().hasPending(existing)) {
+                duplicates.incrementAndGet();
+                plugin.getLogger().warning("发现重复圣遗物 " + relicId + "：玩家 " + owner + " 的存档中存在已登记在玩家 "
+                        + existing + " 名下的同一件圣遗物");
+                recordDuplicate(relicId, owner, existing, "save");
+            }
+        }
+        upsertLocation.setString(1, relicId.toString());
+        upsertLocation.setString(2, owner.toString());
+        setSlot(upsertLocation, 3, equippedSlot);
+        upsertLocation.executeUpdate();
+        bloom.add(relicId);
+    }
+
+    private static void setSlot(PreparedStatement ps, int index, RelicSlot slot) throws SQLException {
+        if (slot == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, slot.ordinal());
+        }
+    }
+
+    private void recordDuplicate(UUID relicId, UUID owner, UUID other, String source) throws SQLException {
+        insertDuplicate.setString(1, relicId.toString());
+        insertDuplicate.setString(2, owner.toString());
+        insertDuplicate.setString(3, other.toString());
+        insertDuplicate.setString(4, source);
+        insertDuplicate.setLong(5, System.currentTimeMillis());
+        insertDuplicate.executeUpdate();
+    }
+
+    /**
+     * 主线程查询：只读连接自动提交，每次查询读取最新提交的快照
+     */
+    private UUID readOwner(UUID relicId) {
+        synchronized (readLock) {
+            if (readOwner == null) return null;
+            try {
+                readOwner.setString(1, relicId.toString());
+                try (ResultSet rs = readOwner.executeQuery()) {
+                    return rs.next() ? UUID.fromString(rs.getString(1)) : null;
+                }
+            } catch (SQLException e) {
+                return null;
+            }
+        }
+    }
+
+    private UUID selectOwnerLocked(UUID relicId) throws SQLException {
+        selectOwner.setString(1, relicId.toString());
+        try (ResultSet rs = selectOwner.executeQuery()) {
+            return rs.next() ? UUID.fromString(rs.getString(1)) : null;
+        }
+    }
+
+    // ===== 离线重建 =====
+
+    /**
+     * 扫描存储中的全部玩家重建登记表（在异步线程调用，调用前应先写回在线玩家）
+     * 重建写入新表，期间照常更新旧表；结束时重新同步重建期间被写入的玩家，再替换旧表
+     *
+     * @return 结果说明
+     */
+    public String rebuild(RelicProfileStore store) {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            if (rebuilding) {
+                return "§e登记表正在重建中";
+            }
+            try (Statement st = connection.createStatement()) {
+                st.execute("DROP TABLE IF EXISTS relic_locations_rebuild");
+                st.execute("CREATE TABLE relic_locations_rebuild ("
+                        + "relic_id TEXT PRIMARY KEY, "
+                        + "owner_id TEXT NOT NULL, "
+                        + "equipped_slot INTEGER)");
+                connection.commit();
+            } catch (SQLException e) {
+                rollbackQuietly();
+                return "§c重建登记表失败: " + e.getMessage();
+            }
+            rebuilding = true;
+            touchedDuringRebuild = new HashSet<>();
+        }
+        BloomFilter fresh = new BloomFilter(expectedRelics);
+        int players = 0;
+        long relics = 0;
+        long found = 0;
+        try {
+            for (UUID owner : store.playerIds()) {
+                PlayerRelicProfile profile = new PlayerRelicProfile(owner);
+                store.loadProfile(owner, profile);
+                synchronized (this) {
+                    RebuildBatch batch = rebuildOwner(owner, profile, fresh, false);
+                    relics += batch.relics;
+                    found += batch.duplicates;
+                }
+                players++;
+            }
+            synchronized (this) {
+                // 重建期间被写入的玩家以存储中的最新数据为准
+                for (UUID owner : touchedDuringRebuild) {
+                    PlayerRelicProfile profile = new PlayerRelicProfile(owner);
+                    store.loadProfile(owner, profile);
+                    rebuildOwner(owner, profile, fresh, true);
+                }
+                try (Statement st = connection.createStatement()) {
+                    closeStatements();
+                    st.execute("DROP TABLE relic_locations");
+                    st.execute("ALTER TABLE relic_locations_rebuild RENAME TO relic_locations");
+                    st.execute("CREATE INDEX IF NOT EXISTS idx_locations_owner ON relic_locations(owner_id)");
+                    prepare();
+                    connection.commit();
+                }
+                bloom = fresh;
+                bloomReady = true;
+            }
+        } catch (SQLException e) {
+            rollbackQuietly();
+            plugin.getLogger().severe("重建圣遗物登记表失败: " + e.getMessage());
+            return "§c重建登记表失败: " + e.getMessage();
+        } finally {
+            synchronized (this) {
+                rebuilding = false;
+                touchedDuringRebuild = null;
+                if (selectOwner == null) {
+                    try {
+                        prepare();
+                    } catch (SQLException e) {
+                        plugin.getLogger().severe("重新准备登记表语句失败: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        duplicates.addAndGet(found);
+        String result = String.format("§a登记表重建完成: %d 位玩家, %d 件圣遗物, 发现重复 %d 件, 耗时 %.1fs",
+                players, relics, found, (System.currentTimeMillis() - start) / 1000.0);
+        plugin.getLogger().info(result.replaceAll("§.", ""));
+        return result;
+    }
+
+    private static final class RebuildBatch {
+        long relics;
+        long duplicates;
+    }
+
+    private RebuildBatch rebuildOwner(UUID owner, PlayerRelicProfile profile, BloomFilter fresh, boolean replace) throws SQLException {
+        RebuildBatch batch = new RebuildBatch();
+        if (replace) {
+            try (PreparedStatement ps = connection.prepareStatement("DELETE FROM relic_locations_rebuild WHERE owner_id = ?")) {
+                ps.setString(1, owner.toString());
+                ps.executeUpdate();
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT OR IGNORE INTO relic_locations_rebuild(relic_id, owner_id, equipped_slot) VALUES (?, ?, ?)");
+             PreparedStatement select = connection.prepareStatement(
+                     "SELECT owner_id FROM relic_locations_rebuild WHERE relic_id = ?")) {
+            for (Map.Entry<RelicSlot, RelicData> e : profile.getEquipped().entrySet()) {
+                if (e.getValue() != null) rebuildInsert(owner, e.getValue().getId(), e.getKey(), insert, select, fresh, batch);
+            }
+            for (RelicData r : profile.getWarehouse()) {
+                rebuildInsert(owner, r.getId(), null, insert, select, fresh, batch);
+            }
+        }
+        connection.commit();
+        return batch;
+    }
+
+    private void rebuildInsert(UUID owner, UUID relicId, RelicSlot equippedSlot, PreparedStatement insert,
+                               PreparedStatement select, BloomFilter fresh, RebuildBatch batch) throws SQLException {
+        insert.setString(1, relicId.toString());
+        insert.setString(2, owner.toString());
+        setSlot(insert, 3, equippedSlot);
+        batch.relics++;
+        fresh.add(relicId);
+        if (insert.executeUpdate() > 0) return;
+        select.setString(1, relicId.toString());
+        try (ResultSet rs = select.executeQuery()) {
+            if (rs.next()) {
+                batch.duplicates++;
+                recordDuplicate(relicId, owner, UUID.fromString(rs.getString(1)), "rebuild");
+            }
+        }
+    }
+
+    // ===== 布隆过滤器 =====
+
+    /**
+     * 读取上次正常关闭时保存的过滤器，读取后删除文件（异常关闭时不会留下过期的过滤器）
+     */
+    private boolean loadBloom() {
+        List<byte[]> candidates = DurableFileWriter.readCandidates(bloomFile, plugin.getLogger());
+        try {
+            DurableFileWriter.delete(bloomFile);
+        } catch (IOException e) {
+            plugin.getLogger().warning("删除布隆过滤器文件失败: " + e.getMessage());
+            return false;
+        }
+        if (candidates.isEmpty()) return false;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(candidates.get(0)))) {
+            byte[] magic = new byte[BLOOM_MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, BLOOM_MAGIC) || in.readInt() != BLOOM_VERSION) return false;
+            BloomFilter loaded = new BloomFilter(expectedRelics);
+            if (in.readInt() != loaded.hashes || in.readInt() != loaded.words.length()) {
+                // 配置的容量变化，按新参数重建
+                return false;
+            }
+            for (int i = 0; i < loaded.words.length(); i++) {
+                loaded.words.set(i, in.readLong());
+            }
+            bloom = loaded;
+            bloomReady = true;
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().warning("读取布隆过滤器失败，将从登记表重建: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 从数据库分批填充过滤器（每批之间释放锁，不长时间阻塞查询）
+     */
+    private void fillBloom() {
+        long lastRow = 0;
+        long count = 0;
+        while (true) {
+            synchronized (this) {
+                if (connection == null || bloomReady) return;
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "SELECT rowid, relic_id FROM relic_locations WHERE rowid > ? ORDER BY rowid LIMIT " + BLOOM_LOAD_BATCH)) {
+                    ps.setLong(1, lastRow);
+                    int n = 0;
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            lastRow = rs.getLong(1);
+                            bloom.add(UUID.fromString(rs.getString(2)));
+                            n++;
+                        }
+                    }
+                    connection.commit();
+                    count += n;
+                    if (n < BLOOM_LOAD_BATCH) {
+                        bloomReady = true;
+                        plugin.getLogger().info("圣遗物登记表布隆过滤器已加载: " + count + " 件");
+                        return;
+                    }
+                } catch (SQLException | IllegalArgumentException e) {
+                    plugin.getLogger().warning("加载布隆过滤器失败，查询将直接访问登记表: " + e.getMessage());
+                    rollbackQuietly();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void saveBloom() {
+        if (!bloomReady) return;
+        BloomFilter current = bloom;
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(16 + current.words.length() * 8);
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.write(BLOOM_MAGIC);
+            out.writeInt(BLOOM_VERSION);
+            out.writeInt(current.hashes);
+            out.writeInt(current.words.length());
+            for (int i = 0; i < current.words.length(); i++) {
+                out.writeLong(current.words.get(i));
+            }
+            out.flush();
+            writer.write(bloomFile, baos.toByteArray());
+            writer.sync();
+        } catch (IOException e) {
+            plugin.getLogger().warning("保存布隆过滤器失败（下次启动时重建）: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 布隆过滤器（不支持删除：在线玩家取出的圣遗物另行记录，其余移出的圣遗物只会造成多一次数据库查询）
+     */
+    static final class BloomFilter {
+        final AtomicLongArray words;
+        final int hashes;
+        private final long bits;
+
+        BloomFilter(long expected) {
+            long m = (long) Math.ceil(-expected * Math.log(BLOOM_FPP) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) Math.max(1, (m + 63) / 64));
+            this.bits = words.length() * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) m / expected * Math.log(2)));
+        }
+
+        void add(UUID id) {
+            long h1 = mix(id.getMostSignificantBits());
+            long h2 = mix(id.getLeastSignificantBits()) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long prev;
+                do {
+                    prev = words.get(word);
+                } while ((prev & mask) == 0 && !words.compareAndSet(word, prev, prev | mask));
+            }
+        }
+
+        boolean mightContain(UUID id) {
+            long h1 = mix(id.getMostSignificantBits());
+            long h2 = mix(id.getLeastSignificantBits()) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+            z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+            return z ^ (z >>> 33);
+        }
+    }
+
+    // ===== 状态与关闭 =====
+
+    public synchronized List<String> getStatusLines() {
+        long count = -1;
+        long recorded = -1;
+        if (connection != null) {
+            try (Statement st = connection.createStatement()) {
+                try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM relic_locations")) {
+                    if (rs.next()) count = rs.getLong(1);
+                }
+                try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM relic_duplicates")) {
+                    if (rs.next()) recorded = rs.getLong(1);
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                rollbackQuietly();
+            }
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("§7圣遗物登记表: 已保存 §f%d §7件, 在线 §f%d §7件 (§f%d §7位玩家)",
+                count, online.size(), trackedOwners.size()));
+        lines.add(String.format("§7重复记录: §f%d §7条 (本次运行发现 §f%d§7)  布隆过滤器: %s%s",
+                recorded, duplicates.get(), bloomReady ? "§a就绪" : "§e加载中", rebuilding ? "  §e正在重建" : ""));
+        return lines;
+    }
+
+    /**
+     * 关闭：保存布隆过滤器并关闭数据库（保存管线清空之后调用）
+     */
+    public synchronized void close() {
+        if (connection != null) {
+            saveBloom();
+        }
+        closeStatements();
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                plugin.getLogger().warning("关闭圣遗物登记表失败: " + e.getMessage());
+            }
+            connection = null;
+        }
+        synchronized (readLock) {
+            try {
+                if (readOwner != null) readOwner.close();
+                if (readConnection != null) readConnection.close();
+            } catch (SQLException ignored) {
+            }
+            readOwner = null;
+            readConnection = null;
+        }
+    }
+
+    private void closeStatements() {
+        for (PreparedStatement ps : new PreparedStatement[]{selectOwner, upsertLocation, deleteOwner, deleteRelic, unequip, insertDuplicate}) {
+            if (ps == null) continue;
+            try {
+                ps.close();
+            } catch (SQLException ignored) {
+            }
+        }
+        selectOwner = null;
+        upsertLocation = null;
+        deleteOwner = null;
+        deleteRelic = null;
+        unequip = null;
+        insertDuplicate = null;
+    }
+
+    private void rollbackQuietly() {
+        try {
+            if (connection != null) connection.rollback();
+        } catch (SQLException ignored) {
+        }
+    }
+}
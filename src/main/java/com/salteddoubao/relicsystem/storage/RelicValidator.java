@@ -0,0 +1,129 @@
+package com.salteddoubao.relicsystem.storage;
+
+import com.salteddoubao.relicsystem.MinecraftRelicSystem;
+import com.salteddoubao.relicsystem.manager.RelicManager;
+import com.salteddoubao.relicsystem.relic.RelicData;
+import com.salteddoubao.relicsystem.relic.RelicMainStat;
+import com.salteddoubao.relicsystem.relic.RelicRarity;
+import com.salteddoubao.relicsystem.relic.RelicSlot;
+import com.salteddoubao.relicsystem.relic.RelicStatType;
+import com.salteddoubao.relicsystem.relic.RelicSubstat;
+import com.salteddoubao.relicsystem.service.RelicGenerationService;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 档案完整性校验
+ *
+ * 每个档案只在读取时校验一次（在预加载/保存线程中，不在主线程逐次访问时进行）。
+ * 写回时内容全部通过校验的档案在头部记录 {@link #stamp(int)}，之后读取同一规则写出的文件不再重复校验；
+ * 规则、枚举或副词条上限变化时标记随之变化，旧文件会在下次读取时重新校验一遍。
+ *
+ * 只检查结构性问题（重复ID、数值非法、副词条超限/重复），不检查套装是否仍在配置中，
+ * 以免配置暂时出错时大量圣遗物被隔离。副词条上限取自属性池（{@link #substatLimit}），
+ * 调大 initial_substat_count 不会让已生成的圣遗物被隔离。
+ */
+public final class RelicValidator {
+    /** 校验规则版本，修改规则时递增 */
+    private static final int RULES_VERSION = 2;
+
+    /** 当前规则 + 枚举定义的指纹 */
+    private static final int RULES_STAMP = computeStamp();
+
+    private RelicValidator() {}
+
+    /**
+     * 当前属性池允许的副词条数上限；属性池未加载时取升级补充上限
+     */
+    public static int substatLimit(MinecraftRelicSystem plugin) {
+        RelicManager.AttributePoolConfig pool = plugin.getRelicManager() != null ? plugin.getRelicManager().getAttributePool() : null;
+        return pool != null ? pool.maxSubstats() : RelicGenerationService.UPGRADE_SUBSTAT_CAP;
+    }
+
+    /**
+     * 校验标记：规则指纹 + 副词条上限
+     */
+    public static int stamp(int maxSubstats) {
+        return 31 * RULES_STAMP + maxSubstats;
+    }
+
+    /**
+     * 移除无效与重复的圣遗物
+     *
+     * @return 被移除的圣遗物（交给 {@link RelicQuarantine} 保存），没有时为空列表
+     */
+    public static List<RelicData> removeInvalid(Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse, int maxSubstats) {
+        List<RelicData> removed = new ArrayList<>(0);
+        Set<UUID> seen = new HashSet<>();
+        Iterator<Map.Entry<RelicSlot, RelicData>> eit = equipped.entrySet().iterator();
+        while (eit.hasNext()) {
+            Map.Entry<RelicSlot, RelicData> e = eit.next();
+            RelicData r = e.getValue();
+            if (r == null) {
+                eit.remove();
+            } else if (r.getSlot() != e.getKey() || !isValid(r, maxSubstats) || !seen.add(r.getId())) {
+                eit.remove();
+                removed.add(r);
+            }
+        }
+        Iterator<RelicData> wit = warehouse.iterator();
+        while (wit.hasNext()) {
+            RelicData r = wit.next();
+            if (r == null) {
+                wit.remove();
+            } else if (!isValid(r, maxSubstats) || !seen.add(r.getId())) {
+                wit.remove();
+                removed.add(r);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 档案是否整体通过校验（不修改档案），用于决定写回时能否记录校验标记
+     */
+    public static boolean allValid(Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse, int maxSubstats) {
+        Set<UUID> seen = new HashSet<>();
+        for (Map.Entry<RelicSlot, RelicData> e : equipped.entrySet()) {
+            RelicData r = e.getValue();
+            if (r == null || r.getSlot() != e.getKey() || !isValid(r, maxSubstats) || !seen.add(r.getId())) return false;
+        }
+        for (RelicData r : warehouse) {
+            if (r == null || !isValid(r, maxSubstats) || !seen.add(r.getId())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 单件圣遗物是否结构完整
+     */
+    public static boolean isValid(RelicData r, int maxSubstats) {
+        if (r.getId() == null || r.getSlot() == null || r.getRarity() == null) return false;
+        if (r.getLevel() < 0 || r.getExp() < 0) return false;
+        RelicMainStat main = r.getMainStat();
+        if (main == null || main.getType() == null || !Double.isFinite(main.getValue())) return false;
+        List<RelicSubstat> subs = r.getSubstats();
+        if (subs.size() > maxSubstats) return false;
+        EnumSet<RelicStatType> types = EnumSet.noneOf(RelicStatType.class);
+        for (RelicSubstat s : subs) {
+            if (s.getType() == null || s.getType() == main.getType() || !types.add(s.getType())) return false;
+            if (!Double.isFinite(s.getValue())) return false;
+        }
+        return true;
+    }
+
+    private static int computeStamp() {
+        int h = RULES_VERSION;
+        for (RelicSlot s : RelicSlot.values()) h = 31 * h + s.name().hashCode();
+        for (RelicRarity r : RelicRarity.values()) h = 31 * h + r.name().hashCode();
+        for (RelicStatType t : RelicStatType.values()) h = 31 * h + t.name().hashCode();
+        return h;
+    }
+}
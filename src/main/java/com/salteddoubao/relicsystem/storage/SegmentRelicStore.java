@@ -0,0 +1,681 @@
+package com.salteddoubao.relicsystem.storage;
+
+import com.salteddoubao.relicsystem.MinecraftRelicSystem;
+import com.salteddoubao.relicsystem.relic.PlayerRelicProfile;
+import com.salteddoubao.relicsystem.relic.RelicData;
+import com.salteddoubao.relicsystem.relic.RelicSlot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存映射段文件存储（SEGMENT 模式）
+ *
+ * 所有玩家数据存放在 relic_segments/ 下少量固定大小的段文件中，通过 FileChannel.map 访问：
+ * <pre>
+ * 槽位:  头部(48字节) | 二进制基础数据 | 日志记录...
+ * 头部:  魔数(int) UUID(2×long) 容量(int) 基础长度(int) 日志长度(int) 代数(long) 状态(byte)
+ * </pre>
+ * - 槽位自描述，启动时扫描头部即可重建 UUID→偏移 索引与空闲列表，无需单独的索引文件
+ * - 读取档案 = 索引查找 + 从映射缓冲区复制一段字节
+ * - 完整写入总是写到新槽位：数据刷盘 → 写头部并刷盘 → 才把旧槽位标记为空闲；重复 UUID 以代数较大者为准
+ * - 日志记录直接追加到槽位尾部的预留空间，最后更新头部中的日志长度
+ * - 释放的槽位进入空闲列表供后续复用；碎片由离线压缩整理（/relic segment-compact 后重启生效）
+ */
+public class SegmentRelicStore implements RelicProfileStore {
+    private static final int SLOT_MAGIC = 0x4D525347; // "MRSG"
+    private static final int HEADER_SIZE = 48;
+    private static final int OFF_MSB = 4;
+    private static final int OFF_LSB = 12;
+    private static final int OFF_CAPACITY = 20;
+    private static final int OFF_BASE_LEN = 24;
+    private static final int OFF_JOURNAL_LEN = 28;
+    private static final int OFF_GENERATION = 32;
+    private static final int OFF_STATE = 40;
+    private static final byte STATE_FREE = 0;
+    private static final byte STATE_LIVE = 1;
+
+    private static final int ALIGN = 512;
+    private static final int MIN_SLACK = 4096;
+    private static final int MAX_WAREHOUSE_CAPACITY = 2000;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String COMPACT_REQUEST = "compact.request";
+    private static final String COMPACT_DIR = "compacting";
+    private static final String COMPACT_DONE = "DONE";
+    private static final String COMPACT_CLEARED = "CLEARED";
+
+    private final MinecraftRelicSystem plugin;
+    private final File dir;
+    private final int segmentSize;
+    private final RelicInventoryStorage legacy;
+    private final RelicFileFormat format;
+    private final RelicQuarantine quarantine;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<UUID, Slot> index = new HashMap<>();
+    private final List<Slot> free = new ArrayList<>();
+    private final Set<UUID> compactionRequests = ConcurrentHashMap.newKeySet();
+
+    private static final class Segment {
+        final int id;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int tail;
+
+        Segment(int id, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    private static final class Slot {
+        final Segment segment;
+        final int offset;
+        final int capacity;
+        int baseLen;
+        int journalLen;
+        long generation;
+
+        Slot(Segment segment, int offset, int capacity) {
+            this.segment = segment;
+            this.offset = offset;
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * 扫描得到的条目（用于启动与压缩）
+     */
+    private static final class ScannedEntry {
+        UUID playerId;
+        int offset;
+        int capacity;
+        int baseLen;
+        int journalLen;
+        long generation;
+        boolean live;
+    }
+
+    public SegmentRelicStore(MinecraftRelicSystem plugin, RelicInventoryStorage legacy) throws IOException {
+        this.plugin = plugin;
+        this.legacy = legacy;
+        this.format = RelicFileFormat.fromConfig(plugin);
+        this.quarantine = new RelicQuarantine(plugin);
+        this.dir = new File(plugin.getDataFolder(), "relic_segments");
+        long sizeMb = plugin.getConfig().getLong("relic.segment_storage.segment_size_mb", 64);
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE - ALIGN, Math.max(1, sizeMb) * 1024L * 1024L);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        finishOrRunCompaction();
+        open();
+    }
+
+    // ===== 读写 =====
+
+    @Override
+    public boolean loadProfile(UUID playerId, PlayerRelicProfile profile) {
+        byte[] base;
+        byte[] journal;
+        synchronized (this) {
+            Slot slot = index.get(playerId);
+            if (slot == null) {
+                // 尚未写入段文件：回退读取旧的逐文件存储，之后以完整快照写入段文件
+                return legacy.loadProfile(playerId, profile) || legacy.hasData(playerId);
+            }
+            base = new byte[slot.baseLen];
+            journal = new byte[slot.journalLen];
+            slot.segment.buffer.get(slot.offset + HEADER_SIZE, base);
+            slot.segment.buffer.get(slot.offset + HEADER_SIZE + slot.baseLen, journal);
+        }
+        boolean rewrite = false;
+        try {
+            RelicBinaryCodec.Decoded decoded = RelicBinaryCodec.decode(base);
+            profile.getEquipped().putAll(decoded.equipped);
+            profile.getWarehouse().addAll(decoded.warehouse);
+            if (decoded.dropped > 0) {
+                plugin.getLogger().warning("玩家 " + playerId + " 的段存储中有 " + decoded.dropped + " 条无法解码的数据，已隔离");
+                quarantine.raw(playerId, "undecodable", base);
+                rewrite = true;
+            }
+            if (decoded.needsRewrite()) {
+                rewrite = true;
+            }
+            // 只校验基础数据：日志记录来自已校验的内存档案
+            if (!decoded.isValidated(RelicValidator.stamp(RelicValidator.substatLimit(plugin)))
+                    && quarantine.validate(playerId, profile.getEquipped(), profile.getWarehouse())) {
+                rewrite = true;
+            }
+            if (journal.length > 0) {
+                RelicJournal.ReplayResult result = RelicJournal.replay(journal, 0, journal.length, profile.getEquipped(), profile.getWarehouse());
+                if (result.corrupted) {
+                    plugin.getLogger().warning("玩家 " + playerId + " 的段存储日志尾部损坏，将重写");
+                    rewrite = true;
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("读取段存储失败: " + playerId + " - " + e.getMessage());
+            return false;
+        }
+        return rewrite;
+    }
+
+    /**
+     * 读取计数摘要：日志为空时只复制基础数据开头的头部，不解码仓库
+     */
+    @Override
+    public ProfileSummary readSummary(UUID playerId) {
+        byte[] prefix;
+        synchronized (this) {
+            Slot slot = index.get(playerId);
+            if (slot == null) {
+                return legacy.readSummary(playerId);
+            }
+            if (slot.journalLen > 0) {
+                prefix = null;
+            } else {
+                prefix = new byte[Math.min(slot.baseLen, RelicBinaryCodec.SUMMARY_PREFIX_BYTES)];
+                slot.segment.buffer.get(slot.offset + HEADER_SIZE, prefix);
+            }
+        }
+        ProfileSummary summary = prefix != null ? RelicBinaryCodec.readSummary(prefix) : null;
+        return summary != null ? summary : RelicProfileStore.super.readSummary(playerId);
+    }
+
+    @Override
+    public void saveProfile(ProfileSnapshot snapshot) throws IOException {
+        UUID playerId = snapshot.getPlayerId();
+        try {
+            byte[] base = snapshot.hasFullData()
+                    ? RelicBinaryCodec.encode(snapshot.getEquipped(), snapshot.getWarehouse(), format, RelicValidator.substatLimit(plugin))
+                    : null;
+            byte[] frame = RelicJournal.frame(snapshot.getJournalOps());
+            synchronized (this) {
+                if (base != null) {
+                    writeFull(playerId, base, frame);
+                } else if (frame.length > 0) {
+                    appendJournal(playerId, frame);
+                }
+            }
+        } catch (IOException e) {
+            compactionRequests.add(playerId);
+            throw e;
+        }
+    }
+
+    /**
+     * 完整写入：新槽位写数据并刷盘，再写头部并刷盘，最后释放旧槽位
+     *
+     * 对映射缓冲区的写入只决定内存中的顺序，操作系统可能以任意顺序把页写回磁盘，
+     * 因此两次 force 是崩溃顺序的保证：头部落盘时数据必然已落盘，旧槽位标记为空闲时新槽位必然已落盘。
+     */
+    private void writeFull(UUID playerId, byte[] base, byte[] journal) throws IOException {
+        Slot old = index.get(playerId);
+        int used = HEADER_SIZE + base.length + journal.length;
+        Slot slot = allocate(used);
+        MappedByteBuffer buf = slot.segment.buffer;
+        buf.put(slot.offset + HEADER_SIZE, base);
+        buf.put(slot.offset + HEADER_SIZE + base.length, journal);
+        buf.force(slot.offset + HEADER_SIZE, base.length + journal.length);
+        slot.baseLen = base.length;
+        slot.journalLen = journal.length;
+        slot.generation = old != null ? old.generation + 1 : 1;
+        writeHeader(slot, playerId, STATE_LIVE);
+        buf.force(slot.offset, HEADER_SIZE);
+        index.put(playerId, slot);
+        if (old != null) {
+            release(old);
+        }
+    }
+
+    /**
+     * 追加日志：槽位预留空间足够时原地追加；不足时整体搬到更大的槽位，并请求下次压缩
+     */
+    private void appendJournal(UUID playerId, byte[] frame) throws IOException {
+        Slot slot = index.get(playerId);
+        if (slot == null) {
+            // 还没有基础数据：以空基础数据 + 日志建立槽位
+            byte[] emptyBase = RelicBinaryCodec.encode(new EnumMap<>(RelicSlot.class), new ArrayList<>());
+            writeFull(playerId, emptyBase, frame);
+            return;
+        }
+        int used = HEADER_SIZE + slot.baseLen + slot.journalLen;
+        if (used + frame.length <= slot.capacity) {
+            ByteBuffer buf = slot.segment.buffer;
+            buf.put(slot.offset + used, frame);
+            slot.journalLen += frame.length;
+            // 日志长度最后更新，写入中途崩溃时未完成的记录不会被读取
+            buf.putInt(slot.offset + OFF_JOURNAL_LEN, slot.journalLen);
+            return;
+        }
+        byte[] base = new byte[slot.baseLen];
+        byte[] journal = new byte[slot.journalLen + frame.length];
+        slot.segment.buffer.get(slot.offset + HEADER_SIZE, base);
+        slot.segment.buffer.get(slot.offset + HEADER_SIZE + slot.baseLen, journal, 0, slot.journalLen);
+        System.arraycopy(frame, 0, journal, slot.journalLen, frame.length);
+        writeFull(playerId, base, journal);
+        compactionRequests.add(playerId);
+    }
+
+    private void writeHeader(Slot slot, UUID playerId, byte state) {
+        ByteBuffer buf = slot.segment.buffer;
+        int o = slot.offset;
+        buf.putLong(o + OFF_MSB, playerId.getMostSignificantBits());
+        buf.putLong(o + OFF_LSB, playerId.getLeastSignificantBits());
+        buf.putInt(o + OFF_CAPACITY, slot.capacity);
+        buf.putInt(o + OFF_BASE_LEN, slot.baseLen);
+        buf.putInt(o + OFF_JOURNAL_LEN, slot.journalLen);
+        buf.putLong(o + OFF_GENERATION, slot.generation);
+        buf.put(o + OFF_STATE, state);
+        buf.putInt(o, SLOT_MAGIC);
+    }
+
+    private void release(Slot slot) {
+        slot.segment.buffer.put(slot.offset + OFF_STATE, STATE_FREE);
+        free.add(slot);
+    }
+
+    // ===== 空间分配 =====
+
+    private static int capacityFor(int used) {
+        int withSlack = used + Math.max(MIN_SLACK, used / 4);
+        return (withSlack + ALIGN - 1) / ALIGN * ALIGN;
+    }
+
+    /**
+     * 分配槽位：优先复用最合适的空闲槽位，否则在段尾追加，段满则新建段
+     */
+    private Slot allocate(int used) throws IOException {
+        Slot best = null;
+        for (Slot s : free) {
+            if (s.capacity >= used && (best == null || s.capacity < best.capacity)) {
+                best = s;
+            }
+        }
+        if (best != null && best.capacity <= capacityFor(used) * 2) {
+            free.remove(best);
+            return new Slot(best.segment, best.offset, best.capacity);
+        }
+        int capacity = capacityFor(used);
+        if (capacity > segmentSize) {
+            throw new IOException("单个玩家数据超过段文件大小: " + capacity + " > " + segmentSize);
+        }
+        for (Segment seg : segments) {
+            if (seg.buffer.capacity() - seg.tail >= capacity) {
+                return bump(seg, capacity);
+            }
+        }
+        return bump(createSegment(nextSegmentId()), capacity);
+    }
+
+    private Slot bump(Segment seg, int capacity) {
+        Slot slot = new Slot(seg, seg.tail, capacity);
+        seg.tail += capacity;
+        return slot;
+    }
+
+    // ===== 打开 / 扫描 =====
+
+    private void open() throws IOException {
+        File[] files = listSegmentFiles(dir);
+        Map<UUID, Slot> best = new HashMap<>();
+        for (File f : files) {
+            Segment seg = mapSegment(f, parseSegmentId(f));
+            segments.add(seg);
+            List<ScannedEntry> entries = new ArrayList<>();
+            seg.tail = scan(seg.buffer, entries);
+            for (ScannedEntry e : entries) {
+                Slot slot = new Slot(seg, e.offset, e.capacity);
+                slot.baseLen = e.baseLen;
+                slot.journalLen = e.journalLen;
+                slot.generation = e.generation;
+                if (!e.live) {
+                    free.add(slot);
+                    continue;
+                }
+                Slot existing = best.get(e.playerId);
+                if (existing == null || existing.generation < slot.generation) {
+                    best.put(e.playerId, slot);
+                    if (existing != null) release(existing);
+                } else {
+                    release(slot);
+                }
+            }
+        }
+        index.putAll(best);
+        plugin.getLogger().info("段存储已加载: " + segments.size() + " 个段文件, " + index.size() + " 位玩家, " + free.size() + " 个空闲槽位");
+    }
+
+    /**
+     * 扫描一段缓冲区中的槽位头部，返回段尾位置
+     */
+    private static int scan(ByteBuffer buf, List<ScannedEntry> out) {
+        int pos = 0;
+        int limit = buf.capacity();
+        while (pos + HEADER_SIZE <= limit) {
+            if (buf.getInt(pos) != SLOT_MAGIC) break;
+            int capacity = buf.getInt(pos + OFF_CAPACITY);
+            int baseLen = buf.getInt(pos + OFF_BASE_LEN);
+            int journalLen = buf.getInt(pos + OFF_JOURNAL_LEN);
+            if (capacity < HEADER_SIZE || pos + capacity > limit || baseLen < 0 || journalLen < 0
+                    || HEADER_SIZE + baseLen + journalLen > capacity) {
+                break;
+            }
+            ScannedEntry e = new ScannedEntry();
+            e.playerId = new UUID(buf.getLong(pos + OFF_MSB), buf.getLong(pos + OFF_LSB));
+            e.offset = pos;
+            e.capacity = capacity;
+            e.baseLen = baseLen;
+            e.journalLen = journalLen;
+            e.generation = buf.getLong(pos + OFF_GENERATION);
+            e.live = buf.get(pos + OFF_STATE) == STATE_LIVE;
+            out.add(e);
+            pos += capacity;
+        }
+        return pos;
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        File f = new File(dir, segmentFileName(id));
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.setLength(segmentSize);
+        }
+        Segment seg = mapSegment(f, id);
+        segments.add(seg);
+        plugin.getLogger().info("创建段文件: " + f.getName());
+        return seg;
+    }
+
+    @SuppressWarnings("resource")
+    private static Segment mapSegment(File f, int id) throws IOException {
+        FileChannel channel = new RandomAccessFile(f, "rw").getChannel();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        return new Segment(id, channel, buffer);
+    }
+
+    private int nextSegmentId() {
+        int max = -1;
+        for (Segment s : segments) max = Math.max(max, s.id);
+        return max + 1;
+    }
+
+    private static File[] listSegmentFiles(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) return new File[0];
+        Arrays.sort(files, Comparator.comparingInt(SegmentRelicStore::parseSegmentId));
+        return files;
+    }
+
+    private static String segmentFileName(int id) {
+        return String.format("%s%03d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX);
+    }
+
+    private static int parseSegmentId(File f) {
+        String name = f.getName();
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    // ===== 离线压缩 =====
+
+    /**
+     * 请求在下次启动时压缩段文件（运行中的映射无法安全替换）
+     */
+    public void requestOfflineCompaction() throws IOException {
+        File marker = new File(dir, COMPACT_REQUEST);
+        if (!marker.exists()) {
+            Files.createFile(marker.toPath());
+        }
+    }
+
+    public boolean isCompactionScheduled() {
+        return new File(dir, COMPACT_REQUEST).exists();
+    }
+
+    /**
+     * 启动时、映射段文件之前执行：完成上次中断的替换，或按请求压缩
+     *
+     * 压缩把每位玩家的基础数据与日志合并重新编码，紧凑写入 compacting/ 下的新段文件，
+     * 写完后创建 DONE 标记，再替换旧段文件；替换中途崩溃时下次启动会继续完成替换（见 {@link #swapCompacted}）
+     */
+    private void finishOrRunCompaction() throws IOException {
+        File work = new File(dir, COMPACT_DIR);
+        if (new File(work, COMPACT_DONE).exists()) {
+            swapCompacted(work);
+            return;
+        }
+        File marker = new File(dir, COMPACT_REQUEST);
+        if (!marker.exists()) {
+            return;
+        }
+        plugin.getLogger().info("开始离线压缩段存储...");
+        long start = System.currentTimeMillis();
+        deleteRecursively(work);
+        work.mkdirs();
+
+        // 读取全部现存条目（按代数去重）
+        Map<UUID, byte[][]> live = new HashMap<>();
+        Map<UUID, Long> generations = new HashMap<>();
+        long before = 0;
+        for (File f : listSegmentFiles(dir)) {
+            byte[] bytes = Files.readAllBytes(f.toPath());
+            before += bytes.length;
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            List<ScannedEntry> entries = new ArrayList<>();
+            scan(buf, entries);
+            for (ScannedEntry e : entries) {
+                if (!e.live) continue;
+                Long gen = generations.get(e.playerId);
+                if (gen != null && gen >= e.generation) continue;
+                generations.put(e.playerId, e.generation);
+                byte[] base = Arrays.copyOfRange(bytes, e.offset + HEADER_SIZE, e.offset + HEADER_SIZE + e.baseLen);
+                byte[] journal = Arrays.copyOfRange(bytes, e.offset + HEADER_SIZE + e.baseLen,
+                        e.offset + HEADER_SIZE + e.baseLen + e.journalLen);
+                live.put(e.playerId, new byte[][]{base, journal});
+            }
+        }
+
+        // 合并日志并紧凑写出
+        int segId = 0;
+        ByteBuffer out = ByteBuffer.allocate(segmentSize);
+        int written = 0;
+        for (Map.Entry<UUID, byte[][]> e : live.entrySet()) {
+            byte[] base = foldJournal(e.getKey(), e.getValue()[0], e.getValue()[1]);
+            int capacity = capacityFor(HEADER_SIZE + base.length);
+            if (out.position() + capacity > segmentSize) {
+                writeSegmentFile(new File(work, segmentFileName(segId++)), out);
+                out = ByteBuffer.allocate(segmentSize);
+            }
+            int o = out.position();
+            out.put(o + HEADER_SIZE, base);
+            out.putLong(o + OFF_MSB, e.getKey().getMostSignificantBits());
+            out.putLong(o + OFF_LSB, e.getKey().getLeastSignificantBits());
+            out.putInt(o + OFF_CAPACITY, capacity);
+            out.putInt(o + OFF_BASE_LEN, base.length);
+            out.putInt(o + OFF_JOURNAL_LEN, 0);
+            out.putLong(o + OFF_GENERATION, 1);
+            out.put(o + OFF_STATE, STATE_LIVE);
+            out.putInt(o, SLOT_MAGIC);
+            out.position(o + capacity);
+            written++;
+        }
+        if (out.position() > 0 || segId == 0) {
+            writeSegmentFile(new File(work, segmentFileName(segId)), out);
+        }
+        syncDirectory(work);
+        Files.createFile(new File(work, COMPACT_DONE).toPath());
+        syncDirectory(work);
+        swapCompacted(work);
+        Files.deleteIfExists(marker.toPath());
+        plugin.getLogger().info(String.format("段存储压缩完成: %d 位玩家, %.1fMB -> %d 个段文件, 用时 %dms",
+                written, before / 1024.0 / 1024.0, listSegmentFiles(dir).length, System.currentTimeMillis() - start));
+    }
+
+    private byte[] foldJournal(UUID playerId, byte[] base, byte[] journal) throws IOException {
+        if (journal.length == 0) return base;
+        RelicBinaryCodec.Decoded decoded = RelicBinaryCodec.decode(base);
+        Map<RelicSlot, RelicData> equipped = new EnumMap<>(RelicSlot.class);
+        equipped.putAll(decoded.equipped);
+        List<RelicData> warehouse = new ArrayList<>(decoded.warehouse);
+        RelicJournal.ReplayResult result = RelicJournal.replay(journal, 0, journal.length, equipped, warehouse);
+        if (result.corrupted) {
+            plugin.getLogger().warning("压缩时发现玩家 " + playerId + " 的日志尾部损坏，已丢弃损坏部分");
+        }
+        return RelicBinaryCodec.encode(equipped, warehouse, format, RelicValidator.substatLimit(plugin));
+    }
+
+    private static void writeSegmentFile(File f, ByteBuffer content) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw"); FileChannel ch = raf.getChannel()) {
+            ByteBuffer src = content.duplicate();
+            src.flip();
+            while (src.hasRemaining()) {
+                ch.write(src);
+            }
+            raf.setLength(content.capacity());
+            ch.force(true);
+        }
+    }
+
+    /**
+     * 用 compacting/ 中的新段文件替换旧段文件，可重复执行：
+     * 1. 未有 CLEARED 标记时删除全部旧段文件，目录刷盘后创建 CLEARED 标记
+     * 2. 把 compacting/ 中剩余的段文件逐个移入（已移入的不会再被删除）
+     * 中途崩溃时，下次启动看到 CLEARED 就只继续第 2 步，不会误删已移入的新段文件
+     */
+    private void swapCompacted(File work) throws IOException {
+        File cleared = new File(work, COMPACT_CLEARED);
+        if (!cleared.exists()) {
+            for (File f : listSegmentFiles(dir)) {
+                Files.delete(f.toPath());
+            }
+            syncDirectory(dir);
+            Files.createFile(cleared.toPath());
+            syncDirectory(work);
+        }
+        for (File f : listSegmentFiles(work)) {
+            Files.move(f.toPath(), new File(dir, f.getName()).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        syncDirectory(dir);
+        deleteRecursively(work);
+    }
+
+    /**
+     * 目录刷盘，保证删除/改名本身持久化；部分平台（如 Windows）不支持，忽略即可
+     */
+    private static void syncDirectory(File d) {
+        try (FileChannel ch = FileChannel.open(d.toPath(), StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void deleteRecursively(File f) throws IOException {
+        if (!f.exists()) return;
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) deleteRecursively(c);
+        }
+        Files.delete(f.toPath());
+    }
+
+    // ===== 其它 =====
+
+    /**
+     * 段存储中是否已有该玩家
+     */
+    @Override
+    public synchronized boolean contains(UUID playerId) {
+        return index.containsKey(playerId);
+    }
+
+    @Override
+    public synchronized Set<UUID> playerIds() {
+        return new HashSet<>(index.keySet());
+    }
+
+    @Override
+    public boolean takeCompactionRequest(UUID playerId) {
+        return compactionRequests.remove(playerId);
+    }
+
+    @Override
+    public synchronized long getJournalSize(UUID playerId) {
+        Slot slot = index.get(playerId);
+        return slot != null ? slot.journalLen : 0;
+    }
+
+    @Override
+    public int getWarehouseCapacity() {
+        return MAX_WAREHOUSE_CAPACITY;
+    }
+
+    @Override
+    public synchronized List<String> getStatusLines() {
+        long total = 0;
+        long tail = 0;
+        for (Segment s : segments) {
+            total += s.buffer.capacity();
+            tail += s.tail;
+        }
+        long freeBytes = 0;
+        for (Slot s : free) freeBytes += s.capacity;
+        long liveBytes = 0;
+        for (Slot s : index.values()) liveBytes += HEADER_SIZE + s.baseLen + s.journalLen;
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("§7段文件: §f%d §7(共 §f%.1fMB§7, 已分配 §f%.1fMB§7)",
+                segments.size(), total / 1024.0 / 1024.0, tail / 1024.0 / 1024.0));
+        lines.add(String.format("§7玩家: §f%d §7有效数据: §f%.1fMB §7空闲槽位: §f%d §7(§f%.1fMB§7)",
+                index.size(), liveBytes / 1024.0 / 1024.0, free.size(), freeBytes / 1024.0 / 1024.0));
+        if (isCompactionScheduled()) {
+            lines.add("§e已计划在下次启动时压缩段文件");
+        }
+        return lines;
+    }
+
+    @Override
+    public synchronized int sync() {
+        for (Segment s : segments) {
+            s.buffer.force();
+        }
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Segment s : segments) {
+            try {
+                s.buffer.force();
+                s.channel.close();
+            } catch (IOException e) {
+                plugin.getLogger().warning("关闭段文件失败: " + e.getMessage());
+            }
+        }
+        segments.clear();
+        index.clear();
+        free.clear();
+    }
+}
@@ -0,0 +1,318 @@
+package com.salteddoubao.relicsystem.storage;
+
+import com.salteddoubao.relicsystem.MinecraftRelicSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * 逐玩家文件的目录分片布局
+ *
+ * 按 UUID 前缀把文件分散到多级子目录，避免单个目录中堆积数万个文件：
+ * <pre>
+ * levels=2, width=2:  relic_storage/1f/3a/1f3a....dat
+ * levels=0:           relic_storage/1f3a....dat      （旧的平铺布局）
+ * </pre>
+ * 当前布局记录在根目录的 .layout 文件中。配置的布局与之不同、或根目录下仍有平铺文件时，
+ * 访问某位玩家的文件会先把旧位置的文件（连同 .tmp/.bak）移动到新位置；
+ * {@link #reshard()} 一次性移动全部文件后更新 .layout。
+ */
+public class ShardedLayout {
+    private static final String MARKER = ".layout";
+    // UUID 字符串前 8 位是连续的十六进制字符
+    private static final int MAX_PREFIX = 8;
+    private static final String[] SIBLINGS = {"", ".tmp", ".bak"};
+
+    private final File root;
+    private final int levels;
+    private final int width;
+    private final Logger logger;
+    /** 旧布局（.layout 记录的布局）；与当前相同时为 null */
+    private volatile int[] previous;
+    /** 是否可能仍有文件留在旧位置，为 false 时访问不再探测旧位置 */
+    private volatile boolean legacyPending;
+
+    public ShardedLayout(File root, int levels, int width, Logger logger) {
+        this.root = root;
+        this.width = Math.max(1, width);
+        this.levels = Math.max(0, Math.min(levels, MAX_PREFIX / this.width));
+        this.logger = logger;
+        if (!root.exists()) {
+            root.mkdirs();
+        }
+        int[] recorded = readMarker();
+        boolean flat = hasFlatFiles();
+        if (recorded == null && !flat) {
+            // 新目录：直接采用当前布局
+            writeMarker();
+            return;
+        }
+        boolean changed = recorded == null || recorded[0] != this.levels || recorded[1] != this.width;
+        if (changed && recorded != null && recorded[0] > 0) {
+            previous = recorded;
+        }
+        legacyPending = changed || flat;
+        if (legacyPending) {
+            logger.info(root.getName() + "/ 的目录布局已变更为 " + describe()
+                    + "，旧位置的文件将在访问时移动；可执行 /relic reshard 一次性整理");
+        }
+    }
+
+    public static ShardedLayout fromConfig(MinecraftRelicSystem plugin, String dirName) {
+        return new ShardedLayout(new File(plugin.getDataFolder(), dirName),
+                plugin.getConfig().getInt("relic.storage_layout.levels", 2),
+                plugin.getConfig().getInt("relic.storage_layout.width", 2),
+                plugin.getLogger());
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    // ===== 定位 =====
+
+    /**
+     * 玩家文件的当前位置；文件仍在旧位置时先移动过来
+     */
+    public File file(UUID playerId, String suffix) {
+        File target = new File(dirFor(playerId, levels, width), playerId + suffix);
+        if (legacyPending && !target.exists()) {
+            relocate(playerId, suffix, target);
+        }
+        return target;
+    }
+
+    /**
+     * 用于写入的位置（同时创建分片目录）
+     */
+    public File fileForWrite(UUID playerId, String suffix) {
+        File target = file(playerId, suffix);
+        File dir = target.getParentFile();
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        return target;
+    }
+
+    private File dirFor(UUID playerId, int levels, int width) {
+        String id = playerId.toString();
+        File dir = root;
+        for (int i = 0; i < levels; i++) {
+            dir = new File(dir, id.substring(i * width, (i + 1) * width));
+        }
+        return dir;
+    }
+
+    /**
+     * 把平铺位置或旧布局下的文件移动到目标位置；与 {@link #reshard()} 互斥，
+     * 读写方总是在移动完成后才拿到路径，不会读到一半移动的文件
+     */
+    private synchronized void relocate(UUID playerId, String suffix, File target) {
+        if (target.exists()) return;
+        List<File> sources = new ArrayList<>(2);
+        sources.add(new File(root, playerId + suffix));
+        int[] prev = previous;
+        if (prev != null) {
+            sources.add(new File(dirFor(playerId, prev[0], prev[1]), playerId + suffix));
+        }
+        for (File source : sources) {
+            if (source.equals(target) || !DurableFileWriter.exists(source)) continue;
+            try {
+                move(source, target);
+                logger.fine("已移动到分片目录: " + target.getName());
+            } catch (IOException e) {
+                logger.warning("移动存储文件到分片目录失败: " + source.getName() + " - " + e.getMessage());
+            }
+            return;
+        }
+    }
+
+    /**
+     * 移动主文件及其临时文件、备份；目标已存在的同名文件以目标为准
+     */
+    private void move(File source, File target) throws IOException {
+        Files.createDirectories(target.getParentFile().toPath());
+        for (String sibling : SIBLINGS) {
+            Path from = new File(source.getParentFile(), source.getName() + sibling).toPath();
+            Path to = new File(target.getParentFile(), target.getName() + sibling).toPath();
+            if (!Files.exists(from)) continue;
+            if (Files.exists(to)) {
+                logger.warning("分片目录中已存在 " + to.getFileName() + "，保留旧位置的文件: " + root.toPath().relativize(from));
+                continue;
+            }
+            try {
+                Files.move(from, to);
+            } catch (NoSuchFileException ignored) {
+                // 并发移动
+            }
+        }
+    }
+
+    // ===== 枚举 =====
+
+    /**
+     * 根目录下（含任意层子目录）指定后缀的全部文件
+     */
+    public List<File> list(String... suffixes) {
+        List<File> result = new ArrayList<>();
+        try (Stream<Path> stream = Files.walk(root.toPath())) {
+            stream.filter(p -> matches(p.getFileName().toString(), suffixes))
+                    .forEach(p -> result.add(p.toFile()));
+        } catch (IOException | java.io.UncheckedIOException e) {
+            logger.warning("遍历目录失败: " + root.getName() + "/ - " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 有指定后缀文件的玩家
+     */
+    public Set<UUID> playerIds(String... suffixes) {
+        Set<UUID> ids = new HashSet<>();
+        for (File f : list(suffixes)) {
+            UUID id = playerIdOf(f);
+            if (id != null) ids.add(id);
+        }
+        return ids;
+    }
+
+    public int count(String... suffixes) {
+        try (Stream<Path> stream = Files.walk(root.toPath())) {
+            return (int) stream.filter(p -> matches(p.getFileName().toString(), suffixes)).count();
+        } catch (IOException | java.io.UncheckedIOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 从文件名解析玩家UUID，非玩家文件返回 null
+     */
+    public static UUID playerIdOf(File file) {
+        String name = file.getName();
+        int dot = name.indexOf('.');
+        try {
+            return UUID.fromString(dot > 0 ? name.substring(0, dot) : name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean matches(String name, String[] suffixes) {
+        for (String suffix : suffixes) {
+            if (name.endsWith(suffix)) return true;
+        }
+        return false;
+    }
+
+    // ===== 批量整理 =====
+
+    /**
+     * 把所有不在当前布局位置的文件移动到位，清理空目录并更新 .layout
+     *
+     * @return 移动的文件数
+     */
+    public int reshard() {
+        int moved = 0;
+        int failed = 0;
+        List<File> files = list(".dat", ".journal", ".ver", ".yml", ".tmp", ".bak");
+        for (File f : files) {
+            String name = f.getName();
+            // .tmp/.bak 随主文件移动；只剩下它们时按主文件名定位
+            String main = name.endsWith(".tmp") || name.endsWith(".bak") ? name.substring(0, name.length() - 4) : name;
+            UUID id = playerIdOf(f);
+            if (id == null) continue;
+            File target = new File(dirFor(id, levels, width), main);
+            File source = new File(f.getParentFile(), main);
+            if (source.equals(target)) continue;
+            synchronized (this) {
+                if (!f.exists()) continue;
+                try {
+                    move(source, target);
+                    moved++;
+                } catch (IOException e) {
+                    failed++;
+                    logger.warning("移动存储文件失败: " + name + " - " + e.getMessage());
+                }
+            }
+        }
+        removeEmptyDirs();
+        if (failed == 0) {
+            previous = null;
+            legacyPending = hasFlatFiles();
+            writeMarker();
+        }
+        logger.info(root.getName() + "/ 目录整理完成: 移动 " + moved + " 个文件, 失败 " + failed + " 个, 布局 " + describe());
+        return moved;
+    }
+
+    private void removeEmptyDirs() {
+        try (Stream<Path> stream = Files.walk(root.toPath())) {
+            stream.sorted(Comparator.reverseOrder())
+                    .filter(p -> !p.equals(root.toPath()) && Files.isDirectory(p))
+                    .forEach(p -> {
+                        try (DirectoryStream<Path> children = Files.newDirectoryStream(p)) {
+                            if (!children.iterator().hasNext()) {
+                                Files.delete(p);
+                            }
+                        } catch (IOException ignored) {
+                            // 非空或正在被写入
+                        }
+                    });
+        } catch (IOException | java.io.UncheckedIOException ignored) {
+        }
+    }
+
+    // ===== 布局记录 =====
+
+    private boolean hasFlatFiles() {
+        if (levels == 0) return false;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root.toPath())) {
+            for (Path p : stream) {
+                if (Files.isRegularFile(p) && playerIdOf(p.toFile()) != null) return true;
+            }
+        } catch (IOException ignored) {
+        }
+        return false;
+    }
+
+    private int[] readMarker() {
+        File marker = new File(root, MARKER);
+        if (!marker.exists()) return null;
+        try {
+            String[] parts = Files.readString(marker.toPath(), StandardCharsets.UTF_8).trim().split(":");
+            return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+        } catch (IOException | RuntimeException e) {
+            logger.warning("无法读取目录布局记录: " + root.getName() + "/" + MARKER);
+            return null;
+        }
+    }
+
+    private void writeMarker() {
+        try {
+            Files.writeString(new File(root, MARKER).toPath(), levels + ":" + width + "\n", StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.warning("写入目录布局记录失败: " + e.getMessage());
+        }
+    }
+
+    public String describe() {
+        return levels == 0 ? "平铺" : levels + " 级 × " + width + " 位";
+    }
+
+    public boolean isLegacyPending() {
+        return legacyPending;
+    }
+}
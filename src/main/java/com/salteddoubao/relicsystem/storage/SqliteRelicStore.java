@@ -0,0 +1,483 @@
+package com.salteddoubao.relicsystem.storage;
+
+import com.salteddoubao.relicsystem.MinecraftRelicSystem;
+import com.salteddoubao.relicsystem.relic.PlayerRelicProfile;
+import com.salteddoubao.relicsystem.relic.RelicData;
+import com.salteddoubao.relicsystem.relic.RelicRarity;
+import com.salteddoubao.relicsystem.relic.RelicSlot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 嵌入式 SQLite 存储（storage_mode: SQLITE）
+ *
+ * 每件圣遗物一行，主键为圣遗物ID，按拥有者建索引：
+ * <pre>
+ * relic_players(owner_id PK, updated_at)
+ * relics(relic_id PK, owner_id, equipped_slot, position, set_id, slot, rarity, level, locked, data)
+ * </pre>
+ * - equipped_slot 为部位序号，NULL 表示在仓库中；position 保持仓库顺序
+ * - data 为单件记录的二进制编码，其余列用于跨玩家查询（按套装、拥有者等）
+ * - 增量快照中的每条日志操作直接转换为单行 INSERT/UPDATE/DELETE，
+ *   同一快照的所有操作在一个事务内提交；完整快照整体替换该玩家的所有行
+ * - 使用 WAL 日志模式，读写互不阻塞；所有语句均为预编译语句
+ */
+public class SqliteRelicStore implements RelicProfileStore {
+    private static final int MAX_WAREHOUSE_CAPACITY = 2000;
+
+    private final MinecraftRelicSystem plugin;
+    private final RelicInventoryStorage legacy;
+    private final File file;
+    private final Set<UUID> compactionRequests = ConcurrentHashMap.newKeySet();
+    private final RelicQuarantine quarantine;
+
+    // 连接与语句只在持有 this 锁时使用（SQLite 同一时间只允许一个写事务）
+    private Connection connection;
+    private PreparedStatement selectRelics;
+    private PreparedStatement selectPlayer;
+    private PreparedStatement upsertPlayer;
+    private PreparedStatement deleteOwnerRelics;
+    private PreparedStatement upsertRelic;
+    private PreparedStatement deleteWarehouseRelic;
+    private PreparedStatement displaceEquipped;
+    private PreparedStatement unequipRelic;
+    private PreparedStatement maxPosition;
+    private PreparedStatement selectOwner;
+    private PreparedStatement countRelics;
+
+    public SqliteRelicStore(MinecraftRelicSystem plugin, RelicInventoryStorage legacy) throws IOException {
+        this.plugin = plugin;
+        this.legacy = legacy;
+        this.quarantine = new RelicQuarantine(plugin);
+        this.file = new File(plugin.getDataFolder(), plugin.getConfig().getString("relic.sqlite_storage.file", "relics.db"));
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new IOException("未找到 SQLite JDBC 驱动", e);
+        }
+        try {
+            open();
+        } catch (SQLException e) {
+            close();
+            throw new IOException("打开 SQLite 数据库失败: " + e.getMessage(), e);
+        }
+    }
+
+    private void open() throws SQLException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        try (Statement st = connection.createStatement()) {
+            st.execute("PRAGMA journal_mode=WAL");
+            st.execute("PRAGMA synchronous=NORMAL");
+            st.execute("CREATE TABLE IF NOT EXISTS relic_players ("
+                    + "owner_id TEXT PRIMARY KEY, "
+                    + "updated_at INTEGER NOT NULL)");
+            st.execute("CREATE TABLE IF NOT EXISTS relics ("
+                    + "relic_id TEXT PRIMARY KEY, "
+                    + "owner_id TEXT NOT NULL, "
+                    + "equipped_slot INTEGER, "
+                    + "position INTEGER NOT NULL, "
+                    + "set_id TEXT NOT NULL, "
+                    + "slot INTEGER NOT NULL, "
+                    + "rarity TEXT NOT NULL, "
+                    + "level INTEGER NOT NULL, "
+                    + "locked INTEGER NOT NULL, "
+                    + "data BLOB NOT NULL)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_relics_owner ON relics(owner_id, position)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_relics_set ON relics(set_id)");
+        }
+        connection.setAutoCommit(false);
+        selectRelics = connection.prepareStatement(
+                "SELECT data, equipped_slot, locked FROM relics WHERE owner_id = ? ORDER BY position");
+        selectPlayer = connection.prepareStatement("SELECT 1 FROM relic_players WHERE owner_id = ?");
+        upsertPlayer = connection.prepareStatement("INSERT OR REPLACE INTO relic_players(owner_id, updated_at) VALUES (?, ?)");
+        deleteOwnerRelics = connection.prepareStatement("DELETE FROM relics WHERE owner_id = ?");
+        upsertRelic = connection.prepareStatement("INSERT OR REPLACE INTO relics"
+                + "(relic_id, owner_id, equipped_slot, position, set_id, slot, rarity, level, locked, data) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        deleteWarehouseRelic = connection.prepareStatement(
+                "DELETE FROM relics WHERE relic_id = ? AND owner_id = ? AND equipped_slot IS NULL");
+        displaceEquipped = connection.prepareStatement(
+                "UPDATE relics SET equipped_slot = NULL, position = ? WHERE owner_id = ? AND equipped_slot = ? AND relic_id <> ?");
+        unequipRelic = connection.prepareStatement(
+                "UPDATE relics SET equipped_slot = NULL, position = ? WHERE relic_id = ? AND owner_id = ? AND equipped_slot = ?");
+        maxPosition = connection.prepareStatement("SELECT COALESCE(MAX(position), 0) FROM relics WHERE owner_id = ?");
+        selectOwner = connection.prepareStatement("SELECT owner_id FROM relics WHERE relic_id = ?");
+        countRelics = connection.prepareStatement("SELECT equipped_slot IS NOT NULL, slot, rarity, COUNT(*) "
+                + "FROM relics WHERE owner_id = ? GROUP BY 1, 2, 3");
+        connection.commit();
+    }
+
+    // ===== 读写 =====
+
+    @Override
+    public synchronized boolean loadProfile(UUID playerId, PlayerRelicProfile profile) {
+        try {
+            if (!hasPlayer(playerId)) {
+                connection.commit();
+                // 尚未写入数据库：回退读取旧的逐文件存储，之后以完整快照写入数据库
+                return legacy.loadProfile(playerId, profile) || legacy.hasData(playerId);
+            }
+            boolean rewrite = false;
+            int dropped = 0;
+            selectRelics.setString(1, playerId.toString());
+            try (ResultSet rs = selectRelics.executeQuery()) {
+                while (rs.next()) {
+                    byte[] data = rs.getBytes(1);
+                    RelicData relic = decodeRelic(data);
+                    if (relic == null) {
+                        dropped++;
+                        quarantine.raw(playerId, "undecodable-row", data);
+                        continue;
+                    }
+                    // locked 列由 LOCK 操作单独更新，以列为准
+                    relic.setLocked(rs.getInt(3) != 0);
+                    int slotOrd = rs.getInt(2);
+                    if (rs.wasNull()) {
+                        profile.getWarehouse().add(relic);
+                    } else if (slotOrd == relic.getSlot().ordinal() && !profile.getEquipped().containsKey(relic.getSlot())) {
+                        profile.getEquipped().put(relic.getSlot(), relic);
+                    } else {
+                        profile.getWarehouse().add(relic);
+                        rewrite = true;
+                    }
+                }
+            }
+            connection.commit();
+            if (dropped > 0) {
+                plugin.getLogger().warning("玩家 " + playerId + " 的数据库中有 " + dropped + " 条无法解码的数据，已隔离");
+                rewrite = true;
+            }
+            // 行数据没有校验版本标记，每次读取都校验（不涉及 ItemStack，代价很小）
+            if (quarantine.validate(playerId, profile.getEquipped(), profile.getWarehouse())) {
+                rewrite = true;
+            }
+            return rewrite;
+        } catch (SQLException | IOException e) {
+            plugin.getLogger().warning("读取 SQLite 数据失败: " + playerId + " - " + e.getMessage());
+            rollbackQuietly();
+            return false;
+        }
+    }
+
+    @Override
+    public void saveProfile(ProfileSnapshot snapshot) throws IOException {
+        UUID playerId = snapshot.getPlayerId();
+        List<RelicJournal.Op> ops = new ArrayList<>(snapshot.getJournalOps().size());
+        for (byte[] op : snapshot.getJournalOps()) {
+            RelicJournal.Op decoded = RelicJournal.decode(op);
+            if (decoded != null) {
+                ops.add(decoded);
+            }
+        }
+        synchronized (this) {
+            try {
+                String owner = playerId.toString();
+                if (snapshot.hasFullData()) {
+                    writeFull(owner, snapshot.getEquipped(), snapshot.getWarehouse());
+                }
+                applyOps(owner, ops);
+                upsertPlayer.setString(1, owner);
+                upsertPlayer.setLong(2, System.currentTimeMillis());
+                upsertPlayer.executeUpdate();
+                connection.commit();
+            } catch (SQLException e) {
+                rollbackQuietly();
+                compactionRequests.add(playerId);
+                throw new IOException("写入 SQLite 失败: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 完整写入：删除该玩家的所有行后批量插入（调用方负责提交事务）
+     */
+    private void writeFull(String owner, Map<RelicSlot, RelicData> equipped, List<RelicData> warehouse) throws SQLException, IOException {
+        deleteOwnerRelics.setString(1, owner);
+        deleteOwnerRelics.executeUpdate();
+        for (RelicData relic : equipped.values()) {
+            bindRelic(owner, relic, relic.getSlot(), 0);
+            upsertRelic.addBatch();
+        }
+        int position = 0;
+        for (RelicData relic : warehouse) {
+            bindRelic(owner, relic, null, ++position);
+            upsertRelic.addBatch();
+        }
+        upsertRelic.executeBatch();
+    }
+
+    /**
+     * 把日志操作逐条转换为单行修改（调用方负责提交事务）
+     */
+    private void applyOps(String owner, List<RelicJournal.Op> ops) throws SQLException, IOException {
+        if (ops.isEmpty()) return;
+        maxPosition.setString(1, owner);
+        int position;
+        try (ResultSet rs = maxPosition.executeQuery()) {
+            position = rs.next() ? rs.getInt(1) : 0;
+        }
+        for (RelicJournal.Op op : ops) {
+            switch (op.type) {
+                case RelicJournal.OP_ADD:
+                    // 覆盖写入：若该圣遗物仍记在其他玩家名下（转手），归属随之更新
+                    bindRelic(owner, op.relic, null, ++position);
+                    upsertRelic.executeUpdate();
+                    break;
+                case RelicJournal.OP_REMOVE:
+                    deleteWarehouseRelic.setString(1, op.relicId.toString());
+                    deleteWarehouseRelic.setString(2, owner);
+                    deleteWarehouseRelic.executeUpdate();
+                    break;
+                case RelicJournal.OP_EQUIP:
+                    displaceEquipped.setInt(1, ++position);
+                    displaceEquipped.setString(2, owner);
+                    displaceEquipped.setInt(3, op.relic.getSlot().ordinal());
+                    displaceEquipped.setString(4, op.relicId.toString());
+                    displaceEquipped.executeUpdate();
+                    bindRelic(owner, op.relic, op.relic.getSlot(), 0);
+                    upsertRelic.executeUpdate();
+                    break;
+                case RelicJournal.OP_UNEQUIP:
+                    unequipRelic.setInt(1, ++position);
+                    unequipRelic.setString(2, op.relicId.toString());
+                    unequipRelic.setString(3, owner);
+                    unequipRelic.setInt(4, op.slot.ordinal());
+                    unequipRelic.executeUpdate();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void bindRelic(String owner, RelicData relic, RelicSlot equippedSlot, int position) throws SQLException, IOException {
+        upsertRelic.setString(1, relic.getId().toString());
+        upsertRelic.setString(2, owner);
+        if (equippedSlot != null) {
+            upsertRelic.setInt(3, equippedSlot.ordinal());
+        } else {
+            upsertRelic.setNull(3, Types.INTEGER);
+        }
+        upsertRelic.setInt(4, position);
+        upsertRelic.setString(5, relic.getSetId());
+        upsertRelic.setInt(6, relic.getSlot().ordinal());
+        upsertRelic.setString(7, relic.getRarity().name());
+        upsertRelic.setInt(8, relic.getLevel());
+        upsertRelic.setInt(9, relic.isLocked() ? 1 : 0);
+        upsertRelic.setBytes(10, encodeRelic(relic));
+    }
+
+    private static byte[] encodeRelic(RelicData relic) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(96);
+        DataOutputStream out = new DataOutputStream(baos);
+        RelicBinaryCodec.writeStandaloneRecord(out, relic);
+        out.flush();
+        return baos.toByteArray();
+    }
+
+    private static RelicData decodeRelic(byte[] data) throws IOException {
+        if (data == null) return null;
+        return RelicBinaryCodec.readStandaloneRecord(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    private boolean hasPlayer(UUID playerId) throws SQLException {
+        selectPlayer.setString(1, playerId.toString());
+        try (ResultSet rs = selectPlayer.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    private void rollbackQuietly() {
+        try {
+            if (connection != null) {
+                connection.rollback();
+            }
+        } catch (SQLException ignored) {
+        }
+    }
+
+    // ===== 跨玩家查询 =====
+
+    /**
+     * 查询圣遗物当前归属的玩家（无需加载任何玩家档案）
+     *
+     * @return 拥有者UUID，不存在时返回 null
+     */
+    public synchronized UUID findOwner(UUID relicId) {
+        try {
+            selectOwner.setString(1, relicId.toString());
+            try (ResultSet rs = selectOwner.executeQuery()) {
+                UUID owner = rs.next() ? UUID.fromString(rs.getString(1)) : null;
+                connection.commit();
+                return owner;
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().warning("查询圣遗物归属失败: " + relicId + " - " + e.getMessage());
+            rollbackQuietly();
+            return null;
+        }
+    }
+
+    /**
+     * 按列统计计数摘要，不读取也不解码 data 列
+     */
+    @Override
+    public synchronized ProfileSummary readSummary(UUID playerId) {
+        try {
+            if (!hasPlayer(playerId)) {
+                connection.commit();
+                return legacy.readSummary(playerId);
+            }
+            int equipped = 0;
+            int[] slots = new int[RelicSlot.values().length];
+            int[] rarities = new int[RelicRarity.values().length];
+            countRelics.setString(1, playerId.toString());
+            try (ResultSet rs = countRelics.executeQuery()) {
+                while (rs.next()) {
+                    int count = rs.getInt(4);
+                    if (rs.getInt(1) != 0) {
+                        equipped += count;
+                        continue;
+                    }
+                    int slotOrd = rs.getInt(2);
+                    if (slotOrd >= 0 && slotOrd < slots.length) slots[slotOrd] += count;
+                    RelicRarity rarity = rarityByName(rs.getString(3));
+                    if (rarity != null) rarities[rarity.ordinal()] += count;
+                }
+            }
+            connection.commit();
+            return ProfileSummary.of(equipped, slots, rarities);
+        } catch (SQLException e) {
+            plugin.getLogger().warning("统计 SQLite 数据失败: " + playerId + " - " + e.getMessage());
+            rollbackQuietly();
+            return RelicProfileStore.super.readSummary(playerId);
+        }
+    }
+
+    private static RelicRarity rarityByName(String name) {
+        try {
+            return RelicRarity.valueOf(name);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null;
+        }
+    }
+
+    // ===== 其它 =====
+
+    @Override
+    public synchronized boolean contains(UUID playerId) {
+        try {
+            boolean found = hasPlayer(playerId);
+            connection.commit();
+            return found;
+        } catch (SQLException e) {
+            rollbackQuietly();
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized Set<UUID> playerIds() {
+        Set<UUID> ids = new HashSet<>();
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT owner_id FROM relic_players")) {
+            while (rs.next()) {
+                ids.add(UUID.fromString(rs.getString(1)));
+            }
+            connection.commit();
+        } catch (SQLException | IllegalArgumentException e) {
+            plugin.getLogger().warning("读取 SQLite 玩家列表失败: " + e.getMessage());
+            rollbackQuietly();
+        }
+        return ids;
+    }
+
+    /**
+     * 每条操作直接落到对应的行上，没有需要压缩的日志
+     */
+    @Override
+    public boolean usesJournal() {
+        return false;
+    }
+
+    @Override
+    public boolean takeCompactionRequest(UUID playerId) {
+        return compactionRequests.remove(playerId);
+    }
+
+    @Override
+    public long getJournalSize(UUID playerId) {
+        return 0;
+    }
+
+    @Override
+    public int getWarehouseCapacity() {
+        return MAX_WAREHOUSE_CAPACITY;
+    }
+
+    @Override
+    public synchronized List<String> getStatusLines() {
+        List<String> lines = new ArrayList<>();
+        try (Statement st = connection.createStatement()) {
+            long players;
+            long relics;
+            try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM relic_players")) {
+                players = rs.next() ? rs.getLong(1) : 0;
+            }
+            try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM relics")) {
+                relics = rs.next() ? rs.getLong(1) : 0;
+            }
+            connection.commit();
+            File wal = new File(file.getPath() + "-wal");
+            lines.add(String.format("§7数据库: §f%s §7(§f%.1fMB§7, WAL §f%.1fMB§7)",
+                    file.getName(), file.length() / 1024.0 / 1024.0, wal.length() / 1024.0 / 1024.0));
+            lines.add(String.format("§7玩家: §f%d §7圣遗物: §f%d", players, relics));
+        } catch (SQLException e) {
+            rollbackQuietly();
+            lines.add("§c读取数据库状态失败: " + e.getMessage());
+        }
+        return lines;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (connection == null) return;
+        try (Statement st = connection.createStatement()) {
+            // 关闭前把 WAL 合并回主文件
+            connection.commit();
+            connection.setAutoCommit(true);
+            st.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+        } catch (SQLException e) {
+            plugin.getLogger().warning("SQLite 检查点失败: " + e.getMessage());
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            plugin.getLogger().warning("关闭 SQLite 数据库失败: " + e.getMessage());
+        }
+        connection = null;
+    }
+}
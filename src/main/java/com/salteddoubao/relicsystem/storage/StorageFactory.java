@@ -13,7 +13,9 @@ public class StorageFactory {
     
     public enum StorageMode {
         YAML,      // 传统YAML文件存储
-        INVENTORY  // 独立的圣遗物存储系统（类似末影箱原理）
+        INVENTORY, // 独立的圣遗物存储系统（类似末影箱原理）
+        SEGMENT,   // 内存映射段文件存储（大量玩家时减少小文件）
+        SQLITE     // 嵌入式 SQLite 数据库（每件圣遗物一行，支持跨玩家查询）
     }
     
     public StorageFactory(MinecraftRelicSystem plugin) {
@@ -46,7 +48,40 @@ public class StorageFactory {
                 
             case INVENTORY:
                 plugin.getLogger().info("使用独立存储模式（推荐）");
-                return new InventoryProfileManager(plugin);
+                InventoryProfileManager manager = new InventoryProfileManager(plugin);
+                manager.startAutoSave(getAutoSaveInterval());
+                if (plugin.getConfig().getBoolean("relic.inventory_storage.cold_archive.enabled", false)) {
+                    manager.startColdArchive(
+                            plugin.getConfig().getLong("relic.inventory_storage.cold_archive.interval_minutes", 360),
+                            plugin.getConfig().getInt("relic.inventory_storage.cold_archive.inactive_days", 90));
+                }
+                return manager;
+                
+            case SEGMENT:
+                plugin.getLogger().info("使用段文件存储模式");
+                try {
+                    SegmentRelicStore store = new SegmentRelicStore(plugin, new RelicInventoryStorage(plugin));
+                    InventoryProfileManager segmentManager = new InventoryProfileManager(plugin, store);
+                    segmentManager.startAutoSave(getAutoSaveInterval());
+                    return segmentManager;
+                } catch (java.io.IOException e) {
+                    plugin.getLogger().severe("段文件存储初始化失败，回退到独立存储模式: " + e.getMessage());
+                    e.printStackTrace();
+                    return createFallbackManager();
+                }
+                
+            case SQLITE:
+                plugin.getLogger().info("使用 SQLite 数据库存储模式");
+                try {
+                    SqliteRelicStore store = new SqliteRelicStore(plugin, new RelicInventoryStorage(plugin));
+                    InventoryProfileManager sqliteManager = new InventoryProfileManager(plugin, store);
+                    sqliteManager.startAutoSave(getAutoSaveInterval());
+                    return sqliteManager;
+                } catch (java.io.IOException e) {
+                    plugin.getLogger().severe("SQLite 存储初始化失败，回退到独立存储模式: " + e.getMessage());
+                    e.printStackTrace();
+                    return createFallbackManager();
+                }
                 
             default:
                 plugin.getLogger().warning("未知存储模式，回退到 YAML 模式");
@@ -54,6 +89,27 @@ public class StorageFactory {
         }
     }
     
+    /**
+     * 创建全服圣遗物登记表（YAML 模式或未启用时返回 null）
+     */
+    public RelicRegistry createRelicRegistry() {
+        if (getStorageMode() == StorageMode.YAML || !plugin.getConfig().getBoolean("relic.registry.enabled", true)) {
+            return null;
+        }
+        try {
+            return new RelicRegistry(plugin);
+        } catch (java.io.IOException e) {
+            plugin.getLogger().warning("圣遗物登记表初始化失败，重复检测已停用: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private IRelicProfileManager createFallbackManager() {
+        InventoryProfileManager fallback = new InventoryProfileManager(plugin);
+        fallback.startAutoSave(getAutoSaveInterval());
+        return fallback;
+    }
+    
     /**
      * 检查是否启用自动迁移
      */
@@ -68,21 +124,28 @@ public class StorageFactory {
         return plugin.getConfig().getBoolean("relic.inventory_storage.keep_backup", true);
     }
     
+    /**
+     * 获取独立存储定时写回间隔（秒）
+     */
+    public long getAutoSaveInterval() {
+        return plugin.getConfig().getLong("relic.inventory_storage.autosave_interval", 300);
+    }
+    
     /**
      * 执行自动迁移（如果需要）
      */
     public void performAutoMigration(Player player) {
         StorageMode mode = getStorageMode();
         
-        // 只有在独立存储模式且启用自动迁移时才执行
-        if (mode != StorageMode.INVENTORY || !isAutoMigrationEnabled()) {
+        // 只有在非 YAML 模式且启用自动迁移时才执行
+        if (mode == StorageMode.YAML || !isAutoMigrationEnabled()) {
             return;
         }
         
         DataMigration migration = new DataMigration(plugin);
         
-        // 检查是否需要迁移
-        if (!migration.needsMigration(player)) {
+        // 检查是否需要迁移（正由批量迁移处理的玩家交给批量迁移）
+        if (!migration.needsMigration(player) || DataMigration.isBulkMigrating(player.getUniqueId())) {
             return;
         }
         
@@ -119,6 +182,8 @@ public class StorageFactory {
         return switch (mode) {
             case YAML -> "YAML文件存储";
             case INVENTORY -> "独立存储系统";
+            case SEGMENT -> "段文件存储";
+            case SQLITE -> "SQLite数据库存储";
         };
     }
     
@@ -130,6 +195,8 @@ public class StorageFactory {
         return switch (mode) {
             case YAML -> "传统的YAML文件存储方式，兼容旧版本";
             case INVENTORY -> "独立的圣遗物存储系统，数据更可靠";
+            case SEGMENT -> "所有玩家数据存放在少量内存映射段文件中，适合玩家数量很多的服务器";
+            case SQLITE -> "嵌入式SQLite数据库，单件圣遗物变更只更新一行，支持跨玩家查询";
         };
     }
 }
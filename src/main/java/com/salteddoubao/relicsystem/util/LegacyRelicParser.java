@@ -0,0 +1,270 @@
+package com.salteddoubao.relicsystem.util;
+
+import com.salteddoubao.relicsystem.relic.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 旧版物品载荷（以 | 分隔的字符串）的单遍解析器
+ *
+ * <pre>
+ * id|setId|SLOT|RARITY|level|exp|locked|MAIN_TYPE:value|SUB_TYPE:value;SUB_TYPE:value;...
+ * </pre>
+ *
+ * 用游标在原字符串上逐字段前进，不使用正则、不切分出中间数组与子串（套装ID除外）：
+ * - UUID 按标准 36 字符格式直接解析十六进制，非标准写法交给 {@link UUID#fromString}
+ * - 数值按十进制快速路径解析（有效数字不超过 15 位时一次除法即为正确舍入结果），
+ *   带指数或过长的写法交给 {@link Double#parseDouble}
+ * - 枚举名（含旧属性名映射）预先建表，按区间比较查找，不再调用 valueOf
+ *
+ * 与原 String.split 实现的结果一致：字段不足、数值非法或遇到未知属性名时返回 null；
+ * 已删除的属性作为主词条时返回 null，作为副词条时跳过。
+ */
+public final class LegacyRelicParser {
+    private static final double[] POW10 = new double[23];
+    // 属性名表：当前枚举名与旧名称，值为映射后的属性（已删除的属性为 null）
+    private static final String[] STAT_NAMES;
+    private static final RelicStatType[] STAT_VALUES;
+    private static final RelicSlot[] SLOTS = RelicSlot.values();
+    private static final RelicRarity[] RARITIES = RelicRarity.values();
+    private static final int UNKNOWN = -1;
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+        List<String> names = new ArrayList<>();
+        for (RelicStatType t : RelicStatType.values()) names.add(t.name());
+        for (String legacy : new String[]{"CRIT_DMG", "HEAL_BONUS", "DEFENSE", "PVP_DEFENSE", "PVE_DEFENSE",
+                "SHIELD_BLOCK_CHANCE", "ELEM_DMG_ANY", "ATK_SPEED", "LUCK", "KB_RES"}) {
+            if (!names.contains(legacy)) names.add(legacy);
+        }
+        List<String> keys = new ArrayList<>();
+        List<RelicStatType> values = new ArrayList<>();
+        for (String name : names) {
+            String mapped = migrateOldStatType(name);
+            try {
+                values.add(mapped == null ? null : RelicStatType.valueOf(mapped));
+                keys.add(name);
+            } catch (IllegalArgumentException ignored) {
+                // 映射目标已不存在：按未知属性处理
+            }
+        }
+        STAT_NAMES = keys.toArray(new String[0]);
+        STAT_VALUES = values.toArray(new RelicStatType[0]);
+    }
+
+    private final String s;
+    private int pos;
+
+    private LegacyRelicParser(String s) {
+        this.s = s;
+    }
+
+    /**
+     * 解析旧版载荷，无法解析时返回 null
+     */
+    public static RelicData parse(String data) {
+        if (data == null) return null;
+        try {
+            return new LegacyRelicParser(data).relic();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private RelicData relic() {
+        int end = fieldEnd();
+        UUID id = uuid(pos, end);
+        pos = end + 1;
+        end = fieldEnd();
+        String setId = s.substring(pos, end);
+        pos = end + 1;
+        end = fieldEnd();
+        RelicSlot slot = SLOTS[enumIndex(SLOTS, pos, end)];
+        pos = end + 1;
+        end = fieldEnd();
+        RelicRarity rarity = RARITIES[enumIndex(RARITIES, pos, end)];
+        pos = end + 1;
+        end = fieldEnd();
+        int level = parseInt(pos, end);
+        pos = end + 1;
+        end = fieldEnd();
+        int exp = parseInt(pos, end);
+        pos = end + 1;
+        end = fieldEnd();
+        boolean locked = end - pos == 4 && s.regionMatches(true, pos, "true", 0, 4);
+        pos = end + 1;
+
+        // 主词条 TYPE:value（多余的 :xxx 忽略）
+        end = fieldEnd();
+        int colon = indexOf(':', pos, end);
+        if (colon < 0) return null;
+        int stat = statIndex(pos, colon);
+        if (stat == UNKNOWN || STAT_VALUES[stat] == null) return null; // 未知或已删除的属性类型
+        int valueEnd = indexOf(':', colon + 1, end);
+        RelicMainStat mainStat = new RelicMainStat(STAT_VALUES[stat],
+                parseDouble(colon + 1, valueEnd < 0 ? end : valueEnd));
+        pos = end + 1;
+
+        // 副词条 TYPE:value;...（末尾多余的冒号忽略，之后恰好一个冒号的条目才有效）
+        List<RelicSubstat> substats = new ArrayList<>(4);
+        if (pos < s.length()) {
+            end = fieldEnd();
+            while (pos < end) {
+                int entryEnd = indexOf(';', pos, end);
+                if (entryEnd < 0) entryEnd = end;
+                int last = entryEnd;
+                while (last > pos && s.charAt(last - 1) == ':') last--;
+                int c = indexOf(':', pos, last);
+                if (c >= 0 && indexOf(':', c + 1, last) < 0) {
+                    int sub = statIndex(pos, c);
+                    if (sub == UNKNOWN) return null;
+                    if (STAT_VALUES[sub] != null) { // 跳过已删除的属性
+                        substats.add(new RelicSubstat(STAT_VALUES[sub], parseDouble(c + 1, last)));
+                    }
+                }
+                pos = entryEnd + 1;
+            }
+        }
+        return new RelicData(id, setId, slot, rarity, level, exp, mainStat, substats, locked);
+    }
+
+    // ===== 游标 =====
+
+    /** 当前字段的结束位置（下一个 | 或字符串末尾）；已越过末尾时说明字段不足 */
+    private int fieldEnd() {
+        if (pos > s.length()) throw new IllegalArgumentException("字段不足");
+        int end = s.indexOf('|', pos);
+        return end < 0 ? s.length() : end;
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    // ===== 字段解析 =====
+
+    private UUID uuid(int from, int to) {
+        if (to - from != 36 || s.charAt(from + 8) != '-' || s.charAt(from + 13) != '-'
+                || s.charAt(from + 18) != '-' || s.charAt(from + 23) != '-') {
+            return UUID.fromString(s.substring(from, to));
+        }
+        long a = hex(from, from + 8), b = hex(from + 9, from + 13), c = hex(from + 14, from + 18);
+        long d = hex(from + 19, from + 23), e = hex(from + 24, from + 36);
+        if ((a | b | c | d | e) < 0) {
+            return UUID.fromString(s.substring(from, to));
+        }
+        return new UUID(a << 32 | b << 16 | c, d << 48 | e);
+    }
+
+    /** ASCII 十六进制，遇到其他字符返回 -1 */
+    private long hex(int from, int to) {
+        long v = 0;
+        for (int i = from; i < to; i++) {
+            char ch = s.charAt(i);
+            int digit;
+            if (ch >= '0' && ch <= '9') digit = ch - '0';
+            else if (ch >= 'a' && ch <= 'f') digit = ch - 'a' + 10;
+            else if (ch >= 'A' && ch <= 'F') digit = ch - 'A' + 10;
+            else return -1;
+            v = v << 4 | digit;
+        }
+        return v;
+    }
+
+    private int parseInt(int from, int to) {
+        if (from >= to) throw new NumberFormatException("空数字");
+        boolean negative = s.charAt(from) == '-';
+        int i = negative || s.charAt(from) == '+' ? from + 1 : from;
+        if (i >= to || to - i > 10) return Integer.parseInt(s.substring(from, to));
+        long v = 0;
+        for (; i < to; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) return Integer.parseInt(s.substring(from, to));
+            v = v * 10 + d;
+        }
+        v = negative ? -v : v;
+        if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) throw new NumberFormatException("数字越界");
+        return (int) v;
+    }
+
+    /**
+     * 十进制快速路径：[-]digits[.digits]，有效数字不超过 15 位、小数不超过 22 位时
+     * 尾数与 10 的幂都能精确表示，一次除法得到与 Double.parseDouble 相同的结果
+     */
+    private double parseDouble(int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        boolean anyDigit = false;
+        int fraction = -1;
+        boolean simple = i < to;
+        for (; i < to && simple; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (mantissa != 0 || c != '0') digits++;
+                anyDigit = true;
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction >= 0) fraction++;
+                simple = digits <= 15;
+            } else if (c == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                simple = false;
+            }
+        }
+        if (!simple || !anyDigit || fraction > 22) {
+            return Double.parseDouble(s.substring(from, to));
+        }
+        double value = fraction > 0 ? mantissa / POW10[fraction] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private <E extends Enum<E>> int enumIndex(E[] values, int from, int to) {
+        int len = to - from;
+        for (E e : values) {
+            String name = e.name();
+            if (name.length() == len && s.regionMatches(from, name, 0, len)) return e.ordinal();
+        }
+        throw new IllegalArgumentException("未知枚举: " + s.substring(from, to));
+    }
+
+    private int statIndex(int from, int to) {
+        int len = to - from;
+        for (int i = 0; i < STAT_NAMES.length; i++) {
+            String name = STAT_NAMES[i];
+            if (name.length() == len && s.regionMatches(from, name, 0, len)) return i;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * 迁移旧的属性类型名到新名称（兼容性映射）
+     */
+    public static String migrateOldStatType(String oldType) {
+        if (oldType == null) return oldType;
+        // 对应 AP 官方属性重命名
+        return switch (oldType) {
+            case "CRIT_RATE" -> "CRIT_CHANCE";  // 暴击率 -> 暴击几率
+            case "CRIT_DMG" -> "CRIT_RATE";     // 暴击伤害 -> 暴伤倍率
+            case "HEAL_BONUS" -> "RESTORE_RATIO"; // 治疗加成 -> 百分比恢复
+            case "DEFENSE" -> "DEF_FLAT";       // 防御 -> 物理防御（平添）
+            case "PVP_DEFENSE" -> "PVP_DEF";
+            case "PVE_DEFENSE" -> "PVE_DEF";
+            case "SHIELD_BLOCK_CHANCE" -> "SHIELD_BLOCK";
+            // 已删除的属性返回 null，跳过
+            case "ELEM_DMG_ANY", "ATK_SPEED", "LUCK", "KB_RES" -> null;
+            default -> oldType;
+        };
+    }
+}
@@ -64,6 +64,40 @@ public class RelicIO {
         }
     }
     
+    /**
+     * 从 {@link #serializeRelic} 布局的普通 Map 读取（JSON 导入用），数值可以是任意 Number
+     * 导出文件始终使用当前的属性枚举名，不做旧名映射
+     */
+    public static RelicData deserializeRelic(Map<?, ?> m) {
+        try {
+            UUID id = UUID.fromString(String.valueOf(m.get("id")));
+            String setId = String.valueOf(m.get("setId"));
+            RelicSlot slot = RelicSlot.valueOf(String.valueOf(m.get("slot")));
+            RelicRarity rarity = RelicRarity.valueOf(String.valueOf(m.get("rarity")));
+            int level = m.get("level") instanceof Number ? ((Number) m.get("level")).intValue() : 0;
+            int exp = m.get("exp") instanceof Number ? ((Number) m.get("exp")).intValue() : 0;
+            boolean locked = Boolean.TRUE.equals(m.get("locked"));
+            Map<?, ?> main = (Map<?, ?>) m.get("main");
+            RelicMainStat mainStat = new RelicMainStat(
+                    RelicStatType.valueOf(String.valueOf(main.get("type"))),
+                    main.get("value") instanceof Number ? ((Number) main.get("value")).doubleValue() : 0.0
+            );
+            List<RelicSubstat> subs = new ArrayList<>();
+            Object rawSubs = m.get("substats");
+            if (rawSubs instanceof List) {
+                for (Object o : (List<?>) rawSubs) {
+                    Map<?, ?> sm = (Map<?, ?>) o;
+                    RelicStatType t = RelicStatType.valueOf(String.valueOf(sm.get("type")));
+                    double v = sm.get("value") instanceof Number ? ((Number) sm.get("value")).doubleValue() : 0.0;
+                    subs.add(new RelicSubstat(t, v));
+                }
+            }
+            return new RelicData(id, setId, slot, rarity, level, exp, mainStat, subs, locked);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     /**
      * 迁移旧的属性类型名到新名称（兼容性映射）
      */
@@ -1,7 +1,6 @@
 package com.salteddoubao.relicsystem.util;
 
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.format.TextDecoration;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.ItemStack;
@@ -11,22 +10,53 @@ import org.bukkit.persistence.PersistentDataType;
 
 import com.salteddoubao.relicsystem.MinecraftRelicSystem;
 import com.salteddoubao.relicsystem.relic.*;
+import com.salteddoubao.relicsystem.storage.DurableFileWriter;
 import com.salteddoubao.relicsystem.util.RelicDisplayUtils;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 圣遗物与ItemStack转换工具
+ *
+ * 圣遗物数据以 BYTE_ARRAY 存放在 PDC 的 relic_data 键中（定长字段，读取只是几次数组访问）：
+ * <pre>
+ * 版本(byte) | UUID(2×long) | 部位(byte) 稀有度(byte) 等级(short) 经验(int) 标志(byte, bit0=锁定)
+ * 主词条类型(byte) 主词条数值(double) | 副词条数(byte) [类型(byte) 数值(double)]... | 套装ID长度(short) UTF-8
+ * </pre>
+ * 枚举按序号存储，只能在末尾追加新值；调整顺序时需提升 {@link #PAYLOAD_VERSION} 并保留旧版本的解码。
+ * 旧版本写入的是以 | 分隔的字符串（STRING 类型），仍可读取，读取时就地改写为二进制载荷。
+ * 二进制载荷解码只是定长读取，比按内容查缓存再复制还快，因此每次直接解码，不做缓存。
  */
 public class RelicItemConverter {
+    /** PDC 二进制载荷版本 */
+    private static final byte PAYLOAD_VERSION = 1;
+    /** 不含副词条与套装ID的定长部分 */
+    private static final int PAYLOAD_FIXED_BYTES = 1 + 16 + 1 + 1 + 2 + 4 + 1 + 1 + 8 + 1 + 2;
+    private static final byte FLAG_LOCKED = 1;
+    private static final Component LOCKED_LINE = Component.text("§c已锁定");
+    private static final Component FOOTER_LINE = Component.text("§e右键装备 | Shift+右键放入仓库");
+
     private final MinecraftRelicSystem plugin;
     private final NamespacedKey relicDataKey;
+    // 生成过圣遗物或实际见到过圣遗物的材质，持久化到 relic_materials.txt（可能在保存线程上写入）
+    private final Set<Material> learnedMaterials = ConcurrentHashMap.newKeySet();
+    private final File materialsFile;
+    private final DurableFileWriter materialsWriter;
     
     public RelicItemConverter(MinecraftRelicSystem plugin) {
         this.plugin = plugin;
         this.relicDataKey = new NamespacedKey(plugin, "relic_data");
+        this.materialsFile = new File(plugin.getDataFolder(), "relic_materials.txt");
+        this.materialsWriter = new DurableFileWriter(plugin.getLogger());
+        loadMaterials();
     }
     
     /**
@@ -42,63 +72,36 @@ public class RelicItemConverter {
         if (material == null) {
             material = RelicDisplayUtils.getRarityMaterial(relic.getRarity());
         }
+        learnMaterial(material);
         ItemStack item = new ItemStack(material);
         ItemMeta meta = item.getItemMeta();
         
         if (meta != null) {
-            // 设置显示名称
-            RelicSet setRef = set;
-            if (setRef == null) setRef = plugin.getRelicManager().getRelicSet(relic.getSetId());
-            String setName = setRef != null ? setRef.getName() : relic.getSetId();
-            meta.displayName(Component.text(RelicDisplayUtils.getRarityColor(relic.getRarity()) + setName + " - " + RelicDisplayUtils.getSlotDisplayName(relic.getSlot()))
-                .decoration(TextDecoration.ITALIC, false));
+            // 名称与描述中不变的部分来自预渲染模板，只拼接数值
+            RelicLoreTemplates templates = plugin.getRelicManager().getLoreTemplates();
+            meta.displayName(templates.displayName(relic));
             
-            // 设置描述
             List<Component> lore = new ArrayList<>();
-            lore.add(Component.text("§7等级: §f" + relic.getLevel()));
-            lore.add(Component.text("§7"));
+            lore.add(templates.level(relic.getLevel()));
+            lore.add(RelicLoreTemplates.BLANK);
             
             // 套装效果预览
-            if (setRef != null) {
-                lore.add(Component.text("§6套装效果:"));
-                lore.add(Component.text("  §e两件套"));
-                for (String desc : setRef.getTwoPieceEffects()) {
-                    lore.add(Component.text("    §7- " + desc));
-                }
-                lore.add(Component.text("  §e四件套"));
-                for (String desc : setRef.getFourPieceEffects()) {
-                    lore.add(Component.text("    §7- " + desc));
-                }
-                lore.add(Component.text("§7"));
-            }
+            lore.addAll(templates.setBonusBlock(relic.getSetId()));
             
-            lore.add(Component.text("§6主词条:"));
-            lore.add(Component.text("  " + relic.getMainStat().getType().getDisplay() + ": §a" + 
-                String.format("%.1f", relic.getMainStat().getValue()) + 
-                (relic.getMainStat().getType().isPercent() ? "%" : "")));
+            templates.appendStats(lore, relic);
             
-            if (!relic.getSubstats().isEmpty()) {
-                lore.add(Component.text("§7"));
-                lore.add(Component.text("§6副词条:"));
-                for (RelicSubstat substat : relic.getSubstats()) {
-                    lore.add(Component.text("  " + substat.getType().getDisplay() + ": §a" + 
-                        String.format("%.1f", substat.getValue()) + 
-                        (substat.getType().isPercent() ? "%" : "")));
-                }
-            }
-            
-            lore.add(Component.text("§7"));
+            lore.add(RelicLoreTemplates.BLANK);
             if (relic.isLocked()) {
-                lore.add(Component.text("§c已锁定"));
+                lore.add(LOCKED_LINE);
             }
-            lore.add(Component.text("§7"));
-            lore.add(Component.text("§e右键装备 | Shift+右键放入仓库"));
+            lore.add(RelicLoreTemplates.BLANK);
+            lore.add(FOOTER_LINE);
             
             meta.lore(lore);
             
             // 存储圣遗物数据
             PersistentDataContainer pdc = meta.getPersistentDataContainer();
-            pdc.set(relicDataKey, PersistentDataType.STRING, serializeRelicData(relic));
+            pdc.set(relicDataKey, PersistentDataType.BYTE_ARRAY, encodePayload(relic));
             
             // 非0级时附魔发光
             if (relic.getLevel() > 0) {
@@ -120,123 +123,192 @@ public class RelicItemConverter {
     
     /**
      * 从ItemStack转换回圣遗物
+     * 旧的字符串载荷解码成功后就地改写为二进制载荷
      */
     public RelicData fromItemStack(ItemStack item) {
+        return probe(item).getRelic();
+    }
+    
+    /**
+     * 探测物品是否为圣遗物并解码，只读取（克隆）一次 ItemMeta
+     * 需要区分“不是圣遗物”与“是圣遗物但数据无法解码”时使用
+     * 解码结果不缓存：定长载荷直接解码比按载荷查缓存再复制可变的 RelicData 更快
+     */
+    public Probe probe(ItemStack item) {
         if (item == null || !item.hasItemMeta()) {
-            return null;
+            return Probe.NOT_RELIC;
         }
         
         ItemMeta meta = item.getItemMeta();
         PersistentDataContainer pdc = meta.getPersistentDataContainer();
         
+        // PDC 按类型读取，类型不符时 get 会抛异常，先用 has 区分新旧载荷
+        if (pdc.has(relicDataKey, PersistentDataType.BYTE_ARRAY)) {
+            learnMaterial(item.getType());
+            return new Probe(decodePayload(pdc.get(relicDataKey, PersistentDataType.BYTE_ARRAY)));
+        }
         if (!pdc.has(relicDataKey, PersistentDataType.STRING)) {
-            return null;
+            return Probe.NOT_RELIC;
         }
         
-        String data = pdc.get(relicDataKey, PersistentDataType.STRING);
-        return deserializeRelicData(data);
+        learnMaterial(item.getType());
+        RelicData relic = deserializeRelicData(pdc.get(relicDataKey, PersistentDataType.STRING));
+        if (relic != null) {
+            pdc.set(relicDataKey, PersistentDataType.BYTE_ARRAY, encodePayload(relic));
+            item.setItemMeta(meta);
+        }
+        return new Probe(relic);
     }
     
     /**
-     * 检查物品是否为圣遗物
+     * 批量扫描背包时使用：材质不可能是圣遗物的物品直接跳过，不读取 ItemMeta
      */
-    public boolean isRelicItem(ItemStack item) {
-        if (item == null || !item.hasItemMeta()) {
-            return false;
+    public Probe scan(ItemStack item) {
+        if (item == null || !isCandidateMaterial(item.getType())) {
+            return Probe.NOT_RELIC;
         }
-        
-        return item.getItemMeta().getPersistentDataContainer()
-            .has(relicDataKey, PersistentDataType.STRING);
+        return probe(item);
     }
     
-    private String serializeRelicData(RelicData relic) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(relic.getId().toString()).append("|");
-        sb.append(relic.getSetId()).append("|");
-        sb.append(relic.getSlot().name()).append("|");
-        sb.append(relic.getRarity().name()).append("|");
-        sb.append(relic.getLevel()).append("|");
-        sb.append(relic.getExp()).append("|");
-        sb.append(relic.isLocked()).append("|");
-        
-        // 主词条
+    /**
+     * 材质是否可能是圣遗物：当前的套装模板材质、稀有度材质，以及生成过或见到过圣遗物的材质
+     * 后者跨重启保存，套装模板材质修改后，用旧材质生成的圣遗物仍会被扫描到
+     * （记录此文件之前用已改掉的材质生成的旧圣遗物，被单独探测到一次即会加入）
+     */
+    public boolean isCandidateMaterial(Material material) {
+        return plugin.getRelicManager().isRelicMaterial(material) || learnedMaterials.contains(material);
+    }
+    
+    private void learnMaterial(Material material) {
+        if (!learnedMaterials.add(material)) return;
+        if (plugin.isEnabled()) {
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, this::saveMaterials);
+        } else {
+            saveMaterials();
+        }
+    }
+    
+    private void loadMaterials() {
+        List<String> candidates = DurableFileWriter.readTextCandidates(materialsFile, plugin.getLogger());
+        if (candidates.isEmpty()) return;
+        for (String line : candidates.get(0).split("\n")) {
+            String name = line.trim();
+            if (name.isEmpty() || name.startsWith("#")) continue;
+            try {
+                learnedMaterials.add(Material.valueOf(name));
+            } catch (IllegalArgumentException ignored) {
+                // 版本变化后已不存在的材质
+            }
+        }
+    }
+    
+    private synchronized void saveMaterials() {
+        StringBuilder sb = new StringBuilder("# 生成过或见到过圣遗物的物品材质（批量扫描背包时的预筛）\n");
+        learnedMaterials.stream().map(Material::name).sorted().forEach(name -> sb.append(name).append('\n'));
+        try {
+            materialsWriter.writeText(materialsFile, sb.toString());
+        } catch (IOException e) {
+            plugin.getLogger().warning("保存圣遗物材质列表失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 编码为 PDC 二进制载荷
+     */
+    static byte[] encodePayload(RelicData relic) {
+        byte[] setId = relic.getSetId() == null ? new byte[0] : relic.getSetId().getBytes(StandardCharsets.UTF_8);
+        List<RelicSubstat> subs = relic.getSubstats();
+        ByteBuffer buf = ByteBuffer.allocate(PAYLOAD_FIXED_BYTES + subs.size() * 9 + setId.length);
+        buf.put(PAYLOAD_VERSION);
+        buf.putLong(relic.getId().getMostSignificantBits());
+        buf.putLong(relic.getId().getLeastSignificantBits());
+        buf.put((byte) relic.getSlot().ordinal());
+        buf.put((byte) relic.getRarity().ordinal());
+        buf.putShort((short) relic.getLevel());
+        buf.putInt(relic.getExp());
+        buf.put(relic.isLocked() ? FLAG_LOCKED : 0);
         RelicMainStat main = relic.getMainStat();
-        sb.append(main.getType().name()).append(":").append(main.getValue()).append("|");
-        
-        // 副词条
-        for (RelicSubstat sub : relic.getSubstats()) {
-            sb.append(sub.getType().name()).append(":").append(sub.getValue()).append(";");
+        buf.put((byte) main.getType().ordinal());
+        buf.putDouble(main.getValue());
+        buf.put((byte) subs.size());
+        for (RelicSubstat sub : subs) {
+            buf.put((byte) sub.getType().ordinal());
+            buf.putDouble(sub.getValue());
         }
-        
-        return sb.toString();
+        buf.putShort((short) setId.length);
+        buf.put(setId);
+        return buf.array();
     }
     
-    private RelicData deserializeRelicData(String data) {
+    /**
+     * 解码 PDC 二进制载荷；版本未知、长度不足或序号越界时返回 null
+     */
+    static RelicData decodePayload(byte[] payload) {
+        if (payload == null || payload.length < PAYLOAD_FIXED_BYTES || payload[0] != PAYLOAD_VERSION) {
+            return null;
+        }
         try {
-            String[] parts = data.split("\\|");
-            if (parts.length < 8) return null;
-            
-            UUID id = UUID.fromString(parts[0]);
-            String setId = parts[1];
-            RelicSlot slot = RelicSlot.valueOf(parts[2]);
-            RelicRarity rarity = RelicRarity.valueOf(parts[3]);
-            int level = Integer.parseInt(parts[4]);
-            int exp = Integer.parseInt(parts[5]);
-            boolean locked = Boolean.parseBoolean(parts[6]);
-            
-            // 主词条（兼容旧枚举名）
-            String[] mainParts = parts[7].split(":");
-            String mainTypeStr = migrateOldStatType(mainParts[0]);
-            if (mainTypeStr == null) return null; // 已删除的属性类型
-            RelicMainStat mainStat = new RelicMainStat(
-                RelicStatType.valueOf(mainTypeStr),
-                Double.parseDouble(mainParts[1])
-            );
-            
-            // 副词条（兼容旧枚举名）
-            List<RelicSubstat> substats = new ArrayList<>();
-            if (parts.length > 8 && !parts[8].isEmpty()) {
-                String[] subParts = parts[8].split(";");
-                for (String subPart : subParts) {
-                    if (!subPart.isEmpty()) {
-                        String[] subData = subPart.split(":");
-                        if (subData.length == 2) {
-                            String subTypeStr = migrateOldStatType(subData[0]);
-                            if (subTypeStr != null) { // 跳过已删除的属性
-                                substats.add(new RelicSubstat(
-                                    RelicStatType.valueOf(subTypeStr),
-                                    Double.parseDouble(subData[1])
-                                ));
-                            }
-                        }
-                    }
-                }
+            ByteBuffer buf = ByteBuffer.wrap(payload, 1, payload.length - 1);
+            UUID id = new UUID(buf.getLong(), buf.getLong());
+            RelicSlot[] slots = RelicSlot.values();
+            RelicRarity[] rarities = RelicRarity.values();
+            RelicStatType[] stats = RelicStatType.values();
+            int slot = buf.get() & 0xFF;
+            int rarity = buf.get() & 0xFF;
+            int level = buf.getShort();
+            int exp = buf.getInt();
+            boolean locked = (buf.get() & FLAG_LOCKED) != 0;
+            int mainType = buf.get() & 0xFF;
+            double mainValue = buf.getDouble();
+            int subCount = buf.get() & 0xFF;
+            if (slot >= slots.length || rarity >= rarities.length || mainType >= stats.length) {
+                return null;
             }
-            
-            return new RelicData(id, setId, slot, rarity, level, exp, mainStat, substats, locked);
-        } catch (Exception e) {
+            List<RelicSubstat> substats = new ArrayList<>(subCount);
+            for (int i = 0; i < subCount; i++) {
+                int type = buf.get() & 0xFF;
+                double value = buf.getDouble();
+                if (type >= stats.length) return null;
+                substats.add(new RelicSubstat(stats[type], value));
+            }
+            int setLength = buf.getShort() & 0xFFFF;
+            String setId = new String(payload, buf.position(), setLength, StandardCharsets.UTF_8);
+            return new RelicData(id, setId, slots[slot], rarities[rarity], level, exp,
+                new RelicMainStat(stats[mainType], mainValue), substats, locked);
+        } catch (RuntimeException e) {
             return null;
         }
     }
     
     /**
-     * 迁移旧的属性类型名到新名称（兼容性映射）
+     * 解析旧版本的字符串载荷（id|setId|slot|rarity|level|exp|locked|主词条|副词条;...）
      */
-    private static String migrateOldStatType(String oldType) {
-        if (oldType == null) return oldType;
-        // 对应 AP 官方属性重命名
-        return switch (oldType) {
-            case "CRIT_RATE" -> "CRIT_CHANCE";  // 暴击率 -> 暴击几率
-            case "CRIT_DMG" -> "CRIT_RATE";     // 暴击伤害 -> 暴伤倍率
-            case "HEAL_BONUS" -> "RESTORE_RATIO"; // 治疗加成 -> 百分比恢复
-            case "DEFENSE" -> "DEF_FLAT";       // 防御 -> 物理防御（平添）
-            case "PVP_DEFENSE" -> "PVP_DEF";
-            case "PVE_DEFENSE" -> "PVE_DEF";
-            case "SHIELD_BLOCK_CHANCE" -> "SHIELD_BLOCK";
-            // 已删除的属性返回 null，跳过
-            case "ELEM_DMG_ANY", "ATK_SPEED", "LUCK", "KB_RES" -> null;
-            default -> oldType;
-        };
+    private RelicData deserializeRelicData(String data) {
+        return LegacyRelicParser.parse(data);
     }
     
+    /**
+     * 物品探测结果
+     */
+    public static final class Probe {
+        static final Probe NOT_RELIC = new Probe(false, null);
+        
+        private final boolean relic;
+        private final RelicData data;
+        
+        private Probe(RelicData data) {
+            this(true, data);
+        }
+        
+        private Probe(boolean relic, RelicData data) {
+            this.relic = relic;
+            this.data = data;
+        }
+        
+        /** 物品是否带有圣遗物数据 */
+        public boolean isRelic() { return relic; }
+        /** 解码后的圣遗物；不是圣遗物或数据无法解码时为 null */
+        public RelicData getRelic() { return data; }
+    }
+
 }
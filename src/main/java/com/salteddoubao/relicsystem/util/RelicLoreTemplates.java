@@ -0,0 +1,202 @@
+package com.salteddoubao.relicsystem.util;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.TextDecoration;
+
+import com.salteddoubao.relicsystem.relic.*;
+
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 圣遗物物品名称与描述的预渲染模板
+ *
+ * 随 RelicManager 加载一次性构建（/relic reload 时重建），保存不变的 Adventure 组件：
+ * 套装 × 稀有度 × 部位的显示名称、套装效果描述块、稀有度行、各属性的标签前缀以及固定的标题/页脚行。
+ * 渲染时只把数值部分作为子组件拼接到前缀之后，数值用定点格式化，不经过 String.format。
+ *
+ * 注意：§ 颜色码只在所在组件的文本内生效，因此数值子组件自带颜色码。
+ */
+public final class RelicLoreTemplates {
+    public static final Component BLANK = Component.text("§7");
+    public static final Component MAIN_STAT_HEADER = Component.text("§6主词条:");
+    public static final Component SUB_STAT_HEADER = Component.text("§6副词条:");
+    public static final Component STAT_TOTAL_HEADER = Component.text("§6属性合计:");
+
+    private static final Component LEVEL_PREFIX = Component.text("§7等级: ");
+    private static final RelicRarity[] RARITIES = RelicRarity.values();
+    private static final RelicSlot[] SLOTS = RelicSlot.values();
+    private static final RelicStatType[] STATS = RelicStatType.values();
+
+    // 默认格式区域的小数点；区域数字不是 0-9 时为 0，此时全部交给 Formatter
+    private static volatile Locale decimalLocale;
+    private static volatile char decimalSeparator;
+
+    // 套装ID -> [稀有度][部位] 显示名称
+    private final Map<String, Component[][]> names = new HashMap<>();
+    // 套装ID -> 套装效果描述块（含标题与末尾空行）
+    private final Map<String, List<Component>> setBonusBlocks = new HashMap<>();
+    private final Component[] rarityLines = new Component[RARITIES.length];
+    private final Component[] slotLines = new Component[SLOTS.length];
+    private final Component[] statPrefixes = new Component[STATS.length];
+    private final Component[] totalPrefixes = new Component[STATS.length];
+
+    public RelicLoreTemplates(Map<String, RelicSet> sets) {
+        for (RelicSet set : sets.values()) {
+            names.put(set.getId(), buildNames(set.getName()));
+            setBonusBlocks.put(set.getId(), buildSetBonusBlock(set));
+        }
+        for (RelicRarity rarity : RARITIES) {
+            rarityLines[rarity.ordinal()] = Component.text("§7稀有度: " + RelicDisplayUtils.getRarityColor(rarity) + rarity.getStars() + "★");
+        }
+        for (RelicSlot slot : SLOTS) {
+            slotLines[slot.ordinal()] = Component.text("§7部位: §f" + RelicDisplayUtils.getSlotDisplayName(slot));
+        }
+        for (RelicStatType type : STATS) {
+            statPrefixes[type.ordinal()] = Component.text("  " + type.getDisplay() + ": ");
+            totalPrefixes[type.ordinal()] = Component.text("  §7- " + type.getDisplay() + ": ");
+        }
+    }
+
+    /**
+     * 显示名称：稀有度颜色 + 套装名 + 部位（未知套装按ID现场构建）
+     */
+    public Component displayName(RelicData relic) {
+        Component[][] table = names.get(relic.getSetId());
+        if (table == null) {
+            return buildName(relic.getSetId(), relic.getRarity(), relic.getSlot());
+        }
+        return table[relic.getRarity().ordinal()][relic.getSlot().ordinal()];
+    }
+
+    /**
+     * 套装效果描述块（未知套装返回空列表）
+     */
+    public List<Component> setBonusBlock(String setId) {
+        return setBonusBlocks.getOrDefault(setId, Collections.emptyList());
+    }
+
+    public Component level(int level) {
+        return LEVEL_PREFIX.append(Component.text("§f" + level));
+    }
+
+    public Component rarity(RelicRarity rarity) {
+        return rarityLines[rarity.ordinal()];
+    }
+
+    public Component slot(RelicSlot slot) {
+        return slotLines[slot.ordinal()];
+    }
+
+    /**
+     * 词条行：  属性名: §a数值[%]
+     */
+    public Component stat(RelicStatType type, double value) {
+        return statPrefixes[type.ordinal()].append(valueText(type, value));
+    }
+
+    /**
+     * 属性合计行：  §7- 属性名: §a数值[%]
+     */
+    public Component statTotal(RelicStatType type, double value) {
+        return totalPrefixes[type.ordinal()].append(valueText(type, value));
+    }
+
+    /**
+     * 主词条与副词条块（主词条标题开始，不含末尾空行）
+     */
+    public void appendStats(List<Component> lore, RelicData relic) {
+        lore.add(MAIN_STAT_HEADER);
+        lore.add(stat(relic.getMainStat().getType(), relic.getMainStat().getValue()));
+        List<RelicSubstat> substats = relic.getSubstats();
+        if (!substats.isEmpty()) {
+            lore.add(BLANK);
+            lore.add(SUB_STAT_HEADER);
+            for (RelicSubstat substat : substats) {
+                lore.add(stat(substat.getType(), substat.getValue()));
+            }
+        }
+    }
+
+    private static Component valueText(RelicStatType type, double value) {
+        StringBuilder sb = new StringBuilder(12).append("§a");
+        appendOneDecimal(sb, value);
+        if (type.isPercent()) sb.append('%');
+        return Component.text(sb.toString());
+    }
+
+    /**
+     * 保留一位小数，结果与 String.format("%.1f") 一致（按默认区域的小数点）
+     * 常见范围内按十分位定点取整；恰好落在半进位附近、负数或过大的值交给 Formatter
+     */
+    public static String formatOneDecimal(double value) {
+        StringBuilder sb = new StringBuilder(8);
+        appendOneDecimal(sb, value);
+        return sb.toString();
+    }
+
+    private static void appendOneDecimal(StringBuilder sb, double value) {
+        char separator = decimalSeparator();
+        if (separator == 0 || !(value >= 0 && value < 1e7)) {
+            sb.append(String.format("%.1f", value));
+            return;
+        }
+        double scaled = value * 10;
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        if (Math.abs(fraction - 0.5) < 1e-6) {
+            sb.append(String.format("%.1f", value));
+            return;
+        }
+        long tenths = (long) floor + (fraction > 0.5 ? 1 : 0);
+        sb.append(tenths / 10).append(separator).append((char) ('0' + tenths % 10));
+    }
+
+    /**
+     * 与 Formatter 相同取默认格式区域的符号，区域变化时重新读取
+     */
+    private static char decimalSeparator() {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        if (locale != decimalLocale) {
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+            decimalSeparator = symbols.getZeroDigit() == '0' ? symbols.getDecimalSeparator() : 0;
+            decimalLocale = locale;
+        }
+        return decimalSeparator;
+    }
+
+    private static Component[][] buildNames(String setName) {
+        Component[][] table = new Component[RARITIES.length][SLOTS.length];
+        for (RelicRarity rarity : RARITIES) {
+            for (RelicSlot slot : SLOTS) {
+                table[rarity.ordinal()][slot.ordinal()] = buildName(setName, rarity, slot);
+            }
+        }
+        return table;
+    }
+
+    private static Component buildName(String setName, RelicRarity rarity, RelicSlot slot) {
+        return Component.text(RelicDisplayUtils.getRarityColor(rarity) + setName + " - " + RelicDisplayUtils.getSlotDisplayName(slot))
+                .decoration(TextDecoration.ITALIC, false);
+    }
+
+    private static List<Component> buildSetBonusBlock(RelicSet set) {
+        List<Component> block = new ArrayList<>();
+        block.add(Component.text("§6套装效果:"));
+        block.add(Component.text("  §e两件套"));
+        for (String desc : set.getTwoPieceEffects()) {
+            block.add(Component.text("    §7- " + desc));
+        }
+        block.add(Component.text("  §e四件套"));
+        for (String desc : set.getFourPieceEffects()) {
+            block.add(Component.text("    §7- " + desc));
+        }
+        block.add(BLANK);
+        return Collections.unmodifiableList(block);
+    }
+}